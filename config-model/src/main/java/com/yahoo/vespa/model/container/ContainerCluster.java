@@ -671,6 +671,8 @@ public abstract class ContainerCluster<CONTAINER extends Container>
         for (SearchCluster searchCluster : Content.getSearchClusters(getRoot().configModelRepo())) {
             searchCluster.getConfig(builder);
         }
+        if (containerDocproc != null && containerDocproc.options.indexingParallelism != null)
+            builder.parallelism(containerDocproc.options.indexingParallelism);
     }
 
     @Override
@@ -129,16 +129,20 @@ public class ContainerDocproc extends ContainerSubsystem<DocprocChains> implemen
         public final Double documentExpansionFactor;
         public final Integer containerCoreMemory;
 
-        public Options(Integer maxMessagesInQueue, Integer maxQueueTimeMs, Double maxConcurrentFactor, Double documentExpansionFactor, Integer containerCoreMemory, Element threadpoolXml) {
+        /** The number of documents of a processing to run the indexing scripts for concurrently, or null for the default */
+        public final Integer indexingParallelism;
+
+        public Options(Integer maxMessagesInQueue, Integer maxQueueTimeMs, Double maxConcurrentFactor, Double documentExpansionFactor, Integer containerCoreMemory, Integer indexingParallelism, Element threadpoolXml) {
             this.threadpoolXml = threadpoolXml;
             this.maxMessagesInQueue = maxMessagesInQueue;
             this.maxQueueTimeMs = maxQueueTimeMs;
             this.maxConcurrentFactor = maxConcurrentFactor;
             this.documentExpansionFactor = documentExpansionFactor;
             this.containerCoreMemory = containerCoreMemory;
+            this.indexingParallelism = indexingParallelism;
         }
 
-        static Options empty() { return new Options(null, null, null, null, null, null); }
+        static Options empty() { return new Options(null, null, null, null, null, null, null); }
 
     }
 
@@ -18,6 +18,7 @@ public class DocprocOptionsBuilder {
                 getFactor(spec.getAttribute("maxconcurrentfactor")),
                 getFactor(spec.getAttribute("documentexpansionfactor")),
                 getInt(spec.getAttribute("containercorememory")),
+                getInt(spec.getAttribute("indexingparallelism")),
                 XML.getChild(spec, "threadpool"));
     }
 
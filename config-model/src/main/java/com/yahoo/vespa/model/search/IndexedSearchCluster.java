@@ -64,6 +64,7 @@ public class IndexedSearchCluster extends SearchCluster {
             case BEST_OF_RANDOM_2 -> DistributionPolicy.BEST_OF_RANDOM_2;
             case LATENCY_AMORTIZED_OVER_REQUESTS -> DistributionPolicy.LATENCY_AMORTIZED_OVER_REQUESTS;
             case LATENCY_AMORTIZED_OVER_TIME -> DistributionPolicy.LATENCY_AMORTIZED_OVER_TIME;
+            case LATENCY_AWARE -> DistributionPolicy.LATENCY_AWARE;
         };
     }
 
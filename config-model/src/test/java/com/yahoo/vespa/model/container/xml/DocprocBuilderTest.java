@@ -8,6 +8,7 @@ import com.yahoo.container.ComponentsConfig;
 import com.yahoo.container.core.ChainsConfig;
 import com.yahoo.container.jdisc.ContainerMbusConfig;
 import com.yahoo.search.config.QrStartConfig;
+import com.yahoo.vespa.configdefinition.IlscriptsConfig;
 import com.yahoo.vespa.model.HostPorts;
 import com.yahoo.vespa.model.container.ApplicationContainer;
 import com.yahoo.vespa.model.container.ApplicationContainerCluster;
@@ -40,6 +41,7 @@ public class DocprocBuilderTest extends DomBuilderTest {
     private ChainsConfig chainsConfig;
     private SchemamappingConfig schemamappingConfig;
     private QrStartConfig qrStartConfig;
+    private IlscriptsConfig ilscriptsConfig;
 
     @BeforeEach
     public void setupCluster() {
@@ -55,6 +57,7 @@ public class DocprocBuilderTest extends DomBuilderTest {
 
         schemamappingConfig = root.getConfig(SchemamappingConfig.class, cluster.getContainers().get(0).getConfigId());
         qrStartConfig = root.getConfig(QrStartConfig.class, cluster.getConfigId());
+        ilscriptsConfig = root.getConfig(IlscriptsConfig.class, cluster.getConfigId());
     }
 
     private Element servicesXml() {
@@ -63,7 +66,7 @@ public class DocprocBuilderTest extends DomBuilderTest {
                 "  <nodes>",
                 "    <node hostalias='mockhost' baseport='1500' />",
                 "  </nodes>",
-                "  <document-processing maxmessagesinqueue='300' maxqueuewait='200'>",
+                "  <document-processing maxmessagesinqueue='300' maxqueuewait='200' indexingparallelism='4'>",
                 "    <documentprocessor id='docproc1' class='com.yahoo.Docproc1' bundle='docproc1bundle'/>",
                 "    <chain id='chein'>",
                 "      <documentprocessor id='docproc2'/>",
@@ -103,6 +106,11 @@ public class DocprocBuilderTest extends DomBuilderTest {
         assertEquals(300, containerMbusConfig.maxpendingcount());
     }
 
+    @Test
+    void testIlscriptsConfig() {
+        assertEquals(4, ilscriptsConfig.parallelism());
+    }
+
     @Test
     void testComponentsConfig() {
         Map<String, ComponentsConfig.Components> components = new HashMap<>();
@@ -2,6 +2,7 @@
 package com.yahoo.container.core.documentapi;
 
 import com.yahoo.component.annotation.Inject;
+import com.yahoo.container.jdisc.ContainerMbusConfig;
 import com.yahoo.container.di.componentgraph.Provider;
 import com.yahoo.document.config.DocumentmanagerConfig;
 import com.yahoo.documentapi.messagebus.protocol.DocumentProtocolPoliciesConfig;
@@ -18,8 +19,10 @@ public class DocumentAccessProvider implements Provider<VespaDocumentAccess> {
     private final VespaDocumentAccess access;
 
     @Inject
-    public DocumentAccessProvider(DocumentmanagerConfig documentmanagerConfig, MessagebusConfig messagebusConfig) {
-        this.access = new VespaDocumentAccess(documentmanagerConfig, System.getProperty("config.id"), messagebusConfig);
+    public DocumentAccessProvider(DocumentmanagerConfig documentmanagerConfig, MessagebusConfig messagebusConfig,
+                                  ContainerMbusConfig containerMbusConfig) {
+        this.access = new VespaDocumentAccess(documentmanagerConfig, System.getProperty("config.id"), messagebusConfig,
+                                              containerMbusConfig.messengerlanes());
     }
 
     @Override
@@ -37,12 +37,14 @@ public class VespaDocumentAccess extends DocumentAccess {
 
     private final Memoized<DocumentAccess, RuntimeException> delegate;
 
-    VespaDocumentAccess(DocumentmanagerConfig documentmanagerConfig, String slobroksConfigId, MessagebusConfig messagebusConfig) {
+    VespaDocumentAccess(DocumentmanagerConfig documentmanagerConfig, String slobroksConfigId, MessagebusConfig messagebusConfig,
+                        int messengerLanes) {
         super(new DocumentAccessParams().setDocumentmanagerConfig(documentmanagerConfig));
         this.parameters = new MessageBusParams();
         this.parameters.setDocumentmanagerConfig(documentmanagerConfig);
         this.parameters.getRPCNetworkParams().setSlobrokConfigId(slobroksConfigId);
         this.parameters.getMessageBusParams().setMessageBusConfig(messagebusConfig);
+        this.parameters.getMessageBusParams().setMessengerLanes(messengerLanes);
         this.delegate = new Memoized<>(() -> new MessageBusDocumentAccess(parameters), DocumentAccess::shutdown);
     }
 
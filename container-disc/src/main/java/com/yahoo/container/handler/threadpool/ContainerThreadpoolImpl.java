@@ -8,11 +8,13 @@ import com.yahoo.container.protect.ProcessTerminator;
 import com.yahoo.jdisc.Metric;
 import com.yahoo.text.Text;
 
+import java.util.Optional;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -77,19 +79,22 @@ public class ContainerThreadpoolImpl extends AbstractComponent implements AutoCl
         int minThreads = minThreads(config, cpus, hasRelThreads);
         int queueSize = queueSize(config, maxThreads, hasRelQueueSize);
 
-        log.config(Text.format("Threadpool '%s': min=%d, max=%d, queue=%s", name, minThreads, maxThreads, queueSizeToString(queueSize)));
+        log.config(Text.format("Threadpool '%s': min=%d, max=%d, queue=%s%s", name, minThreads, maxThreads,
+                               queueSizeToString(queueSize), config.virtualThreads() ? ", virtual threads" : ""));
 
         ThreadPoolMetric threadPoolMetric = new ThreadPoolMetric(metric, name);
         WorkerCompletionTimingThreadPoolExecutor executor =
                 new WorkerCompletionTimingThreadPoolExecutor(minThreads, maxThreads,
                         (long) config.keepAliveTime() * 1000, TimeUnit.MILLISECONDS,
                         createQueue(queueSize),
-                        ThreadFactoryFactory.getThreadFactory(name),
+                        threadFactory(name, config.virtualThreads()),
                         threadPoolMetric);
         // Pre-start needed, if not all threads will be created by the fist N tasks and hence they might also
         // get the dreaded thread locals initialized even if they will never run.
         // That counters what we want to achieve with the Q that will prefer thread locality.
-        executor.prestartAllCoreThreads();
+        // Virtual threads are cheap to create, but not to keep: Create them when needed instead.
+        if ( ! config.virtualThreads())
+            executor.prestartAllCoreThreads();
         threadpool = new ExecutorServiceWrapper(
                 executor, threadPoolMetric, processTerminator, config.maxThreadExecutionTimeSeconds() * 1000L,
                 name);
@@ -120,6 +125,30 @@ public class ContainerThreadpoolImpl extends AbstractComponent implements AutoCl
         }
     }
 
+    private static ThreadFactory threadFactory(String name, boolean virtual) {
+        if (virtual) {
+            Optional<ThreadFactory> factory = virtualThreadFactory(name + "-virtual-");
+            if (factory.isPresent()) return factory.get();
+            log.warning("Virtual threads are not supported by this JDK: Threadpool '" + name + "' uses platform threads");
+        }
+        return ThreadFactoryFactory.getThreadFactory(name);
+    }
+
+    /**
+     * Returns a factory of virtual threads named by the given prefix and a counter, or empty if this JDK
+     * does not support them. This is looked up reflectively as we compile for a release without virtual threads.
+     */
+    private static Optional<ThreadFactory> virtualThreadFactory(String prefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return Optional.of((ThreadFactory) builderClass.getMethod("factory").invoke(builder));
+        } catch (ReflectiveOperationException e) { // Missing, or a preview feature which is not enabled
+            return Optional.empty();
+        }
+    }
+
     /** For the components requiring infinite queue, they must specify Integer.MAX_VALUE */
     private static BlockingQueue<Runnable> createQueue(int size) {
         if (size == Integer.MAX_VALUE) {
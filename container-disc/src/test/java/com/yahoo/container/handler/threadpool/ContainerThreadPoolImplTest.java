@@ -10,14 +10,18 @@ import com.yahoo.jdisc.Metric;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -119,6 +123,42 @@ public class ContainerThreadPoolImplTest {
         assertDoesNotThrow(() -> createPoolWithAbsoluteValues(metrics, 1, 1));
     }
 
+    @Test
+    void testThatTasksCanRunOnVirtualThreads() throws InterruptedException {
+        ContainerThreadpoolConfig config = new ContainerThreadpoolConfig(new ContainerThreadpoolConfig.Builder()
+                .maxThreads(1000).minThreads(1000).queueSize(0).virtualThreads(true));
+        try (ContainerThreadpoolImpl threadPool = new ContainerThreadpoolImpl(config, new MetricMock(), new MockProcessTerminator(), CPUS)) {
+            int tasks = 1000;
+            CountDownLatch started = new CountDownLatch(tasks);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger virtual = new AtomicInteger();
+            for (int i = 0; i < tasks; i++) {
+                threadPool.executor().execute(() -> {
+                    if (isVirtual(Thread.currentThread())) virtual.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+            }
+            assertTrue(started.await(60, TimeUnit.SECONDS), "All tasks are blocked concurrently");
+            assertEquals(Runtime.version().feature() >= 21 ? tasks : 0, virtual.get());
+            assertThrows(RejectedExecutionException.class, () -> threadPool.executor().execute(() -> { }));
+            release.countDown();
+        }
+    }
+
+    /** Calls Thread.isVirtual, which is not in the release we compile for */
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
     private static class FlipIt implements Runnable {
         public final Receiver<Boolean> didItRun = new Receiver<>();
 
@@ -0,0 +1,74 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.threadpool;
+
+import com.yahoo.container.protect.ProcessTerminator;
+import com.yahoo.container.test.MetricMock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the max rate of requests a thread pool sustains when each request spends most of its time
+ * blocked waiting for replies, as searches do, with platform threads and with virtual threads.
+ * The platform thread pool has a fixed number of threads, while the virtual thread pool uses the same
+ * number of platform threads (one per core by default) to run many more concurrent requests.
+ */
+public class ContainerThreadPoolMicroBenchmark {
+
+    private static final int PLATFORM_THREADS = 64;
+    private static final int VIRTUAL_THREADS = 64 * 64;
+    private static final long BLOCKED_MILLIS = 20;
+    private static final long CPU_NANOS = 20_000;
+
+    public void run() throws InterruptedException {
+        for (int i = 0; i < 2; i++) { // First round is warmup
+            measure(false, PLATFORM_THREADS);
+            measure(true, VIRTUAL_THREADS);
+        }
+    }
+
+    private void measure(boolean virtual, int maxThreads) throws InterruptedException {
+        ContainerThreadpoolConfig config = new ContainerThreadpoolConfig(new ContainerThreadpoolConfig.Builder()
+                .name(virtual ? "virtual" : "platform")
+                .maxThreads(maxThreads).minThreads(maxThreads).queueSize(0).virtualThreads(virtual));
+        try (ContainerThreadpoolImpl threadPool = new ContainerThreadpoolImpl(config, new MetricMock(), new ProcessTerminator())) {
+            long requests = 50_000;
+            AtomicLong rejected = new AtomicLong();
+            CountDownLatch completed = new CountDownLatch((int) requests);
+            long startTime = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                while (true) {
+                    try {
+                        threadPool.executor().execute(() -> { request(); completed.countDown(); });
+                        break;
+                    } catch (RejectedExecutionException e) { // Pool exhausted: Back off, as a client would
+                        rejected.incrementAndGet();
+                        Thread.onSpinWait();
+                    }
+                }
+            }
+            completed.await(10, TimeUnit.MINUTES);
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            System.out.printf("%s threads, max %d: %.0f requests/s (%d rejections)%n",
+                              virtual ? "Virtual" : "Platform", maxThreads, requests / seconds, rejected.get());
+        }
+    }
+
+    /** A request which does a little work, then blocks while waiting for a reply */
+    private static void request() {
+        long end = System.nanoTime() + CPU_NANOS;
+        while (System.nanoTime() < end) Thread.onSpinWait();
+        try {
+            Thread.sleep(BLOCKED_MILLIS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new ContainerThreadPoolMicroBenchmark().run();
+    }
+
+}
@@ -0,0 +1,73 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.jdisc.messagebus;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.messagebus.Messenger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.function.Supplier;
+
+/**
+ * Reports the statistics of each lane of the messenger of a message bus as metrics, with the lane as dimension.
+ */
+class MessengerMetrics {
+
+    private static final String QUEUE_SIZE = ContainerMetrics.MBUS_MESSENGER_QUEUE_SIZE.baseName();
+    private static final String TASKS = ContainerMetrics.MBUS_MESSENGER_TASKS.baseName();
+    private static final String LATENCY = ContainerMetrics.MBUS_MESSENGER_LATENCY.baseName();
+
+    private static final Duration interval = Duration.ofSeconds(10);
+
+    private final Supplier<List<Messenger.LaneStatistics>> statistics;
+    private final Metric metric;
+    private final List<Metric.Context> contexts = new ArrayList<>();
+    private List<Messenger.LaneStatistics> previous = List.of();
+    private Timer timer = null;
+
+    MessengerMetrics(Supplier<List<Messenger.LaneStatistics>> statistics, Metric metric) {
+        this.statistics = statistics;
+        this.metric = metric;
+    }
+
+    /** Starts reporting at a fixed interval, until this is closed */
+    MessengerMetrics start() {
+        timer = new Timer("messenger-metrics", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override public void run() { report(); }
+        }, interval.toMillis(), interval.toMillis());
+        return this;
+    }
+
+    /** Reports the current queue size of each lane, and the tasks run and their average latency since the last report */
+    synchronized void report() {
+        List<Messenger.LaneStatistics> current = statistics.get();
+        for (int lane = 0; lane < current.size(); lane++) {
+            if (contexts.size() == lane)
+                contexts.add(metric.createContext(Map.of("lane", String.valueOf(lane))));
+            Messenger.LaneStatistics now = current.get(lane);
+            long tasks = now.tasksRun();
+            long latencyNanos = now.totalLatencyNanos();
+            if (lane < previous.size()) {
+                tasks -= previous.get(lane).tasksRun();
+                latencyNanos -= previous.get(lane).totalLatencyNanos();
+            }
+            metric.set(QUEUE_SIZE, now.queueSize(), contexts.get(lane));
+            metric.add(TASKS, tasks, contexts.get(lane));
+            if (tasks > 0)
+                metric.set(LATENCY, latencyNanos / tasks / 1e6, contexts.get(lane));
+        }
+        previous = current;
+    }
+
+    void close() {
+        if (timer != null)
+            timer.cancel();
+    }
+
+}
@@ -6,6 +6,7 @@ import com.yahoo.component.annotation.Inject;
 import com.yahoo.container.jdisc.ContainerMbusConfig;
 import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.jdisc.ReferencedResource;
 import com.yahoo.jdisc.References;
 import com.yahoo.jdisc.ResourceReference;
@@ -51,6 +52,7 @@ public final class SessionCache extends AbstractComponent {
     private static final Logger log = Logger.getLogger(SessionCache.class.getName());
 
     private final Memoized<SharedMessageBus, RuntimeException> messageBus;
+    private volatile MessengerMetrics messengerMetrics = null;
 
     private final Object intermediateLock = new Object();
     private final Map<String, SharedIntermediateSession> intermediates = new HashMap<>();
@@ -63,9 +65,8 @@ public final class SessionCache extends AbstractComponent {
     @Inject
     public SessionCache(NetworkMultiplexerProvider nets, ContainerMbusConfig containerMbusConfig,
                         DocumentTypeManager documentTypeManager,
-                        MessagebusConfig messagebusConfig) {
-        this(nets::net, containerMbusConfig, documentTypeManager, messagebusConfig);
-
+                        MessagebusConfig messagebusConfig, Metric metric) {
+        this(nets::net, containerMbusConfig, messagebusConfig, new DocumentProtocol(documentTypeManager), metric);
     }
 
     public SessionCache(Supplier<NetworkMultiplexer> net, ContainerMbusConfig containerMbusConfig,
@@ -79,12 +80,23 @@ public final class SessionCache extends AbstractComponent {
 
     public SessionCache(Supplier<NetworkMultiplexer> net, ContainerMbusConfig containerMbusConfig,
                         MessagebusConfig messagebusConfig, Protocol protocol) {
-        this.messageBus = new Memoized<>(() -> createSharedMessageBus(net.get(), containerMbusConfig, messagebusConfig, protocol),
+        this(net, containerMbusConfig, messagebusConfig, protocol, null);
+    }
+
+    /**
+     * @param metric the metric to report the messenger statistics of the message bus to, or null to not report them
+     */
+    public SessionCache(Supplier<NetworkMultiplexer> net, ContainerMbusConfig containerMbusConfig,
+                        MessagebusConfig messagebusConfig, Protocol protocol, Metric metric) {
+        this.messageBus = new Memoized<>(() -> createSharedMessageBus(net.get(), containerMbusConfig, messagebusConfig, protocol, metric),
                                          SharedMessageBus::release);
     }
 
     @Override
     public void deconstruct() {
+        MessengerMetrics messengerMetrics = this.messengerMetrics;
+        if (messengerMetrics != null)
+            messengerMetrics.close();
         messageBus.close();
     }
 
@@ -93,16 +105,20 @@ public final class SessionCache extends AbstractComponent {
         return messageBus.get();
     }
 
-    private static SharedMessageBus createSharedMessageBus(NetworkMultiplexer net,
-                                                           ContainerMbusConfig mbusConfig,
-                                                           MessagebusConfig messagebusConfig,
-                                                           Protocol protocol) {
+    private SharedMessageBus createSharedMessageBus(NetworkMultiplexer net,
+                                                    ContainerMbusConfig mbusConfig,
+                                                    MessagebusConfig messagebusConfig,
+                                                    Protocol protocol,
+                                                    Metric metric) {
         MessageBusParams mbusParams = new MessageBusParams().addProtocol(protocol);
 
         mbusParams.setMaxPendingCount(mbusConfig.maxpendingcount());
+        mbusParams.setMessengerLanes(mbusConfig.messengerlanes());
 
         MessageBus bus = new MessageBus(net, mbusParams);
         new ConfigAgent(messagebusConfig, bus); // Configure the wrapped MessageBus with a routing table.
+        if (metric != null)
+            messengerMetrics = new MessengerMetrics(bus::getMessengerStatistics, metric).start();
         return new SharedMessageBus(bus);
     }
 
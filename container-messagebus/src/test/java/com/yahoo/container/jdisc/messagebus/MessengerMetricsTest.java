@@ -0,0 +1,50 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.jdisc.messagebus;
+
+import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.messagebus.Messenger;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests reporting the statistics of messenger lanes as metrics.
+ */
+public class MessengerMetricsTest {
+
+    @Test
+    public void testReportsTasksRunSinceLastReportPerLane() {
+        MockMetric metric = new MockMetric();
+        List<List<Messenger.LaneStatistics>> statistics =
+                List.of(List.of(new Messenger.LaneStatistics(2, 5, 10, 20_000_000, 5_000_000),
+                                new Messenger.LaneStatistics(0, 1, 0, 0, 0)),
+                        List.of(new Messenger.LaneStatistics(0, 5, 14, 32_000_000, 5_000_000),
+                                new Messenger.LaneStatistics(1, 1, 2, 2_000_000, 1_500_000)));
+        int[] reports = { 0 };
+        MessengerMetrics metrics = new MessengerMetrics(() -> statistics.get(reports[0]++), metric);
+
+        metrics.report();
+        assertEquals(2.0, metric("mbus.messenger.queue_size", metric, 0), 0);
+        assertEquals(10.0, metric("mbus.messenger.tasks", metric, 0), 0);
+        assertEquals(2.0, metric("mbus.messenger.latency", metric, 0), 1e-9);
+        assertEquals(0.0, metric("mbus.messenger.tasks", metric, 1), 0);
+        assertNull(metric.metrics().get("mbus.messenger.latency").get(Map.of("lane", "1")));
+
+        metrics.report();
+        assertEquals(0.0, metric("mbus.messenger.queue_size", metric, 0), 0);
+        assertEquals(14.0, metric("mbus.messenger.tasks", metric, 0), 0);
+        assertEquals(3.0, metric("mbus.messenger.latency", metric, 0), 1e-9);
+        assertEquals(1.0, metric("mbus.messenger.queue_size", metric, 1), 0);
+        assertEquals(2.0, metric("mbus.messenger.tasks", metric, 1), 0);
+        assertEquals(1.0, metric("mbus.messenger.latency", metric, 1), 1e-9);
+    }
+
+    private static double metric(String name, MockMetric metric, int lane) {
+        return metric.metrics().get(name).get(Map.of("lane", String.valueOf(lane)));
+    }
+
+}
@@ -6,7 +6,9 @@ import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.ComponentId;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.compress.Compressor;
+import com.yahoo.concurrent.Timer;
 import com.yahoo.container.handler.VipStatus;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.prelude.fastsearch.VespaBackend;
 import com.yahoo.processing.request.CompoundName;
 import com.yahoo.search.Query;
@@ -14,6 +16,7 @@ import com.yahoo.search.Result;
 import com.yahoo.search.cluster.ClusterMonitor;
 import com.yahoo.search.dispatch.SearchPath.InvalidSearchPathException;
 import com.yahoo.search.dispatch.lb.LoadBalancer;
+import com.yahoo.search.dispatch.rpc.DocsumCache;
 import com.yahoo.search.dispatch.rpc.RpcConnectionPool;
 import com.yahoo.search.dispatch.rpc.RpcInvokerFactory;
 import com.yahoo.search.dispatch.rpc.RpcPingFactory;
@@ -57,12 +60,18 @@ public class Dispatcher extends AbstractComponent {
     private static final String TOP_K_PROBABILITY = "topKProbability";
     private static final String DOCSUM_RETRY_LIMIT = "docsumRetryLimit";
     private static final String DOCSUM_RETRY_FACTOR  = "docsumRetryFactor";
+    private static final String RESULT_CACHE = "resultCache";
+    private static final String DOCSUM_CACHE = "docsumCache";
     private static final int MAX_GROUP_SELECTION_ATTEMPTS = 3;
 
     /** If set will control computation of how many hits will be fetched from each partition.*/
     public static final CompoundName topKProbability = CompoundName.from(DISPATCH + "." + TOP_K_PROBABILITY);
     public static final CompoundName docsumRetryLimit = CompoundName.from(DISPATCH + "." + DOCSUM_RETRY_LIMIT);
     public static final CompoundName docsumRetryFactor  = CompoundName.from(DISPATCH + "." + DOCSUM_RETRY_FACTOR);
+    /** If set to false, the result of this query will not be looked up in or added to the result cache. */
+    public static final CompoundName resultCache = CompoundName.from(DISPATCH + "." + RESULT_CACHE);
+    /** If set to false, the summaries of this query will not be looked up in or added to the docsum cache. */
+    public static final CompoundName docsumCache = CompoundName.from(DISPATCH + "." + DOCSUM_CACHE);
 
     private final InvokerFactoryFactory invokerFactories;
     private final DispatchConfig dispatchConfig;
@@ -71,6 +80,9 @@ public class Dispatcher extends AbstractComponent {
     private final ClusterMonitor<Node> clusterMonitor;
     private final QrSearchersConfig qrSearchersConfig;
     private final String localAvailabilityZone;
+    private final ResultCache cache; // null if disabled
+    private final DocsumCache summaryCache; // null if disabled
+    private final HedgingPolicy hedging; // null if disabled
     private volatile VolatileItems volatileItems;
 
     private static class VolatileItems {
@@ -113,13 +125,16 @@ public class Dispatcher extends AbstractComponent {
         argumentType.addField(new FieldDescription(TOP_K_PROBABILITY, FieldType.doubleType));
         argumentType.addField(new FieldDescription(DOCSUM_RETRY_LIMIT, FieldType.integerType));
         argumentType.addField(new FieldDescription(DOCSUM_RETRY_FACTOR, FieldType.doubleType));
+        argumentType.addField(new FieldDescription(RESULT_CACHE, FieldType.booleanType));
+        argumentType.addField(new FieldDescription(DOCSUM_CACHE, FieldType.booleanType));
         argumentType.freeze();
     }
 
     public static QueryProfileType getArgumentType() { return argumentType; }
 
     interface InvokerFactoryFactory {
-        InvokerFactory create(RpcConnectionPool rpcConnectionPool, SearchGroups searchGroups, DispatchConfig dispatchConfig, QrSearchersConfig qrSearchersConfig);
+        InvokerFactory create(RpcConnectionPool rpcConnectionPool, SearchGroups searchGroups, DispatchConfig dispatchConfig,
+                              QrSearchersConfig qrSearchersConfig, DocsumCache docsumCache);
     }
 
     @Inject
@@ -128,7 +143,8 @@ public class Dispatcher extends AbstractComponent {
                       QrSearchersConfig qrSearchersConfig,
                       DispatchNodesConfig nodesConfig,
                       SystemInfo systemInfo,
-                      VipStatus vipStatus) {
+                      VipStatus vipStatus,
+                      Metric metric) {
         this(clusterId,
              dispatchConfig,
              qrSearchersConfig,
@@ -136,6 +152,7 @@ public class Dispatcher extends AbstractComponent {
              nodesConfig,
              systemInfo,
              vipStatus,
+             metric,
              RpcInvokerFactory::new);
         initialWarmup(dispatchConfig.warmuptime());
     }
@@ -147,6 +164,7 @@ public class Dispatcher extends AbstractComponent {
                DispatchNodesConfig nodesConfig,
                SystemInfo systemInfo,
                VipStatus vipStatus,
+               Metric metric,
                InvokerFactoryFactory invokerFactories) {
         this(dispatchConfig,
              qrSearchersConfig,
@@ -157,6 +175,7 @@ public class Dispatcher extends AbstractComponent {
                                vipStatus,
                                new RpcPingFactory(rpcConnectionPool)),
              systemInfo,
+             metric,
              invokerFactories);
     }
 
@@ -165,6 +184,7 @@ public class Dispatcher extends AbstractComponent {
                RpcConnectionPool rpcConnectionPool,
                SearchCluster searchCluster,
                SystemInfo systemInfo,
+               Metric metric,
                InvokerFactoryFactory invokerFactories) {
         this(dispatchConfig,
              qrSearchersConfig,
@@ -172,6 +192,7 @@ public class Dispatcher extends AbstractComponent {
              searchCluster,
              new ClusterMonitor<>(searchCluster, false),
              systemInfo,
+             metric,
              invokerFactories);
         this.clusterMonitor.start(); // Populate nodes to monitor before starting it.
     }
@@ -182,6 +203,7 @@ public class Dispatcher extends AbstractComponent {
                SearchCluster searchCluster,
                ClusterMonitor<Node> clusterMonitor,
                SystemInfo systemInfo,
+               Metric metric,
                InvokerFactoryFactory invokerFactories) {
         this.dispatchConfig = dispatchConfig;
         this.qrSearchersConfig = qrSearchersConfig;
@@ -190,6 +212,19 @@ public class Dispatcher extends AbstractComponent {
         this.clusterMonitor = clusterMonitor;
         this.invokerFactories = invokerFactories;
         this.localAvailabilityZone = systemInfo.node().availabilityZone();
+        this.cache = dispatchConfig.resultCacheMaxBytes() > 0
+                           ? new ResultCache(dispatchConfig.resultCacheMaxBytes(),
+                                             Duration.ofMillis((long) (dispatchConfig.resultCacheMaxAge() * 1000)),
+                                             Timer.monotonic, qrSearchersConfig, metric, searchCluster.name())
+                           : null;
+        this.summaryCache = dispatchConfig.docsumCacheMaxBytes() > 0
+                           ? new DocsumCache(dispatchConfig.docsumCacheMaxBytes(),
+                                             Duration.ofMillis((long) (dispatchConfig.docsumCacheMaxAge() * 1000)),
+                                             Timer.monotonic, searchCluster::contentGeneration, metric, searchCluster.name())
+                           : null;
+        this.hedging = dispatchConfig.hedgePercentile() > 0
+                       ? new HedgingPolicy(dispatchConfig.hedgePercentile(), dispatchConfig.hedgeBudget(), metric, searchCluster.name())
+                       : null;
         this.volatileItems = update();
         searchCluster.addMonitoring(clusterMonitor);
     }
@@ -200,6 +235,7 @@ public class Dispatcher extends AbstractComponent {
                DispatchConfig dispatchConfig,
                QrSearchersConfig qrSearchersConfig,
                SystemInfo systemInfo,
+               Metric metric,
                InvokerFactory invokerFactory) {
         this(dispatchConfig,
              qrSearchersConfig,
@@ -207,7 +243,8 @@ public class Dispatcher extends AbstractComponent {
              searchCluster,
              clusterMonitor,
              systemInfo,
-             (__, ___, ____, _____) -> invokerFactory);
+             metric,
+             (__, ___, ____, _____, ______) -> invokerFactory);
     }
 
     /** Returns the snapshot of volatile items that need to be kept together, incrementing its reference counter. */
@@ -270,7 +307,7 @@ public class Dispatcher extends AbstractComponent {
                                  // so nodes removed by a later reconfiguration stay resolvable until this generation drains.
                                  // The pool is null in some tests, which use invoker factories that don't need it.
                                  invokerFactories.create(rpcResourcePool == null ? null : rpcResourcePool.snapshot(),
-                                                         searchCluster.groupList(), dispatchConfig, qrSearchersConfig));
+                                                         searchCluster.groupList(), dispatchConfig, qrSearchersConfig, summaryCache));
     }
 
     private void initialWarmup(double warmupTime) {
@@ -296,6 +333,7 @@ public class Dispatcher extends AbstractComponent {
             case BEST_OF_RANDOM_2 -> LoadBalancer.Policy.BEST_OF_RANDOM_2;
             case ADAPTIVE,LATENCY_AMORTIZED_OVER_REQUESTS -> LoadBalancer.Policy.ADAPTIVE;
             case LATENCY_AMORTIZED_OVER_TIME -> LoadBalancer.Policy.LATENCY_AMORTIZED_OVER_TIME;
+            case LATENCY_AWARE -> LoadBalancer.Policy.LATENCY_AWARE;
         };
     }
     private static List<Node> toNodes(String clusterName, DispatchNodesConfig nodesConfig) {
@@ -333,10 +371,20 @@ public class Dispatcher extends AbstractComponent {
     }
 
     public SearchInvoker getSearchInvoker(Query query, VespaBackend searcher) {
+        // Look up before dispatching, as that modifies the query
+        Optional<ResultCache.Key> cacheKey = cache == null ? Optional.empty() : cache.keyOf(query);
+        long contentGeneration = searchCluster.contentGeneration();
+        if (cacheKey.isPresent()) {
+            Optional<SearchInvoker> cached = cache.get(cacheKey.get(), contentGeneration);
+            if (cached.isPresent()) return cached.get();
+        }
+
         try (var items = volatileItems()) { // Take a snapshot, and release it when we're done.
             int maxHitsPerNode = dispatchConfig.maxHitsPerNode();
             SearchInvoker invoker = getSearchPathInvoker(query, searcher, searchCluster.groupList(), items.get().invokerFactory, maxHitsPerNode)
-                    .orElseGet(() -> getInternalInvoker(query, searcher, searchCluster, items.get().loadBalancer, items.get().invokerFactory, maxHitsPerNode));
+                    .orElseGet(() -> getInternalInvoker(query, searcher, searchCluster, items.get().loadBalancer, items.get().invokerFactory, maxHitsPerNode, hedging));
+            if (cacheKey.isPresent())
+                invoker = cache.caching(invoker, cacheKey.get(), contentGeneration);
 
             if (query.properties().getBoolean(com.yahoo.search.query.Model.ESTIMATE)) {
                 query.setHits(0);
@@ -368,7 +416,8 @@ public class Dispatcher extends AbstractComponent {
     }
 
     private static SearchInvoker getInternalInvoker(Query query, VespaBackend searcher, SearchCluster cluster,
-                                                    LoadBalancer loadBalancer, InvokerFactory invokerFactory, int maxHitsPerNode) {
+                                                    LoadBalancer loadBalancer, InvokerFactory invokerFactory, int maxHitsPerNode,
+                                                    HedgingPolicy hedging) {
         Optional<Node> directNode = cluster.localCorpusDispatchTarget();
         if (directNode.isPresent()) {
             Node node = directNode.get();
@@ -404,7 +453,14 @@ public class Dispatcher extends AbstractComponent {
                 query.trace(false, 2, "Dispatching to group ", group.id(), " after retries = ", i);
                 query.getModel().setSearchPath("/" + group.id());
                 invoker.get().teardown((success, time) -> loadBalancer.releaseGroup(group, success, time));
-                return invoker.get();
+                if (hedging == null || groups.size() < 2) return invoker.get();
+
+                // Recorded also when losing to a hedge or timing out, as the response time is then at least this long
+                invoker.get().teardown((success, time) -> hedging.record(group, time));
+                Optional<Duration> hedgeDelay = hedging.delayFor(group);
+                if (hedgeDelay.isEmpty()) return invoker.get();
+                return new HedgingSearchInvoker(invoker.get(), hedgeDelay.get(), hedging,
+                                                () -> getHedge(query, searcher, group, loadBalancer, invokerFactory, maxHitsPerNode));
             } else {
                 loadBalancer.releaseGroup(group, false, RequestDuration.of(Duration.ZERO));
                 rejected.add(group.id());
@@ -413,6 +469,25 @@ public class Dispatcher extends AbstractComponent {
         throw new IllegalStateException("No suitable groups to dispatch query. Rejected: " + rejected);
     }
 
+    /** Returns an invoker of a group other than the given one to hedge a query to, or empty if none is suitable */
+    private static Optional<HedgingSearchInvoker.Hedge> getHedge(Query query, VespaBackend searcher, Group primary,
+                                                                 LoadBalancer loadBalancer, InvokerFactory invokerFactory,
+                                                                 int maxHitsPerNode) {
+        Optional<Group> groupInCluster = loadBalancer.takeAnyGroupNotIn(Set.of(primary.id()));
+        if (groupInCluster.isEmpty()) return Optional.empty();
+
+        Group group = groupInCluster.get();
+        Optional<SearchInvoker> invoker = group.hasSufficientCoverage()
+                                          ? invokerFactory.createSearchInvoker(searcher, query, group.nodes(), false, maxHitsPerNode)
+                                          : Optional.empty();
+        if (invoker.isEmpty()) {
+            loadBalancer.releaseGroup(group, false, RequestDuration.of(Duration.ZERO));
+            return Optional.empty();
+        }
+        invoker.get().teardown((success, time) -> loadBalancer.releaseGroup(group, success, time));
+        return Optional.of(new HedgingSearchInvoker.Hedge(invoker.get(), group));
+    }
+
     private static Optional<Group> preferredGroup(Query query, SearchGroups groups, boolean acceptInsufficientCoverage,
                                                   Set<Integer> rejectedGroups) {
         Integer preference = query.getModel().getSearchGroup();
@@ -0,0 +1,125 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.search.dispatch.searchcluster.Group;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides when to hedge a query: If the group a query is dispatched to has not responded within a given
+ * percentile of the recent response times of that group, the query is also sent to another group,
+ * whose response is used if it is complete before the first group is done. The extra queries sent are limited to a budget
+ * given as a fraction of all queries.
+ * <p>
+ * This class is multithread safe.
+ */
+class HedgingPolicy {
+
+    private static final String HEDGES_ISSUED_METRIC = ContainerMetrics.SEARCH_HEDGES_ISSUED.baseName();
+    private static final String HEDGES_WON_METRIC = ContainerMetrics.SEARCH_HEDGES_WON.baseName();
+
+    /** The number of response times to compute the percentile from */
+    static final int SAMPLES = 512;
+
+    /** The number of samples to collect before this starts hedging queries to a group */
+    static final int MIN_SAMPLES = 64;
+
+    /** The max number of queries that may be hedged at once after a period without hedging */
+    private static final double MAX_CREDIT = 10;
+
+    private final double percentile;
+    private final double budget;
+    private final Metric metric;
+    private final Metric.Context metricContext;
+    private final Map<Integer, Latencies> latencies = new ConcurrentHashMap<>();
+
+    private double credit = 0;
+
+    /**
+     * @param percentile the percentile, between 0 and 100, of the response times of a group
+     *                   after which a query to that group is hedged
+     * @param budget the max number of hedged queries as a fraction of the queries dispatched
+     */
+    HedgingPolicy(double percentile, double budget, Metric metric, String clusterName) {
+        if (percentile <= 0 || percentile > 100)
+            throw new IllegalArgumentException("Hedging percentile must be larger than 0 and at most 100, but was " + percentile);
+        this.percentile = percentile;
+        this.budget = budget;
+        this.metric = metric;
+        this.metricContext = metric.createContext(Map.of("source", clusterName));
+    }
+
+    /**
+     * Records the response time of a query to the given group. This should also be recorded when the group
+     * did not respond in time, with the time waited, as leaving those out would make hedging ever more frequent.
+     */
+    void record(Group group, RequestDuration duration) {
+        latencies.computeIfAbsent(group.id(), __ -> new Latencies()).add(duration.duration().toNanos());
+    }
+
+    /**
+     * Returns how long to wait for a response from the given group before hedging a query dispatched to it,
+     * or empty if the response times of this group are not known yet.
+     * This is called once for each query dispatched, which adds to the budget of hedged queries.
+     */
+    Optional<Duration> delayFor(Group group) {
+        synchronized (this) {
+            credit = Math.min(MAX_CREDIT, credit + budget);
+        }
+        Latencies groupLatencies = latencies.get(group.id());
+        if (groupLatencies == null) return Optional.empty();
+        return groupLatencies.percentile(percentile).map(Duration::ofNanos);
+    }
+
+    /** Returns whether there is budget for hedging a query now, and consumes it if so. */
+    synchronized boolean tryHedge() {
+        if (credit < 1) return false;
+        credit--;
+        return true;
+    }
+
+    void hedgeIssued() {
+        metric.add(HEDGES_ISSUED_METRIC, 1, metricContext);
+    }
+
+    void hedgeWon() {
+        metric.add(HEDGES_WON_METRIC, 1, metricContext);
+    }
+
+    /** The most recent response times of a group, in a ring buffer */
+    private static class Latencies {
+
+        /** The number of added samples between each recomputation of the percentile */
+        private static final int RECOMPUTE_INTERVAL = 32;
+
+        private final long[] samples = new long[SAMPLES];
+        private long count = 0;
+        private double computedForPercentile = -1;
+        private long computedAtCount = 0;
+        private long percentileValue;
+
+        synchronized void add(long nanos) {
+            samples[(int) (count++ % SAMPLES)] = nanos;
+        }
+
+        synchronized Optional<Long> percentile(double percentile) {
+            if (count < MIN_SAMPLES) return Optional.empty();
+            if (percentile != computedForPercentile || count - computedAtCount >= RECOMPUTE_INTERVAL) {
+                long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, SAMPLES));
+                Arrays.sort(sorted);
+                percentileValue = sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile / 100 * sorted.length) - 1)];
+                computedForPercentile = percentile;
+                computedAtCount = count;
+            }
+            return Optional.of(percentileValue);
+        }
+
+    }
+
+}
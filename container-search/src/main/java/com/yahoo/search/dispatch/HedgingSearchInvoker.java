@@ -0,0 +1,129 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.dispatch.searchcluster.Group;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Searches a group, and if it has not responded completely within a given delay, also sends the query
+ * to another group. The group searched first decides when its result is done, as without hedging,
+ * and the result of the other group is used if it responds completely before that.
+ * The response time of the other group is recorded if it responds.
+ *
+ * @see HedgingPolicy
+ */
+class HedgingSearchInvoker extends SearchInvoker implements ResponseMonitor<SearchInvoker> {
+
+    private final SearchInvoker primary;
+    private final Duration delay;
+    private final HedgingPolicy policy;
+    private final Supplier<Optional<Hedge>> hedgeFactory;
+    private final LinkedBlockingQueue<SearchInvoker> responded = new LinkedBlockingQueue<>();
+    private final AtomicReference<SearchInvoker> firstResponded = new AtomicReference<>();
+
+    private Query query;
+    private double contentShare;
+    private volatile Hedge hedge = null;
+    private volatile long hedgeSentAtNanos;
+
+    /**
+     * @param primary the invoker searching the group the query is dispatched to
+     * @param delay the time to wait for the primary to respond before hedging
+     * @param hedgeFactory creates an invoker for another group, or empty if there is no group to hedge to
+     */
+    HedgingSearchInvoker(SearchInvoker primary, Duration delay, HedgingPolicy policy, Supplier<Optional<Hedge>> hedgeFactory) {
+        super(Optional.empty());
+        this.primary = primary;
+        this.delay = delay;
+        this.policy = policy;
+        this.hedgeFactory = hedgeFactory;
+    }
+
+    @Override
+    protected Object sendSearchRequest(Query query, double contentShare, Object context) throws IOException {
+        this.query = query;
+        this.contentShare = contentShare;
+        primary.setMonitor(this);
+        return primary.sendSearchRequest(query, contentShare, context);
+    }
+
+    @Override
+    protected InvokerResult getSearchResult() throws IOException {
+        SearchInvoker first = awaitResponse(Math.min(delay.toMillis(), query.getTimeLeft()));
+        if (first == null && query.getTimeLeft() > 0 && policy.tryHedge()) {
+            Hedge hedge = hedgeFactory.get().orElse(null);
+            if (hedge != null) {
+                query.trace(false, 2, "Hedging to group ", hedge.group().id(), " after waiting ", delay.toMillis(), " ms");
+                policy.hedgeIssued();
+                hedge.invoker().setMonitor(this);
+                hedgeSentAtNanos = System.nanoTime();
+                this.hedge = hedge;
+                hedge.invoker().sendSearchRequest(query, contentShare, null);
+                return raceHedge(hedge);
+            }
+        }
+        return complete(primary, primary.getSearchResult());
+    }
+
+    /**
+     * Returns the result of the primary, which waits for responses with its own timeout handling,
+     * unless the hedge responds completely first, which makes the primary stop waiting.
+     */
+    private InvokerResult raceHedge(Hedge hedge) throws IOException {
+        int offset = query.getOffset();
+        int hits = query.getHits();
+        InvokerResult primaryResult = primary.getSearchResult();
+        if (firstResponded.get() != hedge.invoker()) return complete(primary, primaryResult);
+
+        policy.hedgeWon();
+        query.getModel().setSearchPath("/" + hedge.group().id());
+        // The primary trims its result to the requested window and resets the offset: Restore it for the hedge
+        query.setOffset(offset);
+        query.setHits(hits);
+        return complete(hedge.invoker(), hedge.invoker().getSearchResult());
+    }
+
+    private static InvokerResult complete(SearchInvoker invoker, InvokerResult result) {
+        invoker.setFinalStatus(result.getResult().hits().getError() == null);
+        return result;
+    }
+
+    private SearchInvoker awaitResponse(long timeoutMillis) {
+        try {
+            return responded.poll(Math.max(0, timeoutMillis), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for search results", e);
+        }
+    }
+
+    @Override
+    public void responseAvailable(SearchInvoker from) {
+        responded.add(from);
+        boolean isFirst = firstResponded.compareAndSet(null, from);
+        Hedge hedge = this.hedge;
+        if (hedge == null || from != hedge.invoker()) return;
+
+        policy.record(hedge.group(), RequestDuration.of(Duration.ofNanos(System.nanoTime() - hedgeSentAtNanos)));
+        if (isFirst)
+            primary.stopWaiting();
+    }
+
+    @Override
+    protected void release() {
+        primary.close();
+        if (hedge != null)
+            hedge.invoker().close();
+    }
+
+    /** An invoker of the group a query is hedged to */
+    record Hedge(SearchInvoker invoker, Group group) { }
+
+}
@@ -17,7 +17,6 @@ import com.yahoo.search.searchchain.Execution;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
@@ -27,6 +26,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -50,6 +50,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private final Set<Integer> alreadyFailedNodes;
     private final CoverageAggregator coverageAggregator;
     private final TopKEstimator hitEstimator;
+    private final AtomicInteger pendingResponses = new AtomicInteger();
     private Query query;
 
     private TimeoutHandler timeoutHandler;
@@ -97,6 +98,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     @Override
     protected Object sendSearchRequest(Query query, double contentShare, Object unusedContext) throws IOException {
         this.query = query;
+        pendingResponses.set(invokers.size());
         invokers.forEach(invoker -> invoker.setMonitor(this));
 
         int originalHits = query.getHits();
@@ -123,19 +125,21 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     @Override
     protected InvokerResult getSearchResult() throws IOException {
         InvokerResult result = new InvokerResult(query, query.getHits());
-        List<LeanHit> merged = List.of();
+        var leanHitMerger = new LeanHitMerger();
         long nextTimeout = query.getTimeLeft();
         var groupingResultAggregator = new GroupingResultAggregator();
         try {
             while (!invokers.isEmpty() && nextTimeout >= 0) {
                 SearchInvoker invoker = availableForProcessing.poll(nextTimeout, TimeUnit.MILLISECONDS);
-                if (invoker == null) {
+                if (invoker == this) { // told to stop waiting
+                    break;
+                } else if (invoker == null) {
                     log.fine(() -> "Search timed out with " + coverageAggregator.getAskedNodes() + " requests made, " +
                             coverageAggregator.getAnsweredNodes() + " responses received");
                     break;
                 } else {
                     InvokerResult toMerge = invoker.getSearchResult();
-                    merged = mergeResult(result.getResult(), toMerge, merged, groupingResultAggregator);
+                    mergeResult(result.getResult(), toMerge, leanHitMerger, groupingResultAggregator);
                     ejectInvoker(invoker);
                 }
                 nextTimeout = timeoutHandler.nextTimeoutMS(coverageAggregator.getAnsweredNodes());
@@ -150,10 +154,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                 timeoutHandler, documentCountSource.getDocumentCount());
         result.getResult().setCoverage(adjusted.createCoverage(timeoutHandler));
 
-        int needed = query.getOffset() + query.getHits();
-        for (int index = query.getOffset(); (index < merged.size()) && (index < needed); index++) {
-            result.getLeanHits().add(merged.get(index));
-        }
+        leanHitMerger.mergeInto(result.getLeanHits(), query.getOffset(), query.getOffset() + query.getHits());
         query.setOffset(0);  // Now we are all trimmed down
         return result;
     }
@@ -201,8 +202,8 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         }
     }
 
-    private List<LeanHit> mergeResult(Result result, InvokerResult partialResult, List<LeanHit> current,
-                                      GroupingResultAggregator groupingResultAggregator) {
+    private void mergeResult(Result result, InvokerResult partialResult, LeanHitMerger leanHitMerger,
+                             GroupingResultAggregator groupingResultAggregator) {
         coverageAggregator.add(partialResult.getResult().getCoverage(true));
 
         result.mergeWith(partialResult.getResult());
@@ -216,44 +217,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                 }
             }
         }
-        if (current.isEmpty() ) {
-            return partialResult.getLeanHits();
-        }
-        List<LeanHit> partial = partialResult.getLeanHits();
-        if (partial.isEmpty()) {
-            return current;
-        }
-
-        int needed = query.getOffset() + query.getHits();
-        List<LeanHit> merged = new ArrayList<>(needed);
-        int indexCurrent = 0;
-        int indexPartial = 0;
-        while (indexCurrent < current.size() && indexPartial < partial.size() && merged.size() < needed) {
-            LeanHit incomingHit = partial.get(indexPartial);
-            LeanHit currentHit = current.get(indexCurrent);
-
-            int cmpRes = currentHit.compareTo(incomingHit);
-            if (cmpRes < 0) {
-                merged.add(currentHit);
-                indexCurrent++;
-            } else if (cmpRes > 0) {
-                merged.add(incomingHit);
-                indexPartial++;
-            } else { // Duplicates
-                merged.add(currentHit);
-                indexCurrent++;
-                indexPartial++;
-            }
-        }
-        appendRemainingIfNeeded(merged, needed, current, indexCurrent);
-        appendRemainingIfNeeded(merged, needed, partial, indexPartial);
-        return merged;
-    }
-
-    private void appendRemainingIfNeeded(List<LeanHit> merged, int needed, List<LeanHit> hits, int index) {
-        while ((index < hits.size()) && (merged.size() < needed)) {
-            merged.add(hits.get(index++));
-        }
+        leanHitMerger.add(partialResult.getLeanHits());
     }
 
     private void ejectInvoker(SearchInvoker invoker) {
@@ -269,16 +233,20 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         }
     }
 
+    /** Called when a node has responded. The monitor of this is notified when all nodes have responded. */
     @Override
     public void responseAvailable(SearchInvoker from) {
         if (availableForProcessing != null) {
             availableForProcessing.add(from);
         }
+        if (pendingResponses.decrementAndGet() == 0) {
+            responseAvailable();
+        }
     }
 
     @Override
-    protected void setMonitor(ResponseMonitor<SearchInvoker> monitor) {
-        // never to be called
+    protected void stopWaiting() {
+        availableForProcessing.add(this);
     }
 
     // For overriding in tests
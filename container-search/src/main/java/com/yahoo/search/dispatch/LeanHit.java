@@ -6,6 +6,7 @@ import com.yahoo.search.result.FeatureData;
 
 import java.util.Arrays;
 import java.util.OptionalInt;
+import java.util.function.Supplier;
 
 /**
  * @author baldersheim
@@ -19,6 +20,7 @@ public class LeanHit implements Comparable<LeanHit> {
     private final double relevance;
     private final byte[] sortData;
     private FeatureData matchFeatures;
+    private Supplier<Inspector> matchFeaturesDecoder; // Set while match features are not yet decoded
 
     public LeanHit(byte[] gid, OptionalInt searchGroup, int partId, int distributionKey, double relevance) {
         this(gid, searchGroup, partId, distributionKey, relevance, null);
@@ -42,10 +44,26 @@ public class LeanHit implements Comparable<LeanHit> {
     public byte[] getSortData() { return sortData; }
     public boolean hasSortData() { return sortData != null; }
 
-    public FeatureData getMatchFeatures() { return matchFeatures; }
-    public boolean hasMatchFeatures() { return matchFeatures != null; }
+    public FeatureData getMatchFeatures() {
+        if (matchFeaturesDecoder != null) {
+            matchFeatures = new FeatureData(matchFeaturesDecoder.get());
+            matchFeaturesDecoder = null;
+        }
+        return matchFeatures;
+    }
+    public boolean hasMatchFeatures() { return matchFeatures != null || matchFeaturesDecoder != null; }
     public void addMatchFeatures(Inspector features) {
         matchFeatures = new FeatureData(features);
+        matchFeaturesDecoder = null;
+    }
+
+    /**
+     * Sets the match features of this to those returned by the given decoder, which is invoked on first access.
+     * This avoids decoding features of hits which are discarded when merging.
+     */
+    public void addMatchFeatures(Supplier<Inspector> decoder) {
+        matchFeatures = null;
+        matchFeaturesDecoder = decoder;
     }
 
     @Override
@@ -0,0 +1,66 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collects the sorted {@link LeanHit} lists returned from each node searched,
+ * and merges them into a single sorted window of hits in one k-way pass.
+ * This touches only the hits which end up in the window, regardless of the number of nodes,
+ * instead of merging and copying the hits of each node into the previous result as it arrives.
+ */
+class LeanHitMerger {
+
+    private final List<List<LeanHit>> runs = new ArrayList<>();
+
+    /** Adds a list of hits, which must be sorted */
+    void add(List<LeanHit> hits) {
+        if ( ! hits.isEmpty())
+            runs.add(hits);
+    }
+
+    /**
+     * Merges the hits added to this, skipping the first offset hits and adding the rest to the given list,
+     * up until the hit at position needed. Identical hits from multiple nodes are only included once.
+     */
+    void mergeInto(List<LeanHit> merged, int offset, int needed) {
+        PriorityQueue<Run> heap = new PriorityQueue<>(Math.max(1, runs.size()));
+        for (List<LeanHit> hits : runs)
+            heap.add(new Run(hits));
+        LeanHit previous = null;
+        for (int position = 0; position < needed && ! heap.isEmpty(); ) {
+            Run run = heap.poll();
+            LeanHit hit = run.next();
+            if (run.hasCurrent())
+                heap.add(run);
+            if (previous != null && previous.compareTo(hit) == 0) continue; // Duplicate
+            if (position++ >= offset)
+                merged.add(hit);
+            previous = hit;
+        }
+    }
+
+    /** A cursor into a list of hits, ordered by the hit at the cursor */
+    private static final class Run implements Comparable<Run> {
+
+        private final List<LeanHit> hits;
+        private int index = 0;
+
+        Run(List<LeanHit> hits) {
+            this.hits = hits;
+        }
+
+        boolean hasCurrent() { return index < hits.size(); }
+
+        LeanHit next() { return hits.get(index++); }
+
+        @Override
+        public int compareTo(Run other) {
+            return hits.get(index).compareTo(other.hits.get(other.index));
+        }
+
+    }
+
+}
@@ -8,6 +8,7 @@ import com.yahoo.config.subscription.ConfigSubscriber;
 import com.yahoo.container.QrConfig;
 import com.yahoo.container.QrSearchersConfig;
 import com.yahoo.container.handler.VipStatus;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.vespa.config.search.DispatchConfig;
 import com.yahoo.vespa.config.search.DispatchNodesConfig;
 import com.yahoo.yolean.UncheckedInterruptedException;
@@ -27,8 +28,9 @@ public class ReconfigurableDispatcher extends Dispatcher {
                                     DispatchConfig dispatchConfig,
                                     QrSearchersConfig qrSearchersConfig,
                                     SystemInfo systemInfo,
-                                    VipStatus vipStatus) {
-        super(clusterId, dispatchConfig, qrSearchersConfig, new DispatchNodesConfig.Builder().build(), systemInfo, vipStatus);
+                                    VipStatus vipStatus,
+                                    Metric metric) {
+        super(clusterId, dispatchConfig, qrSearchersConfig, new DispatchNodesConfig.Builder().build(), systemInfo, vipStatus, metric);
         this.subscriber = new ConfigSubscriber();
         CountDownLatch configured = new CountDownLatch(1);
         this.subscriber.subscribe(nodesConfig -> { updateWithNewConfig(nodesConfig); configured.countDown(); },
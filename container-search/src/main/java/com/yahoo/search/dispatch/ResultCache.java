@@ -0,0 +1,304 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.concurrent.Timer;
+import com.yahoo.container.QrSearchersConfig;
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.prelude.fastsearch.DocumentDatabase;
+import com.yahoo.prelude.fastsearch.GroupingListHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.dispatch.rpc.ProtobufSerialization;
+import com.yahoo.search.query.Model;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.searchlib.aggregation.Grouping;
+import com.yahoo.vespa.objects.BufferSerializer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A cache of search results in the container, which lets repeated queries be answered without
+ * dispatching them to any content nodes. Results are keyed on the serialized search request, which captures
+ * the query tree, ranking and grouping parameters and the hit window, together with the summary class.
+ * <p>
+ * The cache is bounded by an estimate of the memory used by its entries, evicting the least recently used first.
+ * Entries expire after a max age, and are dropped when the content generation of the cluster has changed
+ * since they were added.
+ * <p>
+ * This class is multithread safe.
+ */
+class ResultCache {
+
+    private static final String HITS_METRIC = ContainerMetrics.SEARCH_RESULT_CACHE_HITS.baseName();
+    private static final String MISSES_METRIC = ContainerMetrics.SEARCH_RESULT_CACHE_MISSES.baseName();
+    private static final String EVICTIONS_METRIC = ContainerMetrics.SEARCH_RESULT_CACHE_EVICTIONS.baseName();
+    private static final String BYTES_METRIC = ContainerMetrics.SEARCH_RESULT_CACHE_BYTES.baseName();
+
+    /** Rough estimates of the memory used by the parts of an entry which we don't measure */
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+    private static final int HIT_OVERHEAD_BYTES = 96;
+    private static final int MATCH_FEATURES_BYTES = 128;
+
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final Timer timer;
+    private final QrSearchersConfig qrSearchersConfig;
+    private final Metric metric;
+    private final Metric.Context metricContext;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access ordered: LRU first
+    private long bytes = 0;
+
+    ResultCache(long maxBytes, Duration maxAge, Timer timer, QrSearchersConfig qrSearchersConfig,
+                Metric metric, String clusterName) {
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAge.toMillis();
+        this.timer = timer;
+        this.qrSearchersConfig = qrSearchersConfig;
+        this.metric = metric;
+        this.metricContext = metric.createContext(Map.of("source", clusterName));
+    }
+
+    /**
+     * Returns the key to cache the result of this query under,
+     * or empty if the result of this query should not be cached.
+     */
+    Optional<Key> keyOf(Query query) {
+        if (query.getNoCache()) return Optional.empty();
+        if ( ! query.properties().getBoolean(Dispatcher.resultCache, true)) return Optional.empty();
+        if (query.properties().getBoolean(Model.ESTIMATE)) return Optional.empty();
+        if (query.getRanking().getQueryCache()) return Optional.empty(); // Session bound
+        if (ProtobufSerialization.getTraceLevelForBackend(query) > 0) return Optional.empty(); // Results carry traces
+        if (query.getModel().getSearchPath() != null) return Optional.empty(); // Explicitly targeting nodes
+
+        return Optional.of(new Key(ProtobufSerialization.serializeCacheKey(query, qrSearchersConfig),
+                                   query.getPresentation().getSummary()));
+    }
+
+    /**
+     * Returns an invoker producing the cached result for the given key, or empty if there is no
+     * current cached result in the given content generation.
+     */
+    Optional<SearchInvoker> get(Key key, long contentGeneration) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && (entry.contentGeneration != contentGeneration || isExpired(entry))) {
+                remove(key);
+                entry = null;
+            }
+        }
+        metric.add(entry == null ? MISSES_METRIC : HITS_METRIC, 1, metricContext);
+        return Optional.ofNullable(entry).map(CachedSearchInvoker::new);
+    }
+
+    /** Returns an invoker which delegates to the given invoker and caches its result under the given key. */
+    SearchInvoker caching(SearchInvoker invoker, Key key, long contentGeneration) {
+        return new CachingSearchInvoker(invoker, key, contentGeneration);
+    }
+
+    synchronized long bytes() { return bytes; }
+
+    synchronized int size() { return entries.size(); }
+
+    private void put(Key key, Entry entry) {
+        if (entry.bytes > maxBytes) return;
+
+        int evictions = 0;
+        synchronized (this) {
+            remove(key);
+            entries.put(key, entry);
+            bytes += entry.bytes;
+            for (Iterator<Entry> lru = entries.values().iterator(); bytes > maxBytes && lru.hasNext(); evictions++) {
+                bytes -= lru.next().bytes;
+                lru.remove();
+            }
+            metric.set(BYTES_METRIC, bytes, metricContext);
+        }
+        if (evictions > 0)
+            metric.add(EVICTIONS_METRIC, evictions, metricContext);
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null)
+            bytes -= removed.bytes;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return timer.milliTime() - entry.createdAt > maxAgeMillis;
+    }
+
+    /** Returns the entry to cache for the given result, or empty if it should not be cached */
+    private Optional<Entry> toEntry(InvokerResult result, Query query, long contentGeneration) {
+        Result partial = result.getResult();
+        if (partial.hits().getError() != null) return Optional.empty();
+        Coverage coverage = partial.getCoverage(false);
+        if (coverage == null || ! coverage.getFull() || coverage.isDegradedByTimeout()) return Optional.empty();
+
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        List<Grouping> groupingList = new ArrayList<>();
+        GroupingListHit groupingHit = null;
+        for (Hit hit : partial.hits().asUnorderedHits()) {
+            if ( ! (hit instanceof GroupingListHit grouping)) return Optional.empty(); // Don't know how to copy this
+            groupingHit = grouping;
+            for (Grouping g : grouping.getGroupingList()) {
+                groupingList.add(g.clone());
+                bytes += serializedSize(g);
+            }
+        }
+        List<LeanHit> hits = List.copyOf(result.getLeanHits());
+        for (LeanHit hit : hits) {
+            if (hit.hasMatchFeatures())
+                hit.getMatchFeatures(); // Decode now, as cached hits are shared between queries
+            bytes += HIT_OVERHEAD_BYTES + hit.getGid().length
+                     + (hit.hasSortData() ? hit.getSortData().length : 0)
+                     + (hit.hasMatchFeatures() ? MATCH_FEATURES_BYTES : 0);
+        }
+
+        return Optional.of(new Entry(hits, partial.getTotalHitCount(), coverage, groupingList,
+                                     groupingHit == null ? null : groupingHit.getDocumentDatBase(),
+                                     query.getOffset(), contentGeneration, timer.milliTime(), bytes));
+    }
+
+    private static long serializedSize(Grouping grouping) {
+        BufferSerializer buffer = new BufferSerializer(new GrowableByteBuffer());
+        grouping.serialize(buffer);
+        return buffer.position();
+    }
+
+    /** The key of a cached result: The serialized search request, and the summary class requested */
+    static final class Key {
+
+        private final byte[] request;
+        private final String summaryClass;
+        private final int hashCode;
+
+        Key(byte[] request, String summaryClass) {
+            this.request = request;
+            this.summaryClass = summaryClass;
+            this.hashCode = 31 * Arrays.hashCode(request) + Objects.hashCode(summaryClass);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key other)) return false;
+            return hashCode == other.hashCode
+                   && Arrays.equals(request, other.request)
+                   && Objects.equals(summaryClass, other.summaryClass);
+        }
+
+    }
+
+    /** An immutable cached result */
+    private record Entry(List<LeanHit> hits, long totalHitCount, Coverage coverage, List<Grouping> groupingList,
+                         DocumentDatabase documentDatabase,
+                         int offset, long contentGeneration, long createdAt, long bytes) {
+
+        InvokerResult toResult(Query query) {
+            InvokerResult result = new InvokerResult(query, hits.size());
+            result.getLeanHits().addAll(hits);
+            result.getResult().setTotalHitCount(totalHitCount);
+            result.getResult().setCoverage(copy(coverage));
+            if ( ! groupingList.isEmpty())
+                result.getResult().hits().add(new GroupingListHit(groupingList.stream().map(Grouping::clone).toList(),
+                                                                  documentDatabase, query));
+            query.setOffset(offset); // As left by the invoker which produced this
+            return result;
+        }
+
+        private static Coverage copy(Coverage coverage) {
+            return new Coverage(coverage.getDocs(), coverage.getActive(), coverage.getNodes(), coverage.getResultSets())
+                    .setTargetActive(coverage.getTargetActive())
+                    .setDegradedReason(coverage.getDegradedReason())
+                    .setNodesTried(coverage.getNodesTried());
+        }
+
+    }
+
+    /** Produces a result from an entry in this cache */
+    private static class CachedSearchInvoker extends SearchInvoker {
+
+        private final Entry entry;
+        private Query query;
+
+        CachedSearchInvoker(Entry entry) {
+            super(Optional.empty());
+            this.entry = entry;
+        }
+
+        @Override
+        protected Object sendSearchRequest(Query query, double contentShare, Object context) {
+            this.query = query;
+            responseAvailable();
+            return context;
+        }
+
+        @Override
+        protected InvokerResult getSearchResult() {
+            return entry.toResult(query);
+        }
+
+        @Override
+        protected void release() { }
+
+    }
+
+    /** Delegates to another invoker, and adds the result it produces to this cache */
+    private class CachingSearchInvoker extends SearchInvoker {
+
+        private final SearchInvoker delegate;
+        private final Key key;
+        private final long contentGeneration;
+        private Query query;
+
+        CachingSearchInvoker(SearchInvoker delegate, Key key, long contentGeneration) {
+            super(delegate.node());
+            this.delegate = delegate;
+            this.key = key;
+            this.contentGeneration = contentGeneration;
+        }
+
+        @Override
+        protected Object sendSearchRequest(Query query, double contentShare, Object context) throws IOException {
+            this.query = query;
+            return delegate.sendSearchRequest(query, contentShare, context);
+        }
+
+        @Override
+        protected InvokerResult getSearchResult() throws IOException {
+            InvokerResult result = delegate.getSearchResult();
+            delegate.setFinalStatus(result.getResult().hits().getError() == null);
+            toEntry(result, query, contentGeneration).ifPresent(entry -> put(key, entry));
+            return result;
+        }
+
+        @Override
+        protected void setMonitor(ResponseMonitor<SearchInvoker> monitor) {
+            delegate.setMonitor(monitor);
+        }
+
+        @Override
+        protected void release() {
+            delegate.close();
+        }
+
+    }
+
+}
@@ -94,6 +94,12 @@ public abstract class SearchInvoker extends CloseableInvoker {
 
     protected abstract InvokerResult getSearchResult() throws IOException;
 
+    /**
+     * Makes a call to {@link #getSearchResult} which is waiting for responses return as soon as possible,
+     * with what has been received, as when the result is taken from another invoker. This does nothing by default.
+     */
+    protected void stopWaiting() { }
+
     protected void setMonitor(ResponseMonitor<SearchInvoker> monitor) {
         this.monitor = monitor;
     }
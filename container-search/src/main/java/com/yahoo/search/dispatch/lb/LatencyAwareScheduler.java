@@ -0,0 +1,68 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.lb;
+
+import com.yahoo.search.dispatch.searchcluster.Node;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Group scheduler which selects the group whose slowest node is expected to respond fastest, as the latency
+ * of a query to a group is bounded by its slowest node. The expected response time of a node is its recent
+ * average search latency, multiplied by the number of searches it is currently handling, including the new one.
+ * Nodes without any known latency are expected to respond in the minimal query time, such that they are tried.
+ * Ties are broken by the number of requests allocated to each group, and then by selecting the group
+ * which was selected least recently.
+ */
+class LatencyAwareScheduler implements GroupScheduler {
+
+    private final Map<Integer, TrackedGroup> scoreboard;
+    private final Map<Integer, Long> lastSelected = new HashMap<>();
+    private long selections = 0;
+
+    LatencyAwareScheduler(Map<Integer, TrackedGroup> scoreboard) {
+        this.scoreboard = scoreboard;
+    }
+
+    @Override
+    public Optional<TrackedGroup> takeNextGroup(Set<Integer> rejectedGroups) {
+        Optional<TrackedGroup> group = selectGroup(rejectedGroups, true);
+        if (group.isEmpty())
+            group = selectGroup(rejectedGroups, false);
+        group.ifPresent(g -> lastSelected.put(g.id(), ++selections));
+        return group;
+    }
+
+    private Optional<TrackedGroup> selectGroup(Set<Integer> rejectedGroups, boolean requireCoverage) {
+        TrackedGroup best = null;
+        double bestLatency = 0;
+        for (TrackedGroup group : scoreboard.values()) {
+            if (rejectedGroups.contains(group.id())) continue;
+            if (requireCoverage && ! group.group().hasSufficientCoverage()) continue;
+
+            double latency = expectedLatency(group);
+            if (best == null || isPreferable(latency, group, bestLatency, best)) {
+                best = group;
+                bestLatency = latency;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    private boolean isPreferable(double latency, TrackedGroup group, double otherLatency, TrackedGroup other) {
+        if (latency != otherLatency) return latency < otherLatency;
+        if (group.allocations() != other.allocations()) return group.allocations() < other.allocations();
+        return lastSelected.getOrDefault(group.id(), 0L) < lastSelected.getOrDefault(other.id(), 0L);
+    }
+
+    /** Returns the expected latency in seconds of the slowest node in the given group for a new search */
+    static double expectedLatency(TrackedGroup group) {
+        double slowest = 0;
+        for (Node node : group.group().nodes())
+            slowest = Math.max(slowest, Math.max(node.searchLatency(), LoadBalancer.MIN_QUERY_TIME) * (1 + node.searchesInFlight()));
+        return slowest;
+    }
+
+}
@@ -30,7 +30,7 @@ public class LoadBalancer {
     /** The groups which are not in the same availability zone as this container. */
     private final Set<Integer> remoteGroups;
 
-    public enum Policy { ROUNDROBIN, ADAPTIVE, BEST_OF_RANDOM_2, LATENCY_AMORTIZED_OVER_TIME}
+    public enum Policy { ROUNDROBIN, ADAPTIVE, BEST_OF_RANDOM_2, LATENCY_AMORTIZED_OVER_TIME, LATENCY_AWARE }
 
     public LoadBalancer(Collection<Group> groups, Policy policy, String localAvailabilityZone) {
         this(groups, policy, localAvailabilityZone, System.currentTimeMillis());
@@ -47,6 +47,7 @@ public class LoadBalancer {
             case BEST_OF_RANDOM_2 -> new BestOfRandom2Scheduler(new Random(seed), scoreboard);
             case ADAPTIVE -> new AdaptiveScheduler(AdaptiveScheduler.Type.REQUESTS, new Random(seed), scoreboard);
             case LATENCY_AMORTIZED_OVER_TIME -> new AdaptiveScheduler(AdaptiveScheduler.Type.TIME, new Random(seed), scoreboard);
+            case LATENCY_AWARE -> new LatencyAwareScheduler(scoreboard);
         };
 
 
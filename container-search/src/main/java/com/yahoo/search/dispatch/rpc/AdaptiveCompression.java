@@ -0,0 +1,83 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses the compression of each request payload from its size and the compression ratios recently achieved:
+ * Small payloads are not compressed. LZ4 is used by default, unless payloads are observed to be incompressible.
+ * Zstd is used for large payloads when it is observed to compress them significantly better than LZ4.
+ * A small sample of payloads is compressed with the alternative to the choice made, to keep all ratios current.
+ * <p>
+ * This class is multithread safe.
+ */
+class AdaptiveCompression {
+
+    /** Payloads smaller than this are not compressed */
+    static final int MIN_SIZE = 256;
+
+    /** Payloads at least this large may be compressed with zstd */
+    static final int ZSTD_MIN_SIZE = 8 * 1024;
+
+    /** Payloads are not compressed when LZ4 is observed to compress to more than this fraction of the input */
+    static final double MAX_RATIO = 0.9;
+
+    /** Zstd is used when its ratio is observed to be smaller than this fraction of the ratio of LZ4 */
+    static final double ZSTD_GAIN = 0.85;
+
+    /** One in this many payloads is compressed with the alternative to the choice made */
+    static final int SAMPLE_INTERVAL = 64;
+
+    private final Ratio lz4 = new Ratio();
+    private final Ratio lz4Large = new Ratio();
+    private final Ratio zstdLarge = new Ratio();
+    private final AtomicLong payloads = new AtomicLong();
+
+    /** Returns the compression to use for a payload of the given size */
+    CompressionType choose(int size) {
+        if (size < MIN_SIZE) return CompressionType.NONE;
+
+        boolean sample = payloads.incrementAndGet() % SAMPLE_INTERVAL == 0;
+        if (size >= ZSTD_MIN_SIZE) {
+            boolean useZstd = zstdLarge.value() < lz4Large.value() * ZSTD_GAIN;
+            if (sample) return useZstd ? CompressionType.LZ4 : CompressionType.ZSTD;
+            if (useZstd) return CompressionType.ZSTD;
+        }
+        if (sample) return CompressionType.LZ4;
+        return lz4.value() > MAX_RATIO ? CompressionType.NONE : CompressionType.LZ4;
+    }
+
+    /** Records the result of compressing a payload of the given size with the given compression type */
+    void observe(CompressionType requested, int size, Compressor.Compression compression) {
+        if (size < MIN_SIZE) return;
+        double ratio = compression.type() == CompressionType.INCOMPRESSIBLE ? 1.0 : (double) compression.data().length / size;
+        switch (requested) {
+            case LZ4 -> {
+                lz4.add(ratio);
+                if (size >= ZSTD_MIN_SIZE)
+                    lz4Large.add(ratio);
+            }
+            case ZSTD -> zstdLarge.add(ratio);
+            default -> { }
+        }
+    }
+
+    /** An exponentially decaying average of compression ratios */
+    private static class Ratio {
+
+        private static final double DECAY = 0.05;
+
+        private volatile double value = 0.5; // Assume payloads are compressible until we know
+
+        double value() { return value; }
+
+        synchronized void add(double ratio) {
+            value = value + DECAY * (ratio - value);
+        }
+
+    }
+
+}
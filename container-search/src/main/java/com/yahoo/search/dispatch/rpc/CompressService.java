@@ -6,6 +6,9 @@ import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import com.yahoo.processing.request.CompoundName;
 import com.yahoo.search.Query;
+import com.yahoo.vespa.config.search.DispatchConfig;
+
+import java.util.Optional;
 
 /**
  * Implement interface to compress/decompress request/response
@@ -14,20 +17,48 @@ import com.yahoo.search.Query;
  */
 public class CompressService implements CompressPayload {
 
-    /** The compression method which will be used with rpc dispatch. "lz4" (default) and "none" is supported. */
+    /**
+     * The compression method which will be used with rpc dispatch:
+     * "lz4" (default), "zstd" or "none". This overrides the compression configured for the cluster.
+     */
     public static final CompoundName dispatchCompression = CompoundName.from("dispatch.compression");
     private final Compressor compressor = new Compressor(CompressionType.LZ4, 5, 0.95, 256);
+    private final CompressionType compression;
+    private final AdaptiveCompression adaptive; // null unless compression is adaptive
+
+    public CompressService() {
+        this(DispatchConfig.RequestCompression.LZ4);
+    }
+
+    public CompressService(DispatchConfig.RequestCompression.Enum compression) {
+        this.compression = switch (compression) {
+            case NONE -> CompressionType.NONE;
+            case LZ4, ADAPTIVE -> CompressionType.LZ4;
+            case ZSTD -> CompressionType.ZSTD;
+        };
+        this.adaptive = compression == DispatchConfig.RequestCompression.ADAPTIVE ? new AdaptiveCompression() : null;
+    }
 
     @Override
     public Compressor.Compression compress(Query query, byte[] payload) {
-        CompressionType compression = CompressionType.valueOf(query.properties().getString(dispatchCompression, "LZ4").toUpperCase(Locale.ROOT));
-        return compressor.compress(compression, payload);
+        String requested = query.properties().getString(dispatchCompression);
+        if (requested != null)
+            return compressor.compress(CompressionType.valueOf(requested.toUpperCase(Locale.ROOT)), payload);
+        if (adaptive == null)
+            return compressor.compress(compression, payload);
+
+        CompressionType type = adaptive.choose(payload.length);
+        Compressor.Compression result = compressor.compress(type, payload);
+        adaptive.observe(type, payload.length, result);
+        return result;
     }
 
     @Override
     public byte[] decompress(Client.ProtobufResponse response) {
         CompressionType compression = CompressionType.valueOf(response.compression());
-        return compressor.decompress(response.compressedPayload(), compression, response.uncompressedSize());
+        byte[] payload = response.compressedPayload();
+        // Zstd requires the compressed size, which is the size of the payload
+        return compressor.decompress(compression, payload, 0, response.uncompressedSize(), Optional.of(payload.length));
     }
 
     Compressor compressor() { return compressor; }
@@ -0,0 +1,164 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.concurrent.Timer;
+import com.yahoo.data.access.Inspector;
+import com.yahoo.data.access.slime.SlimeAdapter;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.search.Query;
+import com.yahoo.search.dispatch.Dispatcher;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.BinaryView;
+import com.yahoo.slime.Slime;
+import com.yahoo.slime.SlimeUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.LongSupplier;
+
+/**
+ * A cache of document summaries in the container, which lets hits of popular documents be filled
+ * without fetching their summaries from content nodes. Summaries are keyed on the global id of the document,
+ * its document type, and the summary class and fields requested.
+ * Summaries which depend on the query, such as dynamic snippets or summary features, are never cached.
+ * <p>
+ * Each summary is stored in its own binary slime buffer, such that it does not retain the rest of the reply
+ * it was received in. The cache is bounded by the total size of these, evicting the least recently used first.
+ * As the container does not observe document updates, entries expire after a max age, and are
+ * dropped when the content generation of the cluster has changed since they were added.
+ * <p>
+ * This class is multithread safe.
+ */
+public class DocsumCache {
+
+    private static final String HITS_METRIC = ContainerMetrics.SEARCH_DOCSUM_CACHE_HITS.baseName();
+    private static final String MISSES_METRIC = ContainerMetrics.SEARCH_DOCSUM_CACHE_MISSES.baseName();
+
+    /** Rough estimate of the memory used by the parts of an entry which we don't measure */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final Timer timer;
+    private final LongSupplier contentGeneration;
+    private final Metric metric;
+    private final Metric.Context metricContext;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access ordered: LRU first
+    private long bytes = 0;
+
+    /**
+     * @param contentGeneration supplies a number which changes whenever the content of the cluster is observed to change
+     */
+    public DocsumCache(long maxBytes, Duration maxAge, Timer timer, LongSupplier contentGeneration,
+                       Metric metric, String clusterName) {
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAge.toMillis();
+        this.timer = timer;
+        this.contentGeneration = contentGeneration;
+        this.metric = metric;
+        this.metricContext = metric.createContext(Map.of("source", clusterName));
+    }
+
+    /** Returns whether summaries for the given query may be looked up in and added to this */
+    static boolean isCacheable(Query query, boolean summaryNeedsQuery) {
+        if (summaryNeedsQuery) return false;
+        if (query.getRanking().getQueryCache()) return false; // The query is cached on content nodes, which may use it for the summary
+        if (query.getNoCache()) return false;
+        return query.properties().getBoolean(Dispatcher.docsumCache, true);
+    }
+
+    /** Returns the cached summary for the given key, or empty if there is no current cached summary */
+    Optional<Inspector> get(Key key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && (entry.contentGeneration != contentGeneration.getAsLong()
+                                  || timer.milliTime() - entry.createdAt > maxAgeMillis)) {
+                remove(key);
+                entry = null;
+            }
+        }
+        metric.add(entry == null ? MISSES_METRIC : HITS_METRIC, 1, metricContext);
+        return Optional.ofNullable(entry).map(e -> new SlimeAdapter(BinaryView.inspect(e.docsum)));
+    }
+
+    /** Adds a copy of the given summary to this */
+    void put(Key key, com.yahoo.slime.Inspector docsum) {
+        Slime copy = new Slime();
+        SlimeUtils.copyObject(docsum, copy.setObject());
+        Entry entry = new Entry(BinaryFormat.encode(copy), contentGeneration.getAsLong(), timer.milliTime());
+        if (entry.bytes() > maxBytes) return;
+
+        synchronized (this) {
+            remove(key);
+            entries.put(key, entry);
+            bytes += entry.bytes();
+            for (Iterator<Entry> lru = entries.values().iterator(); bytes > maxBytes && lru.hasNext(); ) {
+                bytes -= lru.next().bytes();
+                lru.remove();
+            }
+        }
+    }
+
+    synchronized long bytes() { return bytes; }
+
+    synchronized int size() { return entries.size(); }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null)
+            bytes -= removed.bytes();
+    }
+
+    /** The key of a cached summary: The global id of the document, and the summary requested of it */
+    static final class Key {
+
+        private final byte[] globalId;
+        private final String documentType;
+        private final String summaryClass;
+        private final Set<String> fields;
+        private final int hashCode;
+
+        /**
+         * @param fields the fields requested from the summary class, or null to request all
+         */
+        Key(byte[] globalId, String documentType, String summaryClass, Set<String> fields) {
+            this.globalId = globalId;
+            this.documentType = documentType;
+            this.summaryClass = summaryClass;
+            this.fields = fields == null ? null : new TreeSet<>(fields);
+            this.hashCode = Objects.hash(Arrays.hashCode(globalId), documentType, summaryClass, this.fields);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key other)) return false;
+            return hashCode == other.hashCode
+                   && Arrays.equals(globalId, other.globalId)
+                   && Objects.equals(documentType, other.documentType)
+                   && Objects.equals(summaryClass, other.summaryClass)
+                   && Objects.equals(fields, other.fields);
+        }
+
+    }
+
+    private record Entry(byte[] docsum, long contentGeneration, long createdAt) {
+
+        long bytes() { return ENTRY_OVERHEAD_BYTES + docsum.length; }
+
+    }
+
+}
@@ -5,7 +5,9 @@ import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol;
 import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol.StringProperty;
 import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol.TensorProperty;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.yahoo.data.access.Inspector;
 import com.yahoo.data.access.helpers.MatchFeatureData;
 import com.yahoo.data.access.simple.Value;
 import com.yahoo.data.access.slime.SlimeAdapter;
@@ -84,6 +86,14 @@ public class ProtobufSerialization {
         return convertFromQuery(query, hits, nodeId, contentShare, requestTimeout, qrSearchersConfig).toByteArray();
     }
 
+    /**
+     * Returns the serialized search request of this query, independent of which node it is sent to and its timeout,
+     * such that queries which will produce the same results serialize to the same bytes.
+     */
+    public static byte[] serializeCacheKey(Query query, QrSearchersConfig qrSearchersConfig) {
+        return convertFromQuery(query, query.getHits(), null, 1.0, 0, qrSearchersConfig).toByteArray();
+    }
+
     private static void convertSearchReplyErrors(Result target, List<SearchProtocol.Error> errors, boolean softTimeout, boolean annTimeout) {
         for (var error : errors) {
             target.hits().addError(annTimeout || softTimeout
@@ -108,7 +118,7 @@ public class ProtobufSerialization {
             builder.setQueryTreeBlob(serializeQueryTree(queryTree, context, scratchPad));
         }
         builder.setQueryTree(queryTree.toProtobufQueryTree(context));
-        if (query.getGroupingSessionCache() || query.getRanking().getQueryCache()) {
+        if (nodeId != null && (query.getGroupingSessionCache() || query.getRanking().getQueryCache())) {
             // TODO verify that the session key is included whenever rank properties would have been
             builder.setSessionKey(query.getSessionId(nodeId).toString());
         }
@@ -277,7 +287,10 @@ public class ProtobufSerialization {
 
     static InvokerResult deserializeToSearchResult(byte[] payload, Query query, VespaBackend searcher, Node node)
             throws InvalidProtocolBufferException {
-        var protobuf = SearchProtocol.SearchReply.parseFrom(payload);
+        // Let bytes fields refer to the payload instead of copying them, as it is not modified after this
+        var input = CodedInputStream.newInstance(payload);
+        input.enableAliasing(true);
+        var protobuf = SearchProtocol.SearchReply.parser().parseFrom(input);
         return convertToResult(query, protobuf, searcher.getDocumentDatabase(query), node);
     }
 
@@ -312,19 +325,8 @@ public class ProtobufSerialization {
                                       replyHit.getRelevance(),
                                       replyHit.getSortData().isEmpty() ? null : replyHit.getSortData().toByteArray());
             if (haveMatchFeatures) {
-                var hitFeatures = matchFeatures.addHit();
-                var featureList = replyHit.getMatchFeaturesList();
-                if (featureList.size() == featureNames.size()) {
-                    int idx = 0;
-                    for (SearchProtocol.Feature value : featureList) {
-                        ByteString tensorBlob = value.getTensor();
-                        if (tensorBlob.isEmpty()) {
-                            hitFeatures.set(idx++, value.getNumber());
-                        } else {
-                            hitFeatures.set(idx++, tensorBlob.toByteArray());
-                        }
-                    }
-                    hit.addMatchFeatures(hitFeatures);
+                if (replyHit.getMatchFeaturesCount() == featureNames.size()) {
+                    hit.addMatchFeatures(() -> decodeMatchFeatures(replyHit, matchFeatures));
                 } else {
                     result.getResult().hits().addError(ErrorMessage.createBackendCommunicationError("mismatch in match feature sizes"));
                 }
@@ -341,6 +343,20 @@ public class ProtobufSerialization {
         return result;
     }
 
+    private static Inspector decodeMatchFeatures(SearchProtocol.Hit replyHit, MatchFeatureData matchFeatures) {
+        var hitFeatures = matchFeatures.addHit();
+        int idx = 0;
+        for (SearchProtocol.Feature value : replyHit.getMatchFeaturesList()) {
+            ByteString tensorBlob = value.getTensor();
+            if (tensorBlob.isEmpty()) {
+                hitFeatures.set(idx++, value.getNumber());
+            } else {
+                hitFeatures.set(idx++, tensorBlob.toByteArray());
+            }
+        }
+        return hitFeatures;
+    }
+
     private static Coverage convertToCoverage(SearchProtocol.SearchReply protobuf) {
         var coverage = new Coverage(protobuf.getCoverageDocs(), protobuf.getActiveDocs(), 1);
         coverage.setNodesTried(1).setTargetActive(protobuf.getTargetActiveDocs());
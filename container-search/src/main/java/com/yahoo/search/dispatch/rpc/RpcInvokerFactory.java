@@ -23,6 +23,7 @@ public class RpcInvokerFactory extends InvokerFactory {
     private final CompressPayload compressor;
     private final RpcProtobufFillInvoker.DecodePolicy decodeType;
     private final QrSearchersConfig qrSearchersConfig;
+    private final DocsumCache docsumCache; // null if disabled
 
     private static RpcProtobufFillInvoker.DecodePolicy convert(DispatchConfig.SummaryDecodePolicy.Enum decoding) {
         return switch (decoding) {
@@ -32,11 +33,18 @@ public class RpcInvokerFactory extends InvokerFactory {
     }
 
     public RpcInvokerFactory(RpcConnectionPool rpcResourcePool, SearchGroups cluster, DispatchConfig dispatchConfig, QrSearchersConfig qrSearchersConfig) {
+        this(rpcResourcePool, cluster, dispatchConfig, qrSearchersConfig, null);
+    }
+
+    /** Creates an invoker factory whose fill invokers use the given docsum cache, unless it is null */
+    public RpcInvokerFactory(RpcConnectionPool rpcResourcePool, SearchGroups cluster, DispatchConfig dispatchConfig,
+                             QrSearchersConfig qrSearchersConfig, DocsumCache docsumCache) {
         super(cluster, dispatchConfig);
         this.rpcResourcePool = rpcResourcePool;
-        this.compressor = new CompressService();
+        this.compressor = new CompressService(dispatchConfig.requestCompression());
         this.decodeType = convert(dispatchConfig.summaryDecodePolicy());
         this.qrSearchersConfig = qrSearchersConfig;
+        this.docsumCache = docsumCache;
     }
 
     @Override
@@ -49,7 +57,8 @@ public class RpcInvokerFactory extends InvokerFactory {
         Query query = result.getQuery();
         boolean summaryNeedsQuery = searcher.summaryNeedsQuery(query);
         return new RpcProtobufFillInvoker(rpcResourcePool, compressor, searcher.getDocumentDatabase(query),
-                                          searcher.getServerId(), decodeType, summaryNeedsQuery, qrSearchersConfig);
+                                          searcher.getServerId(), decodeType, summaryNeedsQuery, qrSearchersConfig,
+                                          DocsumCache.isCacheable(query, summaryNeedsQuery) ? docsumCache : null);
     }
 
 }
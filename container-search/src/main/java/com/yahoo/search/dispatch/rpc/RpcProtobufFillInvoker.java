@@ -64,6 +64,7 @@ public class RpcProtobufFillInvoker extends FillInvoker {
     private final CompressPayload compressor;
     private final DecodePolicy decodePolicy;
     private final QrSearchersConfig qrSearchersConfig;
+    private final DocsumCache docsumCache; // null if disabled or not usable for this query
 
     private record ResponseAndHits(Client.ResponseOrError<ProtobufResponse> response, List<FastHit> hits) {}
 
@@ -84,6 +85,12 @@ public class RpcProtobufFillInvoker extends FillInvoker {
     RpcProtobufFillInvoker(RpcConnectionPool resourcePool, CompressPayload compressor, DocumentDatabase documentDb,
                            String serverId, DecodePolicy decodePolicy, boolean summaryNeedsQuery,
                            QrSearchersConfig qrSearchersConfig) {
+        this(resourcePool, compressor, documentDb, serverId, decodePolicy, summaryNeedsQuery, qrSearchersConfig, null);
+    }
+
+    RpcProtobufFillInvoker(RpcConnectionPool resourcePool, CompressPayload compressor, DocumentDatabase documentDb,
+                           String serverId, DecodePolicy decodePolicy, boolean summaryNeedsQuery,
+                           QrSearchersConfig qrSearchersConfig, DocsumCache docsumCache) {
         this.documentDb = documentDb;
         this.resourcePool = resourcePool;
         this.serverId = serverId;
@@ -92,6 +99,7 @@ public class RpcProtobufFillInvoker extends FillInvoker {
         this.decodePolicy = decodePolicy;
         this.qrSearchersConfig = qrSearchersConfig;
         this.partialSummaryHandler = new PartialSummaryHandler(documentDb);
+        this.docsumCache = docsumCache;
     }
 
     @Override
@@ -102,6 +110,8 @@ public class RpcProtobufFillInvoker extends FillInvoker {
             return;
         }
         ListMap<Integer, FastHit> hitsByNode = hitsByNode(result);
+        if (docsumCache != null)
+            hitsByNode = fillFromCache(result, hitsByNode);
 
         // Span.current() is dispatch.fill, created by FillInvoker.fill one frame up. Set from here rather than
         // from the base class because FillInvoker has no fields at all - none of these values exist there.
@@ -112,7 +122,40 @@ public class RpcProtobufFillInvoker extends FillInvoker {
 
         int queueSize = Math.max(hitsByNode.size(), resourcePool.knownNodeIds().size());
         responses = new LinkedBlockingQueue<>(queueSize);
-        sendFillRequestByNode(result, summaryClass, hitsByNode);
+        if (hitsByNode.size() > 0)
+            sendFillRequestByNode(result, summaryClass, hitsByNode);
+    }
+
+    /** Fills the hits which have a cached summary, and returns the rest */
+    private ListMap<Integer, FastHit> fillFromCache(Result result, ListMap<Integer, FastHit> hitsByNode) {
+        ListMap<Integer, FastHit> misses = new ListMap<>();
+        int cachedHits = 0;
+        for (var nodeHits : hitsByNode.entrySet()) {
+            for (FastHit hit : nodeHits.getValue()) {
+                var summary = docsumCache.get(cacheKey(hit));
+                if (summary.isPresent()) {
+                    addSummary(hit, summary.get());
+                    cachedHits++;
+                }
+                else {
+                    misses.put(nodeHits.getKey(), hit);
+                }
+            }
+        }
+        result.getQuery().trace(false, 3, "Filled ", cachedHits, " of ", numHitsToFill, " hits from the docsum cache");
+        return misses;
+    }
+
+    private DocsumCache.Key cacheKey(FastHit hit) {
+        return new DocsumCache.Key(hit.getRawGlobalId(), documentDb.schema().name(),
+                                   partialSummaryHandler.askForSummary(), partialSummaryHandler.askForFields());
+    }
+
+    private void addSummary(FastHit hit, Inspector summary) {
+        hit.setField(Hit.SDDOCNAME_FIELD, documentDb.schema().name());
+        hit.addSummary(partialSummaryHandler.effectiveDocsumDef(), summary);
+        partialSummaryHandler.markFilled(hit);
+        ++numOkFilledHits;
     }
 
     void sendFillRequestByNode(Result result, String summaryClass, ListMap<Integer, FastHit> hitsByNode) {
@@ -315,7 +358,8 @@ public class RpcProtobufFillInvoker extends FillInvoker {
                 }
                 convertErrorsFromDocsumReply(result, protobuf.getErrorsList());
             }
-            Inspector summaries = new SlimeAdapter(root.field("docsums"));
+            var docsums = root.field("docsums");
+            Inspector summaries = new SlimeAdapter(docsums);
             if (!summaries.valid()) {
                 return List.of(); // No summaries; Perhaps we requested a non-existing summary class
             }
@@ -325,10 +369,9 @@ public class RpcProtobufFillInvoker extends FillInvoker {
                 FastHit hit = hits.get(i);
                 boolean needFill = isRetry ? partialSummaryHandler.needFill(hit) : true;
                 if (summary.valid() && needFill) {
-                    hit.setField(Hit.SDDOCNAME_FIELD, documentDb.schema().name());
-                    hit.addSummary(partialSummaryHandler.effectiveDocsumDef(), summary);
-                    partialSummaryHandler.markFilled(hit);
-                    ++numOkFilledHits;
+                    addSummary(hit, summary);
+                    if (docsumCache != null && ! isRetry)
+                        docsumCache.put(cacheKey(hit), docsums.entry(i).field("docsum"));
                 } else if (needFill) {
                     skippedHits.add(hit);
                 }
@@ -19,6 +19,7 @@ import io.opentelemetry.context.Context;
 
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -42,6 +43,7 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
     private final QrSearchersConfig qrSearchersConfig;
 
     private Query query;
+    private long sentAtNanos = -1;
 
     /** This invoker is already per-query-per-node, so it is the carrier: no lookup structure is needed.
      *  Created on the worker thread, ended on whichever thread learns the outcome — Span is thread-safe. */
@@ -88,6 +90,8 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
             return incomingContext;
         }
         SerializedQuery serializedQuery = getSerializedQuery(incomingContext, contentShare, timeout.request());
+        node.searchSent();
+        sentAtNanos = System.nanoTime();
         nodeConnection.request(RPC_METHOD,
                                serializedQuery.compressedPayload.type(),
                                serializedQuery.compressedPayload.uncompressedSize(),
@@ -158,10 +162,17 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
 
     public void receive(Client.ResponseOrError<ProtobufResponse> response) {
         endSpan(response.error().orElse(null));   // may run on a JRT transport thread
-        responses.add(response);
+        if (sentAtNanos >= 0) // Other errors than timeouts are not indicative of the latency of the node
+            node.searchCompleted(response.error().isEmpty() || response.timeout() ? Duration.ofNanos(System.nanoTime() - sentAtNanos) : null);
+        responses.offer(response); // Fails if told to stop waiting first, and then this response is not needed
         responseAvailable();
     }
 
+    @Override
+    protected void stopWaiting() {
+        responses.offer(Client.ResponseOrError.fromTimeoutError("Stopped waiting for " + getName()));
+    }
+
     private String getName() {
         return searcher.getName();
     }
@@ -1,8 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch.searchcluster;
 
+import java.time.Duration;
 import java.util.Objects;
 import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -13,6 +15,9 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class Node {
 
+    /** The weight of each new search latency in the moving average of this */
+    private static final double LATENCY_DECAY = 0.1;
+
     private final String clusterName;
     private final int key;
     private final String hostname;
@@ -27,6 +32,8 @@ public class Node {
     private volatile long targetActiveDocuments = 0;
     private volatile boolean statusIsKnown = false;
     private volatile boolean working = true;
+    private final AtomicInteger searchesInFlight = new AtomicInteger(0);
+    private volatile double searchLatency = 0;
 
     public Node(String clusterName, int key, String hostname, int group, boolean multipleGroups) {
         this(clusterName, key, hostname, group, multipleGroups, "default");
@@ -106,6 +113,30 @@ public class Node {
     /** Returns the target active documents on this node. If unknown, 0 is returned. */
     long getTargetActiveDocuments() { return targetActiveDocuments; }
 
+    /** Records that a search request is sent to this node. */
+    public void searchSent() { searchesInFlight.incrementAndGet(); }
+
+    /**
+     * Records that a search request sent to this node is completed.
+     *
+     * @param latency the time from the request was sent until it completed, or null if it failed
+     *                in a way which tells nothing about the latency of this node
+     */
+    public void searchCompleted(Duration latency) {
+        searchesInFlight.decrementAndGet();
+        if (latency == null) return;
+        double seconds = latency.toNanos() / 1_000_000_000.0;
+        synchronized (searchesInFlight) {
+            searchLatency = searchLatency == 0 ? seconds : searchLatency + LATENCY_DECAY * (seconds - searchLatency);
+        }
+    }
+
+    /** Returns the number of search requests sent to this node which are not completed. */
+    public int searchesInFlight() { return searchesInFlight.get(); }
+
+    /** Returns the exponentially weighted moving average of recent search latencies in seconds, or 0 if unknown. */
+    public double searchLatency() { return searchLatency; }
+
     @Override
     public int hashCode() { return Objects.hash(hostname, key, group); }
 
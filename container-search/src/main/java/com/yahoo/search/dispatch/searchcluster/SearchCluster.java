@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import static java.util.stream.Collectors.groupingBy;
@@ -34,6 +35,8 @@ public class SearchCluster implements NodeManager<Node> {
     private volatile SearchGroupsImpl groups;           // Groups in this cluster
     private volatile SearchGroupsImpl monitoredGroups;  // Same as groups, except during reconfiguration.
     private volatile long nextLogTime = 0;
+    private final AtomicLong contentGeneration = new AtomicLong(0);
+    private volatile long lastActiveDocuments = 0;
 
     /**
      * A search node on this local machine having the entire corpus, which we therefore
@@ -76,6 +79,7 @@ public class SearchCluster implements NodeManager<Node> {
         this.monitoredGroups = groups;
         monitor.reconfigure(groups.nodes());
         this.groups = groups;
+        contentGeneration.incrementAndGet();
     }
 
     public void addMonitoring(ClusterMonitor<Node> clusterMonitor) {
@@ -116,6 +120,13 @@ public class SearchCluster implements NodeManager<Node> {
 
     private Collection<Group> groups() { return groups.groups(); }
 
+    /**
+     * Returns a number which changes whenever the content searchable in this cluster is observed to change:
+     * When nodes are reconfigured or change working state, or the number of active documents changes.
+     * Changes to existing documents are not observed.
+     */
+    public long contentGeneration() { return contentGeneration.get(); }
+
     public int groupsWithSufficientCoverage() {
         return (int) groups().stream().filter(Group::hasSufficientCoverage).count();
     }
@@ -140,6 +151,7 @@ public class SearchCluster implements NodeManager<Node> {
     private void updateWorkingState(Node node, boolean isWorking) {
         log.fine(() -> "Updating working state of " + node + " to " + isWorking);
         node.setWorking(isWorking);
+        contentGeneration.incrementAndGet();
         updateVipStatusOnNodeChange(node, isWorking);
     }
 
@@ -262,6 +274,11 @@ public class SearchCluster implements NodeManager<Node> {
         } else {
             pingIterationCompletedMultipleGroups(groups);
         }
+        long activeDocuments = groups.groups().stream().mapToLong(Group::activeDocuments).sum();
+        if (activeDocuments != lastActiveDocuments) {
+            lastActiveDocuments = activeDocuments;
+            contentGeneration.incrementAndGet();
+        }
     }
 
     /**
@@ -10,6 +10,7 @@ import com.yahoo.component.ComponentId;
 import com.yahoo.component.provider.ComponentRegistry;
 import com.yahoo.concurrent.InThreadExecutorService;
 import com.yahoo.container.QrSearchersConfig;
+import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.container.handler.ClustersStatus;
 import com.yahoo.container.handler.VipStatus;
 import com.yahoo.prelude.fastsearch.ClusterParams;
@@ -494,7 +495,8 @@ public class ClusterSearcherTestCase {
                                                new QrSearchersConfig.Builder().build(),
                                                nodesConfig,
                                                systemInfo,
-                                               vipStatus);
+                                               vipStatus,
+                                               new MockMetric());
         ComponentRegistry<Dispatcher> dispatchers = new ComponentRegistry<>();
         dispatchers.register(new ComponentId("dispatcher." + clusterName), dispatcher);
 
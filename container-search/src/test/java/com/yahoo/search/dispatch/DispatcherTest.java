@@ -8,6 +8,7 @@ import ai.vespa.cloud.SystemInfo;
 import ai.vespa.cloud.Zone;
 import com.yahoo.compress.CompressionType;
 import com.yahoo.container.QrSearchersConfig;
+import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.prelude.Pong;
 import com.yahoo.prelude.fastsearch.VespaBackend;
 import com.yahoo.search.Query;
@@ -78,6 +79,7 @@ public class DispatcherTest {
                                          dispatchConfig,
                                          new QrSearchersConfig.Builder().build(),
                                          systemInfo("default"),
+                                         new MockMetric(),
                                          invokerFactory);
         SearchInvoker invoker = disp.getSearchInvoker(q, null);
         assertNotNull(invoker);
@@ -99,6 +101,7 @@ public class DispatcherTest {
                                          dispatchConfig,
                                          new QrSearchersConfig.Builder().build(),
                                          systemInfo("default"),
+                                         new MockMetric(),
                                          invokerFactory);
         SearchInvoker invoker = disp.getSearchInvoker(new Query(), null);
         assertNotNull(invoker);
@@ -122,6 +125,7 @@ public class DispatcherTest {
                                          dispatchConfig,
                                          new QrSearchersConfig.Builder().build(),
                                          systemInfo("default"),
+                                         new MockMetric(),
                                          invokerFactory);
         SearchInvoker invoker = disp.getSearchInvoker(new Query(), null);
         assertNotNull(invoker);
@@ -140,6 +144,7 @@ public class DispatcherTest {
                                              dispatchConfig,
                                              new QrSearchersConfig.Builder().build(),
                                              systemInfo("default"),
+                                             new MockMetric(),
                                              invokerFactory);
             disp.getSearchInvoker(new Query(), null);
             disp.deconstruct();
@@ -158,6 +163,7 @@ public class DispatcherTest {
                                                dispatchConfig,
                                                new QrSearchersConfig.Builder().build(),
                                                systemInfo("default"),
+                                               new MockMetric(),
                                                new MockInvokerFactory(cluster.groupList(), dispatchConfig, (n, a) -> true));
         cluster.pingIterationCompleted();
         assertEquals(0,
@@ -173,6 +179,7 @@ public class DispatcherTest {
                                                dispatchConfig,
                                                new QrSearchersConfig.Builder().build(),
                                                systemInfo("default"),
+                                               new MockMetric(),
                                                new MockInvokerFactory(cluster.groupList(), dispatchConfig, (n, a) -> true));
         cluster.pingIterationCompleted();
         assertEquals(2, dispatcher.getSearchInvoker(new Query("?model.searchGroup=2"), null).distributionKey().get().longValue(),
@@ -189,6 +196,7 @@ public class DispatcherTest {
                                                dispatchConfig,
                                                new QrSearchersConfig.Builder().build(),
                                                systemInfo("default"),
+                                               new MockMetric(),
                                                new MockInvokerFactory(cluster.groupList(), dispatchConfig, (n, a) -> true));
         cluster.pingIterationCompleted();
         cluster.groupList().get(2).setHasSufficientCoverage(false);
@@ -205,6 +213,7 @@ public class DispatcherTest {
                                                dispatchConfig,
                                                new QrSearchersConfig.Builder().build(),
                                                systemInfo("default"),
+                                               new MockMetric(),
                                                new MockInvokerFactory(cluster.groupList(), dispatchConfig, (n, a) -> true));
         cluster.pingIterationCompleted();
         assertEquals(0, dispatcher.getSearchInvoker(new Query("?model.searchGroup=3"), null).distributionKey().get().longValue(),
@@ -274,7 +283,7 @@ public class DispatcherTest {
         };
 
         // This factory just forwards search to the dummy RPC layer above, nothing more.
-        InvokerFactoryFactory invokerFactories = (rpcConnectionPool, searchGroups, dispatchConfig, qrSearchersConfig) -> new InvokerFactory(searchGroups, dispatchConfig) {
+        InvokerFactoryFactory invokerFactories = (rpcConnectionPool, searchGroups, dispatchConfig, qrSearchersConfig, docsumCache) -> new InvokerFactory(searchGroups, dispatchConfig) {
             @Override protected Optional<SearchInvoker> createNodeSearchInvoker(VespaBackend searcher, Query query, int maxHits, Node node) {
                 return Optional.of(new SearchInvoker(Optional.of(node)) {
                     @Override protected Object sendSearchRequest(Query query, double contentShare, Object context) {
@@ -301,6 +310,7 @@ public class DispatcherTest {
                                                rpcPool,
                                                cluster,
                                                systemInfo("default"),
+                                               new MockMetric(),
                                                invokerFactories);
         ExecutorService executor = Executors.newFixedThreadPool(1);
 
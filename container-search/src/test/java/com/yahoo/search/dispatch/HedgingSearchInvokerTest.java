@@ -0,0 +1,227 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.concurrent.Timer;
+import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.dispatch.searchcluster.Group;
+import com.yahoo.search.dispatch.searchcluster.MockDocumentCountSource;
+import com.yahoo.search.dispatch.searchcluster.MockSearchCluster;
+import com.yahoo.search.dispatch.searchcluster.Node;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.vespa.config.search.DispatchConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests hedging of queries to another group.
+ */
+public class HedgingSearchInvokerTest {
+
+    private final MockMetric metric = new MockMetric();
+    private final Group group0 = new Group(0, List.of(new Node("test", 0, "host0", 0, true)));
+    private final Group group1 = new Group(1, List.of(new Node("test", 1, "host1", 1, true)));
+
+    @Test
+    void testNoHedgingWhenPrimaryRespondsInTime() throws IOException {
+        HedgingPolicy policy = policyWithBudget();
+        AtomicInteger hedgesCreated = new AtomicInteger();
+        Query query = new Query("?query=foo");
+        try (var invoker = new HedgingSearchInvoker(new RespondingInvoker(0, true, 1.0), Duration.ofSeconds(5), policy,
+                                                    () -> { hedgesCreated.incrementAndGet(); return Optional.empty(); })) {
+            Result result = invoker.search(query, 1.0);
+            assertEquals(1.0, result.hits().get(0).getRelevance().getScore());
+        }
+        assertEquals(0, hedgesCreated.get());
+        assertNull(query.getModel().getSearchPath());
+        assertEquals(0.0, metric("search.hedges.issued"));
+    }
+
+    @Test
+    void testHedgeWinsWhenPrimaryIsSlow() throws IOException {
+        HedgingPolicy policy = policyWithBudget();
+        Query query = new Query("?query=foo");
+        RespondingInvoker primary = new RespondingInvoker(0, false, 1.0);
+        RespondingInvoker hedge = new RespondingInvoker(1, true, 2.0);
+        try (var invoker = new HedgingSearchInvoker(primary, Duration.ofMillis(1), policy,
+                                                    () -> Optional.of(new HedgingSearchInvoker.Hedge(hedge, group1)))) {
+            Result result = invoker.search(query, 1.0);
+            assertEquals(2.0, result.hits().get(0).getRelevance().getScore());
+        }
+        assertEquals("/1", query.getModel().getSearchPath());
+        assertTrue(primary.closed);
+        assertTrue(hedge.closed);
+        assertEquals(1.0, metric("search.hedges.issued"));
+        assertEquals(1.0, metric("search.hedges.won"));
+    }
+
+    @Test
+    void testHedgeResultIsPagedWhenHedgeWins() throws IOException {
+        HedgingPolicy policy = policyWithBudget();
+        Query query = new Query("?query=foo&timeout=20s&offset=1&hits=1");
+        SearchInvoker primary = interleaved(MockSearchCluster.createDispatchConfig(), group0, new RespondingInvoker(0, false, 1.0));
+        Group group = new Group(1, List.of(new Node("test", 1, "host1", 1, true), new Node("test", 3, "host3", 1, true)));
+        SearchInvoker hedge = interleaved(MockSearchCluster.createDispatchConfig(), group,
+                                          new RespondingInvoker(1, true, 3.0), new RespondingInvoker(3, true, 2.0));
+        try (var invoker = new HedgingSearchInvoker(primary, Duration.ofMillis(1), policy,
+                                                    () -> Optional.of(new HedgingSearchInvoker.Hedge(hedge, group)))) {
+            Result result = invoker.search(query, 1.0);
+            assertEquals(1, result.hits().size());
+            assertEquals(2.0, result.hits().get(0).getRelevance().getScore());
+        }
+        assertEquals("/1", query.getModel().getSearchPath());
+        assertEquals(1.0, metric("search.hedges.won"));
+    }
+
+    @Test
+    void testNoHedgingWithoutBudget() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(90, 0.1, metric, "test");
+        Query query = new Query("?query=foo&timeout=100ms");
+        RespondingInvoker hedge = new RespondingInvoker(1, true, 2.0);
+        try (var invoker = new HedgingSearchInvoker(new RespondingInvoker(0, false, 1.0), Duration.ofMillis(1), policy,
+                                                    () -> Optional.of(new HedgingSearchInvoker.Hedge(hedge, group1)))) {
+            invoker.search(query, 1.0);
+        }
+        assertFalse(hedge.sent);
+        assertEquals(0.0, metric("search.hedges.issued"));
+    }
+
+    @Test
+    void testPrimaryDecidesWhenItsPartialResultIsDone() throws IOException {
+        HedgingPolicy policy = policyWithBudget();
+        Query query = new Query("?query=foo&timeout=20s");
+        Group group = new Group(0, List.of(new Node("test", 0, "host0", 0, true), new Node("test", 2, "host2", 0, true)));
+        SearchInvoker primary = interleaved(MockSearchCluster.createDispatchConfig(50.0), group,
+                                            new RespondingInvoker(0, true, 1.0), new RespondingInvoker(2, false, 3.0));
+        RespondingInvoker hedge = new RespondingInvoker(1, false, 2.0);
+        long startNanos = System.nanoTime();
+        try (var invoker = new HedgingSearchInvoker(primary, Duration.ofMillis(1), policy,
+                                                    () -> Optional.of(new HedgingSearchInvoker.Hedge(hedge, group1)))) {
+            Result result = invoker.search(query, 1.0);
+            assertEquals(1, result.hits().size());
+            assertEquals(1.0, result.hits().get(0).getRelevance().getScore());
+            assertTrue(result.getCoverage(false).isDegradedByAdapativeTimeout());
+        }
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNanos).compareTo(Duration.ofSeconds(10)) < 0,
+                   "The adaptive timeout of the primary is used, rather than the query timeout");
+        assertTrue(hedge.sent);
+        assertNull(query.getModel().getSearchPath());
+        assertEquals(1.0, metric("search.hedges.issued"));
+        assertEquals(0.0, metric("search.hedges.won"));
+    }
+
+    @Test
+    void testPrimaryStopsWaitingWhenHedgeResponds() throws IOException {
+        HedgingPolicy policy = policyWithBudget();
+        Query query = new Query("?query=foo&timeout=20s");
+        SearchInvoker primary = interleaved(MockSearchCluster.createDispatchConfig(), group0, new RespondingInvoker(0, false, 1.0));
+        RespondingInvoker hedge = new RespondingInvoker(1, true, 2.0);
+        long startNanos = System.nanoTime();
+        try (var invoker = new HedgingSearchInvoker(primary, Duration.ofMillis(1), policy,
+                                                    () -> Optional.of(new HedgingSearchInvoker.Hedge(hedge, group1)))) {
+            Result result = invoker.search(query, 1.0);
+            assertEquals(2.0, result.hits().get(0).getRelevance().getScore());
+        }
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNanos).compareTo(Duration.ofSeconds(10)) < 0);
+        assertEquals("/1", query.getModel().getSearchPath());
+        assertEquals(1.0, metric("search.hedges.won"));
+    }
+
+    @Test
+    void testResponseTimesOfHedgesAreRecorded() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(90, 1.0, metric, "test");
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            policy.delayFor(group0);
+            RespondingInvoker hedge = new RespondingInvoker(1, true, 2.0);
+            try (var invoker = new HedgingSearchInvoker(new RespondingInvoker(0, false, 1.0), Duration.ofMillis(1), policy,
+                                                        () -> Optional.of(new HedgingSearchInvoker.Hedge(hedge, group1)))) {
+                invoker.search(new Query("?query=foo"), 1.0);
+            }
+        }
+        assertTrue(policy.delayFor(group1).isPresent());
+        assertTrue(policy.delayFor(group0).isEmpty());
+    }
+
+    @Test
+    void testPolicy() {
+        HedgingPolicy policy = new HedgingPolicy(90, 0.5, metric, "test");
+        for (int i = 1; i < HedgingPolicy.MIN_SAMPLES; i++)
+            policy.record(group0, RequestDuration.of(Duration.ofMillis(i)));
+        assertTrue(policy.delayFor(group0).isEmpty());
+        policy.record(group0, RequestDuration.of(Duration.ofMillis(HedgingPolicy.MIN_SAMPLES)));
+        assertEquals(Duration.ofMillis(58), policy.delayFor(group0).get());
+        assertTrue(policy.delayFor(group1).isEmpty());
+
+        for (int i = 0; i < HedgingPolicy.SAMPLES; i++)
+            policy.record(group0, RequestDuration.of(Duration.ofMillis(i % 100 + 1)));
+        assertEquals(Duration.ofMillis(90), policy.delayFor(group0).get());
+
+        assertTrue(policy.tryHedge()); // 4 queries dispatched above, with budget 0.5
+        assertTrue(policy.tryHedge());
+        assertFalse(policy.tryHedge());
+        policy.delayFor(group0);
+        assertFalse(policy.tryHedge());
+        policy.delayFor(group0);
+        assertTrue(policy.tryHedge());
+    }
+
+    private HedgingPolicy policyWithBudget() {
+        HedgingPolicy policy = new HedgingPolicy(90, 1.0, metric, "test");
+        policy.delayFor(group0);
+        return policy;
+    }
+
+    private static SearchInvoker interleaved(DispatchConfig config, Group group, SearchInvoker ... nodes) {
+        return new InterleavedSearchInvoker(Timer.monotonic, List.of(nodes), new TopKEstimator(30, 0.9999, 0.05),
+                                            config, group, new MockDocumentCountSource(), null);
+    }
+
+    private double metric(String name) {
+        return metric.metrics().getOrDefault(name, Map.of()).values().stream().mapToDouble(Double::doubleValue).sum();
+    }
+
+    /** An invoker which responds at once if told to, and otherwise never */
+    private static class RespondingInvoker extends MockInvoker {
+
+        private final boolean respond;
+        boolean sent = false;
+        boolean closed = false;
+
+        RespondingInvoker(int key, boolean respond, double relevance) {
+            super(key, new Coverage(100, 100, 1));
+            this.respond = respond;
+            setHits(List.of(new FastHit(new byte[] { (byte) key }, relevance, OptionalInt.empty(), 0, key)));
+        }
+
+        @Override
+        protected Object sendSearchRequest(Query query, double contentShare, Object context) {
+            sent = true;
+            Object result = super.sendSearchRequest(query, contentShare, context);
+            if (respond)
+                responseAvailable();
+            return result;
+        }
+
+        @Override
+        protected void release() {
+            closed = true;
+        }
+
+    }
+
+}
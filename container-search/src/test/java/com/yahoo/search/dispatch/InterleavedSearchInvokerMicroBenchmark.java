@@ -0,0 +1,78 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.concurrent.Timer;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.dispatch.searchcluster.Group;
+import com.yahoo.search.dispatch.searchcluster.MockDocumentCountSource;
+import com.yahoo.search.dispatch.searchcluster.Node;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.vespa.config.search.DispatchConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures the cost of searching a group through an {@link InterleavedSearchInvoker}, by the number of nodes,
+ * using in-process invokers which return 400 hits each.
+ */
+public class InterleavedSearchInvokerMicroBenchmark {
+
+    private static final int hitsPerNode = 400;
+    private static final DispatchConfig dispatchConfig = new DispatchConfig.Builder().build();
+    private static final TopKEstimator hitEstimator = new TopKEstimator(30, dispatchConfig.topKProbability(), 0.05);
+
+    public void run() throws IOException {
+        for (int nodes : new int[] { 1, 4, 16, 64 }) {
+            List<List<Hit>> hits = createHits(nodes);
+            for (int i = 0; i < 1000; i++)
+                search(hits);
+
+            long startTime = System.nanoTime();
+            int repetitions = 10 * 1000;
+            long count = 0;
+            for (int i = 0; i < repetitions; i++)
+                count += search(hits);
+            long totalTime = System.nanoTime() - startTime;
+            System.out.println(nodes + " nodes: " + totalTime / repetitions + " ns per search (" + count / repetitions + " hits)");
+        }
+    }
+
+    private int search(List<List<Hit>> hits) throws IOException {
+        List<SearchInvoker> invokers = new ArrayList<>(hits.size());
+        for (int node = 0; node < hits.size(); node++)
+            invokers.add(new MockInvoker(new Coverage(100, 100, 1), new Node("test", node, "?", 0, true)).setHits(hits.get(node)));
+        try (var invoker = new InterleavedSearchInvoker(Timer.monotonic, invokers, hitEstimator, dispatchConfig,
+                                                        new Group(0, List.of()), new MockDocumentCountSource(), Set.of())) {
+            invokers.forEach(invoker::responseAvailable);
+            return invoker.search(new Query("?query=test&hits=" + hitsPerNode), 1.0).hits().size();
+        }
+    }
+
+    private static List<List<Hit>> createHits(int nodes) {
+        Random random = new Random(nodes);
+        List<List<Hit>> results = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) {
+            List<Hit> hits = new ArrayList<>();
+            for (int i = 0; i < hitsPerNode; i++) {
+                byte[] gid = new byte[12];
+                random.nextBytes(gid);
+                hits.add(new FastHit(gid, random.nextDouble(), OptionalInt.empty(), node, node));
+            }
+            hits.sort(null);
+            results.add(hits);
+        }
+        return results;
+    }
+
+    public static void main(String[] args) throws IOException {
+        new InterleavedSearchInvokerMicroBenchmark().run();
+    }
+
+}
@@ -0,0 +1,62 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Random;
+
+/**
+ * Measures the cost of merging the hits returned from the nodes of a group, by the number of nodes.
+ */
+public class LeanHitMergerMicroBenchmark {
+
+    private static final int hitsPerNode = 400;
+    private static final int offset = 0;
+    private static final int needed = 400;
+
+    public void run() {
+        for (int nodes : new int[] { 1, 2, 4, 8, 16, 32, 64, 128 }) {
+            List<List<LeanHit>> results = createResults(nodes);
+            for (int i = 0; i < 10 * 1000; i++)
+                merge(results);
+
+            long startTime = System.nanoTime();
+            int repetitions = 100 * 1000;
+            long count = 0;
+            for (int i = 0; i < repetitions; i++)
+                count += merge(results);
+            long totalTime = System.nanoTime() - startTime;
+            System.out.println(nodes + " nodes: " + totalTime / repetitions + " ns per merge (" + count / repetitions + " hits)");
+        }
+    }
+
+    private int merge(List<List<LeanHit>> results) {
+        LeanHitMerger merger = new LeanHitMerger();
+        results.forEach(merger::add);
+        List<LeanHit> merged = new ArrayList<>(needed - offset);
+        merger.mergeInto(merged, offset, needed);
+        return merged.size();
+    }
+
+    private static List<List<LeanHit>> createResults(int nodes) {
+        Random random = new Random(nodes);
+        List<List<LeanHit>> results = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) {
+            List<LeanHit> hits = new ArrayList<>();
+            for (int i = 0; i < hitsPerNode; i++) {
+                byte[] gid = new byte[12];
+                random.nextBytes(gid);
+                hits.add(new LeanHit(gid, OptionalInt.empty(), 0, node, random.nextDouble()));
+            }
+            hits.sort(null);
+            results.add(hits);
+        }
+        return results;
+    }
+
+    public static void main(String[] args) {
+        new LeanHitMergerMicroBenchmark().run();
+    }
+
+}
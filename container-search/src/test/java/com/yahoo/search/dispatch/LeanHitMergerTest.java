@@ -0,0 +1,69 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LeanHitMergerTest {
+
+    @Test
+    void testMergingManyRuns() {
+        LeanHitMerger merger = new LeanHitMerger();
+        merger.add(hits(0, 9.0, 6.0, 3.0));
+        merger.add(hits(1, 8.0, 5.0, 2.0));
+        merger.add(List.of());
+        merger.add(hits(2, 7.0, 4.0, 1.0));
+        assertEquals(List.of(9.0, 8.0, 7.0, 6.0, 5.0, 4.0, 3.0, 2.0, 1.0), merge(merger, 0, 100));
+        assertEquals(List.of(9.0, 8.0, 7.0, 6.0), merge(merger, 0, 4));
+        assertEquals(List.of(6.0, 5.0), merge(merger, 3, 5));
+        assertEquals(List.of(), merge(merger, 9, 12));
+    }
+
+    @Test
+    void testMergingSingleRun() {
+        LeanHitMerger merger = new LeanHitMerger();
+        merger.add(hits(0, 3.0, 2.0, 1.0));
+        assertEquals(List.of(3.0, 2.0, 1.0), merge(merger, 0, 10));
+        assertEquals(List.of(2.0), merge(merger, 1, 2));
+        assertEquals(List.of(), merge(merger, 5, 10));
+        assertEquals(List.of(), merge(new LeanHitMerger(), 0, 10));
+    }
+
+    @Test
+    void testDuplicatesAreIncludedOnce() {
+        LeanHitMerger merger = new LeanHitMerger();
+        merger.add(hits(0, 9.0, 7.0, 5.0));
+        merger.add(hits(0, 9.0, 8.0, 5.0));
+        merger.add(hits(0, 9.0, 7.0, 4.0));
+        assertEquals(List.of(9.0, 8.0, 7.0, 5.0, 4.0), merge(merger, 0, 10));
+        assertEquals(List.of(7.0, 5.0), merge(merger, 2, 4));
+    }
+
+    @Test
+    void testDuplicatesInASingleRunAreIncludedOnce() {
+        LeanHitMerger merger = new LeanHitMerger();
+        merger.add(hits(0, 9.0, 9.0, 7.0, 5.0, 5.0, 4.0));
+        assertEquals(List.of(9.0, 7.0, 5.0, 4.0), merge(merger, 0, 10));
+        assertEquals(List.of(5.0, 4.0), merge(merger, 2, 4));
+    }
+
+    private static List<Double> merge(LeanHitMerger merger, int offset, int needed) {
+        List<LeanHit> merged = new ArrayList<>();
+        merger.mergeInto(merged, offset, needed);
+        return merged.stream().map(LeanHit::getRelevance).toList();
+    }
+
+    /** Returns hits with the given relevances, and gids which are equal for equal relevance */
+    private static List<LeanHit> hits(int partId, double ... relevances) {
+        List<LeanHit> hits = new ArrayList<>();
+        for (double relevance : relevances)
+            hits.add(new LeanHit(new byte[] { (byte) relevance }, OptionalInt.empty(), partId, 0, relevance));
+        return hits;
+    }
+
+}
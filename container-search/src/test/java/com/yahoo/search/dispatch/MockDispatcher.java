@@ -9,6 +9,7 @@ import ai.vespa.cloud.SystemInfo;
 import ai.vespa.cloud.Zone;
 import com.yahoo.container.QrSearchersConfig;
 import com.yahoo.container.handler.VipStatus;
+import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.search.cluster.ClusterMonitor;
 import com.yahoo.search.dispatch.rpc.RpcInvokerFactory;
 import com.yahoo.search.dispatch.rpc.RpcPingFactory;
@@ -74,6 +75,7 @@ public class MockDispatcher extends Dispatcher {
               dispatchConfig,
               new QrSearchersConfig.Builder().build(),
               systemInfo,
+              new MockMetric(),
               invokerFactory);
         this.clusterMonitor = clusterMonitor;
     }
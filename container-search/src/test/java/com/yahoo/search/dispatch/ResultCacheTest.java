@@ -0,0 +1,139 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.container.QrSearchersConfig;
+import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.Hit;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the container side search result cache.
+ */
+public class ResultCacheTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+    private final MockMetric metric = new MockMetric();
+
+    @Test
+    void results_are_cached_per_query() throws IOException {
+        ResultCache cache = createCache(1 << 20);
+
+        Result first = search(cache, "?query=foo", 0, invoker(3));
+        assertEquals(3, first.getHitCount());
+        assertEquals(1, cache.size());
+
+        Result cached = search(cache, "?query=foo", 0, null);
+        assertEquals(3, cached.getHitCount());
+        assertEquals(first.hits().get(0).getId(), cached.hits().get(0).getId());
+        assertEquals(first.getTotalHitCount(), cached.getTotalHitCount());
+        assertTrue(cached.getCoverage(false).getFull());
+
+        assertTrue(cache.get(key(cache, "?query=bar"), 0).isEmpty());
+        assertTrue(cache.get(key(cache, "?query=foo&offset=1"), 0).isEmpty());
+        assertTrue(cache.get(key(cache, "?query=foo&ranking=other"), 0).isEmpty());
+        assertTrue(cache.get(key(cache, "?query=foo&presentation.summary=other"), 0).isEmpty());
+
+        assertEquals(1.0, metric("search.result_cache.hits"));
+        assertEquals(5.0, metric("search.result_cache.misses"));
+    }
+
+    @Test
+    void results_are_invalidated_by_content_generation_and_age() throws IOException {
+        ResultCache cache = createCache(1 << 20);
+
+        search(cache, "?query=foo", 0, invoker(3));
+        assertTrue(cache.get(key(cache, "?query=foo"), 0).isPresent());
+        assertTrue(cache.get(key(cache, "?query=foo"), 1).isEmpty());
+        assertEquals(0, cache.size());
+
+        search(cache, "?query=foo", 1, invoker(3));
+        now.addAndGet(Duration.ofSeconds(9).toMillis());
+        assertTrue(cache.get(key(cache, "?query=foo"), 1).isPresent());
+        now.addAndGet(Duration.ofSeconds(2).toMillis());
+        assertTrue(cache.get(key(cache, "?query=foo"), 1).isEmpty());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    void least_recently_used_results_are_evicted() throws IOException {
+        ResultCache cache = createCache(1500);
+
+        search(cache, "?query=a", 0, invoker(3));
+        search(cache, "?query=b", 0, invoker(3));
+        assertEquals(2, cache.size());
+        assertTrue(cache.get(key(cache, "?query=a"), 0).isPresent());
+
+        search(cache, "?query=c", 0, invoker(3));
+        assertEquals(2, cache.size());
+        assertTrue(cache.bytes() <= 1500);
+        assertTrue(cache.get(key(cache, "?query=a"), 0).isPresent());
+        assertTrue(cache.get(key(cache, "?query=b"), 0).isEmpty());
+        assertEquals(1.0, metric("search.result_cache.evictions"));
+    }
+
+    @Test
+    void incomplete_and_uncacheable_results_are_not_cached() throws IOException {
+        ResultCache cache = createCache(1 << 20);
+
+        Coverage degraded = new Coverage(50, 100, 1);
+        search(cache, "?query=foo", 0, new MockInvoker(0, degraded).setHits(hits(3)));
+        assertEquals(0, cache.size());
+
+        assertTrue(cache.keyOf(new Query("?query=foo&nocache")).isEmpty());
+        assertTrue(cache.keyOf(new Query("?query=foo&dispatch.resultCache=false")).isEmpty());
+        assertTrue(cache.keyOf(new Query("?query=foo&tracelevel=1")).isEmpty());
+        assertTrue(cache.keyOf(new Query("?query=foo&ranking.queryCache=true")).isEmpty());
+        assertFalse(cache.keyOf(new Query("?query=foo")).isEmpty());
+    }
+
+    private ResultCache createCache(long maxBytes) {
+        return new ResultCache(maxBytes, Duration.ofSeconds(10), now::get,
+                               new QrSearchersConfig.Builder().build(), metric, "test");
+    }
+
+    private static ResultCache.Key key(ResultCache cache, String request) {
+        return cache.keyOf(new Query(request)).get();
+    }
+
+    /** Searches through the cache, asserting that the given invoker is used only when it is not null */
+    private static Result search(ResultCache cache, String request, long contentGeneration, SearchInvoker invoker) throws IOException {
+        Query query = new Query(request);
+        ResultCache.Key key = cache.keyOf(query).get();
+        var cached = cache.get(key, contentGeneration);
+        assertEquals(invoker == null, cached.isPresent());
+        try (SearchInvoker used = cached.orElseGet(() -> cache.caching(invoker, key, contentGeneration))) {
+            return used.search(query, 1.0);
+        }
+    }
+
+    private static SearchInvoker invoker(int hitCount) {
+        return new MockInvoker(0, new Coverage(100, 100, 1)).setHits(hits(hitCount));
+    }
+
+    private static List<Hit> hits(int count) {
+        return IntStream.range(0, count)
+                        .mapToObj(i -> (Hit) new FastHit(new byte[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) i }, 100.0 - i, OptionalInt.empty(), 0, 0))
+                        .toList();
+    }
+
+    private double metric(String name) {
+        return metric.metrics().getOrDefault(name, Map.of()).values().stream().mapToDouble(Double::doubleValue).sum();
+    }
+
+}
@@ -0,0 +1,34 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+/**
+ * Measures the cost of estimating the number of hits to fetch from each node, by the probability used.
+ */
+public class TopKEstimatorMicroBenchmark {
+
+    public void run() {
+        TopKEstimator estimator = new TopKEstimator(30, 0.9999, 0.05);
+        for (double probability : new double[] { 0.9, 0.999, 0.9999, 1.0 }) {
+            for (int i = 0; i < 10 * 1000; i++)
+                estimate(estimator, i, probability);
+
+            long startTime = System.nanoTime();
+            int repetitions = 100 * 1000;
+            long sum = 0;
+            for (int i = 0; i < repetitions; i++)
+                sum += estimate(estimator, i, probability);
+            long totalTime = System.nanoTime() - startTime;
+            System.out.println("p=" + probability + ": " + totalTime / repetitions + " ns per estimate (checksum " + sum + ")");
+        }
+    }
+
+    /** Estimates over a spread of hits requested and nodes, as the estimator caches values for common ones */
+    private static int estimate(TopKEstimator estimator, int i, double probability) {
+        return estimator.estimateK(10 + i % 1000, 1 + i % 64, probability);
+    }
+
+    public static void main(String[] args) {
+        new TopKEstimatorMicroBenchmark().run();
+    }
+
+}
@@ -8,9 +8,14 @@ import com.yahoo.test.ManualClock;
 import com.yahoo.text.Text;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -21,9 +26,13 @@ import java.util.Random;
 import java.util.Set;
 
 /**
- * Discrete event simulation test for LoadBalancer that measures group skew
+ * Discrete event simulation test for LoadBalancer that measures group skew and query latency
  * across different load balancing policies using exponential arrival times
- * and gamma-distributed service times.
+ * and gamma-distributed service times, or service times replayed from recorded latencies.
+ * <p>
+ * Each group has one or more nodes which all handle each query sent to the group, such that the
+ * query latency is that of the slowest node. Nodes may have a limited number of threads, such that
+ * queries queue up on nodes which are slow or overloaded.
  *
  * @author arnej
  */
@@ -35,6 +44,10 @@ public class LoadBalancerSimulationTest {
     private static final String PROP_QUERY_LATENCY = "lb.sim.query.latency.ms"; // mean query latency
     private static final String PROP_NUM_GROUPS = "lb.sim.num.groups";          // number of simulated groups
     private static final String PROP_TOTAL_TIME = "lb.sim.total.time.s";        // simulated seconds to run
+    private static final String PROP_NODES_PER_GROUP = "lb.sim.nodes.per.group"; // number of nodes in each group
+    private static final String PROP_NODE_THREADS = "lb.sim.node.threads";      // queries a node handles concurrently, 0 for no limit
+    private static final String PROP_SLOW_NODE_FACTOR = "lb.sim.slow.node.factor"; // service time multiplier of the first node
+    private static final String PROP_LATENCY_FILE = "lb.sim.latency.file";      // file of recorded latencies in ms to replay
 
     // Default values
     private static final double DEFAULT_QUERY_RATE = 1200.0; // per second
@@ -42,6 +55,9 @@ public class LoadBalancerSimulationTest {
     private static final double DEFAULT_QUERY_LATENCY = 25.0; // milliseconds
     private static final int DEFAULT_NUM_GROUPS = 10;
     private static final double DEFAULT_TOTAL_TIME = 600.0; // seconds
+    private static final int DEFAULT_NODES_PER_GROUP = 1;
+    private static final int DEFAULT_NODE_THREADS = 0;
+    private static final double DEFAULT_SLOW_NODE_FACTOR = 1.0;
 
     // Random instance with fixed seed for reproducibility
     private static final Random random = new Random(42L);
@@ -54,15 +70,24 @@ public class LoadBalancerSimulationTest {
         final int gammaShape;
         final double gammaScale;
         final int numGroups;
+        final int nodesPerGroup;
+        final int nodeThreads;
+        final double slowNodeFactor;
+        final double[] recordedLatencies; // null to use the gamma distribution
         final Instant startTime;
         final Instant endTime;
 
         SimulationConfig(double exponentialMean, int gammaShape, double gammaScale,
-                         int numGroups, long totalTimeMs) {
+                         int numGroups, int nodesPerGroup, int nodeThreads, double slowNodeFactor,
+                         double[] recordedLatencies, long totalTimeMs) {
             this.exponentialMean = exponentialMean;
             this.gammaShape = gammaShape;
             this.gammaScale = gammaScale;
             this.numGroups = numGroups;
+            this.nodesPerGroup = nodesPerGroup;
+            this.nodeThreads = nodeThreads;
+            this.slowNodeFactor = slowNodeFactor;
+            this.recordedLatencies = recordedLatencies;
             this.startTime = Instant.EPOCH;
             this.endTime = startTime.plusMillis(totalTimeMs);
         }
@@ -78,20 +103,46 @@ public class LoadBalancerSimulationTest {
             double gammaScale = queryLatency / gammaShape; // For Gamma: mean = shape * scale, so scale = mean / shape
             int numGroups = Integer.parseInt(
                     System.getProperty(PROP_NUM_GROUPS, String.valueOf(DEFAULT_NUM_GROUPS)));
+            int nodesPerGroup = Integer.parseInt(
+                    System.getProperty(PROP_NODES_PER_GROUP, String.valueOf(DEFAULT_NODES_PER_GROUP)));
+            int nodeThreads = Integer.parseInt(
+                    System.getProperty(PROP_NODE_THREADS, String.valueOf(DEFAULT_NODE_THREADS)));
+            double slowNodeFactor = Double.parseDouble(
+                    System.getProperty(PROP_SLOW_NODE_FACTOR, String.valueOf(DEFAULT_SLOW_NODE_FACTOR)));
+            String latencyFile = System.getProperty(PROP_LATENCY_FILE);
+            double[] recordedLatencies = latencyFile == null ? null : readLatencies(Path.of(latencyFile));
             double totalTimeSeconds = Double.parseDouble(
                     System.getProperty(PROP_TOTAL_TIME, String.valueOf(DEFAULT_TOTAL_TIME)));
             long totalTimeMs = (long)(totalTimeSeconds * 1000.0); // Convert seconds to milliseconds
 
-            return new SimulationConfig(exponentialMean, gammaShape, gammaScale, numGroups, totalTimeMs);
+            return new SimulationConfig(exponentialMean, gammaShape, gammaScale, numGroups, nodesPerGroup,
+                                        nodeThreads, slowNodeFactor, recordedLatencies, totalTimeMs);
+        }
+
+        /** Reads latencies in milliseconds, one per line. Empty lines and lines starting with # are ignored. */
+        private static double[] readLatencies(Path file) {
+            try (var lines = Files.lines(file)) {
+                double[] latencies = lines.map(String::trim)
+                                          .filter(line -> ! line.isEmpty() && ! line.startsWith("#"))
+                                          .mapToDouble(Double::parseDouble)
+                                          .toArray();
+                if (latencies.length == 0)
+                    throw new IllegalArgumentException("No latencies in " + file);
+                return latencies;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
     }
 
     /**
-     * Collects and prints statistics about group usage during simulation.
+     * Collects and prints statistics about group usage and query latencies during simulation.
      */
     private static class GroupStatistics {
         private final Map<Integer, Integer> takeGroupCounts;
         private final Map<Integer, Integer> maxOutstandingRequests;
+        private final List<Double> queryLatencies = new ArrayList<>();
 
         GroupStatistics(int numGroups) {
             this.takeGroupCounts = new HashMap<>();
@@ -110,6 +161,10 @@ public class LoadBalancerSimulationTest {
             maxOutstandingRequests.merge(groupId, outstanding, Integer::max);
         }
 
+        void recordQueryLatency(Duration latency) {
+            queryLatencies.add(latency.toNanos() / 1_000_000.0);
+        }
+
         void printStatistics(LoadBalancer.Policy policy) {
             System.out.println("\n=== Statistics for Policy: " + policy + " ===");
 
@@ -123,6 +178,9 @@ public class LoadBalancerSimulationTest {
 
             System.out.println("\nSkew Metrics:");
             printSkewMetrics();
+
+            System.out.println("\nQuery latency (ms):");
+            printLatencyMetrics();
         }
 
         private void printSkewMetrics() {
@@ -149,6 +207,19 @@ public class LoadBalancerSimulationTest {
             System.out.println("  Max-Min Difference: " + maxMinDiff);
             System.out.println("  Coefficient of Variation: " + Text.format("%.4f", coefficientOfVariation));
         }
+
+        private void printLatencyMetrics() {
+            double[] sorted = queryLatencies.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+            if (sorted.length == 0) return;
+            System.out.println("  Mean: " + Text.format("%.2f", Arrays.stream(sorted).average().orElse(0.0)));
+            System.out.println("  P50: " + Text.format("%.2f", percentile(sorted, 50)));
+            System.out.println("  P99: " + Text.format("%.2f", percentile(sorted, 99)));
+            System.out.println("  P99.9: " + Text.format("%.2f", percentile(sorted, 99.9)));
+        }
+
+        private static double percentile(double[] sorted, double percentile) {
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile / 100 * sorted.length) - 1)];
+        }
     }
 
     /**
@@ -181,6 +252,10 @@ public class LoadBalancerSimulationTest {
         return -scale * sumOfLogs;
     }
 
+    private static Instant plusMillis(Instant instant, double millis) {
+        return instant.plusNanos((long) (millis * 1_000_000));
+    }
+
     /**
      * Abstract event in the discrete event simulation.
      */
@@ -217,6 +292,25 @@ public class LoadBalancerSimulationTest {
         }
     }
 
+    /**
+     * Event representing a node completing its part of a query.
+     */
+    private static class NodeCompletionEvent extends Event {
+        private final SimulatedNode node;
+        private final Instant startTime;
+
+        NodeCompletionEvent(Instant timestamp, SimulatedNode node, Instant startTime) {
+            super(timestamp);
+            this.node = node;
+            this.startTime = startTime;
+        }
+
+        @Override
+        void execute(SimulationContext context) {
+            context.handleNodeCompletion(this);
+        }
+    }
+
     /**
      * Event representing a query completion (calls releaseGroup).
      */
@@ -244,6 +338,46 @@ public class LoadBalancerSimulationTest {
         }
     }
 
+    /**
+     * A node which handles queries first come, first served, on a limited number of threads,
+     * with service times drawn from a distribution or replayed from recorded latencies.
+     */
+    private static class SimulatedNode {
+        private final Node node;
+        private final double serviceTimeFactor;
+        private final Instant[] threadsFreeAt;
+        private int nextRecorded;
+
+        SimulatedNode(Node node, double serviceTimeFactor, SimulationConfig config) {
+            this.node = node;
+            this.serviceTimeFactor = serviceTimeFactor;
+            this.threadsFreeAt = new Instant[config.nodeThreads];
+            Arrays.fill(threadsFreeAt, config.startTime);
+            this.nextRecorded = config.recordedLatencies == null ? 0 : random.nextInt(config.recordedLatencies.length);
+        }
+
+        /** Returns the time this completes a query arriving at the given time */
+        Instant handle(Instant arrival, SimulationConfig config) {
+            double serviceTime = serviceTimeFactor * nextServiceTime(config);
+            if (threadsFreeAt.length == 0) return plusMillis(arrival, serviceTime);
+
+            int thread = 0;
+            for (int i = 1; i < threadsFreeAt.length; i++)
+                if (threadsFreeAt[i].isBefore(threadsFreeAt[thread])) thread = i;
+            Instant start = threadsFreeAt[thread].isAfter(arrival) ? threadsFreeAt[thread] : arrival;
+            threadsFreeAt[thread] = plusMillis(start, serviceTime);
+            return threadsFreeAt[thread];
+        }
+
+        private double nextServiceTime(SimulationConfig config) {
+            if (config.recordedLatencies == null)
+                return generateGamma(config.gammaShape, config.gammaScale);
+            double latency = config.recordedLatencies[nextRecorded];
+            nextRecorded = (nextRecorded + 1) % config.recordedLatencies.length;
+            return latency;
+        }
+    }
+
     /**
      * Simulation context that encapsulates all simulation state.
      */
@@ -254,14 +388,17 @@ public class LoadBalancerSimulationTest {
         private final SimulationConfig config;
         private final GroupStatistics statistics;
         private final Map<Integer, Integer> outstandingRequests;
+        private final Map<Integer, List<SimulatedNode>> nodes;
 
-        SimulationContext(LoadBalancer lb, ManualClock clock, SimulationConfig config, int numGroups) {
+        SimulationContext(LoadBalancer lb, ManualClock clock, SimulationConfig config, int numGroups,
+                          Map<Integer, List<SimulatedNode>> nodes) {
             this.loadBalancer = lb;
             this.clock = clock;
             this.eventQueue = new PriorityQueue<>();
             this.config = config;
             this.statistics = new GroupStatistics(numGroups);
             this.outstandingRequests = new HashMap<>();
+            this.nodes = nodes;
             for (int i = 0; i < numGroups; i++) {
                 outstandingRequests.put(i, 0);
             }
@@ -279,28 +416,40 @@ public class LoadBalancerSimulationTest {
                 int newOutstanding = outstandingRequests.merge(group.id(), 1, Integer::sum);
                 statistics.recordMaxOutstanding(group.id(), newOutstanding);
 
-                // Schedule completion using gamma distribution
-                double serviceTime = generateGamma(config.gammaShape, config.gammaScale);
-                Instant completionTime = event.getTimestamp().plusMillis((long) serviceTime);
+                // The query completes when the slowest node in the group completes
+                Instant completionTime = event.getTimestamp();
+                for (SimulatedNode node : nodes.get(group.id())) {
+                    Instant nodeCompletionTime = node.handle(event.getTimestamp(), config);
+                    node.node.searchSent();
+                    eventQueue.add(new NodeCompletionEvent(nodeCompletionTime, node, event.getTimestamp()));
+                    if (nodeCompletionTime.isAfter(completionTime))
+                        completionTime = nodeCompletionTime;
+                }
                 eventQueue.add(new CompletionEvent(completionTime, group, event.getTimestamp()));
             }
 
             // Schedule next arrival using exponential distribution
             double interArrivalTime = generateExponential(config.exponentialMean);
-            Instant nextArrivalTime = event.getTimestamp().plusMillis((long) interArrivalTime);
+            Instant nextArrivalTime = plusMillis(event.getTimestamp(), interArrivalTime);
 
-            if (nextArrivalTime.toEpochMilli() < config.endTime.toEpochMilli()) {
+            if (nextArrivalTime.isBefore(config.endTime)) {
                 eventQueue.add(new ArrivalEvent(nextArrivalTime));
             }
         }
 
+        void handleNodeCompletion(NodeCompletionEvent event) {
+            clock.setInstant(event.getTimestamp());
+            event.node.node.searchCompleted(Duration.between(event.startTime, event.getTimestamp()));
+        }
+
         void handleCompletion(CompletionEvent event) {
             clock.setInstant(event.getTimestamp());
 
             Group group = event.getGroup();
             Duration duration = Duration.between(event.getStartTime(), event.getTimestamp());
 
-            loadBalancer.releaseGroup(group, true, RequestDuration.of(duration));
+            loadBalancer.releaseGroup(group, true, RequestDuration.of(event.getStartTime(), duration));
+            statistics.recordQueryLatency(duration);
 
             // Track outstanding requests
             outstandingRequests.merge(group.id(), -1, Integer::sum);
@@ -317,22 +466,30 @@ public class LoadBalancerSimulationTest {
 
     /**
      * Run a discrete event simulation of the load balancer.
-     * Uses exponential inter-arrival times and gamma service times.
+     * Uses exponential inter-arrival times and gamma or recorded service times.
      */
     private void runSimulation(LoadBalancer.Policy policy) {
         SimulationConfig config = SimulationConfig.fromSystemProperties();
 
-        // Create groups with dummy nodes
+        // Create groups with simulated nodes, where the first node may be slower than the rest
         List<Group> groups = new ArrayList<>();
+        Map<Integer, List<SimulatedNode>> nodes = new HashMap<>();
         for (int i = 0; i < config.numGroups; i++) {
-            Node node = new Node("test-cluster", i, "node-" + i, i, true);
-            Group group = new Group(i, List.of(node)) {
+            List<SimulatedNode> groupNodes = new ArrayList<>();
+            for (int j = 0; j < config.nodesPerGroup; j++) {
+                int key = i * config.nodesPerGroup + j;
+                groupNodes.add(new SimulatedNode(new Node("test-cluster", key, "node-" + key, i, true),
+                                                 key == 0 ? config.slowNodeFactor : 1.0,
+                                                 config));
+            }
+            Group group = new Group(i, groupNodes.stream().map(node -> node.node).toList()) {
                 @Override
                 public boolean hasSufficientCoverage() {
                     return true; // Simulate all groups as available
                 }
             };
             groups.add(group);
+            nodes.put(i, groupNodes);
         }
 
         // Create load balancer with specified policy
@@ -343,7 +500,7 @@ public class LoadBalancerSimulationTest {
 
         // Create simulation context
         SimulationContext context = new SimulationContext(
-                loadBalancer, clock, config, config.numGroups);
+                loadBalancer, clock, config, config.numGroups, nodes);
 
         // Schedule first arrival at time 0
         context.getEventQueue().add(new ArrivalEvent(config.startTime));
@@ -354,7 +511,7 @@ public class LoadBalancerSimulationTest {
             Event event = eventQueue.poll();
 
             // Stop if we've exceeded simulation time
-            if (event.getTimestamp().toEpochMilli() >= config.endTime.toEpochMilli()) {
+            if ( ! event.getTimestamp().isBefore(config.endTime)) {
                 break;
             }
 
@@ -384,4 +541,9 @@ public class LoadBalancerSimulationTest {
     void testBestOfRandom2Policy() {
         runSimulation(LoadBalancer.Policy.BEST_OF_RANDOM_2);
     }
+
+    @Test
+    void testLatencyAwarePolicy() {
+        runSimulation(LoadBalancer.Policy.LATENCY_AWARE);
+    }
 }
@@ -44,6 +44,7 @@ public class LoadBalancerTest {
         new LoadBalancerTester(LoadBalancer.Policy.ADAPTIVE, 3.0).assertAzAwareLoadBalancing();
         new LoadBalancerTester(LoadBalancer.Policy.BEST_OF_RANDOM_2, 3.0).assertAzAwareLoadBalancing();
         new LoadBalancerTester(LoadBalancer.Policy.LATENCY_AMORTIZED_OVER_TIME, 3.0).assertAzAwareLoadBalancing();
+        new LoadBalancerTester(LoadBalancer.Policy.LATENCY_AWARE, 0.0).assertAzAwareLoadBalancing();
     }
 
     // Clusters where *some* nodes are in "default" and others in an "az" should get flat balancing
@@ -217,6 +218,45 @@ public class LoadBalancerTest {
         assertEquals(0, allocate(sched.takeNextGroup(Set.of()).get()).id());
     }
 
+    @Test
+    void test_latency_aware_scheduler() {
+        List<Node> nodes0 = List.of(new Node("test", 0, "node0", 0, true), new Node("test", 1, "node1", 0, true));
+        List<Node> nodes1 = List.of(new Node("test", 2, "node2", 1, true), new Node("test", 3, "node3", 1, true));
+        Group g0 = new Group(0, nodes0);
+        Group g1 = new Group(1, nodes1);
+        g0.setHasSufficientCoverage(true);
+        g1.setHasSufficientCoverage(true);
+        var scheduler = new LatencyAwareScheduler(Map.of(0, new TrackedGroup(g0), 1, new TrackedGroup(g1)));
+
+        // Unknown latencies: Alternate
+        assertNotEquals(scheduler.takeNextGroup(Set.of()).get().id(), scheduler.takeNextGroup(Set.of()).get().id());
+
+        // The group whose slowest node is fastest is preferred, even if its average latency is higher
+        recordLatency(nodes0.get(0), Duration.ofMillis(2));
+        recordLatency(nodes0.get(1), Duration.ofMillis(30));
+        recordLatency(nodes1.get(0), Duration.ofMillis(20));
+        recordLatency(nodes1.get(1), Duration.ofMillis(20));
+        for (int i = 0; i < 10; i++)
+            assertEquals(1, scheduler.takeNextGroup(Set.of()).get().id());
+        assertEquals(0, scheduler.takeNextGroup(Set.of(1)).get().id());
+
+        // ... unless it has too many requests in flight
+        nodes1.get(0).searchSent();
+        assertEquals(0, scheduler.takeNextGroup(Set.of()).get().id());
+        nodes1.get(0).searchCompleted(null);
+        assertEquals(1, scheduler.takeNextGroup(Set.of()).get().id());
+
+        // Groups with sufficient coverage are preferred
+        g1.setHasSufficientCoverage(false);
+        assertEquals(0, scheduler.takeNextGroup(Set.of()).get().id());
+    }
+
+    private static void recordLatency(Node node, Duration latency) {
+        node.searchSent();
+        node.searchCompleted(latency);
+        assertEquals(0, node.searchesInFlight());
+    }
+
     @Test
     public void test_decay_by_time() {
         Decayer decayer = new AdaptiveScheduler.DecayByTime(Duration.ofMillis(2), RequestDuration.of(Instant.EPOCH, Duration.ZERO));
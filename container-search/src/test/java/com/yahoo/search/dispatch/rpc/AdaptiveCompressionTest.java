@@ -0,0 +1,90 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
+import com.yahoo.search.Query;
+import com.yahoo.vespa.config.search.DispatchConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests choosing the compression of request payloads.
+ */
+public class AdaptiveCompressionTest {
+
+    @Test
+    void small_payloads_are_not_compressed() {
+        AdaptiveCompression adaptive = new AdaptiveCompression();
+        for (int i = 0; i < 200; i++)
+            assertEquals(CompressionType.NONE, adaptive.choose(AdaptiveCompression.MIN_SIZE - 1));
+        assertEquals(CompressionType.LZ4, adaptive.choose(AdaptiveCompression.MIN_SIZE));
+    }
+
+    @Test
+    void incompressible_payloads_are_not_compressed() {
+        AdaptiveCompression adaptive = new AdaptiveCompression();
+        for (int i = 0; i < 200; i++)
+            adaptive.observe(CompressionType.LZ4, 1000, new Compressor.Compression(CompressionType.INCOMPRESSIBLE, 1000, new byte[1000]));
+        int uncompressed = 0;
+        for (int i = 0; i < AdaptiveCompression.SAMPLE_INTERVAL; i++)
+            if (adaptive.choose(1000) == CompressionType.NONE) uncompressed++;
+        assertEquals(AdaptiveCompression.SAMPLE_INTERVAL - 1, uncompressed); // All but the sample
+    }
+
+    @Test
+    void zstd_is_used_for_large_payloads_when_it_compresses_better() {
+        AdaptiveCompression adaptive = new AdaptiveCompression();
+        int size = AdaptiveCompression.ZSTD_MIN_SIZE;
+        for (int i = 0; i < 200; i++) {
+            adaptive.observe(CompressionType.LZ4, size, new Compressor.Compression(CompressionType.LZ4, size, new byte[size / 2]));
+            adaptive.observe(CompressionType.ZSTD, size, new Compressor.Compression(CompressionType.ZSTD, size, new byte[size / 4]));
+        }
+        assertEquals(CompressionType.ZSTD, adaptive.choose(size));
+        assertEquals(CompressionType.LZ4, adaptive.choose(size - 1));
+
+        for (int i = 0; i < 200; i++)
+            adaptive.observe(CompressionType.ZSTD, size, new Compressor.Compression(CompressionType.ZSTD, size, new byte[size / 2]));
+        assertEquals(CompressionType.LZ4, adaptive.choose(size));
+    }
+
+    @Test
+    void adaptively_compressed_payloads_can_be_decompressed() {
+        CompressService service = new CompressService(DispatchConfig.RequestCompression.ADAPTIVE);
+        Query query = new Query();
+        for (byte[] payload : new byte[][] { payload(100), payload(1000), payload(100_000) }) {
+            for (int i = 0; i < 2 * AdaptiveCompression.SAMPLE_INTERVAL; i++) {
+                Compressor.Compression compressed = service.compress(query, payload);
+                byte[] decompressed = service.decompress(new Client.ProtobufResponse(compressed.type().getCode(),
+                                                                                     compressed.uncompressedSize(),
+                                                                                     compressed.data()));
+                assertArrayEquals(payload, decompressed);
+            }
+        }
+    }
+
+    @Test
+    void zstd_compressed_payloads_can_be_decompressed() {
+        CompressService service = new CompressService(DispatchConfig.RequestCompression.ZSTD);
+        byte[] payload = payload(10_000);
+        Compressor.Compression compressed = service.compress(new Query(), payload);
+        assertEquals(CompressionType.ZSTD, compressed.type());
+        assertArrayEquals(payload, service.decompress(new Client.ProtobufResponse(compressed.type().getCode(),
+                                                                                  compressed.uncompressedSize(),
+                                                                                  compressed.data())));
+    }
+
+    /** Returns a compressible payload of the given size */
+    private static byte[] payload(int size) {
+        Random random = new Random(size);
+        byte[] payload = new byte[size];
+        for (int i = 0; i < size; i++)
+            payload[i] = (byte) ('a' + random.nextInt(4));
+        return payload;
+    }
+
+}
@@ -0,0 +1,72 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+
+import java.util.OptionalInt;
+import java.util.Random;
+
+/**
+ * Measures the cost of compressing and decompressing a search reply of 400 hits, by compression type.
+ */
+public class CompressServiceMicroBenchmark {
+
+    private final CompressService compressor = new CompressService();
+
+    public void run() {
+        byte[] payload = ProtobufSerialization.serializeResult(createResult(400));
+        for (CompressionType type : new CompressionType[] { CompressionType.LZ4, CompressionType.ZSTD }) {
+            Query query = new Query("?dispatch.compression=" + type.name());
+            for (int i = 0; i < 10 * 1000; i++)
+                compressAndDecompress(query, payload);
+
+            int repetitions = 100 * 1000;
+            long compressTime = 0;
+            long decompressTime = 0;
+            long compressedBytes = 0;
+            for (int i = 0; i < repetitions; i++) {
+                long startTime = System.nanoTime();
+                Compressor.Compression compressed = compressor.compress(query, payload);
+                compressTime += System.nanoTime() - startTime;
+                compressedBytes += compressed.data().length;
+
+                startTime = System.nanoTime();
+                decompress(compressed);
+                decompressTime += System.nanoTime() - startTime;
+            }
+            System.out.println(type + ": " + compressTime / repetitions + " ns per compression, " +
+                               decompressTime / repetitions + " ns per decompression (" +
+                               payload.length + " -> " + compressedBytes / repetitions + " bytes)");
+        }
+    }
+
+    private int compressAndDecompress(Query query, byte[] payload) {
+        return decompress(compressor.compress(query, payload)).length;
+    }
+
+    private byte[] decompress(Compressor.Compression compressed) {
+        return compressor.decompress(new Client.ProtobufResponse(compressed.type().getCode(), compressed.uncompressedSize(),
+                                                                 compressed.data()));
+    }
+
+    private static Result createResult(int hitCount) {
+        Random random = new Random(hitCount);
+        Result result = new Result(new Query());
+        result.setTotalHitCount(100 * hitCount);
+        for (int i = 0; i < hitCount; i++) {
+            byte[] gid = new byte[12];
+            random.nextBytes(gid);
+            result.hits().add(new FastHit(gid, 1.0 - i / (double) hitCount, OptionalInt.empty(), 0, i % 8));
+        }
+        return result;
+    }
+
+    public static void main(String[] args) {
+        new CompressServiceMicroBenchmark().run();
+    }
+
+}
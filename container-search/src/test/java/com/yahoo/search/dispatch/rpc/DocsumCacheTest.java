@@ -0,0 +1,190 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol;
+import com.google.protobuf.ByteString;
+import com.yahoo.compress.CompressionType;
+import com.yahoo.container.QrSearchersConfig;
+import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.prelude.fastsearch.DocumentDatabase;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.schema.DocumentSummary;
+import com.yahoo.search.schema.Schema;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Slime;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests filling hits from the container docsum cache.
+ */
+public class DocsumCacheTest {
+
+    private static final CompressService compressor = new CompressService();
+
+    private final AtomicLong now = new AtomicLong(0);
+    private final AtomicLong contentGeneration = new AtomicLong(0);
+    private final MockMetric metric = new MockMetric();
+    private final DocsumCache cache = new DocsumCache(1 << 20, Duration.ofSeconds(10), now::get, contentGeneration::get,
+                                                      metric, "test");
+    private final List<Integer> requestedHits = new ArrayList<>();
+
+    @Test
+    void cached_summaries_are_filled_without_requesting_them() {
+        Result first = fill(new Query("?query=test"), false, 1, 2, 3);
+        assertEquals(List.of(3), requestedHits);
+        assertFilled(first, 1, 2, 3);
+        assertEquals(3, cache.size());
+
+        Result second = fill(new Query("?query=other"), false, 2, 3, 4);
+        assertEquals(List.of(3, 1), requestedHits);
+        assertFilled(second, 2, 3, 4);
+        assertEquals(4, cache.size());
+
+        fill(new Query("?query=test"), false, 1, 2);
+        assertEquals(List.of(3, 1), requestedHits);
+        assertEquals(4.0, metric("search.docsum_cache.misses"));
+        assertEquals(4.0, metric("search.docsum_cache.hits"));
+    }
+
+    @Test
+    void summaries_depending_on_the_query_are_not_cached() {
+        fill(new Query("?query=test"), true, 1, 2);
+        fill(new Query("?query=test"), true, 1, 2);
+        assertEquals(List.of(2, 2), requestedHits);
+        assertEquals(0, cache.size());
+
+        fill(new Query("?query=test&nocache"), false, 1, 2);
+        fill(new Query("?query=test&dispatch.docsumCache=false"), false, 1, 2);
+        assertEquals(List.of(2, 2, 2, 2), requestedHits);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void summaries_are_not_cached_when_the_query_is_cached_on_content_nodes() {
+        // The query is not sent with the summary request then, even if the summary is dynamic
+        fill(new Query("?query=test&ranking.queryCache=true"), false, 1, 2);
+        fill(new Query("?query=other&ranking.queryCache=true"), false, 1, 2);
+        assertEquals(List.of(2, 2), requestedHits);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void summaries_are_invalidated_by_content_generation_and_age() {
+        fill(new Query("?query=test"), false, 1);
+        fill(new Query("?query=test"), false, 1);
+        assertEquals(List.of(1), requestedHits);
+
+        contentGeneration.incrementAndGet();
+        fill(new Query("?query=test"), false, 1);
+        assertEquals(List.of(1, 1), requestedHits);
+
+        now.addAndGet(Duration.ofSeconds(11).toMillis());
+        fill(new Query("?query=test"), false, 1);
+        assertEquals(List.of(1, 1, 1), requestedHits);
+    }
+
+    @Test
+    void summaries_are_cached_per_summary_class_and_fields() {
+        fill(new Query("?query=test"), false, 1);
+        fill(new Query("?query=test&presentation.summary=other"), false, 1);
+        assertEquals(List.of(1, 1), requestedHits);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void least_recently_used_summaries_are_evicted() {
+        DocsumCache small = new DocsumCache(500, Duration.ofSeconds(10), now::get, contentGeneration::get, metric, "test");
+        for (int i = 0; i < 100; i++)
+            small.put(new DocsumCache.Key(globalId(i), "test", "default", null), docsum(i));
+        assertTrue(small.bytes() <= 500);
+        assertTrue(small.get(new DocsumCache.Key(globalId(99), "test", "default", null)).isPresent());
+        assertTrue(small.get(new DocsumCache.Key(globalId(0), "test", "default", null)).isEmpty());
+    }
+
+    private Result fill(Query query, boolean summaryNeedsQuery, int ... ids) {
+        Result result = new Result(query);
+        for (int id : ids) {
+            FastHit hit = new FastHit(globalId(id), 1.0, OptionalInt.empty(), 0, 0);
+            hit.setFillable();
+            result.hits().add(hit);
+        }
+        var invoker = new RpcProtobufFillInvoker(new RpcResourcePool(new HashMap<>(Map.of(0, connection()))), compressor,
+                                                 new DocumentDatabase(schema()), "container.0",
+                                                 RpcProtobufFillInvoker.DecodePolicy.ONDEMAND, summaryNeedsQuery,
+                                                 new QrSearchersConfig.Builder().build(),
+                                                 DocsumCache.isCacheable(query, summaryNeedsQuery) ? cache : null);
+        invoker.fill(result, query.getPresentation().getSummary() == null ? "default" : query.getPresentation().getSummary());
+        assertNull(result.hits().getError());
+        return result;
+    }
+
+    private static void assertFilled(Result result, int ... ids) {
+        for (int i = 0; i < ids.length; i++)
+            assertEquals("title " + ids[i], result.hits().get(i).getField("title"));
+    }
+
+    /** A connection replying with a summary for each global id requested, which just has the id in its title */
+    private Client.NodeConnection connection() {
+        return new Client.NodeConnection() {
+            @Override
+            public void request(String rpcMethod, CompressionType compression, int uncompressedLength,
+                                byte[] compressedPayload, Client.ResponseReceiver receiver, double timeoutSeconds) {
+                try {
+                    var request = SearchProtocol.DocsumRequest.parseFrom(
+                            compressor.decompress(new Client.ProtobufResponse(compression.getCode(), uncompressedLength, compressedPayload)));
+                    requestedHits.add(request.getGlobalIdsCount());
+                    Slime slime = new Slime();
+                    Cursor docsums = slime.setObject().setArray("docsums");
+                    for (ByteString globalId : request.getGlobalIdsList())
+                        docsums.addObject().setObject("docsum").setString("title", "title " + globalId.byteAt(11));
+                    byte[] payload = SearchProtocol.DocsumReply.newBuilder()
+                                                               .setSlimeSummaries(ByteString.copyFrom(BinaryFormat.encode(slime)))
+                                                               .build().toByteArray();
+                    receiver.receive(Client.ResponseOrError.fromResponse(new Client.ProtobufResponse(CompressionType.NONE.getCode(),
+                                                                                                     payload.length, payload)));
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            @Override public void close() { }
+        };
+    }
+
+    private static Schema schema() {
+        return new Schema.Builder("test")
+                       .add(new DocumentSummary.Builder("default").addField("title", "string").build())
+                       .add(new DocumentSummary.Builder("other").addField("title", "string").build())
+                       .build();
+    }
+
+    private static byte[] globalId(int id) {
+        return new byte[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) id };
+    }
+
+    private static com.yahoo.slime.Inspector docsum(int id) {
+        Slime slime = new Slime();
+        slime.setObject().setString("title", "title " + id);
+        return slime.get();
+    }
+
+    private double metric(String name) {
+        return metric.metrics().getOrDefault(name, Map.of()).values().stream().mapToDouble(Double::doubleValue).sum();
+    }
+
+}
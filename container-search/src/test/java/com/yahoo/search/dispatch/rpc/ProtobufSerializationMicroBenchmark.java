@@ -0,0 +1,46 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import com.yahoo.container.QrSearchersConfig;
+import com.yahoo.search.Query;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Measures the cost of serializing search requests, including the query tree, for queries of increasing size.
+ */
+public class ProtobufSerializationMicroBenchmark {
+
+    private static final QrSearchersConfig qrSearchersConfig = new QrSearchersConfig.Builder().build();
+
+    public void run() {
+        for (int terms : new int[] { 1, 10, 100 }) {
+            Query query = createQuery(terms);
+            for (int i = 0; i < 10 * 1000; i++)
+                serialize(query);
+
+            long startTime = System.nanoTime();
+            int repetitions = 100 * 1000;
+            long bytes = 0;
+            for (int i = 0; i < repetitions; i++)
+                bytes += serialize(query);
+            long totalTime = System.nanoTime() - startTime;
+            System.out.println(terms + " terms: " + totalTime / repetitions + " ns per request (" + bytes / repetitions + " bytes)");
+        }
+    }
+
+    private static int serialize(Query query) {
+        return ProtobufSerialization.serializeSearchRequest(query, 400, "container.0", 1.0, 1.0, qrSearchersConfig).length;
+    }
+
+    private static Query createQuery(int terms) {
+        String words = IntStream.range(0, terms).mapToObj(i -> "word" + i).collect(Collectors.joining("%20"));
+        return new Query("?query=" + words + "&type=any&hits=400&ranking.features.query(boost)=2.0&ranking.properties.foo=bar");
+    }
+
+    public static void main(String[] args) {
+        new ProtobufSerializationMicroBenchmark().run();
+    }
+
+}
@@ -23,6 +23,7 @@ import java.util.Set;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -148,6 +149,32 @@ public class ProtobufSerializationTest {
         }
     }
 
+    @Test
+    void testSearchReplyDecodingWithMatchFeatures() {
+        Query q = new Query("search/?query=test");
+        Node node = new Node("test", 2, "host", 3, true);
+        var reply = createSearchReply(3, false).toBuilder().addMatchFeatureNames("foo").addMatchFeatureNames("bar");
+        for (int i = 0; i < 3; i++) {
+            reply.getHitsBuilder(i)
+                 .addMatchFeatures(SearchProtocol.Feature.newBuilder().setNumber(i))
+                 .addMatchFeatures(SearchProtocol.Feature.newBuilder().setTensor(ByteString.copyFrom(new byte[] { (byte) i })));
+        }
+        InvokerResult result = ProtobufSerialization.convertToResult(q, reply.build(), null, node);
+        int hitNum = 0;
+        for (LeanHit hit : result.getLeanHits()) {
+            assertTrue(hit.hasMatchFeatures());
+            assertEquals(hitNum, hit.getMatchFeatures().getDouble("foo"), DELTA);
+            assertEquals(hitNum, hit.getMatchFeatures().inspect().field("bar").asData()[0]);
+            hitNum++;
+        }
+        assertNull(result.getResult().hits().getError());
+
+        reply.getHitsBuilder(1).clearMatchFeatures();
+        result = ProtobufSerialization.convertToResult(q, reply.build(), null, node);
+        assertFalse(result.getLeanHits().get(1).hasMatchFeatures());
+        assertEquals("mismatch in match feature sizes", result.getResult().hits().getError().getDetailedMessage());
+    }
+
     @Test
     void profiling_parameters_are_serialized_in_search_request() {
         var q = new Query("?query=test&trace.level=1&" +
@@ -0,0 +1,86 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.rendering;
+
+import com.yahoo.concurrent.ThreadFactoryFactory;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.FeatureData;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.tensor.Tensor;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Measures the cost of rendering result pages as JSON, by the number of hits in the page.
+ */
+public class JsonRendererMicroBenchmark {
+
+    public void run() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newSingleThreadExecutor(ThreadFactoryFactory.getThreadFactory("benchmark-rendering"));
+        JsonRenderer blueprint = new JsonRenderer(executor);
+        try {
+            for (int hits : new int[] { 10, 100, 400 }) {
+                for (int i = 0; i < 1000; i++)
+                    render(blueprint, createResult(hits));
+
+                int repetitions = 10 * 1000;
+                long totalTime = 0;
+                long bytes = 0;
+                for (int i = 0; i < repetitions; i++) {
+                    Result result = createResult(hits); // Rendering closes the result
+                    long startTime = System.nanoTime();
+                    bytes += render(blueprint, result);
+                    totalTime += System.nanoTime() - startTime;
+                }
+                System.out.println(hits + " hits: " + totalTime / repetitions + " ns per result (" + bytes / repetitions + " bytes)");
+            }
+        }
+        finally {
+            blueprint.deconstruct();
+            executor.shutdown();
+        }
+    }
+
+    private static int render(JsonRenderer blueprint, Result result) throws InterruptedException, ExecutionException {
+        JsonRenderer renderer = (JsonRenderer) blueprint.clone();
+        renderer.init();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            renderer.renderResponse(out, result, new Execution(Execution.Context.createContextStub()), null).get();
+            return out.size();
+        }
+        finally {
+            renderer.deconstruct();
+        }
+    }
+
+    /** Returns a result of hits with a few typical summary fields and match features */
+    private static Result createResult(int hitCount) {
+        Result result = new Result(new Query("?query=test&hits=" + hitCount));
+        result.setTotalHitCount(1000L * hitCount);
+        result.setCoverage(new Coverage(1000, 1000, 1));
+        for (int i = 0; i < hitCount; i++) {
+            Hit hit = new Hit("id:test:test::" + i, 1.0 - i / (double) hitCount);
+            hit.setField("title", "The title of document " + i);
+            hit.setField("body", "A somewhat longer body text of document " + i + ", which is typical of what is shown in a result page");
+            hit.setField("price", 100 + i);
+            hit.setField("tags", List.of("tag1", "tag2", "tag3"));
+            hit.setField("matchfeatures", new FeatureData(Map.of("bm25(title)", Tensor.from(i / 10.0),
+                                                                 "embedding", Tensor.from("tensor(x[3]):[1.0, 2.0, " + i + "]"))));
+            result.hits().add(hit);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        new JsonRendererMicroBenchmark().run();
+    }
+
+}
@@ -6,6 +6,7 @@ import com.yahoo.component.chain.dependencies.After;
 import com.yahoo.component.chain.dependencies.Before;
 import com.yahoo.component.chain.dependencies.Provides;
 import com.yahoo.component.provider.ComponentRegistry;
+import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.docproc.DocumentProcessor;
 import com.yahoo.docproc.Processing;
 import com.yahoo.document.Document;
@@ -38,6 +39,10 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -56,6 +61,9 @@ public class IndexingProcessor extends DocumentProcessor {
     private final ScriptManager scriptManager;
     private final FieldValuesFactory fieldValuesFactory;
 
+    /** Runs the scripts of the operations of a processing concurrently, or null to run them in the calling thread */
+    private final ExecutorService executor;
+
     private class ExpressionSelector extends FieldValuesFactory.SelectExpression {
         @Override
         public Expression selectExpression(DocumentType documentType, String fieldName) {
@@ -82,15 +90,32 @@ public class IndexingProcessor extends DocumentProcessor {
                                toMap(embedders, DefaultEmbedderProvider.class),
                                toMap(generators, DefaultGeneratorProvider.class),
                                metricReceiver
-                )
+                ),
+             ilscriptsConfig.parallelism()
         );
     }
 
     public IndexingProcessor(DocumentTypeManager documentTypeManager,
                              ScriptManager scriptManager) {
+        this(documentTypeManager, scriptManager, 1);
+    }
+
+    /**
+     * Creates an indexing processor.
+     *
+     * @param parallelism the max number of operations to run the indexing scripts for concurrently,
+     *                    where operations of the same processing are processed concurrently if this is larger than 1
+     */
+    public IndexingProcessor(DocumentTypeManager documentTypeManager,
+                             ScriptManager scriptManager,
+                             int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1, but got " + parallelism);
         this.documentTypeManager = documentTypeManager;
         this.scriptManager = scriptManager;
         fieldValuesFactory = new FieldValuesFactory(new ExpressionSelector());
+        executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("indexing-"))
+                                   : null;
     }
 
     @Override
@@ -103,49 +128,110 @@ public class IndexingProcessor extends DocumentProcessor {
             deadline = Instant.now().plus(timeLeft);
         }
 
-        List<DocumentOperation> out = new ArrayList<>(proc.getDocumentOperations().size());
-        for (var op : proc.getDocumentOperations()) {
-            try {
-                if (op instanceof DocumentPut dp) {
-                    processDocument(dp, out, deadline);
-                } else if (op instanceof DocumentUpdate du) {
-                    processUpdate(du, out, deadline);
-                } else if (op instanceof DocumentRemove dr) {
-                    processRemove(dr, out);
-                } else if (op != null) {
-                    throw new IllegalArgumentException("Document class " + op.getClass().getName() + " not supported.");
-                } else {
-                    throw new IllegalArgumentException("Expected document, got null.");
-                }
-            } catch (InvalidInputException e) {
-                String message = Exceptions.toMessageString(e);
-                return Progress.INVALID_INPUT.withReason(
-                        op.getId() != null
-                        ? Text.format("Operation on '%s' contains invalid input: %s", op.getId().toString(), message)
-                        : Text.format("Operation contains invalid input: %s", message));
-            } catch (OverloadException e) {
-                String message = Exceptions.toMessageString(e);
-                return Progress.OVERLOAD.withReason(
-                        op.getId() != null
-                        ? Text.format("Operation on '%s' rejected due to overload: %s", op.getId().toString(), message)
-                        : Text.format("Operation rejected due to overload: %s", message));
-            } catch (TimeoutException e) {
-                String message = Exceptions.toMessageString(e);
-                return Progress.TIMEOUT.withReason(
-                        op.getId() != null
-                        ? Text.format("Operation on '%s' timed out: %s", op.getId().toString(), message)
-                        : Text.format("Operation timed out: %s", message));
+        List<DocumentOperation> operations = proc.getDocumentOperations();
+        List<DocumentOperation> out = new ArrayList<>(operations.size());
+        if (executor == null || operations.size() == 1) {
+            for (var op : operations) {
+                Progress failure = process(op, out, deadline);
+                if (failure != null) return failure;
             }
         }
+        else {
+            Progress failure = processConcurrently(operations, out, deadline);
+            if (failure != null) return failure;
+        }
         proc.getDocumentOperations().clear();
         proc.getDocumentOperations().addAll(out);
         return Progress.DONE;
     }
 
+    @Override
+    public void deconstruct() {
+        if (executor != null)
+            executor.shutdown();
+        super.deconstruct();
+    }
+
     DocumentTypeManager getDocumentTypeManager() {
         return documentTypeManager;
     }
 
+    /**
+     * Processes the given operations concurrently, and adds the output of each to out in the order of the operations.
+     * As the embed calls of the operations are then concurrent, they are batched by embedders which have batching enabled.
+     * The embed inputs of the processing are not collected into a single call per embedder: Each operation makes its
+     * own embed calls, and these are only combined to the extent the batching of the embedder allows.
+     *
+     * @return null, or the progress of the first operation which failed, if any
+     */
+    private Progress processConcurrently(List<DocumentOperation> operations, List<DocumentOperation> out, Instant deadline) {
+        List<Future<Output>> outputs = new ArrayList<>(operations.size());
+        for (var op : operations)
+            outputs.add(executor.submit(() -> {
+                List<DocumentOperation> opOut = new ArrayList<>(1);
+                return new Output(opOut, process(op, opOut, deadline));
+            }));
+        try {
+            for (var future : outputs) {
+                Output output = future.get();
+                if (output.failure() != null) return output.failure();
+                out.addAll(output.operations());
+            }
+            return null;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            throw Exceptions.throwUnchecked(e.getCause());
+        }
+        finally {
+            for (var future : outputs)
+                future.cancel(false); // Skip the operations not started if one failed
+        }
+    }
+
+    /**
+     * Processes a single operation and adds its output to out.
+     *
+     * @return null, or the progress to return for the processing if the operation failed
+     */
+    private Progress process(DocumentOperation op, List<DocumentOperation> out, Instant deadline) {
+        try {
+            if (op instanceof DocumentPut dp) {
+                processDocument(dp, out, deadline);
+            } else if (op instanceof DocumentUpdate du) {
+                processUpdate(du, out, deadline);
+            } else if (op instanceof DocumentRemove dr) {
+                processRemove(dr, out);
+            } else if (op != null) {
+                throw new IllegalArgumentException("Document class " + op.getClass().getName() + " not supported.");
+            } else {
+                throw new IllegalArgumentException("Expected document, got null.");
+            }
+        } catch (InvalidInputException e) {
+            String message = Exceptions.toMessageString(e);
+            return Progress.INVALID_INPUT.withReason(
+                    op.getId() != null
+                    ? Text.format("Operation on '%s' contains invalid input: %s", op.getId().toString(), message)
+                    : Text.format("Operation contains invalid input: %s", message));
+        } catch (OverloadException e) {
+            String message = Exceptions.toMessageString(e);
+            return Progress.OVERLOAD.withReason(
+                    op.getId() != null
+                    ? Text.format("Operation on '%s' rejected due to overload: %s", op.getId().toString(), message)
+                    : Text.format("Operation rejected due to overload: %s", message));
+        } catch (TimeoutException e) {
+            String message = Exceptions.toMessageString(e);
+            return Progress.TIMEOUT.withReason(
+                    op.getId() != null
+                    ? Text.format("Operation on '%s' timed out: %s", op.getId().toString(), message)
+                    : Text.format("Operation timed out: %s", message));
+        }
+        return null;
+    }
+
     private void processDocument(DocumentPut input, List<DocumentOperation> out, Instant deadline) {
         DocumentType hadType = input.getDocument().getDataType();
         DocumentScript script = scriptManager.getScript(hadType);
@@ -203,4 +289,7 @@ public class IndexingProcessor extends DocumentProcessor {
         return op.getCondition().getSelection().startsWith("@@__vespa_internal_allow_through_bucket_lock");
     }
 
+    /** The output of processing an operation, or the progress to return if it failed */
+    private record Output(List<DocumentOperation> operations, Progress failure) { }
+
 }
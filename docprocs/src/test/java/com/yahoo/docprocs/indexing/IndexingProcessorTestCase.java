@@ -2,11 +2,14 @@
 package com.yahoo.docprocs.indexing;
 
 import com.yahoo.component.AbstractComponent;
+import com.yahoo.docproc.DocumentProcessor.Progress;
 import com.yahoo.docproc.Processing;
 import com.yahoo.document.DataType;
 import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
 import com.yahoo.document.DocumentOperation;
 import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentRemove;
 import com.yahoo.document.DocumentType;
 import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.DocumentUpdate;
@@ -33,6 +36,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -514,6 +518,71 @@ public class IndexingProcessorTestCase {
         assertTrue("Expected reason to contain '5000ms', got: " + reason, reason.contains("5000ms"));
     }
 
+    @Test
+    public void testConcurrentProcessingBatchesEmbeddingsAndKeepsOrder() {
+        class BatchRecordingEmbedder implements Embedder {
+            final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+            @Override public List<Integer> embed(String text, Context context) { return List.of(); }
+
+            @Override
+            public Tensor embed(String text, Context context, TensorType tensorType) {
+                return Tensor.Builder.of(tensorType).cell(Double.parseDouble(text), 0).build();
+            }
+
+            @Override
+            public List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+                batchSizes.add(texts.size());
+                return Embedder.super.embed(texts, context, tensorType);
+            }
+
+            @Override
+            public Batching batchingConfig() { return Batching.of(4, Duration.ofMinutes(1)); }
+        }
+
+        var documentTypes = new DocumentTypeManager();
+        var testType = new DocumentType("test");
+        testType.addField("text", DataType.STRING);
+        testType.addField("embedding", new TensorDataType(TensorType.fromSpec("tensor<float>(x[1])")));
+        documentTypes.register(testType);
+
+        var embedder = new BatchRecordingEmbedder();
+        var config = new IlscriptsConfig.Builder();
+        config.ilscript(new IlscriptsConfig.Ilscript.Builder()
+                                .doctype("test")
+                                .content("input text | embed | attribute embedding")
+                                .docfield("text"));
+        var scripts = new ScriptManager(documentTypes, new IlscriptsConfig(config), null,
+                                        Chunker.throwsOnUse.asMap(),
+                                        Map.of("test", embedder),
+                                        FieldGenerator.throwsOnUse.asMap(),
+                                        MetricReceiver.nullImplementation);
+        var processor = new IndexingProcessor(documentTypes, scripts, 4);
+        try {
+            var proc = new Processing();
+            for (int i = 0; i < 8; i++) {
+                var input = new DocumentPut(testType, "id:ns:test::" + i);
+                input.getDocument().setFieldValue("text", new StringFieldValue(String.valueOf(i)));
+                proc.getDocumentOperations().add(input);
+            }
+            proc.getDocumentOperations().add(new DocumentRemove(new DocumentId("id:ns:test::removed")));
+
+            assertEquals(Progress.DONE, processor.process(proc));
+            // Batches are only dispatched when full, as the max delay is long
+            assertEquals(List.of(4, 4), embedder.batchSizes);
+            assertEquals(9, proc.getDocumentOperations().size());
+            for (int i = 0; i < 8; i++) {
+                var output = ((DocumentPut) proc.getDocumentOperations().get(i)).getDocument();
+                assertEquals("id:ns:test::" + i, output.getId().toString());
+                assertEquals(Tensor.from("tensor<float>(x[1]):[" + i + "]"), output.getFieldValue("embedding").getWrappedValue());
+            }
+            assertTrue(proc.getDocumentOperations().get(8) instanceof DocumentRemove);
+        }
+        finally {
+            processor.deconstruct();
+        }
+    }
+
     static class PartialUpdateTester {
 
         IndexingProcessorTester nestedTester;
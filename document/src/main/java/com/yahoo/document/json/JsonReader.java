@@ -170,24 +170,99 @@ public class JsonReader {
             case READING:
                 break;
         }
-        Optional<DocumentParseInfo> documentParseInfo;
+        DocumentOperation operation;
         try {
-            documentParseInfo = parseDocument();
+            operation = readOperation();
         } catch (IOException r) {
             // Jackson is not able to recover from structural parse errors
             state = END_OF_FEED;
             throw new IllegalArgumentException(r);
         }
-        if (documentParseInfo.isEmpty()) {
+        if (operation == null)
             state = END_OF_FEED;
+        return operation;
+    }
+
+    /**
+     * Reads the next operation of a feed, or returns null if there are no more.
+     *
+     * When the document id precedes the fields, as in the canonical form, the fields are read directly from the
+     * parser into the operation, and otherwise they are buffered until the document id is known.
+     * If reading the fields fails, the rest of the operation is skipped, so the next one may be read.
+     */
+    private DocumentOperation readOperation() throws IOException {
+        if (parser.nextValue() != JsonToken.START_OBJECT) return null;
+        int depth = parser.getParsingContext().getNestingDepth();
+
+        DocumentParseInfo documentParseInfo = new DocumentParseInfo();
+        ParsedDocumentOperation operation = null;
+        boolean foundItems = false;
+        for (JsonToken token = parser.nextValue(); token != JsonToken.END_OBJECT; token = parser.nextValue()) {
+            if (token == null)
+                throw new IllegalArgumentException("Unexpected end of input in document operation");
+            foundItems = true;
+            String name = parser.currentName();
+            if ((token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) && CREATE_IF_NON_EXISTENT.equals(name)) {
+                documentParseInfo.create = Optional.of(token == JsonToken.VALUE_TRUE);
+            } else if (token == JsonToken.VALUE_STRING && CONDITION.equals(name)) {
+                documentParseInfo.condition = Optional.of(parser.getText());
+            } else if (token == JsonToken.VALUE_STRING) {
+                if (operation != null)
+                    throw new IllegalArgumentException("Got '" + name + "' after the fields of " + documentParseInfo.documentId);
+                documentParseInfo.operationType = DocumentParser.operationNameToOperationType(name);
+                documentParseInfo.documentId = new DocumentId(parser.getText());
+            } else if (token == JsonToken.START_OBJECT && FIELDS.equals(name)) {
+                if (operation != null)
+                    throw new IllegalArgumentException("Got more than one '" + FIELDS + "' map in " + documentParseInfo.documentId);
+                if (documentParseInfo.documentId != null && documentParseInfo.operationType != DocumentOperationType.REMOVE) {
+                    operation = readFieldsStreaming(documentParseInfo, depth);
+                } else {
+                    documentParseInfo.fieldsBuffer.bufferObject(parser);
+                }
+            } else if (token.isStructStart()) {
+                parser.skipChildren();
+            }
+        }
+
+        if (documentParseInfo.documentId == null) {
+            if (foundItems)
+                throw new IllegalArgumentException("Missing a document operation ('put', 'update' or 'remove')");
             return null;
         }
-        VespaJsonDocumentReader vespaJsonDocumentReader = new VespaJsonDocumentReader(typeManager.getIgnoreUndefinedFields());
-        DocumentOperation operation = vespaJsonDocumentReader.createDocumentOperation(
-                getDocumentTypeFromString(documentParseInfo.get().documentId.getDocType(), typeManager),
-                documentParseInfo.get()).operation();
-        operation.setCondition(TestAndSetCondition.fromConditionString(documentParseInfo.get().condition));
-        return operation;
+        if (operation == null) {
+            VespaJsonDocumentReader vespaJsonDocumentReader = new VespaJsonDocumentReader(typeManager.getIgnoreUndefinedFields());
+            operation = vespaJsonDocumentReader.createDocumentOperation(
+                    getDocumentTypeFromString(documentParseInfo.documentId.getDocType(), typeManager), documentParseInfo);
+        }
+        else if (documentParseInfo.create.isPresent()) { // may have been read after the fields
+            switch (documentParseInfo.operationType) {
+                case PUT -> ((DocumentPut) operation.operation()).setCreateIfNonExistent(documentParseInfo.create.get());
+                case UPDATE -> ((DocumentUpdate) operation.operation()).setCreateIfNonExistent(documentParseInfo.create.get());
+            }
+        }
+        operation.operation().setCondition(TestAndSetCondition.fromConditionString(documentParseInfo.condition));
+        return operation.operation();
+    }
+
+    /** Reads the fields of a put or update directly from the parser, which is at the start of the fields object */
+    private ParsedDocumentOperation readFieldsStreaming(DocumentParseInfo documentParseInfo, int depth) throws IOException {
+        try {
+            documentParseInfo.fieldsBuffer = new LazyTokenBuffer(parser);
+            VespaJsonDocumentReader vespaJsonDocumentReader = new VespaJsonDocumentReader(typeManager.getIgnoreUndefinedFields());
+            ParsedDocumentOperation operation = vespaJsonDocumentReader.createDocumentOperation(
+                    getDocumentTypeFromString(documentParseInfo.documentId.getDocType(), typeManager), documentParseInfo);
+            if ( ! documentParseInfo.fieldsBuffer.isEmpty())
+                throw new IllegalArgumentException("expected all content to be consumed by document parsing, but " +
+                                                   documentParseInfo.fieldsBuffer.nesting() + " levels remain");
+            return operation;
+        }
+        catch (IllegalArgumentException | IllegalStateException e) {
+            // Skip to the end of the operation object, which is the only one on the given depth
+            while ( ! (parser.currentToken() == JsonToken.END_OBJECT && parser.getParsingContext().getNestingDepth() < depth)) {
+                if (parser.nextToken() == null) break;
+            }
+            throw e;
+        }
     }
 
 
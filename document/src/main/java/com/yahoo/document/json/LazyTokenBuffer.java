@@ -5,6 +5,7 @@ import com.fasterxml.jackson.core.JsonToken;
 
 import java.io.IOException;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 
 /**
  * A {@link TokenBuffer} which only buffers tokens when needed, i.e., when peeking.
@@ -49,6 +50,35 @@ public class LazyTokenBuffer extends TokenBuffer {
         };
     }
 
+    /** Reads the numbers directly from the parser, without creating tokens, unless some of them are buffered already */
+    @Override
+    public int readNumbers(ToDoubleFunction<String> stringDecoder, NumberConsumer consumer) {
+        if (current() != JsonToken.START_ARRAY || tokens.size() > 1)
+            return super.readNumbers(stringDecoder, consumer);
+
+        try {
+            int index = 0;
+            for (int depth = 1; depth > 0; ) {
+                JsonToken token = parser.nextValue();
+                if (token == null)
+                    throw new IllegalStateException("no more JSON tokens");
+                switch (token) {
+                    case START_ARRAY -> ++depth;
+                    case END_ARRAY -> --depth;
+                    case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> consumer.accept(index++, parser.getDoubleValue());
+                    default -> consumer.accept(index++, readNumber(token, parser.getText(), stringDecoder));
+                }
+            }
+            tokens.poll();
+            tokens.add(new Token(JsonToken.END_ARRAY, parser.currentName(), parser.getText()));
+            updateNesting(JsonToken.END_ARRAY);
+            return index;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("failed reading document JSON", e);
+        }
+    }
+
     private Token nextToken() {
         try {
             JsonToken token = parser.nextValue();
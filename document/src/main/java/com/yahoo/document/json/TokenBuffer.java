@@ -10,6 +10,7 @@ import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Helper class to enable lookahead in the token stream.
@@ -111,12 +112,50 @@ public class TokenBuffer {
         return nesting;
     }
 
+    /**
+     * Reads the scalars of the array which is the current token, and of any arrays nested in it, as numbers,
+     * and leaves this at the end of the array.
+     *
+     * @param stringDecoder decodes numbers given as strings
+     * @param consumer receives the index and value of each number, in order
+     * @return the number of numbers read
+     * @throws IllegalArgumentException if a value is not a number, or a string which can be decoded as one
+     */
+    public int readNumbers(ToDoubleFunction<String> stringDecoder, NumberConsumer consumer) {
+        int index = 0;
+        int initNesting = nesting();
+        for (next(); nesting() >= initNesting; next()) {
+            if (current() == JsonToken.START_ARRAY || current() == JsonToken.END_ARRAY) continue; // nested arrays: Skip
+            consumer.accept(index++, readNumber(current(), currentText(), stringDecoder));
+        }
+        return index;
+    }
+
+    static double readNumber(JsonToken token, String text, ToDoubleFunction<String> stringDecoder) {
+        try {
+            if (token == JsonToken.VALUE_STRING)
+                return stringDecoder.applyAsDouble(text);
+            return Double.parseDouble(text);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number but got '" + text + "'");
+        }
+    }
+
     public void skipToRelativeNesting(int relativeNesting) {
         int initialNesting = nesting();
         do next();
         while (nesting() > initialNesting + relativeNesting);
     }
 
+    /** Receives numbers read by {@link #readNumbers} */
+    @FunctionalInterface
+    public interface NumberConsumer {
+
+        void accept(int index, double value);
+
+    }
+
     public static final class Token {
 
         public final JsonToken token;
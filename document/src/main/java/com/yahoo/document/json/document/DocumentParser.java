@@ -114,7 +114,8 @@ public class DocumentParser {
         }
     }
 
-    private static DocumentOperationType operationNameToOperationType(String operationName) {
+    /** Returns the type of the document operation given by the name of the field holding its document id */
+    public static DocumentOperationType operationNameToOperationType(String operationName) {
         return switch (operationName) {
             case PUT, ID -> DocumentOperationType.PUT;
             case REMOVE -> DocumentOperationType.REMOVE;
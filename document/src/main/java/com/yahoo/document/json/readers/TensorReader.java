@@ -149,12 +149,7 @@ public class TensorReader {
             }
             return;
         }
-        int index = 0;
-        int initNesting = buffer.nesting();
-        for (buffer.next(); buffer.nesting() >= initNesting; buffer.next()) {
-            if (buffer.current() == JsonToken.START_ARRAY || buffer.current() == JsonToken.END_ARRAY) continue; // nested arrays: Skip
-            indexedBuilder.cellByDirectIndex(index++, readDouble(buffer));
-        }
+        int index = buffer.readNumbers(text -> decodeNumberString(text), indexedBuilder::cellByDirectIndex);
         if (index == 0)
             throw new IllegalArgumentException("The 'values' array does not contain any values");
         if (index != expectedSize)
@@ -259,11 +254,8 @@ public class TensorReader {
             index = values.length;
         } else {
             expectArrayStart(buffer.current());
-            int initNesting = buffer.nesting();
-            for (buffer.next(); buffer.nesting() >= initNesting; buffer.next()) {
-                if (buffer.current() == JsonToken.START_ARRAY || buffer.current() == JsonToken.END_ARRAY) continue; // nested arrays: Skip
-                values[index++] = readDouble(buffer);
-            }
+            double[] target = values;
+            index = buffer.readNumbers(text -> decodeNumberString(text), (i, value) -> target[i] = value);
             expectCompositeEnd(buffer.current());
         }
         if (index != size)
@@ -1642,6 +1642,43 @@ public class JsonReaderTestCase {
                            .getMessage().contains("JsonParseException"));
     }
 
+    @Test
+    public void feedContinuesAfterInvalidFields() {
+        JsonReader r = createReader("""
+                                    [
+                                      {
+                                        "put": "id:unittest:smoke::0",
+                                        "fields": {
+                                          "nonexisting": { "nested": [ 1, 2 ] },
+                                          "something": "foo"
+                                        },
+                                        "condition": "smoke.something == \\"foo\\""
+                                      },
+                                      {
+                                        "put": "id:unittest:testtensor::1",
+                                        "fields": {
+                                          "dense_tensor": { "values": [ [ 2, 3, 4 ], [ 5, 6, "7.0" ] ] },
+                                          "mixed_tensor": { "blocks": { "a": [ 2, 3, 4 ] } }
+                                        },
+                                        "create": true,
+                                        "condition": "true"
+                                      }
+                                    ]
+                                    """);
+        assertEquals("Field 'nonexisting' is not defined in document type 'smoke'",
+                     assertThrows(IllegalArgumentException.class, r::next).getMessage());
+
+        DocumentPut put = (DocumentPut) r.next();
+        assertEquals("id:unittest:testtensor::1", put.getId().toString());
+        assertTrue(put.getCreateIfNonExistent());
+        assertEquals("true", put.getCondition().getSelection());
+        assertEquals(Tensor.from("tensor(x[2],y[3]):[2, 3, 4, 5, 6, 7]"),
+                     ((TensorFieldValue) put.getDocument().getFieldValue("dense_tensor")).getTensor().get());
+        assertEquals(Tensor.from("tensor(x{},y[3]):{a:[2, 3, 4]}"),
+                     ((TensorFieldValue) put.getDocument().getFieldValue("mixed_tensor")).getTensor().get());
+        assertNull(r.next());
+    }
+
     @Test
     public void idAsAliasForPutTest()  throws IOException{
         JsonReader r = createReader("""
@@ -24,6 +24,7 @@ import com.yahoo.documentapi.messagebus.protocol.GetDocumentReply;
 import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentReply;
+import com.yahoo.documentapi.messagebus.protocol.TestAndSetMessage;
 import com.yahoo.documentapi.messagebus.protocol.UpdateDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.UpdateDocumentReply;
 import com.yahoo.messagebus.Error;
@@ -71,6 +72,7 @@ public class MessageBusAsyncSession implements MessageBusSession, AsyncSession {
     private final AtomicLong requestId = new AtomicLong(0);
     private final BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
     private final SourceSession session;
+    private final OperationBatcher batcher;
     private final String routeForGet;
     private String route;
     private int traceLevel;
@@ -103,7 +105,14 @@ public class MessageBusAsyncSession implements MessageBusSession, AsyncSession {
         if (asyncParams.getThrottlePolicy() != null) {
             sourceSessionParams.setThrottlePolicy(asyncParams.getThrottlePolicy());
         }
-        sourceSessionParams.setReplyHandler((handler != null) ? handler : new MyReplyHandler(asyncParams.getResponseHandler(), responses));
+        ReplyHandler replyHandler = (handler != null) ? handler : new MyReplyHandler(asyncParams.getResponseHandler(), responses);
+        if (mbusParams.getMaxBatchSize() > 1) {
+            batcher = new OperationBatcher(mbusParams.getMaxBatchSize(), replyHandler, this::sendToSession);
+            replyHandler = batcher;
+        } else {
+            batcher = null;
+        }
+        sourceSessionParams.setReplyHandler(replyHandler);
         session = bus.createSourceSession(sourceSessionParams);
     }
 
@@ -169,7 +178,9 @@ public class MessageBusAsyncSession implements MessageBusSession, AsyncSession {
             parameters.deadline().ifPresent(deadline -> msg.setTimeRemaining(Math.max(1, Duration.between(Instant.now(), deadline).toMillis())));
             // Use route from parameters, or session route if non-default, or finally, defaults for get and non-get, if set. Phew!
             String toRoute = parameters.route().orElse(mayOverrideWithGetOnlyRoute(msg) ? routeForGet : route);
-            if (toRoute != null) {
+            if (toRoute != null && batcher != null && OperationBatcher.isBatchable(msg)) {
+                return toResult(reqId, batcher.send((TestAndSetMessage) msg, toRoute));
+            } else if (toRoute != null) {
                 return toResult(reqId, session.send(msg, toRoute, true));
             } else {
                 return toResult(reqId, session.send(msg));
@@ -179,6 +190,10 @@ public class MessageBusAsyncSession implements MessageBusSession, AsyncSession {
         }
     }
 
+    private com.yahoo.messagebus.Result sendToSession(Message msg, String toRoute) {
+        return session.send(msg, toRoute, true);
+    }
+
     private static class OperationContext {
         private final long reqId;
         private final ResponseHandler responseHandler;
@@ -212,6 +227,7 @@ public class MessageBusAsyncSession implements MessageBusSession, AsyncSession {
     @Override
     public void destroy() {
         session.destroy();
+        if (batcher != null) batcher.destroy();
     }
 
     @Override
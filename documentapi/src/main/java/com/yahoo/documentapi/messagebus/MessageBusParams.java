@@ -22,6 +22,7 @@ public class MessageBusParams extends DocumentAccessParams {
     private String route = "route:default";
     private String routeForGet = "route:default-get";
     private int traceLevel = 0;
+    private int maxBatchSize = 1;
     private RPCNetworkParams rpcNetworkParams = new RPCNetworkParams();
     private com.yahoo.messagebus.MessageBusParams mbusParams = new com.yahoo.messagebus.MessageBusParams();
     private SourceSessionParams sourceSessionParams = new SourceSessionParams();
@@ -143,6 +144,31 @@ public class MessageBusParams extends DocumentAccessParams {
         return this;
     }
 
+    /**
+     * Returns the most put, update and remove operations an async session sends in one message.
+     *
+     * @return The max batch size, where 1 means operations are not batched.
+     */
+    int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the most put, update and remove operations an async session sends in one message. When this is larger
+     * than 1, operations which can not be sent because the send queue is full are buffered, and sent in batches to
+     * the distributor owning them when there is room. This requires all content nodes to support batches,
+     * which they don't yet, so this is not public.
+     *
+     * @param maxBatchSize The max batch size, which is 1 (no batching) by default.
+     * @return This object for chaining.
+     */
+    MessageBusParams setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("Max batch size must be positive, but got " + maxBatchSize);
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
     /**
      * Returns the params object used to instantiate the rpc network layer for message bus.
      *
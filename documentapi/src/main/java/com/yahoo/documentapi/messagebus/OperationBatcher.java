@@ -0,0 +1,344 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.documentapi.messagebus;
+
+import com.yahoo.document.BucketId;
+import com.yahoo.document.BucketIdFactory;
+import com.yahoo.document.DocumentId;
+import com.yahoo.documentapi.messagebus.protocol.BatchDocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.BatchDocumentReply;
+import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.documentapi.messagebus.protocol.DocumentReply;
+import com.yahoo.documentapi.messagebus.protocol.TestAndSetMessage;
+import com.yahoo.messagebus.EmptyReply;
+import com.yahoo.messagebus.Error;
+import com.yahoo.messagebus.ErrorCode;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.Reply;
+import com.yahoo.messagebus.ReplyHandler;
+import com.yahoo.messagebus.Result;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Sends put, update and remove operations, and buffers those which can not be sent because the send queue is full.
+ * Buffered operations are sent as {@link BatchDocumentMessage}s when replies make room in the queue, which saves
+ * the per message overhead when feeding many small documents faster than they can be sent one by one.
+ *
+ * Operations are batched with others to the same route, document type and superbucket, as these are owned
+ * by the same distributor. Operations to each document are sent in the order they are given to this:
+ * An operation is not sent while another operation to the same superbucket is buffered or sent in a batch
+ * and not yet replied to, and a batch is not sent while other messages to its superbucket are not yet replied to.
+ * Operations sent alone are ordered by the sequencing of the source session, which does not apply to batches.
+ * The replies to batches are split into replies to each operation before they are passed on.
+ * If the operations of a batch select different routes, they are sent again one by one.
+ */
+final class OperationBatcher implements ReplyHandler {
+
+    private static final int superbucketBits = 16;
+
+    /** The most operations to buffer, as a multiple of the batch size */
+    private static final int maxBufferedBatches = 16;
+
+    private final BucketIdFactory bucketIdFactory = new BucketIdFactory();
+    private final int maxBatchSize;
+    private final ReplyHandler handler;
+    private final BiFunction<Message, String, Result> sender;
+
+    /** The batches which may still be added to, by key */
+    private final Map<Key, Batch> openBatches = new HashMap<>();
+
+    /** All buffered batches, in the order they were created */
+    private final Deque<Batch> batches = new ArrayDeque<>();
+
+    /** The number of buffered batches, by superbucket */
+    private final Map<Long, Integer> batchCounts = new HashMap<>();
+
+    /** The messages sent by this which are not yet replied to */
+    private final Map<Message, Sent> sent = new IdentityHashMap<>();
+
+    /** The number of messages not yet replied to, by superbucket */
+    private final Map<Long, Integer> sentCounts = new HashMap<>();
+
+    /** The superbuckets of the batches not yet replied to, which are the only messages to theirs not replied to */
+    private final Set<Long> sentBatches = new HashSet<>();
+
+    private int bufferedOperations = 0;
+    private boolean flushing = false;
+    private boolean destroyed = false;
+
+    /**
+     * Creates a batcher of operations.
+     *
+     * @param maxBatchSize the most operations to send in one message
+     * @param handler the handler to pass the replies to each operation to
+     * @param sender sends a message to a route, which must invoke this with the reply if the message is accepted
+     */
+    OperationBatcher(int maxBatchSize, ReplyHandler handler, BiFunction<Message, String, Result> sender) {
+        if (maxBatchSize < 2)
+            throw new IllegalArgumentException("Max batch size must be at least 2, but got " + maxBatchSize);
+        this.maxBatchSize = maxBatchSize;
+        this.handler = handler;
+        this.sender = sender;
+    }
+
+    /** Returns whether the given message may be sent through this */
+    static boolean isBatchable(Message msg) {
+        return switch (msg.getType()) {
+            case DocumentProtocol.MESSAGE_PUTDOCUMENT,
+                 DocumentProtocol.MESSAGE_UPDATEDOCUMENT,
+                 DocumentProtocol.MESSAGE_REMOVEDOCUMENT -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Sends the given put, update or remove now, or when there is room for it in the send queue.
+     *
+     * @return whether the operation was accepted, which is not the case if too many operations are buffered
+     */
+    synchronized Result send(TestAndSetMessage operation, String route) {
+        if (destroyed) return new Result(ErrorCode.SEND_QUEUE_CLOSED, "Session is destroyed.");
+        DocumentId id = BatchDocumentMessage.documentIdOf(operation);
+        Key key = new Key(route,
+                          id.hasDocType() ? id.getDocType() : "",
+                          new BucketId(superbucketBits, bucketIdFactory.getBucketId(id).getRawId()).getId());
+        Batch batch = openBatches.get(key);
+        if (batch == null) {
+            if ( ! batchCounts.containsKey(key.superbucket) && ! sentBatches.contains(key.superbucket)) {
+                Result result = send(operation, key, false);
+                if (result.isAccepted() || result.getError().getCode() != ErrorCode.SEND_QUEUE_FULL) return result;
+            }
+            if (bufferedOperations >= maxBatchSize * maxBufferedBatches)
+                return new Result(ErrorCode.SEND_QUEUE_FULL, "Too many operations (" + bufferedOperations + ") waiting to be batched.");
+            batch = new Batch(key, false);
+            openBatches.put(key, batch);
+            add(batch, false);
+        }
+        operation.setTimeReceivedNow();
+        batch.operations.add(operation);
+        ++bufferedOperations;
+        if (batch.operations.size() == maxBatchSize)
+            openBatches.remove(key);
+        return Result.ACCEPTED;
+    }
+
+    @Override
+    public void handleReply(Reply reply) {
+        if (isSentAgain(reply)) {
+            flush();
+            return;
+        }
+        if (reply.getMessage() instanceof BatchDocumentMessage batch) {
+            for (Reply operationReply : split(batch, reply))
+                handler.handleReply(operationReply);
+        }
+        else {
+            handler.handleReply(reply);
+        }
+        flush();
+    }
+
+    /**
+     * Stops tracking the message of the given reply, and returns whether it is a batch whose operations select
+     * different routes. These operations are then buffered first, to be sent one by one.
+     */
+    private synchronized boolean isSentAgain(Reply reply) {
+        Sent replied = replied(reply.getMessage());
+        if (replied == null || destroyed) return false;
+        if ( ! (reply.getMessage() instanceof BatchDocumentMessage batch)) return false;
+        if ( ! hasError(reply, DocumentProtocol.ERROR_BATCH_ROUTES_DIFFER)) return false;
+
+        List<TestAndSetMessage> operations = batch.getOperations();
+        for (int i = operations.size() - 1; i >= 0; i--) {
+            Batch separate = new Batch(replied.key, true);
+            separate.operations.add(operations.get(i));
+            add(separate, true);
+        }
+        bufferedOperations += operations.size();
+        return true;
+    }
+
+    /**
+     * Sends buffered batches in order, until the send queue is full again.
+     * Batches to superbuckets with messages not yet replied to are skipped, and sent after those replies.
+     */
+    void flush() {
+        List<Reply> failed = new ArrayList<>();
+        synchronized (this) {
+            if (flushing || destroyed) return; // a reply was delivered while sending, and the outer invocation goes on
+            flushing = true;
+            try {
+                for (Batch batch : List.copyOf(batches)) { // a copy, as replies delivered while sending may add batches
+                    if (sentCounts.containsKey(batch.key.superbucket)) continue;
+                    remove(batch);
+                    Result result = send(batch.toMessage(), batch.key, true);
+                    if ( ! result.isAccepted() && result.getError().getCode() == ErrorCode.SEND_QUEUE_FULL) {
+                        add(batch, true);
+                        break;
+                    }
+                    bufferedOperations -= batch.operations.size();
+                    if ( ! result.isAccepted()) {
+                        for (TestAndSetMessage operation : batch.operations)
+                            failed.add(failedReply(operation, result.getError()));
+                    }
+                }
+            }
+            finally {
+                flushing = false;
+            }
+        }
+        for (Reply reply : failed)
+            handler.handleReply(reply);
+    }
+
+    /** Returns the number of operations waiting to be sent */
+    synchronized int bufferedOperations() { return bufferedOperations; }
+
+    /**
+     * Replies to all buffered operations with an error, as they will not be sent, and rejects further operations.
+     * This is called when destroying the session sending them.
+     */
+    void destroy() {
+        List<Reply> aborted = new ArrayList<>();
+        synchronized (this) {
+            destroyed = true;
+            for (Batch batch : batches)
+                for (TestAndSetMessage operation : batch.operations)
+                    aborted.add(failedReply(operation, new Error(ErrorCode.SEND_ABORTED, "Session was destroyed before the operation was sent.")));
+            openBatches.clear();
+            batches.clear();
+            batchCounts.clear();
+            sent.clear();
+            sentCounts.clear();
+            sentBatches.clear();
+            bufferedOperations = 0;
+        }
+        for (Reply reply : aborted)
+            handler.handleReply(reply);
+    }
+
+    private static Reply failedReply(TestAndSetMessage operation, Error error) {
+        Reply reply = new EmptyReply();
+        reply.addError(error);
+        reply.setMessage(operation);
+        reply.setContext(operation.getContext());
+        return reply;
+    }
+
+    private void add(Batch batch, boolean first) {
+        if (first) {
+            batches.addFirst(batch);
+            if (batch.operations.size() < maxBatchSize && ! batch.separate)
+                openBatches.putIfAbsent(batch.key, batch);
+        }
+        else {
+            batches.addLast(batch);
+        }
+        batchCounts.merge(batch.key.superbucket, 1, Integer::sum);
+    }
+
+    private void remove(Batch batch) {
+        batches.remove(batch);
+        if (openBatches.get(batch.key) == batch)
+            openBatches.remove(batch.key);
+        batchCounts.computeIfPresent(batch.key.superbucket, (superbucket, count) -> count == 1 ? null : count - 1);
+    }
+
+    private static boolean hasError(Reply reply, int code) {
+        for (int i = 0; i < reply.getNumErrors(); i++)
+            if (reply.getError(i).getCode() == code) return true;
+        return false;
+    }
+
+    /** Sends the given message, and keeps track of it until it is replied to if it is accepted */
+    private Result send(Message message, Key key, boolean batch) {
+        // Tracked before sending, as the reply may be delivered before this returns
+        sent.put(message, new Sent(key, batch));
+        sentCounts.merge(key.superbucket, 1, Integer::sum);
+        if (batch) sentBatches.add(key.superbucket);
+        Result result = sender.apply(message, key.route);
+        if ( ! result.isAccepted())
+            replied(message);
+        return result;
+    }
+
+    /** Stops tracking the given message, and returns how it was sent, or null if it was not sent by this */
+    private Sent replied(Message message) {
+        Sent replied = sent.remove(message);
+        if (replied == null) return null; // not sent by this, or already replied to
+        sentCounts.computeIfPresent(replied.key.superbucket, (superbucket, count) -> count == 1 ? null : count - 1);
+        if (replied.batch) sentBatches.remove(replied.key.superbucket);
+        return replied;
+    }
+
+    /** Returns a reply to each operation of the given batch, from the given reply to the batch. */
+    static List<Reply> split(BatchDocumentMessage batch, Reply reply) {
+        List<TestAndSetMessage> operations = batch.getOperations();
+        List<DocumentReply> results = reply instanceof BatchDocumentReply batchReply ? batchReply.getResults() : List.of();
+        if (results.size() != operations.size() && ! reply.hasErrors())
+            reply.addError(new Error(DocumentProtocol.ERROR_INTERNAL_FAILURE,
+                                     "Expected " + operations.size() + " results in batch reply, but got " + results.size()));
+        List<Reply> replies = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            Message operation = operations.get(i);
+            Reply operationReply = results.size() == operations.size() ? results.get(i) : new EmptyReply();
+            for (int j = 0; j < reply.getNumErrors(); j++)
+                operationReply.addError(reply.getError(j));
+            operationReply.setMessage(operation);
+            operationReply.setContext(operation.getContext());
+            operationReply.getTrace().setLevel(reply.getTrace().getLevel());
+            if ( ! reply.getTrace().getRoot().isEmpty())
+                operationReply.getTrace().getRoot().addChild(reply.getTrace().getRoot());
+            replies.add(operationReply);
+        }
+        return replies;
+    }
+
+    private record Key(String route, String documentType, long superbucket) { }
+
+    /** A message sent with a key, which is a batch if it was buffered */
+    private record Sent(Key key, boolean batch) { }
+
+    private static class Batch {
+
+        final Key key;
+        final List<TestAndSetMessage> operations = new ArrayList<>();
+
+        /** Whether this holds an operation to send by itself, which no other operations are added to */
+        final boolean separate;
+
+        Batch(Key key, boolean separate) {
+            this.key = key;
+            this.separate = separate;
+        }
+
+        /** Returns the message to send for this: The operation itself if it is alone. */
+        Message toMessage() {
+            if (operations.size() == 1) return operations.get(0);
+
+            BatchDocumentMessage msg = new BatchDocumentMessage(operations);
+            long timeRemaining = Long.MAX_VALUE;
+            int traceLevel = 0;
+            for (TestAndSetMessage operation : operations) {
+                if (operation.getTimeRemaining() > 0) // time spent waiting here counts, as it does when blocking
+                    timeRemaining = Math.min(timeRemaining, Math.max(1, operation.getTimeRemainingNow()));
+                traceLevel = Math.max(traceLevel, operation.getTrace().getLevel());
+            }
+            if (timeRemaining < Long.MAX_VALUE)
+                msg.setTimeRemaining(timeRemaining);
+            msg.getTrace().setLevel(traceLevel);
+            return msg;
+        }
+
+    }
+
+}
@@ -0,0 +1,70 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.documentapi.messagebus.protocol;
+
+import com.yahoo.document.DocumentId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of put, update and remove operations to documents in the same superbucket, which are therefore
+ * owned by the same distributor. The operations are applied in order, each with its own test-and-set
+ * condition, and the reply to this is a {@link BatchDocumentReply} containing a reply for each operation.
+ */
+public class BatchDocumentMessage extends DocumentMessage {
+
+    private final List<TestAndSetMessage> operations;
+
+    /**
+     * Creates a batch of the given operations.
+     *
+     * @param operations the put, update and remove messages to batch, in the order they are to be applied
+     * @throws IllegalArgumentException if there are no operations, or one is not a put, update or remove
+     */
+    public BatchDocumentMessage(List<? extends TestAndSetMessage> operations) {
+        if (operations.isEmpty())
+            throw new IllegalArgumentException("A batch must contain at least one operation");
+        for (TestAndSetMessage operation : operations)
+            documentIdOf(operation); // validates the type
+        this.operations = List.copyOf(operations);
+    }
+
+    /** Returns the operations of this, in the order they are to be applied */
+    public List<TestAndSetMessage> getOperations() { return operations; }
+
+    @Override
+    public BatchDocumentReply createReply() {
+        List<DocumentReply> results = new ArrayList<>(operations.size());
+        for (TestAndSetMessage operation : operations)
+            results.add(operation.createReply());
+        return new BatchDocumentReply(results);
+    }
+
+    @Override
+    public int getApproxSize() {
+        int size = super.getApproxSize();
+        for (TestAndSetMessage operation : operations)
+            size += operation.getApproxSize();
+        return size;
+    }
+
+    @Override
+    public int getType() {
+        return DocumentProtocol.MESSAGE_BATCHDOCUMENT;
+    }
+
+    /**
+     * Returns the id of the document the given operation applies to.
+     *
+     * @throws IllegalArgumentException if the operation is not a put, update or remove
+     */
+    public static DocumentId documentIdOf(DocumentMessage operation) {
+        return switch (operation.getType()) {
+            case DocumentProtocol.MESSAGE_PUTDOCUMENT -> ((PutDocumentMessage) operation).getDocumentPut().getId();
+            case DocumentProtocol.MESSAGE_UPDATEDOCUMENT -> ((UpdateDocumentMessage) operation).getDocumentUpdate().getId();
+            case DocumentProtocol.MESSAGE_REMOVEDOCUMENT -> ((RemoveDocumentMessage) operation).getDocumentId();
+            default -> throw new IllegalArgumentException("Message type " + operation.getType() + " can not be batched");
+        };
+    }
+
+}
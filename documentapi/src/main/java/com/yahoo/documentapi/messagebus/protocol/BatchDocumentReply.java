@@ -0,0 +1,23 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.documentapi.messagebus.protocol;
+
+import java.util.List;
+
+/**
+ * The reply to a {@link BatchDocumentMessage}, containing the reply to each operation of the batch, in the
+ * same order as the operations. Errors which apply to a single operation, such as a failed test-and-set
+ * condition, are set on the reply to that operation, while errors set on this apply to all of them.
+ */
+public class BatchDocumentReply extends DocumentReply {
+
+    private final List<DocumentReply> results;
+
+    public BatchDocumentReply(List<DocumentReply> results) {
+        super(DocumentProtocol.REPLY_BATCHDOCUMENT);
+        this.results = List.copyOf(results);
+    }
+
+    /** Returns the replies to the operations of the batch, in the order of the operations */
+    public List<DocumentReply> getResults() { return results; }
+
+}
@@ -352,6 +352,8 @@ public class ContentPolicy extends SlobrokPolicy {
                 case DocumentProtocol.MESSAGE_STATBUCKET -> ((StatBucketMessage) msg).getBucketId();
                 case DocumentProtocol.MESSAGE_CREATEVISITOR -> ((CreateVisitorMessage) msg).getBuckets().get(0);
                 case DocumentProtocol.MESSAGE_REMOVELOCATION -> ((RemoveLocationMessage) msg).getBucketId();
+                case DocumentProtocol.MESSAGE_BATCHDOCUMENT -> // all operations are in the superbucket of the first
+                        factory.getBucketId(BatchDocumentMessage.documentIdOf(((BatchDocumentMessage) msg).getOperations().get(0)));
                 default -> {
                     log.log(Level.SEVERE, "Message type '" + msg.getType() + "' not supported.");
                     yield null;
@@ -425,7 +427,7 @@ public class ContentPolicy extends SlobrokPolicy {
 
             if (cachedClusterState != null) { // If we have a cached cluster state (regular case), we use that to calculate correct node.
                 try{
-                    Integer target = distribution.getIdealDistributorNode(cachedClusterState, bucketId, owningBucketStates);
+                    Integer target = distribution.getCachedIdealDistributorNode(cachedClusterState, bucketId, owningBucketStates);
                     // If we have had too many failures towards existing node, reset failure count and send to random
                     if (persistentFailureChecker.tooManyFailures(target)) {
                         sendRandomReason = "Too many failures detected versus distributor " + target + ". Sending to random instead of using cached state.";
@@ -60,6 +60,7 @@ public final class DocumentProtocol implements Protocol {
     public static final int MESSAGE_EMPTYBUCKETS = DOCUMENT_MESSAGE + 23;
     public static final int MESSAGE_REMOVELOCATION = DOCUMENT_MESSAGE + 24;
     public static final int MESSAGE_QUERYRESULT = DOCUMENT_MESSAGE + 25;
+    public static final int MESSAGE_BATCHDOCUMENT = DOCUMENT_MESSAGE + 28;
 
     // All reply types that are implemented by this protocol.
     public static final int DOCUMENT_REPLY = 200000;
@@ -81,6 +82,7 @@ public final class DocumentProtocol implements Protocol {
     public static final int REPLY_EMPTYBUCKETS = DOCUMENT_REPLY + 23;
     public static final int REPLY_REMOVELOCATION = DOCUMENT_REPLY + 24;
     public static final int REPLY_QUERYRESULT = DOCUMENT_REPLY + 25;
+    public static final int REPLY_BATCHDOCUMENT = DOCUMENT_REPLY + 28;
     public static final int REPLY_WRONGDISTRIBUTION = DOCUMENT_REPLY + 1000;
     public static final int REPLY_DOCUMENTIGNORED = DOCUMENT_REPLY + 1001;
 
@@ -99,6 +101,9 @@ public final class DocumentProtocol implements Protocol {
     /** Used for error policy when policy creation failed. */
     public static final int ERROR_POLICY_FAILURE = ErrorCode.APP_FATAL_ERROR + 2;
 
+    /** Used by policies when the operations of a batch must be sent separately, as they select different routes. */
+    public static final int ERROR_BATCH_ROUTES_DIFFER = ErrorCode.APP_FATAL_ERROR + 3;
+
     /** Document in operation cannot be found. (VDS Get and Remove) */
     public static final int ERROR_DOCUMENT_NOT_FOUND = ErrorCode.APP_FATAL_ERROR + 1001;
 
@@ -326,6 +331,7 @@ public final class DocumentProtocol implements Protocol {
         var version8 = new VersionSpecification(8, 310); // Must be same as in C++ impl
         var from8 = List.of(version8);
 
+        putRoutableFactory(MESSAGE_BATCHDOCUMENT,   RoutableFactories80.createBatchDocumentMessageFactory(),   from8);
         putRoutableFactory(MESSAGE_CREATEVISITOR,   RoutableFactories80.createCreateVisitorMessageFactory(),   from8);
         putRoutableFactory(MESSAGE_DESTROYVISITOR,  RoutableFactories80.createDestroyVisitorMessageFactory(),  from8);
         putRoutableFactory(MESSAGE_DOCUMENTLIST,    RoutableFactories80.createDocumentListMessageFactory(),    from8);
@@ -341,6 +347,7 @@ public final class DocumentProtocol implements Protocol {
         putRoutableFactory(MESSAGE_STATBUCKET,      RoutableFactories80.createStatBucketMessageFactory(),      from8);
         putRoutableFactory(MESSAGE_UPDATEDOCUMENT,  RoutableFactories80.createUpdateDocumentMessageFactory(),  from8);
         putRoutableFactory(MESSAGE_VISITORINFO,     RoutableFactories80.createVisitorInfoMessageFactory(),     from8);
+        putRoutableFactory(REPLY_BATCHDOCUMENT,     RoutableFactories80.createBatchDocumentReplyFactory(),     from8);
         putRoutableFactory(REPLY_CREATEVISITOR,     RoutableFactories80.createCreateVisitorReplyFactory(),     from8);
         putRoutableFactory(REPLY_DESTROYVISITOR,    RoutableFactories80.createDestroyVisitorReplyFactory(),    from8);
         putRoutableFactory(REPLY_DOCUMENTIGNORED,   RoutableFactories80.createDocumentIgnoredReplyFactory(),   from8);
@@ -418,6 +425,8 @@ public final class DocumentProtocol implements Protocol {
             return "MESSAGE_IGNORED";
         case ERROR_POLICY_FAILURE:
             return "POLICY_FAILURE";
+        case ERROR_BATCH_ROUTES_DIFFER:
+            return "BATCH_ROUTES_DIFFER";
         case ERROR_DOCUMENT_NOT_FOUND:
             return "DOCUMENT_NOT_FOUND";
         case ERROR_DOCUMENT_EXISTS:
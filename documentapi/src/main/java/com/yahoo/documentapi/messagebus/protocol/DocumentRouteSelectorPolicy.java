@@ -12,6 +12,7 @@ import com.yahoo.messagebus.routing.RoutingContext;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
@@ -135,6 +136,7 @@ public class DocumentRouteSelectorPolicy
             Route recipient = context.getRecipient(i);
             String routeName = recipient.toString();
             if (select(cfg, context, routeName)) {
+                if (context.hasReply()) return;
                 Route route = context.getMessageBus().getRoutingTable(DocumentProtocol.NAME).getRoute(routeName);
                 context.addChild(route != null ? route : recipient);
             }
@@ -168,6 +170,24 @@ public class DocumentRouteSelectorPolicy
 
         // Select based on message content.
         Message msg = context.getMessage();
+        if (msg.getType() == DocumentProtocol.MESSAGE_BATCHDOCUMENT) {
+            // The operations of a batch are sent together, so the sender must send them separately if they
+            // do not all select the same routes
+            List<TestAndSetMessage> operations = ((BatchDocumentMessage)msg).getOperations();
+            int accepted = 0;
+            for (TestAndSetMessage operation : operations) {
+                if (accepts(selector, operation)) ++accepted;
+            }
+            if (accepted != 0 && accepted != operations.size()) {
+                context.setError(DocumentProtocol.ERROR_BATCH_ROUTES_DIFFER,
+                                 "Only some of the operations of the batch select route '" + routeName + "'.");
+            }
+            return accepted != 0;
+        }
+        return accepts(selector, msg);
+    }
+
+    private static boolean accepts(DocumentSelector selector, Message msg) {
         switch (msg.getType()) {
 
         case DocumentProtocol.MESSAGE_PUTDOCUMENT:
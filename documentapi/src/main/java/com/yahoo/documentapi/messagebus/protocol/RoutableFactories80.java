@@ -21,6 +21,7 @@ import com.yahoo.document.serialization.DocumentDeserializerFactory;
 import com.yahoo.document.serialization.DocumentSerializer;
 import com.yahoo.document.serialization.DocumentSerializerFactory;
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.messagebus.Error;
 import com.yahoo.messagebus.Routable;
 import com.yahoo.text.Text;
 import com.yahoo.vdslib.DocumentSummary;
@@ -32,6 +33,7 @@ import com.yahoo.yolean.Exceptions;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -362,46 +364,55 @@ abstract class RoutableFactories80 {
     // Put request and response
     // ---------------------------------------------
 
+    private static DocapiFeed.PutDocumentRequest toProtoPutRequest(PutDocumentMessage apiMsg) {
+        var builder = DocapiFeed.PutDocumentRequest.newBuilder()
+                .setForceAssignTimestamp(apiMsg.getTimestamp())
+                .setPersistedTimestamp(apiMsg.getPersistedTimestamp())
+                .setCreateIfMissing(apiMsg.getCreateIfNonExistent())
+                .setDocument(toProtoDocument(apiMsg.getDocumentPut().getDocument()));
+        if (apiMsg.getCondition().isPresent()) {
+            builder.setCondition(toProtoTasCondition(apiMsg.getCondition()));
+        }
+        return builder.build();
+    }
+
+    private static PutDocumentMessage fromProtoPutRequest(DocapiFeed.PutDocumentRequest protoMsg, DocumentTypeManager repo) {
+        var doc = fromProtoDocument(protoMsg.getDocument(), repo);
+        var msg = new PutDocumentMessage(new DocumentPut(doc));
+        if (protoMsg.hasCondition()) {
+            msg.setCondition(fromProtoTasCondition(protoMsg.getCondition()));
+        }
+        msg.setTimestamp(protoMsg.getForceAssignTimestamp());
+        msg.setPersistedTimestamp(protoMsg.getPersistedTimestamp());
+        msg.setCreateIfNonExistent(protoMsg.getCreateIfMissing());
+        return msg;
+    }
+
+    private static DocapiFeed.PutDocumentResponse toProtoPutResponse(WriteDocumentReply apiReply) {
+        return DocapiFeed.PutDocumentResponse.newBuilder()
+                .setModificationTimestamp(apiReply.getHighestModificationTimestamp())
+                .build();
+    }
+
+    private static WriteDocumentReply fromProtoPutResponse(DocapiFeed.PutDocumentResponse protoReply) {
+        var reply = new WriteDocumentReply(DocumentProtocol.REPLY_PUTDOCUMENT);
+        reply.setHighestModificationTimestamp(protoReply.getModificationTimestamp());
+        return reply;
+    }
+
     static RoutableFactory createPutDocumentMessageFactory() {
         return ProtobufCodecBuilder
                 .of(PutDocumentMessage.class, DocapiFeed.PutDocumentRequest.class)
-                .encoder((apiMsg) -> {
-                    var builder = DocapiFeed.PutDocumentRequest.newBuilder()
-                            .setForceAssignTimestamp(apiMsg.getTimestamp())
-                            .setPersistedTimestamp(apiMsg.getPersistedTimestamp())
-                            .setCreateIfMissing(apiMsg.getCreateIfNonExistent())
-                            .setDocument(toProtoDocument(apiMsg.getDocumentPut().getDocument()));
-                    if (apiMsg.getCondition().isPresent()) {
-                        builder.setCondition(toProtoTasCondition(apiMsg.getCondition()));
-                    }
-                    return builder.build();
-                })
-                .decoderWithRepo(DocapiFeed.PutDocumentRequest.parser(), (protoMsg, repo) -> {
-                    var doc = fromProtoDocument(protoMsg.getDocument(), repo);
-                    var msg = new PutDocumentMessage(new DocumentPut(doc));
-                    if (protoMsg.hasCondition()) {
-                        msg.setCondition(fromProtoTasCondition(protoMsg.getCondition()));
-                    }
-                    msg.setTimestamp(protoMsg.getForceAssignTimestamp());
-                    msg.setPersistedTimestamp(protoMsg.getPersistedTimestamp());
-                    msg.setCreateIfNonExistent(protoMsg.getCreateIfMissing());
-                    return msg;
-                })
+                .encoder(RoutableFactories80::toProtoPutRequest)
+                .decoderWithRepo(DocapiFeed.PutDocumentRequest.parser(), RoutableFactories80::fromProtoPutRequest)
                 .build();
     }
 
     static RoutableFactory createPutDocumentReplyFactory() {
         return ProtobufCodecBuilder
                 .of(WriteDocumentReply.class, DocapiFeed.PutDocumentResponse.class)
-                .encoder((apiReply) ->
-                        DocapiFeed.PutDocumentResponse.newBuilder()
-                                .setModificationTimestamp(apiReply.getHighestModificationTimestamp())
-                                .build())
-                .decoder(DocapiFeed.PutDocumentResponse.parser(), (protoReply) -> {
-                    var reply = new WriteDocumentReply(DocumentProtocol.REPLY_PUTDOCUMENT);
-                    reply.setHighestModificationTimestamp(protoReply.getModificationTimestamp());
-                    return reply;
-                })
+                .encoder(RoutableFactories80::toProtoPutResponse)
+                .decoder(DocapiFeed.PutDocumentResponse.parser(), RoutableFactories80::fromProtoPutResponse)
                 .build();
     }
 
@@ -409,49 +420,58 @@ abstract class RoutableFactories80 {
     // Update request and response
     // ---------------------------------------------
 
+    private static DocapiFeed.UpdateDocumentRequest toProtoUpdateRequest(UpdateDocumentMessage apiMsg) {
+        var builder = DocapiFeed.UpdateDocumentRequest.newBuilder()
+                .setUpdate(toProtoUpdate(apiMsg.getDocumentUpdate()))
+                .setExpectedOldTimestamp(apiMsg.getOldTimestamp())
+                .setForceAssignTimestamp(apiMsg.getNewTimestamp());
+        if (apiMsg.getCondition().isPresent()) {
+            builder.setCondition(toProtoTasCondition(apiMsg.getCondition()));
+        }
+        builder.setCreateIfMissing(apiMsg.createIfMissing() ? DocapiFeed.UpdateDocumentRequest.CreateIfMissing.TRUE
+                                                            : DocapiFeed.UpdateDocumentRequest.CreateIfMissing.FALSE);
+        return builder.build();
+    }
+
+    private static UpdateDocumentMessage fromProtoUpdateRequest(DocapiFeed.UpdateDocumentRequest protoMsg, DocumentTypeManager repo) {
+        var msg = new UpdateDocumentMessage(fromProtoUpdate(protoMsg.getUpdate(), repo));
+        msg.setOldTimestamp(protoMsg.getExpectedOldTimestamp());
+        msg.setNewTimestamp(protoMsg.getForceAssignTimestamp());
+        if (protoMsg.hasCondition()) {
+            msg.setCondition(fromProtoTasCondition(protoMsg.getCondition()));
+        }
+        // We ignore the createIfMissing field here since it can always be fetched eagerly
+        // from the DocumentUpdate instance itself.
+        return msg;
+    }
+
+    private static DocapiFeed.UpdateDocumentResponse toProtoUpdateResponse(UpdateDocumentReply apiReply) {
+        return DocapiFeed.UpdateDocumentResponse.newBuilder()
+                .setModificationTimestamp(apiReply.getHighestModificationTimestamp())
+                .setWasFound(apiReply.wasFound())
+                .build();
+    }
+
+    private static UpdateDocumentReply fromProtoUpdateResponse(DocapiFeed.UpdateDocumentResponse protoReply) {
+        var reply = new UpdateDocumentReply();
+        reply.setHighestModificationTimestamp(protoReply.getModificationTimestamp());
+        reply.setWasFound(protoReply.getWasFound());
+        return reply;
+    }
+
     static RoutableFactory createUpdateDocumentMessageFactory() {
         return ProtobufCodecBuilder
                 .of(UpdateDocumentMessage.class, DocapiFeed.UpdateDocumentRequest.class)
-                .encoder((apiMsg) -> {
-                    var builder = DocapiFeed.UpdateDocumentRequest.newBuilder()
-                            .setUpdate(toProtoUpdate(apiMsg.getDocumentUpdate()))
-                            .setExpectedOldTimestamp(apiMsg.getOldTimestamp())
-                            .setForceAssignTimestamp(apiMsg.getNewTimestamp());
-                    if (apiMsg.getCondition().isPresent()) {
-                        builder.setCondition(toProtoTasCondition(apiMsg.getCondition()));
-                    }
-                    builder.setCreateIfMissing(apiMsg.createIfMissing() ? DocapiFeed.UpdateDocumentRequest.CreateIfMissing.TRUE
-                                                                        : DocapiFeed.UpdateDocumentRequest.CreateIfMissing.FALSE);
-                    return builder.build();
-                })
-                .decoderWithRepo(DocapiFeed.UpdateDocumentRequest.parser(), (protoMsg, repo) -> {
-                    var msg = new UpdateDocumentMessage(fromProtoUpdate(protoMsg.getUpdate(), repo));
-                    msg.setOldTimestamp(protoMsg.getExpectedOldTimestamp());
-                    msg.setNewTimestamp(protoMsg.getForceAssignTimestamp());
-                    if (protoMsg.hasCondition()) {
-                        msg.setCondition(fromProtoTasCondition(protoMsg.getCondition()));
-                    }
-                    // We ignore the createIfMissing field here since it can always be fetched eagerly
-                    // from the DocumentUpdate instance itself.
-                    return msg;
-                })
+                .encoder(RoutableFactories80::toProtoUpdateRequest)
+                .decoderWithRepo(DocapiFeed.UpdateDocumentRequest.parser(), RoutableFactories80::fromProtoUpdateRequest)
                 .build();
     }
 
     static RoutableFactory createUpdateDocumentReplyFactory() {
         return ProtobufCodecBuilder
                 .of(UpdateDocumentReply.class, DocapiFeed.UpdateDocumentResponse.class)
-                .encoder((apiReply) ->
-                        DocapiFeed.UpdateDocumentResponse.newBuilder()
-                                .setModificationTimestamp(apiReply.getHighestModificationTimestamp())
-                                .setWasFound(apiReply.wasFound())
-                                .build())
-                .decoder(DocapiFeed.UpdateDocumentResponse.parser(), (protoReply) -> {
-                    var reply = new UpdateDocumentReply();
-                    reply.setHighestModificationTimestamp(protoReply.getModificationTimestamp());
-                    reply.setWasFound(protoReply.getWasFound());
-                    return reply;
-                })
+                .encoder(RoutableFactories80::toProtoUpdateResponse)
+                .decoder(DocapiFeed.UpdateDocumentResponse.parser(), RoutableFactories80::fromProtoUpdateResponse)
                 .build();
     }
 
@@ -459,42 +479,128 @@ abstract class RoutableFactories80 {
     // Remove request and response
     // ---------------------------------------------
 
+    private static DocapiFeed.RemoveDocumentRequest toProtoRemoveRequest(RemoveDocumentMessage apiMsg) {
+        var builder = DocapiFeed.RemoveDocumentRequest.newBuilder()
+                .setDocumentId(toProtoDocId(apiMsg.getDocumentId()))
+                .setPersistedTimestamp(apiMsg.getPersistedTimestamp());
+        if (apiMsg.getCondition().isPresent()) {
+            builder.setCondition(toProtoTasCondition(apiMsg.getCondition()));
+        }
+        return builder.build();
+    }
+
+    private static RemoveDocumentMessage fromProtoRemoveRequest(DocapiFeed.RemoveDocumentRequest protoMsg) {
+        var msg = new RemoveDocumentMessage(fromProtoDocId(protoMsg.getDocumentId()));
+        if (protoMsg.hasCondition()) {
+            msg.setCondition(fromProtoTasCondition(protoMsg.getCondition()));
+        }
+        msg.setPersistedTimestamp(protoMsg.getPersistedTimestamp());
+        return msg;
+    }
+
+    private static DocapiFeed.RemoveDocumentResponse toProtoRemoveResponse(RemoveDocumentReply apiReply) {
+        return DocapiFeed.RemoveDocumentResponse.newBuilder()
+                .setWasFound(apiReply.wasFound())
+                .setModificationTimestamp(apiReply.getHighestModificationTimestamp())
+                .build();
+    }
+
+    private static RemoveDocumentReply fromProtoRemoveResponse(DocapiFeed.RemoveDocumentResponse protoReply) {
+        var reply = new RemoveDocumentReply();
+        reply.setWasFound(protoReply.getWasFound());
+        reply.setHighestModificationTimestamp(protoReply.getModificationTimestamp());
+        return reply;
+    }
+
     static RoutableFactory createRemoveDocumentMessageFactory() {
         return ProtobufCodecBuilder
                 .of(RemoveDocumentMessage.class, DocapiFeed.RemoveDocumentRequest.class)
+                .encoder(RoutableFactories80::toProtoRemoveRequest)
+                .decoder(DocapiFeed.RemoveDocumentRequest.parser(), RoutableFactories80::fromProtoRemoveRequest)
+                .build();
+    }
+
+    static RoutableFactory createRemoveDocumentReplyFactory() {
+        return ProtobufCodecBuilder
+                .of(RemoveDocumentReply.class, DocapiFeed.RemoveDocumentResponse.class)
+                .encoder(RoutableFactories80::toProtoRemoveResponse)
+                .decoder(DocapiFeed.RemoveDocumentResponse.parser(), RoutableFactories80::fromProtoRemoveResponse)
+                .build();
+    }
+
+    // ---------------------------------------------
+    // Batch request and response
+    // ---------------------------------------------
+
+    static RoutableFactory createBatchDocumentMessageFactory() {
+        return ProtobufCodecBuilder
+                .of(BatchDocumentMessage.class, DocapiFeed.BatchDocumentRequest.class)
                 .encoder((apiMsg) -> {
-                    var builder = DocapiFeed.RemoveDocumentRequest.newBuilder()
-                            .setDocumentId(toProtoDocId(apiMsg.getDocumentId()))
-                            .setPersistedTimestamp(apiMsg.getPersistedTimestamp());
-                    if (apiMsg.getCondition().isPresent()) {
-                        builder.setCondition(toProtoTasCondition(apiMsg.getCondition()));
+                    var builder = DocapiFeed.BatchDocumentRequest.newBuilder();
+                    for (var operation : apiMsg.getOperations()) {
+                        var protoOperation = DocapiFeed.BatchedDocumentOperation.newBuilder();
+                        switch (operation.getType()) {
+                            case DocumentProtocol.MESSAGE_PUTDOCUMENT -> protoOperation.setPut(toProtoPutRequest((PutDocumentMessage) operation));
+                            case DocumentProtocol.MESSAGE_UPDATEDOCUMENT -> protoOperation.setUpdate(toProtoUpdateRequest((UpdateDocumentMessage) operation));
+                            case DocumentProtocol.MESSAGE_REMOVEDOCUMENT -> protoOperation.setRemove(toProtoRemoveRequest((RemoveDocumentMessage) operation));
+                            default -> throw new IllegalArgumentException("Message type " + operation.getType() + " can not be batched");
+                        }
+                        builder.addOperations(protoOperation);
                     }
                     return builder.build();
                 })
-                .decoder(DocapiFeed.RemoveDocumentRequest.parser(), (protoMsg) -> {
-                    var msg = new RemoveDocumentMessage(fromProtoDocId(protoMsg.getDocumentId()));
-                    if (protoMsg.hasCondition()) {
-                        msg.setCondition(fromProtoTasCondition(protoMsg.getCondition()));
+                .decoderWithRepo(DocapiFeed.BatchDocumentRequest.parser(), (protoMsg, repo) -> {
+                    var operations = new ArrayList<TestAndSetMessage>(protoMsg.getOperationsCount());
+                    for (var protoOperation : protoMsg.getOperationsList()) {
+                        operations.add(switch (protoOperation.getOperationCase()) {
+                            case PUT -> fromProtoPutRequest(protoOperation.getPut(), repo);
+                            case UPDATE -> fromProtoUpdateRequest(protoOperation.getUpdate(), repo);
+                            case REMOVE -> fromProtoRemoveRequest(protoOperation.getRemove());
+                            case OPERATION_NOT_SET -> throw new IllegalArgumentException("Batched operation has no content");
+                        });
                     }
-                    msg.setPersistedTimestamp(protoMsg.getPersistedTimestamp());
-                    return msg;
+                    return new BatchDocumentMessage(operations);
                 })
                 .build();
     }
 
-    static RoutableFactory createRemoveDocumentReplyFactory() {
+    static RoutableFactory createBatchDocumentReplyFactory() {
         return ProtobufCodecBuilder
-                .of(RemoveDocumentReply.class, DocapiFeed.RemoveDocumentResponse.class)
-                .encoder((apiReply) ->
-                        DocapiFeed.RemoveDocumentResponse.newBuilder()
-                                .setWasFound(apiReply.wasFound())
-                                .setModificationTimestamp(apiReply.getHighestModificationTimestamp())
-                                .build())
-                .decoder(DocapiFeed.RemoveDocumentResponse.parser(), (protoReply) -> {
-                    var reply = new RemoveDocumentReply();
-                    reply.setWasFound(protoReply.getWasFound());
-                    reply.setHighestModificationTimestamp(protoReply.getModificationTimestamp());
-                    return reply;
+                .of(BatchDocumentReply.class, DocapiFeed.BatchDocumentResponse.class)
+                .encoder((apiReply) -> {
+                    var builder = DocapiFeed.BatchDocumentResponse.newBuilder();
+                    for (var result : apiReply.getResults()) {
+                        var protoResult = DocapiFeed.BatchedDocumentResult.newBuilder();
+                        switch (result.getType()) {
+                            case DocumentProtocol.REPLY_PUTDOCUMENT -> protoResult.setPut(toProtoPutResponse((WriteDocumentReply) result));
+                            case DocumentProtocol.REPLY_UPDATEDOCUMENT -> protoResult.setUpdate(toProtoUpdateResponse((UpdateDocumentReply) result));
+                            case DocumentProtocol.REPLY_REMOVEDOCUMENT -> protoResult.setRemove(toProtoRemoveResponse((RemoveDocumentReply) result));
+                            default -> { } // e.g. a generic reply carrying only errors
+                        }
+                        for (int i = 0; i < result.getNumErrors(); i++) {
+                            var error = result.getError(i);
+                            protoResult.addErrors(DocapiFeed.BatchedDocumentError.newBuilder()
+                                                                                 .setCode(error.getCode())
+                                                                                 .setMessage(error.getMessage()));
+                        }
+                        builder.addResults(protoResult);
+                    }
+                    return builder.build();
+                })
+                .decoder(DocapiFeed.BatchDocumentResponse.parser(), (protoReply) -> {
+                    var results = new ArrayList<DocumentReply>(protoReply.getResultsCount());
+                    for (var protoResult : protoReply.getResultsList()) {
+                        DocumentReply result = switch (protoResult.getResultCase()) {
+                            case PUT -> fromProtoPutResponse(protoResult.getPut());
+                            case UPDATE -> fromProtoUpdateResponse(protoResult.getUpdate());
+                            case REMOVE -> fromProtoRemoveResponse(protoResult.getRemove());
+                            case RESULT_NOT_SET -> new DocumentReply(0); // carries only errors, typed like an EmptyReply
+                        };
+                        for (var protoError : protoResult.getErrorsList())
+                            result.addError(new Error(protoError.getCode(), protoError.getMessage()));
+                        results.add(result);
+                    }
+                    return new BatchDocumentReply(results);
                 })
                 .build();
     }
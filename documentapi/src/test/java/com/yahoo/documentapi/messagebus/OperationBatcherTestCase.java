@@ -0,0 +1,220 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.documentapi.messagebus;
+
+import com.yahoo.document.DocumentId;
+import com.yahoo.documentapi.messagebus.protocol.BatchDocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.BatchDocumentReply;
+import com.yahoo.documentapi.messagebus.protocol.DocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentReply;
+import com.yahoo.messagebus.EmptyReply;
+import com.yahoo.messagebus.Error;
+import com.yahoo.messagebus.ErrorCode;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.Reply;
+import com.yahoo.messagebus.Result;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OperationBatcherTestCase {
+
+    private final List<Message> sent = new ArrayList<>();
+    private final List<Reply> replies = new ArrayList<>();
+    private final List<String> routes = new ArrayList<>();
+    private int capacity = 1;
+
+    private final OperationBatcher batcher = new OperationBatcher(3, replies::add, (msg, route) -> {
+        if (capacity == 0) return new Result(ErrorCode.SEND_QUEUE_FULL, "Full");
+        --capacity;
+        sent.add(msg);
+        routes.add(route);
+        return Result.ACCEPTED;
+    });
+
+    @Test
+    public void requireThatOperationsAreSentDirectlyWhenThereIsRoom() {
+        assertTrue(batcher.send(remove(1, "a"), "default").isAccepted());
+        assertEquals(List.of("id:ns:testdoc:n=1:a"), sentIds());
+        assertEquals(0, batcher.bufferedOperations());
+    }
+
+    @Test
+    public void requireThatOperationsAreBatchedBySuperbucketWhenTheQueueIsFull() {
+        capacity = 0;
+        for (String operation : List.of("1:a", "2:b", "65537:c", "1:d", "1:e", "2:f"))
+            assertTrue(batcher.send(remove(Integer.parseInt(operation.split(":")[0]), operation.split(":")[1]), "default").isAccepted());
+        assertTrue(batcher.send(remove(3, "g"), "other").isAccepted());
+        assertEquals(7, batcher.bufferedOperations());
+        assertTrue(sent.isEmpty());
+
+        capacity = 2;
+        batcher.flush();
+        assertEquals(2, sent.size());
+        assertEquals(List.of("id:ns:testdoc:n=1:a", "id:ns:testdoc:n=65537:c", "id:ns:testdoc:n=1:d"),
+                     idsOf((BatchDocumentMessage) sent.get(0)));
+        assertEquals(List.of("id:ns:testdoc:n=2:b", "id:ns:testdoc:n=2:f"), idsOf((BatchDocumentMessage) sent.get(1)));
+        assertEquals(2, batcher.bufferedOperations());
+
+        capacity = 2;
+        batcher.flush();
+        assertEquals("Superbucket 1 has a batch not yet replied to", 3, sent.size());
+        batcher.handleReply(replyTo(sent.get(0)));
+        assertEquals(4, sent.size());
+        assertEquals("id:ns:testdoc:n=3:g", ((RemoveDocumentMessage) sent.get(2)).getDocumentId().toString());
+        assertEquals("id:ns:testdoc:n=1:e", ((RemoveDocumentMessage) sent.get(3)).getDocumentId().toString());
+        assertEquals(List.of("default", "default", "other", "default"), routes);
+        assertEquals(0, batcher.bufferedOperations());
+    }
+
+    @Test
+    public void requireThatOperationsAreNotSentBeforeThoseBufferedForTheSameSuperbucket() {
+        capacity = 0;
+        batcher.send(remove(1, "a"), "default");
+        capacity = 1;
+        batcher.send(remove(1, "b"), "default");
+        batcher.send(remove(2, "c"), "default");
+        assertEquals(List.of("id:ns:testdoc:n=2:c"), sentIds());
+        assertEquals(2, batcher.bufferedOperations());
+    }
+
+    @Test
+    public void requireThatOperationsAreNotSentPastThoseNotRepliedToForTheSameSuperbucket() {
+        batcher.send(remove(1, "a"), "default");
+        batcher.send(remove(1, "b"), "default");
+        assertEquals(List.of("id:ns:testdoc:n=1:a"), sentIds());
+
+        capacity = 10;
+        batcher.flush();
+        assertEquals("Not sent in a batch while a is not replied to", List.of("id:ns:testdoc:n=1:a"), sentIds());
+        batcher.send(remove(1, "c"), "default");
+        batcher.handleReply(replyTo(sent.get(0)));
+        assertEquals(List.of("id:ns:testdoc:n=1:b", "id:ns:testdoc:n=1:c"), idsOf((BatchDocumentMessage) sent.get(1)));
+
+        batcher.send(remove(1, "d"), "default");
+        batcher.send(remove(2, "e"), "default");
+        assertEquals("Not sent past the batch not replied to", 3, sent.size());
+        assertEquals("id:ns:testdoc:n=2:e", ((RemoveDocumentMessage) sent.get(2)).getDocumentId().toString());
+        batcher.handleReply(replyTo(sent.get(1)));
+        assertEquals(4, sent.size());
+        assertEquals("id:ns:testdoc:n=1:d", ((RemoveDocumentMessage) sent.get(3)).getDocumentId().toString());
+        assertEquals(0, batcher.bufferedOperations());
+    }
+
+    @Test
+    public void requireThatTooManyBufferedOperationsAreRejected() {
+        capacity = 0;
+        for (int i = 0; i < 3 * 16; i++)
+            assertTrue(batcher.send(remove(i, "a"), "default").isAccepted());
+        Result result = batcher.send(remove(100, "a"), "default");
+        assertFalse(result.isAccepted());
+        assertEquals(ErrorCode.SEND_QUEUE_FULL, result.getError().getCode());
+    }
+
+    @Test
+    public void requireThatBatchRepliesAreSplitIntoOperationReplies() {
+        capacity = 0;
+        for (String name : List.of("a", "b"))
+            batcher.send(remove(1, name), "default");
+        capacity = 1;
+        batcher.flush();
+        BatchDocumentMessage batch = (BatchDocumentMessage) sent.get(0);
+        batch.getOperations().get(0).setContext("context a");
+        batch.getOperations().get(1).setContext("context b");
+
+        BatchDocumentReply reply = batch.createReply();
+        ((RemoveDocumentReply) reply.getResults().get(0)).setWasFound(true);
+        reply.getResults().get(1).addError(new Error(DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED, "No match"));
+        reply.setMessage(batch);
+        batcher.handleReply(reply);
+
+        assertEquals(2, replies.size());
+        assertTrue(((RemoveDocumentReply) replies.get(0)).wasFound());
+        assertFalse(replies.get(0).hasErrors());
+        assertEquals("context a", replies.get(0).getContext());
+        assertEquals(batch.getOperations().get(0), replies.get(0).getMessage());
+        assertEquals(DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED, replies.get(1).getError(0).getCode());
+        assertEquals("context b", replies.get(1).getContext());
+
+        replies.clear();
+        Reply failure = new EmptyReply();
+        failure.addError(new Error(ErrorCode.TIMEOUT, "Timed out"));
+        failure.setMessage(batch);
+        batcher.handleReply(failure);
+        assertEquals(2, replies.size());
+        for (Reply operationReply : replies)
+            assertEquals(ErrorCode.TIMEOUT, operationReply.getError(0).getCode());
+    }
+
+    @Test
+    public void requireThatOperationsOfBatchesSelectingDifferentRoutesAreSentSeparately() {
+        capacity = 0;
+        for (String name : List.of("a", "b"))
+            batcher.send(remove(1, name), "default");
+        capacity = 10;
+        batcher.flush();
+        BatchDocumentMessage batch = (BatchDocumentMessage) sent.get(0);
+
+        Reply failure = new EmptyReply();
+        failure.addError(new Error(DocumentProtocol.ERROR_BATCH_ROUTES_DIFFER, "Only some select route 'foo'"));
+        failure.setMessage(batch);
+        batcher.handleReply(failure);
+        assertTrue(replies.isEmpty());
+        assertEquals(2, sent.size());
+        assertEquals(batch.getOperations().get(0), sent.get(1));
+
+        batcher.send(remove(1, "c"), "default");
+        batcher.handleReply(replyTo(sent.get(1)));
+        assertEquals(3, sent.size());
+        assertEquals("Sent separately, and first", batch.getOperations().get(1), sent.get(2));
+        batcher.handleReply(replyTo(sent.get(2)));
+        assertEquals("id:ns:testdoc:n=1:c", ((RemoveDocumentMessage) sent.get(3)).getDocumentId().toString());
+        assertEquals(List.of(batch.getOperations().get(0), batch.getOperations().get(1)),
+                     replies.stream().map(Reply::getMessage).toList());
+    }
+
+    @Test
+    public void requireThatBufferedOperationsAreRepliedToWhenDestroyed() {
+        capacity = 0;
+        for (String name : List.of("a", "b", "c")) {
+            RemoveDocumentMessage operation = remove(1, name);
+            operation.setContext("context " + name);
+            batcher.send(operation, "default");
+        }
+        batcher.destroy();
+        assertEquals(0, batcher.bufferedOperations());
+        assertEquals(List.of("context a", "context b", "context c"), replies.stream().map(Reply::getContext).toList());
+        for (Reply reply : replies)
+            assertEquals(ErrorCode.SEND_ABORTED, reply.getError(0).getCode());
+
+        capacity = 1;
+        batcher.flush();
+        assertTrue(sent.isEmpty());
+        assertEquals(ErrorCode.SEND_QUEUE_CLOSED, batcher.send(remove(1, "d"), "default").getError().getCode());
+    }
+
+    private static Reply replyTo(Message msg) {
+        Reply reply = ((DocumentMessage) msg).createReply();
+        reply.setMessage(msg);
+        return reply;
+    }
+
+    private List<String> sentIds() {
+        return sent.stream().map(msg -> ((RemoveDocumentMessage) msg).getDocumentId().toString()).toList();
+    }
+
+    private static List<String> idsOf(BatchDocumentMessage batch) {
+        return batch.getOperations().stream().map(operation -> BatchDocumentMessage.documentIdOf(operation).toString()).toList();
+    }
+
+    private static RemoveDocumentMessage remove(int location, String name) {
+        return new RemoveDocumentMessage(new DocumentId("id:ns:testdoc:n=" + location + ":" + name));
+    }
+
+}
@@ -0,0 +1,59 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.documentapi.messagebus.protocol;
+
+import com.yahoo.component.Version;
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.DocumentTypeManagerConfigurer;
+import com.yahoo.document.datatypes.StringFieldValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the cost of encoding, compressing and decoding small puts one by one with doing it in batches,
+ * which is the per message work saved by batching. Run with the test classpath.
+ */
+public class BatchDocumentMessageBenchmark {
+
+    private static final Version version = new Version(8, 310);
+    private static final int documents = 50_000;
+
+    public static void main(String[] args) {
+        DocumentTypeManager types = new DocumentTypeManager();
+        DocumentTypeManagerConfigurer.configure(types, "file:./test/cfg/testdoc.cfg");
+        DocumentProtocol protocol = new DocumentProtocol(types, null);
+        DocumentType type = types.getDocumentType("testdoc");
+        Compressor compressor = new Compressor(CompressionType.LZ4, 3, 0.9, 256);
+
+        List<PutDocumentMessage> puts = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            Document document = new Document(type, "id:ns:testdoc:n=" + (i % 64) + ":" + i);
+            document.setFieldValue("stringfield", new StringFieldValue("A small document number " + i));
+            puts.add(new PutDocumentMessage(new DocumentPut(document)));
+        }
+
+        for (int batchSize : new int[] { 1, 10, 100, 1, 10, 100 }) {
+            List<DocumentMessage> messages = new ArrayList<>();
+            for (int i = 0; i < documents; i += batchSize)
+                messages.add(batchSize == 1 ? puts.get(i) : new BatchDocumentMessage(puts.subList(i, Math.min(documents, i + batchSize))));
+
+            long bytes = 0;
+            long startNanos = System.nanoTime();
+            for (DocumentMessage message : messages) {
+                byte[] encoded = protocol.encode(version, message);
+                Compressor.Compression compression = compressor.compress(encoded);
+                bytes += compression.data().length;
+                protocol.decode(version, encoded);
+            }
+            long elapsedNanos = System.nanoTime() - startNanos;
+            System.out.printf("Batch size %3d: %6d messages, %8d compressed bytes, %6.0f documents/s%n",
+                              batchSize, messages.size(), bytes, documents * 1e9 / elapsedNanos);
+        }
+    }
+
+}
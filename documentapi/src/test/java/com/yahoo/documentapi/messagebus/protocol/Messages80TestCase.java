@@ -11,6 +11,7 @@ import com.yahoo.document.GlobalId;
 import com.yahoo.document.TestAndSetCondition;
 import com.yahoo.document.fieldpathupdate.RemoveFieldPathUpdate;
 import com.yahoo.document.idstring.IdString;
+import com.yahoo.messagebus.Error;
 import com.yahoo.messagebus.Routable;
 import com.yahoo.text.Text;
 import com.yahoo.text.Utf8;
@@ -32,6 +33,7 @@ public class Messages80TestCase extends MessagesTestBase {
 
     @Override
     protected void registerTests(Map<Integer, RunnableTest> out) {
+        out.put(DocumentProtocol.MESSAGE_BATCHDOCUMENT,   new BatchDocumentMessageTest());
         out.put(DocumentProtocol.MESSAGE_CREATEVISITOR,   new CreateVisitorMessageTest());
         out.put(DocumentProtocol.MESSAGE_DESTROYVISITOR,  new DestroyVisitorMessageTest());
         out.put(DocumentProtocol.MESSAGE_DOCUMENTLIST,    new DocumentListMessageTest());
@@ -47,6 +49,7 @@ public class Messages80TestCase extends MessagesTestBase {
         out.put(DocumentProtocol.MESSAGE_STATBUCKET,      new StatBucketMessageTest());
         out.put(DocumentProtocol.MESSAGE_UPDATEDOCUMENT,  new UpdateDocumentMessageTest());
         out.put(DocumentProtocol.MESSAGE_VISITORINFO,     new VisitorInfoMessageTest());
+        out.put(DocumentProtocol.REPLY_BATCHDOCUMENT,     new BatchDocumentReplyTest());
         out.put(DocumentProtocol.REPLY_CREATEVISITOR,     new CreateVisitorReplyTest());
         out.put(DocumentProtocol.REPLY_DESTROYVISITOR,    new DestroyVisitorReplyTest());
         out.put(DocumentProtocol.REPLY_DOCUMENTIGNORED,   new DocumentIgnoredReplyTest());
@@ -82,6 +85,59 @@ public class Messages80TestCase extends MessagesTestBase {
         }
     }
 
+    // Batches are only encoded by Java so far, so these are not tested across languages
+
+    class BatchDocumentMessageTest implements RunnableTest {
+        @Override
+        public void run() {
+            var docType = protocol.getDocumentTypeManager().getDocumentType("testdoc");
+            var put = new PutDocumentMessage(new DocumentPut(new Document(docType, "id:ns:testdoc:n=1234:put")));
+            put.setCondition(new TestAndSetCondition(CONDITION_STRING));
+            put.setCreateIfNonExistent(true);
+            var update = new UpdateDocumentMessage(new DocumentUpdate(docType, new DocumentId("id:ns:testdoc:n=1234:update")));
+            update.setNewTimestamp(777);
+            var remove = new RemoveDocumentMessage(new DocumentId("id:ns:testdoc:n=1234:remove"));
+            remove.setCondition(TestAndSetCondition.ofRequiredTimestamp(0x1badcafef000000dL));
+            serialize("BatchDocumentMessage", new BatchDocumentMessage(List.of(put, update, remove)));
+
+            var msg = (BatchDocumentMessage)deserialize("BatchDocumentMessage", DocumentProtocol.MESSAGE_BATCHDOCUMENT, Language.JAVA);
+            assertEquals(3, msg.getOperations().size());
+            var put2 = (PutDocumentMessage)msg.getOperations().get(0);
+            assertEquals(put.getDocumentPut(), put2.getDocumentPut());
+            assertEquals(CONDITION_STRING, put2.getCondition().getSelection());
+            assertTrue(put2.getCreateIfNonExistent());
+            var update2 = (UpdateDocumentMessage)msg.getOperations().get(1);
+            assertEquals(update.getDocumentUpdate(), update2.getDocumentUpdate());
+            assertEquals(777, update2.getNewTimestamp());
+            var remove2 = (RemoveDocumentMessage)msg.getOperations().get(2);
+            assertEquals(remove.getDocumentId(), remove2.getDocumentId());
+            assertEquals(0x1badcafef000000dL, remove2.getCondition().requiredTimestamp());
+        }
+    }
+
+    class BatchDocumentReplyTest implements RunnableTest {
+        @Override
+        public void run() {
+            var put = new WriteDocumentReply(DocumentProtocol.REPLY_PUTDOCUMENT);
+            put.setHighestModificationTimestamp(30);
+            var update = new UpdateDocumentReply();
+            update.addError(new Error(DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED, "Condition did not match"));
+            var remove = new RemoveDocumentReply();
+            remove.setWasFound(true);
+            serialize("BatchDocumentReply", new BatchDocumentReply(List.of(put, update, remove)));
+
+            var reply = (BatchDocumentReply)deserialize("BatchDocumentReply", DocumentProtocol.REPLY_BATCHDOCUMENT, Language.JAVA);
+            assertEquals(3, reply.getResults().size());
+            assertEquals(30, ((WriteDocumentReply)reply.getResults().get(0)).getHighestModificationTimestamp());
+            var update2 = reply.getResults().get(1);
+            assertEquals(DocumentProtocol.REPLY_UPDATEDOCUMENT, update2.getType());
+            assertEquals(1, update2.getNumErrors());
+            assertEquals(DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED, update2.getError(0).getCode());
+            assertEquals("Condition did not match", update2.getError(0).getMessage());
+            assertTrue(((RemoveDocumentReply)reply.getResults().get(2)).wasFound());
+        }
+    }
+
     class GetDocumentMessageTest implements RunnableTest {
         @Override
         public void run() {
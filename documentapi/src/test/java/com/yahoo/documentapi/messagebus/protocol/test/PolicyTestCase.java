@@ -9,6 +9,7 @@ import com.yahoo.document.DocumentTypeManagerConfigurer;
 import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.fieldset.DocumentOnly;
 import com.yahoo.documentapi.messagebus.protocol.ANDPolicy;
+import com.yahoo.documentapi.messagebus.protocol.BatchDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
 import com.yahoo.documentapi.messagebus.protocol.DocumentRouteSelectorPolicy;
 import com.yahoo.documentapi.messagebus.protocol.ErrorPolicy;
@@ -450,6 +451,12 @@ public class PolicyTestCase {
                 "route[1].feed \"\"\n]";
     }
 
+    private PutDocumentMessage createPut(String id, int intfield) {
+        Document doc = new Document(manager.getDocumentType("testdoc"), new DocumentId(id));
+        doc.setFieldValue("intfield", intfield);
+        return new PutDocumentMessage(new DocumentPut(doc));
+    }
+
     private RemoveDocumentMessage createRemove(String docId) {
         return new RemoveDocumentMessage(new DocumentId(docId));
     }
@@ -632,6 +639,28 @@ public class PolicyTestCase {
         frame.destroy();
     }
 
+    @Test
+    public void testDocumentRouteSelectorBatch() {
+        PolicyTestFrame frame = new PolicyTestFrame(manager);
+        frame.setHop(new HopSpec("test", "[DocumentRouteSelector:raw:" +
+                                         "route[1]\n" +
+                                         "route[0].name \"foo\"\n" +
+                                         "route[0].selector \"testdoc and testdoc.intfield > 0\"\n" +
+                                         "route[0].feed \"myfeed\"\n]").addRecipient("foo"));
+
+        frame.setMessage(new BatchDocumentMessage(List.of(createPut("id:ns:testdoc:n=1:a", 1), createPut("id:ns:testdoc:n=1:b", 2))));
+        frame.assertSelect(List.of("foo"));
+
+        frame.setMessage(new BatchDocumentMessage(List.of(createPut("id:ns:testdoc:n=1:a", 1), createPut("id:ns:testdoc:n=1:b", 0))));
+        frame.select(0);
+        Reply reply = frame.getReceptor().getReply(TIMEOUT);
+        assertNotNull(reply);
+        assertEquals(1, reply.getNumErrors());
+        assertEquals(DocumentProtocol.ERROR_BATCH_ROUTES_DIFFER, reply.getError(0).getCode());
+
+        frame.destroy();
+    }
+
     @Test
     public void testDocumentRouteSelectorIgnore() {
         PolicyTestFrame frame = new PolicyTestFrame(manager);
@@ -209,6 +209,8 @@ string DocumentProtocol::getErrorName(uint32_t errorCode) {
         return "MESSAGE_IGNORED";
     case ERROR_POLICY_FAILURE:
         return "POLICY_FAILURE";
+    case ERROR_BATCH_ROUTES_DIFFER:
+        return "BATCH_ROUTES_DIFFER";
     case ERROR_DOCUMENT_NOT_FOUND:
         return "DOCUMENT_NOT_FOUND";
     case ERROR_EXISTS:
@@ -68,6 +68,7 @@ public:
         MESSAGE_REMOVELOCATION = DOCUMENT_MESSAGE + 24,
         MESSAGE_QUERYRESULT = DOCUMENT_MESSAGE + 25,
         //        MESSAGE_GARBAGECOLLECT      = DOCUMENT_MESSAGE + 27,
+        // MESSAGE_BATCHDOCUMENT = DOCUMENT_MESSAGE + 28 is sent by Java clients only, and not yet decoded here
 
         DOCUMENT_REPLY = 200000,
         //        REPLY_STARTOFFEED           = DOCUMENT_REPLY + 1,
@@ -92,6 +93,7 @@ public:
         REPLY_REMOVELOCATION = DOCUMENT_REPLY + 24,
         REPLY_QUERYRESULT = DOCUMENT_REPLY + 25,
         //        REPLY_GARBAGECOLLECT        = DOCUMENT_REPLY + 27,
+        // REPLY_BATCHDOCUMENT = DOCUMENT_REPLY + 28 is reserved for the reply to MESSAGE_BATCHDOCUMENT
         REPLY_WRONGDISTRIBUTION = DOCUMENT_REPLY + 1000,
         REPLY_DOCUMENTIGNORED = DOCUMENT_REPLY + 1001
     };
@@ -106,6 +108,9 @@ public:
         /** Used for error policy when policy creation failed. */
         ERROR_POLICY_FAILURE = mbus::ErrorCode::APP_FATAL_ERROR + 2,
 
+        /** Used by policies when the operations of a batch must be sent separately, as they select different routes. */
+        ERROR_BATCH_ROUTES_DIFFER = mbus::ErrorCode::APP_FATAL_ERROR + 3,
+
         // Error codes to represent various failures that can come from VDS. All
         // indexed from fatal error or transient failure plus 1000-1999
 
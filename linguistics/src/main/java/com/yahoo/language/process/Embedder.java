@@ -8,7 +8,9 @@ import com.yahoo.tensor.TensorType;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * An embedder converts a text string to a tensor
@@ -138,6 +140,34 @@ public interface Embedder {
         /** Add a sample request failure to this */
         void sampleRequestFailure(Context ctx, int statusCode);
 
+        /**
+         * Returns the embedding of the given text to the given type by the given embedder cached across requests, if any.
+         * Embeddings are cached by embedder instance, language, destination type, text and target type.
+         * The default implementation caches nothing.
+         */
+        default Optional<Tensor> getCachedEmbedding(Embedder embedder, String text, Context ctx, TensorType targetType) {
+            return Optional.empty();
+        }
+
+        /**
+         * Caches the embedding of the given text to the given type by the given embedder across requests,
+         * if caching is enabled.
+         */
+        default void putCachedEmbedding(Embedder embedder, String text, Context ctx, TensorType targetType, Tensor embedding) { }
+
+        /**
+         * Returns the embedding of the given text to the given type by the given embedder cached across requests,
+         * or computes it using the given supplier and caches it if not present.
+         */
+        default Tensor computeCachedEmbeddingIfAbsent(Embedder embedder, String text, Context ctx, TensorType targetType,
+                                                      Supplier<Tensor> embedding) {
+            Optional<Tensor> cached = getCachedEmbedding(embedder, text, ctx, targetType);
+            if (cached.isPresent()) return cached.get();
+            Tensor computed = embedding.get();
+            putCachedEmbedding(embedder, text, ctx, targetType, computed);
+            return computed;
+        }
+
         static Runtime testInstance() {
             return new Runtime() {
                 @Override public void sampleEmbeddingLatency(double millis, Context ctx) { }
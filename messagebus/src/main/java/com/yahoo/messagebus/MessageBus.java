@@ -170,7 +170,7 @@ public final class MessageBus implements ConfigHandler, NetworkOwner, MessageHan
         }
 
         // Start messenger.
-        msn = new Messenger();
+        msn = new Messenger(params.getMessengerLanes());
 
         RetryPolicy retryPolicy = params.getRetryPolicy();
         if (retryPolicy != null) {
@@ -187,6 +187,17 @@ public final class MessageBus implements ConfigHandler, NetworkOwner, MessageHan
 
     Messenger messenger() { return msn; }
 
+    /**
+     * <p>Returns the current statistics of each lane of the messenger of this,
+     * which runs the internal tasks of this, such as sequenced sends and
+     * resending.</p>
+     *
+     * @return The statistics of each messenger lane, in lane order.
+     */
+    public List<Messenger.LaneStatistics> getMessengerStatistics() {
+        return msn.statistics();
+    }
+
     /**
      * <p>Sets the destroyed flag to true. The very first time this method is
      * called, it cleans up all its dependencies. Even if you retain a reference
@@ -18,6 +18,7 @@ public class MessageBusParams {
     private final List<Protocol> protocols = new ArrayList<>();
     private RetryPolicy retryPolicy;
     private int maxPendingCount;
+    private int messengerLanes;
     private MessagebusConfig config;
 
     /**
@@ -26,6 +27,7 @@ public class MessageBusParams {
     public MessageBusParams() {
         retryPolicy = new RetryTransientErrorsPolicy();
         maxPendingCount = 4096;
+        messengerLanes = 1;
         config = null;
     }
 
@@ -38,6 +40,7 @@ public class MessageBusParams {
         protocols.addAll(params.protocols);
         retryPolicy = params.retryPolicy;
         maxPendingCount = params.maxPendingCount;
+        messengerLanes = params.messengerLanes;
         config = params.config;
     }
 
@@ -145,6 +148,28 @@ public class MessageBusParams {
         return this;
     }
 
+    /**
+     * Returns the number of lanes of the messenger, which runs the internal tasks of message bus.
+     *
+     * @return The number of lanes.
+     */
+    public int getMessengerLanes() {
+        return messengerLanes;
+    }
+
+    /**
+     * Sets the number of lanes of the messenger, which runs the internal tasks of message bus. Each lane has its own
+     * thread, and the tasks of each sequence id are always run in the same lane.
+     *
+     * @param lanes The number of lanes to set, which must be positive.
+     * @return This, to allow chaining.
+     */
+    public MessageBusParams setMessengerLanes(int lanes) {
+        if (lanes < 1) throw new IllegalArgumentException("The number of messenger lanes must be positive, but got " + lanes);
+        this.messengerLanes = lanes;
+        return this;
+    }
+
     public MessagebusConfig getMessageBusConfig() {
         return config;
     }
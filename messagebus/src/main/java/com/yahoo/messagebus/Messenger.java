@@ -15,9 +15,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
- * <p>This class implements a single thread that is able to process arbitrary
- * tasks. Tasks are enqueued using the synchronized {@link #enqueue(Task)}
- * method, and are run in the order they were enqueued.</p>
+ * <p>This class implements a set of threads, called lanes, that are able to
+ * process arbitrary tasks. Tasks are enqueued using the synchronized {@link
+ * #enqueue(Task)} method, and are run in the order they were enqueued. Tasks
+ * may be spread over several lanes by enqueueing them with a key using
+ * {@link #enqueue(long, Task)}: Tasks with the same key are run in the order
+ * they were enqueued, while tasks with different keys may run concurrently.</p>
  *
  * @author Simon Thoresen Hult
  */
@@ -26,20 +29,35 @@ public final class Messenger implements Runnable {
     private static final Logger log = Logger.getLogger(Messenger.class.getName());
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final List<Task> children = new ArrayList<>();
-    private final Queue<Task> queue = new ArrayDeque<>();
-
-    private final Thread thread;
+    private final Lane[] lanes;
 
     public Messenger() {
-        thread = new Thread(this, "Messenger");
-        thread.setDaemon(true);
+        this(1);
+    }
+
+    /**
+     * <p>Creates a messenger running tasks in the given number of lanes, each
+     * of which has its own thread and queue.</p>
+     *
+     * @param laneCount The number of lanes, which must be positive.
+     */
+    public Messenger(int laneCount) {
+        if (laneCount < 1)
+            throw new IllegalArgumentException("A messenger must have at least one lane, but got " + laneCount);
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i == 0 ? children : List.of());
+            Thread thread = new Thread(i == 0 ? this : lanes[i], laneCount == 1 ? "Messenger" : "Messenger-" + i);
+            thread.setDaemon(true);
+            lanes[i].thread = thread;
+        }
     }
 
     /**
      * <p>Adds a recurrent task to this that is to be run for every iteration of
-     * the main loop. This task must be very light-weight as to not block the
-     * messenger. Note that this method is NOT thread-safe, so it should NOT be
-     * used after calling {@link #start()}.</p>
+     * the main loop of the first lane. This task must be very light-weight as
+     * to not block the messenger. Note that this method is NOT thread-safe, so
+     * it should NOT be used after calling {@link #start()}.</p>
      *
      * @param task The task to add.
      */
@@ -48,13 +66,15 @@ public final class Messenger implements Runnable {
     }
 
     /**
-     * <p>Starts the internal thread. This must be done AFTER all recurrent
+     * <p>Starts the internal threads. This must be done AFTER all recurrent
      * tasks have been added.</p>
      *
      * @see #addRecurrentTask(Task)
      */
     public void start() {
-        thread.start();
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
     }
 
     /**
@@ -90,36 +110,83 @@ public final class Messenger implements Runnable {
     }
 
     /**
-     * <p>Enqueues the given task in the list of tasks that this worker is to
-     * process. If this thread has been destroyed previously, this method
+     * <p>Enqueues the given task in the list of tasks that the first lane of
+     * this is to process. If this has been destroyed previously, this method
      * invokes {@link Messenger.Task#destroy()}.</p>
      *
      * @param task The task to enqueue.
      */
     public void enqueue(Task task) {
+        enqueue(lanes[0], task);
+    }
+
+    /**
+     * <p>Enqueues the given task in the list of tasks of the lane the given
+     * key maps to. Tasks enqueued with the same key are run in the order they
+     * were enqueued, by the same thread. If this has been destroyed previously,
+     * this method invokes {@link Messenger.Task#destroy()}.</p>
+     *
+     * @param key  The key selecting the lane to run the task in, such as a sequence id.
+     * @param task The task to enqueue.
+     */
+    public void enqueue(long key, Task task) {
+        enqueue(lanes[laneOf(key)], task);
+    }
+
+    private void enqueue(Lane lane, Task task) {
         if (destroyed.get()) {
             task.destroy();
             return;
         }
-        synchronized (this) {
-            queue.offer(task);
-            if (queue.size() == 1) {
-                notify();
-            }
+        lane.offer(task);
+    }
+
+    /** Returns the index of the lane running tasks with the given key. */
+    int laneOf(long key) {
+        if (lanes.length == 1) return 0;
+        return Math.floorMod(Long.hashCode(key * 0x9E3779B97F4A7C15L), lanes.length); // spread sequential keys
+    }
+
+    /** Returns the number of lanes of this. */
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * <p>Returns the current statistics of each lane of this, in lane order.
+     * The statistics are accumulated since this was created.</p>
+     *
+     * @return A list containing the statistics of each lane.
+     */
+    public List<LaneStatistics> statistics() {
+        List<LaneStatistics> statistics = new ArrayList<>(lanes.length);
+        for (Lane lane : lanes) {
+            statistics.add(lane.statistics());
         }
+        return statistics;
     }
 
     /**
-     * <p>Handshakes with the internal thread. If this method is called using
-     * the messenger thread, this will deadlock.</p>
+     * <p>Handshakes with the internal threads. If this method is called using
+     * one of the messenger threads, this returns immediately, as waiting for
+     * the calling thread would deadlock, and waiting for the other lanes could
+     * deadlock with a concurrent sync from one of those.</p>
      */
     public void sync() {
-        if (Thread.currentThread() == thread) {
-            return; // no need to wait for self
+        for (Lane lane : lanes) {
+            if (Thread.currentThread() == lane.thread) {
+                return; // no need to wait for self
+            }
+        }
+        List<SyncTask> tasks = new ArrayList<>(lanes.length);
+        for (Lane lane : lanes) {
+            SyncTask task = new SyncTask();
+            enqueue(lane, task);
+            tasks.add(task);
+        }
+        for (SyncTask task : tasks) {
+            task.await();
         }
-        SyncTask task = new SyncTask();
-        enqueue(task);
-        task.await();
     }
 
     /**
@@ -132,15 +199,15 @@ public final class Messenger implements Runnable {
      */
     public boolean destroy() {
         boolean done = false;
-        enqueue(TERMINATE);
+        for (Lane lane : lanes) {
+            enqueue(lane, TERMINATE);
+        }
         if (!destroyed.getAndSet(true)) {
             try {
-                synchronized (this) {
-                    while (!queue.isEmpty()) {
-                        wait();
-                    }
+                for (Lane lane : lanes) {
+                    lane.awaitEmpty();
+                    lane.thread.join();
                 }
-                thread.join();
             } catch (InterruptedException e) {
                 // ignore
             }
@@ -149,57 +216,10 @@ public final class Messenger implements Runnable {
         return done;
     }
 
+    /** Runs the main loop of the first lane. This is called by the thread of that lane. */
     @Override
     public void run() {
-        long timeoutMS = SystemTimer.adjustTimeoutByDetectedHz(Duration.ofMillis(100)).toMillis();
-        while (true) {
-            Task task = null;
-            synchronized (this) {
-                if (queue.isEmpty()) {
-                    try {
-                        if (children.isEmpty()) {
-                            wait();
-                        } else {
-                            wait(timeoutMS);
-                        }
-                    } catch (InterruptedException e) {
-                        continue;
-                    }
-                }
-                if (!queue.isEmpty()) {
-                    task = queue.poll();
-                }
-            }
-            if (task == TERMINATE) {
-                break;
-            }
-            if (task != null) {
-                try {
-                    task.run();
-                } catch (Exception e) {
-                    log.log(Level.SEVERE, "An exception was thrown while running " + task.getClass().getName(), e);
-                }
-                try {
-                    task.destroy();
-                } catch (Exception e) {
-                    log.warning("An exception was thrown while destroying " + task.getClass().getName() + ": " + e);
-                    log.warning("Someone, somewhere might have to wait indefinitely for something.");
-                }
-            }
-            for (Task child : children) {
-                child.run();
-            }
-        }
-        for (Task child : children) {
-            child.destroy();
-        }
-        synchronized (this) {
-            while (!queue.isEmpty()) {
-                Task task = queue.poll();
-                task.destroy();
-            }
-            notify();
-        }
+        lanes[0].run();
     }
 
     /**
@@ -220,6 +240,126 @@ public final class Messenger implements Runnable {
         void destroy();
     }
 
+    /**
+     * <p>Statistics of a single lane of a messenger.</p>
+     *
+     * @param queueSize        The number of tasks currently waiting to be run.
+     * @param maxQueueSize     The largest number of tasks which has been waiting to be run.
+     * @param tasksRun         The number of tasks which have been run.
+     * @param totalLatencyNanos The sum over the tasks run of the time from they were enqueued until they were done.
+     * @param maxLatencyNanos  The longest time from a task was enqueued until it was done.
+     */
+    public record LaneStatistics(int queueSize, int maxQueueSize, long tasksRun,
+                                 long totalLatencyNanos, long maxLatencyNanos) {
+
+        /** Returns the average time from a task was enqueued until it was done, or 0 if no tasks have been run. */
+        public Duration averageLatency() {
+            return Duration.ofNanos(tasksRun == 0 ? 0 : totalLatencyNanos / tasksRun);
+        }
+
+    }
+
+    /** A thread with its own queue of tasks. */
+    private static class Lane implements Runnable {
+
+        private final List<Task> children;
+        private final Queue<Entry> queue = new ArrayDeque<>();
+        private Thread thread;
+
+        // Statistics, guarded by this
+        private int maxQueueSize = 0;
+        private long tasksRun = 0;
+        private long totalLatencyNanos = 0;
+        private long maxLatencyNanos = 0;
+
+        Lane(List<Task> children) {
+            this.children = children;
+        }
+
+        synchronized void offer(Task task) {
+            queue.offer(new Entry(task, System.nanoTime()));
+            maxQueueSize = Math.max(maxQueueSize, queue.size());
+            if (queue.size() == 1) {
+                notify();
+            }
+        }
+
+        synchronized void awaitEmpty() throws InterruptedException {
+            while (!queue.isEmpty()) {
+                wait();
+            }
+        }
+
+        synchronized LaneStatistics statistics() {
+            return new LaneStatistics(queue.size(), maxQueueSize, tasksRun, totalLatencyNanos, maxLatencyNanos);
+        }
+
+        private synchronized void completed(Entry entry) {
+            long latencyNanos = System.nanoTime() - entry.enqueuedNanos();
+            tasksRun++;
+            totalLatencyNanos += latencyNanos;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+        }
+
+        @Override
+        public void run() {
+            long timeoutMS = SystemTimer.adjustTimeoutByDetectedHz(Duration.ofMillis(100)).toMillis();
+            while (true) {
+                Entry entry = null;
+                synchronized (this) {
+                    if (queue.isEmpty()) {
+                        try {
+                            if (children.isEmpty()) {
+                                wait();
+                            } else {
+                                wait(timeoutMS);
+                            }
+                        } catch (InterruptedException e) {
+                            continue;
+                        }
+                    }
+                    if (!queue.isEmpty()) {
+                        entry = queue.poll();
+                    }
+                }
+                if (entry != null && entry.task() == TERMINATE) {
+                    break;
+                }
+                if (entry != null) {
+                    Task task = entry.task();
+                    try {
+                        task.run();
+                    } catch (Exception e) {
+                        log.log(Level.SEVERE, "An exception was thrown while running " + task.getClass().getName(), e);
+                    }
+                    try {
+                        task.destroy();
+                    } catch (Exception e) {
+                        log.warning("An exception was thrown while destroying " + task.getClass().getName() + ": " + e);
+                        log.warning("Someone, somewhere might have to wait indefinitely for something.");
+                    }
+                    completed(entry);
+                }
+                for (Task child : children) {
+                    child.run();
+                }
+            }
+            for (Task child : children) {
+                child.destroy();
+            }
+            synchronized (this) {
+                while (!queue.isEmpty()) {
+                    Task task = queue.poll().task();
+                    task.destroy();
+                }
+                notify();
+            }
+        }
+
+    }
+
+    private record Entry(Task task, long enqueuedNanos) { }
+
     private static class SyncTask implements Task {
 
         final CountDownLatch latch = new CountDownLatch(1);
@@ -3,9 +3,17 @@ package com.yahoo.messagebus;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -95,6 +103,50 @@ public class MessengerTestCase {
         assertTrue(tryMessenger(msn));
     }
 
+    @Test
+    void requireThatTasksWithSameKeyRunInOrderInOneLane() {
+        Messenger msn = new Messenger(4);
+        msn.start();
+        Map<Long, List<Integer>> runOrder = new ConcurrentHashMap<>();
+        Map<Long, Set<Thread>> threads = new ConcurrentHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            long key = i % 10;
+            int index = i;
+            msn.enqueue(key, new Messenger.Task() {
+                @Override
+                public void run() {
+                    runOrder.computeIfAbsent(key, k -> new ArrayList<>()).add(index);
+                    threads.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread());
+                }
+
+                @Override
+                public void destroy() { }
+            });
+        }
+        msn.sync();
+        Set<Thread> allThreads = new HashSet<>();
+        for (long key = 0; key < 10; key++) {
+            List<Integer> order = runOrder.get(key);
+            assertEquals(100, order.size());
+            for (int i = 0; i < order.size(); i++)
+                assertEquals(key + 10 * i, (long) order.get(i));
+            assertEquals(1, threads.get(key).size());
+            allThreads.addAll(threads.get(key));
+        }
+        assertTrue(allThreads.size() > 1);
+
+        List<Messenger.LaneStatistics> statistics = msn.statistics();
+        assertEquals(4, statistics.size());
+        assertEquals(1000 + 4, statistics.stream().mapToLong(Messenger.LaneStatistics::tasksRun).sum()); // including syncs
+        assertTrue(statistics.stream().allMatch(lane -> lane.queueSize() == 0));
+        assertTrue(msn.destroy());
+    }
+
+    @Test
+    void requireThatLaneCountIsValidated() {
+        assertThrows(IllegalArgumentException.class, () -> new Messenger(0));
+    }
+
     private static boolean tryMessenger(Messenger msn) {
         MyTask task = new MyTask();
         msn.enqueue(task);
@@ -0,0 +1,86 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus.network.local;
+
+import com.yahoo.messagebus.DestinationSession;
+import com.yahoo.messagebus.DestinationSessionParams;
+import com.yahoo.messagebus.MessageBus;
+import com.yahoo.messagebus.MessageBusParams;
+import com.yahoo.messagebus.Messenger;
+import com.yahoo.messagebus.Reply;
+import com.yahoo.messagebus.SourceSession;
+import com.yahoo.messagebus.SourceSessionParams;
+import com.yahoo.messagebus.StaticThrottlePolicy;
+import com.yahoo.messagebus.routing.Route;
+import com.yahoo.messagebus.test.SimpleMessage;
+import com.yahoo.messagebus.test.SimpleProtocol;
+import com.yahoo.messagebus.test.SimpleReply;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of sequenced messages fed from a source to a destination over the local network,
+ * for different numbers of messenger lanes.
+ */
+public class FeedThroughputBenchmark {
+
+    private final int messageCount = 100_000;
+    private final int sequenceIdCount = 256;
+
+    public static void main(String[] args) throws InterruptedException {
+        FeedThroughputBenchmark benchmark = new FeedThroughputBenchmark();
+        for (int lanes : new int[] { 1, 2, 4, 8 }) {
+            benchmark.run(lanes); // warmup
+            benchmark.run(lanes);
+        }
+    }
+
+    private void run(int lanes) throws InterruptedException {
+        LocalWire wire = new LocalWire();
+        MessageBus sourceBus = new MessageBus(new LocalNetwork(wire),
+                                              new MessageBusParams().addProtocol(new SimpleProtocol())
+                                                                    .setRetryPolicy(null)
+                                                                    .setMessengerLanes(lanes));
+        MessageBus destinationBus = new MessageBus(new LocalNetwork(wire),
+                                                   new MessageBusParams().addProtocol(new SimpleProtocol())
+                                                                         .setRetryPolicy(null));
+        CountDownLatch replies = new CountDownLatch(messageCount);
+        SourceSession source = sourceBus.createSourceSession(new SourceSessionParams()
+                                                                     .setTimeout(600.0)
+                                                                     .setThrottlePolicy(new StaticThrottlePolicy().setMaxPendingCount(10_000))
+                                                                     .setReplyHandler(reply -> replies.countDown()));
+        DestinationSession[] destination = new DestinationSession[1];
+        destination[0] = destinationBus.createDestinationSession(new DestinationSessionParams().setMessageHandler(message -> {
+            Reply reply = new SimpleReply("ok");
+            reply.swapState(message);
+            destination[0].reply(reply);
+        }));
+        Route route = Route.parse(destination[0].getConnectionSpec());
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < messageCount; i++) {
+            long sequenceId = i % sequenceIdCount;
+            SimpleMessage message = new SimpleMessage("message " + i) {
+                @Override public boolean hasSequenceId() { return true; }
+                @Override public long getSequenceId() { return sequenceId; }
+            };
+            message.setRoute(route);
+            if ( ! source.sendBlocking(message).isAccepted())
+                throw new IllegalStateException("Message " + i + " was not accepted");
+        }
+        if ( ! replies.await(10, TimeUnit.MINUTES))
+            throw new IllegalStateException("Timed out waiting for replies");
+        long elapsedNanos = System.nanoTime() - startTime;
+
+        System.out.printf("%d lanes: %.0f messages/s%n", lanes, messageCount * 1e9 / elapsedNanos);
+        for (Messenger.LaneStatistics lane : sourceBus.getMessengerStatistics())
+            System.out.printf("    tasks run: %d, max queue size: %d, average latency: %d us, max latency: %d us%n",
+                              lane.tasksRun(), lane.maxQueueSize(), lane.averageLatency().toNanos() / 1000,
+                              lane.maxLatencyNanos() / 1000);
+
+        source.destroy();
+        sourceBus.destroy();
+        destinationBus.destroy();
+    }
+
+}
@@ -112,6 +112,10 @@ public enum ContainerMetrics implements VespaMetrics {
     HTTPAPI_QUEUED_AGE("httpapi_queued_age", Unit.SECOND, "Age in seconds of the oldest operation in the queue for /document/v1 API handler"),
     HTTPAPI_MBUS_WINDOW_SIZE("httpapi_mbus_window_size", Unit.OPERATION, "The window size of Messagebus's dynamic throttle policy for /document/v1 API handler"),
 
+    MBUS_MESSENGER_QUEUE_SIZE("mbus.messenger.queue_size", Unit.TASK, "Number of tasks waiting to run in a lane of the Messagebus messenger, which runs sequenced sends and resending"),
+    MBUS_MESSENGER_TASKS("mbus.messenger.tasks", Unit.TASK, "Number of tasks run by a lane of the Messagebus messenger"),
+    MBUS_MESSENGER_LATENCY("mbus.messenger.latency", Unit.MILLISECOND, "Average time from a task is enqueued in a lane of the Messagebus messenger until it is done"),
+
     MEM_HEAP_TOTAL("mem.heap.total", Unit.BYTE, "Total available heap memory"),
     MEM_HEAP_FREE("mem.heap.free", Unit.BYTE, "Free heap memory"),
     MEM_HEAP_USED("mem.heap.used", Unit.BYTE, "Currently used heap memory"),
@@ -152,6 +156,14 @@ public enum ContainerMetrics implements VespaMetrics {
     TOTAL_HITS_PER_QUERY("totalhits_per_query", Unit.HIT_PER_QUERY, "The total number of documents found to match queries"),
     EMPTY_RESULTS("empty_results", Unit.OPERATION, "Number of queries matching no documents"),
     REQUESTS_OVER_QUOTA("requestsOverQuota", Unit.OPERATION, "The number of requests rejected due to exceeding quota"),
+    SEARCH_RESULT_CACHE_HITS("search.result_cache.hits", Unit.OPERATION, "Number of dispatches answered from the container result cache"),
+    SEARCH_RESULT_CACHE_MISSES("search.result_cache.misses", Unit.OPERATION, "Number of cacheable dispatches not answered from the container result cache"),
+    SEARCH_RESULT_CACHE_EVICTIONS("search.result_cache.evictions", Unit.OPERATION, "Number of results evicted from the container result cache to stay within its size limit"),
+    SEARCH_RESULT_CACHE_BYTES("search.result_cache.bytes", Unit.BYTE, "Estimated memory used by the container result cache"),
+    SEARCH_DOCSUM_CACHE_HITS("search.docsum_cache.hits", Unit.HIT, "Number of hits filled from the container document summary cache"),
+    SEARCH_DOCSUM_CACHE_MISSES("search.docsum_cache.misses", Unit.HIT, "Number of cacheable hits not filled from the container document summary cache"),
+    SEARCH_HEDGES_ISSUED("search.hedges.issued", Unit.QUERY, "Number of queries also sent to another group because the group first queried responded slowly"),
+    SEARCH_HEDGES_WON("search.hedges.won", Unit.QUERY, "Number of hedged queries where the other group responded first"),
     
     RELEVANCE_AT_1("relevance.at_1", Unit.SCORE, "The relevance of hit number 1"),
     RELEVANCE_AT_3("relevance.at_3", Unit.SCORE, "The relevance of hit number 3"),
@@ -215,6 +227,8 @@ public enum ContainerMetrics implements VespaMetrics {
     EMBEDDER_SEQUENCE_LENGTH("embedder.sequence_length", Unit.ITEM, "Number of tokens in the input sequence"),
     EMBEDDER_REQUEST_COUNT("embedder.request.count", Unit.REQUEST, "Number of embedder API requests"),
     EMBEDDER_REQUEST_FAILURE_COUNT("embedder.request.failure.count", Unit.REQUEST, "Number of failed embedder API requests"),
+    EMBEDDER_CACHE_HITS("embedder.cache.hits", Unit.OPERATION, "Number of embeddings found in the embedding cache shared between requests"),
+    EMBEDDER_CACHE_MISSES("embedder.cache.misses", Unit.OPERATION, "Number of embeddings not found in the embedding cache shared between requests"),
 
     EMBEDDER_BATCH_SIZE("embedder.batch.size", Unit.ITEM, "Number of items in each dispatched batch"),
     EMBEDDER_BATCH_QUEUE_TIME("embedder.batch.queue_time", Unit.MILLISECOND, "Time spent waiting in queue before batch dispatch"),
@@ -184,6 +184,8 @@ public class Vespa9VespaMetricSet {
         addMetric(metrics, ContainerMetrics.EMBEDDER_SEQUENCE_LENGTH, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_REQUEST_COUNT, EnumSet.of(count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_REQUEST_FAILURE_COUNT, EnumSet.of(count));
+        addMetric(metrics, ContainerMetrics.EMBEDDER_CACHE_HITS, EnumSet.of(count));
+        addMetric(metrics, ContainerMetrics.EMBEDDER_CACHE_MISSES, EnumSet.of(count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_BATCH_SIZE, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_BATCH_QUEUE_TIME, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_BATCH_COUNT, EnumSet.of(count));
@@ -261,6 +263,14 @@ public class Vespa9VespaMetricSet {
         addMetric(metrics, ContainerMetrics.TOTAL_HITS_PER_QUERY, EnumSet.of(sum, count, max, ninety_five_percentile, ninety_nine_percentile));
         addMetric(metrics, ContainerMetrics.EMPTY_RESULTS.rate());
         addMetric(metrics, ContainerMetrics.REQUESTS_OVER_QUOTA, EnumSet.of(rate, count));
+        addMetric(metrics, ContainerMetrics.SEARCH_RESULT_CACHE_HITS.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_RESULT_CACHE_MISSES.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_RESULT_CACHE_EVICTIONS.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_RESULT_CACHE_BYTES.max());
+        addMetric(metrics, ContainerMetrics.SEARCH_DOCSUM_CACHE_HITS.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_DOCSUM_CACHE_MISSES.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_HEDGES_ISSUED.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_HEDGES_WON.rate());
 
         addMetric(metrics, ContainerMetrics.RELEVANCE_AT_1, EnumSet.of(sum, count));
         addMetric(metrics, ContainerMetrics.RELEVANCE_AT_3, EnumSet.of(sum, count));
@@ -175,6 +175,9 @@ public class VespaMetricSet {
         addMetric(metrics, ContainerMetrics.HTTPAPI_QUEUED_BYTES.last());
         addMetric(metrics, ContainerMetrics.HTTPAPI_QUEUED_AGE.last());
         addMetric(metrics, ContainerMetrics.HTTPAPI_MBUS_WINDOW_SIZE.last());
+        addMetric(metrics, ContainerMetrics.MBUS_MESSENGER_QUEUE_SIZE.max());
+        addMetric(metrics, ContainerMetrics.MBUS_MESSENGER_TASKS.rate());
+        addMetric(metrics, ContainerMetrics.MBUS_MESSENGER_LATENCY.max());
 
         addMetric(metrics, ContainerMetrics.MEM_HEAP_TOTAL.average());
         addMetric(metrics, ContainerMetrics.MEM_HEAP_FREE.average());
@@ -244,6 +247,8 @@ public class VespaMetricSet {
         addMetric(metrics, ContainerMetrics.EMBEDDER_SEQUENCE_LENGTH, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_REQUEST_COUNT, EnumSet.of(count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_REQUEST_FAILURE_COUNT, EnumSet.of(count));
+        addMetric(metrics, ContainerMetrics.EMBEDDER_CACHE_HITS, EnumSet.of(count));
+        addMetric(metrics, ContainerMetrics.EMBEDDER_CACHE_MISSES, EnumSet.of(count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_BATCH_SIZE, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_BATCH_QUEUE_TIME, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_BATCH_COUNT, EnumSet.of(count));
@@ -327,6 +332,14 @@ public class VespaMetricSet {
         addMetric(metrics, ContainerMetrics.TOTAL_HITS_PER_QUERY, EnumSet.of(sum, count, max, ninety_five_percentile, ninety_nine_percentile));
         addMetric(metrics, ContainerMetrics.EMPTY_RESULTS.rate());
         addMetric(metrics, ContainerMetrics.REQUESTS_OVER_QUOTA, EnumSet.of(rate, count));
+        addMetric(metrics, ContainerMetrics.SEARCH_RESULT_CACHE_HITS.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_RESULT_CACHE_MISSES.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_RESULT_CACHE_EVICTIONS.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_RESULT_CACHE_BYTES.max());
+        addMetric(metrics, ContainerMetrics.SEARCH_DOCSUM_CACHE_HITS.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_DOCSUM_CACHE_MISSES.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_HEDGES_ISSUED.rate());
+        addMetric(metrics, ContainerMetrics.SEARCH_HEDGES_WON.rate());
 
         addMetric(metrics, ContainerMetrics.RELEVANCE_AT_1, EnumSet.of(sum, count));
         addMetric(metrics, ContainerMetrics.RELEVANCE_AT_3, EnumSet.of(sum, count));
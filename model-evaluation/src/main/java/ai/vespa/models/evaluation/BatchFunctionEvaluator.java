@@ -0,0 +1,267 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * An evaluator which can be used to evaluate a single function for each row of a batch of argument values once.
+ * Each argument is bound either to a column holding a value for each row, or to a single value used for all rows.
+ *
+ * This is cheaper than using a FunctionEvaluator per row, as bindings are validated once per batch
+ * rather than once per row. Functions whose body is a scalar expression, including GBDT models, are evaluated
+ * column-wise: Each subexpression is evaluated for all rows at once, reading the argument columns directly.
+ * Other functions, including those using tensors or ONNX models, are evaluated one row at the time,
+ * with the column values bound to each row by index. ONNX models are invoked once per row.
+ */
+// This wraps all access to the context and the ranking expression to avoid incorrect usage
+public class BatchFunctionEvaluator {
+
+    private final ExpressionFunction function;
+
+    /** A context holding the values which are the same for all rows */
+    private final LazyArrayContext context;
+
+    /**
+     * The body of the function with scalar subexpressions compiled, or null to interpret the function body.
+     * The body can be evaluated column-wise when this is a single compiled node.
+     */
+    private ExpressionNode compiledBody;
+
+    private final int size;
+
+    private final List<Integer> doubleColumnIndexes = new ArrayList<>();
+    private final List<double[]> doubleColumns = new ArrayList<>();
+    private final List<Integer> valueColumnIndexes = new ArrayList<>();
+    private final List<Value[]> valueColumns = new ArrayList<>();
+
+    private Tensor missingValue = null;
+    private boolean evaluated = false;
+
+    BatchFunctionEvaluator(ExpressionFunction function, LazyArrayContext prototype, ExpressionNode compiledBody, int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("Batch size must be non-negative, got " + size);
+        this.function = function;
+        this.context = prototype.copy();
+        this.compiledBody = compiledBody;
+        this.size = size;
+    }
+
+    /**
+     * Binds the given variable referred in this expression to the given value in every row.
+     *
+     * @param name the variable to bind
+     * @param value the value this becomes bound to
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator bind(String name, Tensor value) {
+        requireBindable(name, value.type());
+        context.put(name, new TensorValue(value));
+        return this;
+    }
+
+    /**
+     * Binds the given variable referred in this expression to the given value in every row.
+     *
+     * @param name the variable to bind
+     * @param value the value this becomes bound to
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator bind(String name, double value) {
+        requireBindable(name, TensorType.empty);
+        context.put(name, DoubleValue.frozen(value));
+        return this;
+    }
+
+    /**
+     * Binds the given variable referred in this expression to a value in each row.
+     *
+     * @param name the variable to bind
+     * @param values the value to bind in each row, having the size of this batch
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator bind(String name, double[] values) {
+        requireBindable(name, TensorType.empty);
+        requireSize(name, values.length);
+        doubleColumnIndexes.add(context.getIndex(name));
+        doubleColumns.add(values);
+        return this;
+    }
+
+    /**
+     * Binds the given variable referred in this expression to a value in each row.
+     *
+     * @param name the variable to bind
+     * @param values the value to bind in each row, having the size of this batch
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator bind(String name, List<Tensor> values) {
+        requireSize(name, values.size());
+        Value[] column = new Value[values.size()];
+        for (int row = 0; row < column.length; row++) {
+            requireBindable(name, values.get(row).type());
+            column[row] = new TensorValue(values.get(row)).freeze();
+        }
+        valueColumnIndexes.add(context.getIndex(name));
+        valueColumns.add(column);
+        return this;
+    }
+
+    /**
+     * Sets the default value to use for variables which are not bound
+     *
+     * @param value the default value
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator setMissingValue(Tensor value) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot change the missing value in a used evaluator");
+        missingValue = value;
+        if (value.type().rank() > 0)
+            compiledBody = null; // compiled expressions only handle scalars
+        return this;
+    }
+
+    /**
+     * Sets the default value to use for variables which are not bound
+     *
+     * @param value the default value
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator setMissingValue(double value) {
+        return setMissingValue(Tensor.Builder.of(TensorType.empty).cell(value).build());
+    }
+
+    /**
+     * Sets a pool to use to evaluate parts of large tensor functions in parallel, or null (the default)
+     * to evaluate only in the calling thread. The result is the same in both cases.
+     *
+     * @param pool the pool to use for parallel evaluation, or null
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator setForkJoinPool(ForkJoinPool pool) {
+        context.setForkJoinPool(pool);
+        return this;
+    }
+
+    /** Returns the value of the function for each row of this batch */
+    public List<Tensor> evaluate() {
+        evaluated = true;
+        List<Tensor> results = new ArrayList<>(size);
+        if (size == 0) return results;
+
+        FunctionEvaluator.checkArguments(function, contextOf(0)); // Rows differ only by values already validated when bound
+        if (compiledBody instanceof ExpressionCompiler.CompiledNode compiled) {
+            for (double result : compiled.evaluate(new Columns()))
+                results.add(Tensor.Builder.of(TensorType.empty).cell(result).build());
+            return results;
+        }
+        for (int row = 0; row < size; row++)
+            results.add(new FunctionEvaluator(function, contextOf(row), compiledBody).evaluateUnchecked());
+        return results;
+    }
+
+    private LazyArrayContext contextOf(int row) {
+        LazyArrayContext rowContext = context.copy();
+        if (missingValue != null)
+            rowContext.setMissingValue(missingValue);
+        for (int i = 0; i < doubleColumns.size(); i++)
+            rowContext.put(doubleColumnIndexes.get(i), doubleColumns.get(i)[row]);
+        for (int i = 0; i < valueColumns.size(); i++)
+            rowContext.put(valueColumnIndexes.get(i), valueColumns.get(i)[row]);
+        return rowContext;
+    }
+
+    /**
+     * The value of each row of this batch by context index, created when first requested. Values which are the same
+     * for all rows are repeated, and values of referenced functions are computed for each row.
+     */
+    private class Columns implements ExpressionCompiler.Columns {
+
+        private final LazyArrayContext shared = context.copy();
+        private final double[][] columns = new double[context.size()][];
+        private List<LazyArrayContext> rowContexts = null;
+
+        Columns() {
+            if (missingValue != null)
+                shared.setMissingValue(missingValue);
+        }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public double[] column(int index) {
+            if (columns[index] == null)
+                columns[index] = columnOf(index);
+            return columns[index];
+        }
+
+        /**
+         * Returns the values at the given index. Bound columns are only converted when requested, as those
+         * which are only read by referenced functions may hold values which are not scalars.
+         */
+        private double[] columnOf(int index) {
+            int valueColumn = valueColumnIndexes.lastIndexOf(index); // Value columns are bound after double columns
+            if (valueColumn >= 0) {
+                Value[] values = valueColumns.get(valueColumn);
+                double[] column = new double[size];
+                for (int row = 0; row < size; row++)
+                    column[row] = values[row].asDouble();
+                return column;
+            }
+            int doubleColumn = doubleColumnIndexes.lastIndexOf(index);
+            if (doubleColumn >= 0)
+                return doubleColumns.get(doubleColumn);
+            return shared.get(index) instanceof LazyValue ? computeEachRow(index) : repeat(shared.getDouble(index));
+        }
+
+        private double[] repeat(double value) {
+            double[] column = new double[size];
+            Arrays.fill(column, value);
+            return column;
+        }
+
+        /** Computes a value depending on the row, using a context with the values of each row */
+        private double[] computeEachRow(int index) {
+            if (rowContexts == null) {
+                rowContexts = new ArrayList<>(size);
+                for (int row = 0; row < size; row++)
+                    rowContexts.add(contextOf(row));
+            }
+            double[] column = new double[size];
+            for (int row = 0; row < size; row++)
+                column[row] = rowContexts.get(row).getDouble(index);
+            return column;
+        }
+
+    }
+
+    private void requireBindable(String name, TensorType type) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot bind a new value in a used evaluator");
+        FunctionEvaluator.requireArgumentType(function, name, type);
+    }
+
+    private void requireSize(String name, int columnSize) {
+        if (columnSize != size)
+            throw new IllegalArgumentException("'" + name + "' must be bound to " + size + " values, but got " + columnSize);
+    }
+
+    /** Returns the function evaluated by this */
+    public ExpressionFunction function() { return function; }
+
+    /** Returns the number of rows in this batch */
+    public int size() { return size; }
+
+}
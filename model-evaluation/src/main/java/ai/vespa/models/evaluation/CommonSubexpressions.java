@@ -0,0 +1,216 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.GeneratorLambdaFunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.LambdaFunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
+import com.yahoo.tensor.functions.Generate;
+import com.yahoo.tensor.functions.Random;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.yahoo.searchlib.rankingexpression.Reference.RANKING_EXPRESSION_WRAPPER;
+
+/**
+ * Finds tensor subexpressions which occur more than once in the functions of a model and replaces each
+ * occurrence by a reference to a function computing it. As referenced functions are bound to lazy values
+ * which are computed at most once per context, each such subexpression is then evaluated once per evaluation
+ * rather than once per occurrence.
+ *
+ * Subexpressions are identical when their serial forms are: All names in the functions of a model are resolved
+ * in the context of the function being evaluated, so identical expressions compute identical values.
+ * Only subexpressions containing tensor functions are shared, as scalar subexpressions are cheaper to recompute
+ * than to look up, and subexpressions inside lambdas (which are evaluated with other bindings) or
+ * containing random values are left as they are.
+ */
+final class CommonSubexpressions {
+
+    /** The name of the functions computing common subexpressions, which are told apart by their instance id */
+    static final String functionName = "common_subexpression";
+
+    /** The functions computing common subexpressions, by the serial form of the subexpression */
+    private final Map<String, SharedFunction> sharedFunctions = new LinkedHashMap<>();
+
+    private final Set<String> sharedKeys;
+
+    private int nextInstance = 0;
+
+    private CommonSubexpressions(Set<String> sharedKeys) {
+        this.sharedKeys = sharedKeys;
+    }
+
+    /**
+     * Replaces subexpressions occurring more than once in the given functions by references to functions
+     * computing them. The given functions are not modified.
+     *
+     * @param functions the free functions of a model, which are replaced by rewritten functions where changed
+     * @param referencedFunctions the referenced functions of a model, which are replaced by rewritten functions
+     *                            where changed, and to which the functions computing the common subexpressions
+     *                            are added
+     * @return the functions added, which are empty if there are no common subexpressions
+     */
+    static Map<FunctionReference, ExpressionFunction> eliminate(Map<FunctionReference, ExpressionFunction> functions,
+                                                                Map<FunctionReference, ExpressionFunction> referencedFunctions) {
+        List<ExpressionFunction> distinct = new ArrayList<>();
+        Map<ExpressionFunction, ExpressionFunction> rewritten = new IdentityHashMap<>();
+        for (ExpressionFunction function : functions.values())
+            if (rewritten.put(function, function) == null) distinct.add(function);
+        for (ExpressionFunction function : referencedFunctions.values())
+            if (rewritten.put(function, function) == null) distinct.add(function);
+
+        Set<String> sharedKeys = findSharedKeys(distinct);
+        if (sharedKeys.isEmpty()) return Map.of();
+
+        CommonSubexpressions eliminator = new CommonSubexpressions(sharedKeys);
+        for (ExpressionFunction function : distinct) {
+            ExpressionNode root = function.getBody().getRoot();
+            ExpressionNode newRoot = eliminator.rewriteChildren(root);
+            if (newRoot != root)
+                rewritten.put(function, function.withBody(new RankingExpression(function.getBody().getName(), newRoot)));
+        }
+        functions.replaceAll((reference, function) -> rewritten.get(function));
+        referencedFunctions.replaceAll((reference, function) -> rewritten.get(function));
+
+        Map<FunctionReference, ExpressionFunction> added = new LinkedHashMap<>();
+        List<SharedFunction> sharedFunctions = new ArrayList<>(eliminator.sharedFunctions.values());
+        sharedFunctions.sort(Comparator.comparingInt(SharedFunction::instance));
+        for (SharedFunction shared : sharedFunctions)
+            added.put(shared.reference(), new ExpressionFunction(functionName, new RankingExpression(functionName, shared.body())));
+        referencedFunctions.putAll(added);
+        return added;
+    }
+
+    /**
+     * Returns the serial forms of the subexpressions to share: Those which will be referenced at least twice
+     * when subexpressions containing them are shared.
+     */
+    private static Set<String> findSharedKeys(List<ExpressionFunction> functions) {
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (ExpressionFunction function : functions)
+            countOccurrences(function.getBody().getRoot(), null, new HashSet<>(), occurrences);
+        Set<String> sharedKeys = keysOccurringMoreThanOnce(occurrences);
+
+        // Occurrences inside a shared subexpression count once, so sharing it may make inner ones unique
+        while ( ! sharedKeys.isEmpty()) {
+            Map<String, Integer> uses = new HashMap<>();
+            Set<String> expanded = new HashSet<>();
+            for (ExpressionFunction function : functions)
+                countOccurrences(function.getBody().getRoot(), sharedKeys, expanded, uses);
+            Set<String> remaining = keysOccurringMoreThanOnce(uses);
+            remaining.retainAll(sharedKeys);
+            if (remaining.equals(sharedKeys)) break;
+            sharedKeys = remaining;
+        }
+        return sharedKeys;
+    }
+
+    /**
+     * Counts the occurrences of the shareable subexpressions below the given node.
+     * If sharedKeys is non-null, the subexpressions of the shared ones are counted only once.
+     */
+    private static void countOccurrences(ExpressionNode node, Set<String> sharedKeys, Set<String> expanded,
+                                         Map<String, Integer> occurrences) {
+        for (ExpressionNode child : evaluatedChildren(node)) {
+            if (isShareable(child)) {
+                String key = child.toString();
+                occurrences.merge(key, 1, Integer::sum);
+                if (sharedKeys != null && sharedKeys.contains(key) && ! expanded.add(key)) continue;
+            }
+            countOccurrences(child, sharedKeys, expanded, occurrences);
+        }
+    }
+
+    private static Set<String> keysOccurringMoreThanOnce(Map<String, Integer> occurrences) {
+        return occurrences.entrySet().stream()
+                          .filter(entry -> entry.getValue() > 1)
+                          .map(Map.Entry::getKey)
+                          .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /** Returns the given node with its shared subexpressions (excluding itself) replaced by function references */
+    private ExpressionNode rewriteChildren(ExpressionNode node) {
+        List<ExpressionNode> children = evaluatedChildren(node);
+        if (children.isEmpty()) return node;
+        List<ExpressionNode> newChildren = new ArrayList<>(children.size());
+        boolean changed = false;
+        for (ExpressionNode child : children) {
+            ExpressionNode newChild = rewrite(child);
+            changed |= newChild != child;
+            newChildren.add(newChild);
+        }
+        return changed ? ((CompositeNode)node).setChildren(newChildren) : node;
+    }
+
+    private ExpressionNode rewrite(ExpressionNode node) {
+        if ( ! isShareable(node)) return rewriteChildren(node);
+        String key = node.toString();
+        if ( ! sharedKeys.contains(key)) return rewriteChildren(node);
+
+        SharedFunction shared = sharedFunctions.get(key);
+        if (shared == null) {
+            int instance = nextInstance++; // before rewriting, which may add the subexpressions of this
+            shared = new SharedFunction(instance, rewriteChildren(node));
+            sharedFunctions.put(key, shared);
+        }
+        return new ReferenceNode(RANKING_EXPRESSION_WRAPPER, List.of(new ReferenceNode(shared.instanceName())), null);
+    }
+
+    /** Returns the children of the given node which are evaluated in the same context as the node */
+    private static List<ExpressionNode> evaluatedChildren(ExpressionNode node) {
+        if ( ! (node instanceof CompositeNode composite)) return List.of();
+        if (node instanceof ReferenceNode) return List.of(); // arguments of features are not evaluated here
+        if (node instanceof LambdaFunctionNode || node instanceof GeneratorLambdaFunctionNode) return List.of();
+        if (node instanceof TensorFunctionNode tensorFunction && tensorFunction.function() instanceof Generate) return List.of();
+        return composite.children();
+    }
+
+    /** Returns whether the given node may be replaced by a reference to a function computing it */
+    private static boolean isShareable(ExpressionNode node) {
+        if ( ! (node instanceof CompositeNode)) return false;
+        if (node instanceof ReferenceNode || node instanceof EmbracedNode) return false;
+        if (node instanceof LambdaFunctionNode || node instanceof GeneratorLambdaFunctionNode) return false;
+        return containsTensorFunction(node) && ! containsRandom(node);
+    }
+
+    private static boolean containsTensorFunction(ExpressionNode node) {
+        if (node instanceof TensorFunctionNode) return true;
+        for (ExpressionNode child : evaluatedChildren(node))
+            if (containsTensorFunction(child)) return true;
+        return false;
+    }
+
+    private static boolean containsRandom(ExpressionNode node) {
+        if (node instanceof TensorFunctionNode tensorFunction && tensorFunction.function() instanceof Random) return true;
+        if ( ! (node instanceof CompositeNode composite)) return false;
+        for (ExpressionNode child : composite.children())
+            if (containsRandom(child)) return true;
+        return false;
+    }
+
+    /** A function computing a common subexpression */
+    private record SharedFunction(int instance, ExpressionNode body) {
+
+        String instanceName() { return functionName + "@" + Integer.toHexString(instance); }
+
+        FunctionReference reference() {
+            return FunctionReference.fromSerial(RANKING_EXPRESSION_WRAPPER + "(" + instanceName() + ")").get();
+        }
+
+    }
+
+}
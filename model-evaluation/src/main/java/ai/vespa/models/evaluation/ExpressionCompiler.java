@@ -0,0 +1,563 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleCompatibleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.OperationNode;
+import com.yahoo.searchlib.rankingexpression.rule.Operator;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.SerializationContext;
+import com.yahoo.searchlib.rankingexpression.rule.SetMembershipNode;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.TypeContext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles the scalar parts of the body of a function into trees of specialized evaluation objects
+ * which read their inputs directly from the value indexes of the function's context.
+ * Compared to interpreting the expression nodes this avoids allocating a value at each step and
+ * resolving operator precedence on each evaluation, and gives the JIT small methods to inline.
+ *
+ * Tensor valued subexpressions are left as they are, such that bodies mixing scalars and tensors
+ * have their scalar subexpressions compiled.
+ *
+ * Compiled expressions can also be evaluated column-wise for a batch of rows, where each node is evaluated
+ * for all the rows before its parent, instead of evaluating the whole expression for one row at the time.
+ */
+final class ExpressionCompiler {
+
+    /**
+     * A compiled scalar expression, with a form evaluating a single context and a form evaluating
+     * all the rows of a batch column-wise.
+     */
+    record CompiledExpression(Row row, Column column) {
+
+        double evaluate(LazyArrayContext context) { return row.evaluate(context); }
+
+        double[] evaluate(Columns columns) { return column.evaluate(columns); }
+
+        interface Row {
+
+            double evaluate(LazyArrayContext context);
+
+        }
+
+        interface Column {
+
+            /** Returns a new array of the value of this in each row of the given columns */
+            double[] evaluate(Columns columns);
+
+        }
+
+    }
+
+    /** The values of a batch of rows, by the value indexes of the context of the function evaluated */
+    interface Columns {
+
+        /** Returns the number of rows */
+        int size();
+
+        /** Returns the value at the given index in each row. The returned array must not be modified. */
+        double[] column(int index);
+
+    }
+
+    private final ExpressionFunction function;
+    private final LazyArrayContext prototype;
+    private final DeclaredTypes types = new DeclaredTypes();
+
+    private ExpressionCompiler(ExpressionFunction function, LazyArrayContext prototype) {
+        this.function = function;
+        this.prototype = prototype;
+    }
+
+    /**
+     * Returns a copy of the body of the given function where the scalar subexpressions are replaced by
+     * compiled nodes, or empty if nothing in it could be compiled. The given function is not modified.
+     *
+     * @param function the function to compile
+     * @param prototype the context prototype of the function, whose value indexes the compiled nodes will read
+     */
+    static Optional<ExpressionNode> compile(ExpressionFunction function, LazyArrayContext prototype) {
+        if ( ! prototype.onnxModels().isEmpty()) return Optional.empty();
+        ExpressionNode root = function.getBody().getRoot();
+        ExpressionNode compiled = new ExpressionCompiler(function, prototype).compileSubexpressions(root);
+        return compiled == root ? Optional.empty() : Optional.of(compiled);
+    }
+
+    /** Returns the given node with its largest compilable subexpressions replaced by compiled nodes */
+    private ExpressionNode compileSubexpressions(ExpressionNode node) {
+        if ( ! (node instanceof CompositeNode) && ! isGbdt(node)) return node; // Nothing to gain
+        if (node instanceof ReferenceNode) return node;
+
+        CompiledExpression compiled = compile(node);
+        if (compiled != null) return new CompiledNode(compiled, node);
+
+        // Only descend into nodes which evaluate their children in this context (not e.g. tensor lambdas)
+        if ( ! isScalarOperation(node)) return node;
+        CompositeNode composite = (CompositeNode) node;
+        List<ExpressionNode> children = new ArrayList<>();
+        boolean changed = false;
+        for (ExpressionNode child : composite.children()) {
+            ExpressionNode compiledChild = compileSubexpressions(child);
+            changed |= compiledChild != child;
+            children.add(compiledChild);
+        }
+        return changed ? composite.setChildren(children) : node;
+    }
+
+    /** Returns the given node compiled, or null if it is not a scalar expression which can be compiled */
+    private CompiledExpression compile(ExpressionNode node) {
+        if (node instanceof ConstantNode constant) {
+            if ( ! (constant.getValue() instanceof DoubleCompatibleValue)) return null;
+            return constant(constant.getValue().asDouble());
+        }
+        if (node instanceof ReferenceNode reference)
+            return compileReference(reference);
+        if (node instanceof EmbracedNode embraced)
+            return compile(embraced.getValue());
+        if (node instanceof NegativeNode negative) {
+            CompiledExpression value = compile(negative.getValue());
+            if (value == null) return null;
+            return new CompiledExpression(context -> - value.evaluate(context), map(value, v -> - v));
+        }
+        if (node instanceof NotNode not) {
+            CompiledExpression value = compile(not.getValue());
+            if (value == null) return null;
+            return new CompiledExpression(context -> value.evaluate(context) != 0 ? 0 : 1, map(value, v -> v != 0 ? 0 : 1));
+        }
+        if (node instanceof IfNode ifNode)
+            return compileIf(ifNode);
+        if (node instanceof OperationNode operation)
+            return compileOperation(operation);
+        if (node instanceof FunctionNode functionNode)
+            return compileFunction(functionNode);
+        if (node instanceof SetMembershipNode membership)
+            return compileSetMembership(membership);
+        if (node instanceof GBDTNode gbdt)
+            return compileTree(gbdt.values());
+        if (node instanceof GBDTForestNode forest)
+            return compileForest(forest.values());
+        return null;
+    }
+
+    private CompiledExpression compileReference(ReferenceNode node) {
+        String name = valueName(node);
+        TensorType type;
+        try {
+            type = types.getType(name);
+        }
+        catch (IllegalArgumentException e) { // The type cannot be resolved from the declared types
+            return null;
+        }
+        if (type == null || type.rank() > 0) return null;
+        int index = prototype.getIndex(name);
+        return new CompiledExpression(context -> context.getDouble(index), columns -> columns.column(index).clone());
+    }
+
+    /** Returns the name the given reference node looks up its value by in a context */
+    private static String valueName(ReferenceNode node) {
+        if (node.reference().isIdentifier()) return node.reference().name();
+        String name = node.getName();
+        if (node.getArguments() != null && ! node.getArguments().expressions().isEmpty())
+            name = name + "(" + node.getArguments().expressions().stream()
+                                    .map(ExpressionNode::toString)
+                                    .collect(Collectors.joining(",")) + ")";
+        if (node.getOutput() != null)
+            name = name + "." + node.getOutput();
+        return name;
+    }
+
+    private CompiledExpression compileIf(IfNode node) {
+        CompiledExpression condition = compile(node.getCondition());
+        CompiledExpression ifTrue = compile(node.getTrueExpression());
+        CompiledExpression ifFalse = compile(node.getFalseExpression());
+        if (condition == null || ifTrue == null || ifFalse == null) return null;
+        return new CompiledExpression(context -> condition.evaluate(context) != 0 ? ifTrue.evaluate(context) : ifFalse.evaluate(context),
+                                      columns -> evaluateIf(condition, ifTrue, ifFalse, columns));
+    }
+
+    /** Evaluates each branch only for the rows selecting it, such that nested conditions are not evaluated for all rows */
+    private static double[] evaluateIf(CompiledExpression condition, CompiledExpression ifTrue, CompiledExpression ifFalse,
+                                       Columns columns) {
+        double[] values = condition.evaluate(columns);
+        int trueCount = 0;
+        for (double value : values)
+            if (value != 0) trueCount++;
+        if (trueCount == values.length) return ifTrue.evaluate(columns);
+        if (trueCount == 0) return ifFalse.evaluate(columns);
+
+        int[] trueRows = new int[trueCount];
+        int[] falseRows = new int[values.length - trueCount];
+        for (int row = 0, t = 0, f = 0; row < values.length; row++) {
+            if (values[row] != 0)
+                trueRows[t++] = row;
+            else
+                falseRows[f++] = row;
+        }
+        double[] trueValues = ifTrue.evaluate(new SelectedColumns(columns, trueRows));
+        double[] falseValues = ifFalse.evaluate(new SelectedColumns(columns, falseRows));
+        for (int i = 0; i < trueRows.length; i++)
+            values[trueRows[i]] = trueValues[i];
+        for (int i = 0; i < falseRows.length; i++)
+            values[falseRows[i]] = falseValues[i];
+        return values;
+    }
+
+    /** Compiles an operation by resolving the operator precedence the same way as OperationNode, but once */
+    private CompiledExpression compileOperation(OperationNode node) {
+        List<CompiledExpression> operands = new ArrayList<>();
+        for (ExpressionNode child : node.children()) {
+            CompiledExpression operand = compile(child);
+            if (operand == null) return null;
+            operands.add(operand);
+        }
+        for (Operator operator : node.operators())
+            if (operator == Operator.approxEqual) return null;
+
+        Iterator<CompiledExpression> operand = operands.iterator();
+        Deque<Operand> stack = new ArrayDeque<>();
+        stack.push(new Operand(null, operand.next()));
+        for (Iterator<Operator> it = node.operators().iterator(); it.hasNext() && operand.hasNext(); ) {
+            Operator operator = it.next();
+            while (stack.size() > 1 && ! operator.hasPrecedenceOver(stack.peek().operator))
+                popStack(stack);
+            stack.push(new Operand(operator, operand.next()));
+        }
+        while (stack.size() > 1)
+            popStack(stack);
+        return stack.getFirst().expression;
+    }
+
+    private static void popStack(Deque<Operand> stack) {
+        Operand right = stack.pop();
+        Operand left = stack.pop();
+        stack.push(new Operand(left.operator, compileOperator(right.operator, left.expression, right.expression)));
+    }
+
+    private static CompiledExpression compileOperator(Operator operator, CompiledExpression x, CompiledExpression y) {
+        CompiledExpression.Row row = switch (operator) {
+            case or -> context -> x.evaluate(context) != 0 || y.evaluate(context) != 0 ? 1 : 0;
+            case and -> context -> x.evaluate(context) != 0 && y.evaluate(context) != 0 ? 1 : 0;
+            case largerOrEqual -> context -> x.evaluate(context) >= y.evaluate(context) ? 1 : 0;
+            case larger -> context -> x.evaluate(context) > y.evaluate(context) ? 1 : 0;
+            case smallerOrEqual -> context -> x.evaluate(context) <= y.evaluate(context) ? 1 : 0;
+            case smaller -> context -> x.evaluate(context) < y.evaluate(context) ? 1 : 0;
+            case notEqual -> context -> x.evaluate(context) != y.evaluate(context) ? 1 : 0;
+            case equal -> context -> x.evaluate(context) == y.evaluate(context) ? 1 : 0;
+            case plus -> context -> x.evaluate(context) + y.evaluate(context);
+            case minus -> context -> x.evaluate(context) - y.evaluate(context);
+            case multiply -> context -> x.evaluate(context) * y.evaluate(context);
+            case divide -> context -> x.evaluate(context) / y.evaluate(context);
+            case modulo -> context -> x.evaluate(context) % y.evaluate(context);
+            case power -> context -> Function.pow.evaluate(x.evaluate(context), y.evaluate(context));
+            default -> throw new IllegalArgumentException("Cannot compile operator " + operator);
+        };
+        // Both operands of 'and' and 'or' are evaluated for all rows, which gives the same result as they have no side effects
+        CompiledExpression.Column column = switch (operator) {
+            case or -> join(x, y, (a, b) -> a != 0 || b != 0 ? 1 : 0);
+            case and -> join(x, y, (a, b) -> a != 0 && b != 0 ? 1 : 0);
+            case largerOrEqual -> join(x, y, (a, b) -> a >= b ? 1 : 0);
+            case larger -> join(x, y, (a, b) -> a > b ? 1 : 0);
+            case smallerOrEqual -> join(x, y, (a, b) -> a <= b ? 1 : 0);
+            case smaller -> join(x, y, (a, b) -> a < b ? 1 : 0);
+            case notEqual -> join(x, y, (a, b) -> a != b ? 1 : 0);
+            case equal -> join(x, y, (a, b) -> a == b ? 1 : 0);
+            case plus -> columns -> {
+                double[] a = x.evaluate(columns), b = y.evaluate(columns);
+                for (int i = 0; i < a.length; i++)
+                    a[i] += b[i];
+                return a;
+            };
+            case minus -> columns -> {
+                double[] a = x.evaluate(columns), b = y.evaluate(columns);
+                for (int i = 0; i < a.length; i++)
+                    a[i] -= b[i];
+                return a;
+            };
+            case multiply -> columns -> {
+                double[] a = x.evaluate(columns), b = y.evaluate(columns);
+                for (int i = 0; i < a.length; i++)
+                    a[i] *= b[i];
+                return a;
+            };
+            case divide -> columns -> {
+                double[] a = x.evaluate(columns), b = y.evaluate(columns);
+                for (int i = 0; i < a.length; i++)
+                    a[i] /= b[i];
+                return a;
+            };
+            case modulo -> join(x, y, (a, b) -> a % b);
+            case power -> join(x, y, Function.pow::evaluate);
+            default -> throw new IllegalArgumentException("Cannot compile operator " + operator);
+        };
+        return new CompiledExpression(row, column);
+    }
+
+    private CompiledExpression compileFunction(FunctionNode node) {
+        Function function = node.getFunction();
+        List<ExpressionNode> arguments = node.children();
+        if (arguments.isEmpty())
+            return constant(function.evaluate(0, 0));
+        if (arguments.size() > 2) return null;
+        CompiledExpression x = compile(arguments.get(0));
+        if (x == null) return null;
+        if (arguments.size() == 1)
+            return new CompiledExpression(context -> function.evaluate(x.evaluate(context), 0),
+                                          map(x, v -> function.evaluate(v, 0)));
+        CompiledExpression y = compile(arguments.get(1));
+        if (y == null) return null;
+        return new CompiledExpression(context -> function.evaluate(x.evaluate(context), y.evaluate(context)),
+                                      join(x, y, function::evaluate));
+    }
+
+    private CompiledExpression compileSetMembership(SetMembershipNode node) {
+        CompiledExpression testValue = compile(node.getTestValue());
+        if (testValue == null) return null;
+        CompiledExpression[] setValues = new CompiledExpression[node.getSetValues().size()];
+        for (int i = 0; i < setValues.length; i++) {
+            setValues[i] = compile(node.getSetValues().get(i));
+            if (setValues[i] == null) return null;
+        }
+        return new CompiledExpression(context -> {
+                                          double value = testValue.evaluate(context);
+                                          for (CompiledExpression setValue : setValues)
+                                              if (setValue.evaluate(context) == value) return 1;
+                                          return 0;
+                                      },
+                                      columns -> {
+                                          double[] values = testValue.evaluate(columns);
+                                          boolean[] found = new boolean[values.length];
+                                          for (CompiledExpression setValue : setValues) {
+                                              double[] candidates = setValue.evaluate(columns);
+                                              for (int i = 0; i < values.length; i++)
+                                                  found[i] |= candidates[i] == values[i];
+                                          }
+                                          for (int i = 0; i < values.length; i++)
+                                              values[i] = found[i] ? 1 : 0;
+                                          return values;
+                                      });
+    }
+
+    /** The instruction arrays of GBDT nodes are already a compiled form, which we evaluate without allocating values */
+    private static CompiledExpression compileTree(double[] values) {
+        return new CompiledExpression(context -> GBDTNode.evaluate(values, 0, context),
+                                      columns -> {
+                                          double[] results = new double[columns.size()];
+                                          ColumnsRow row = new ColumnsRow(columns);
+                                          for (row.index = 0; row.index < results.length; row.index++)
+                                              results[row.index] = GBDTNode.evaluate(values, 0, row);
+                                          return results;
+                                      });
+    }
+
+    /** Evaluates the forest one tree at the time for all rows, such that each tree is read once per batch */
+    private static CompiledExpression compileForest(double[] values) {
+        return new CompiledExpression(context -> {
+                                          double treeSum = 0;
+                                          for (int pc = 0; pc < values.length; ) {
+                                              int treeSize = (int)values[pc++];
+                                              treeSum += GBDTNode.evaluate(values, pc, context);
+                                              pc += treeSize;
+                                          }
+                                          return treeSum;
+                                      },
+                                      columns -> {
+                                          double[] treeSums = new double[columns.size()];
+                                          ColumnsRow row = new ColumnsRow(columns);
+                                          for (int pc = 0; pc < values.length; ) {
+                                              int treeSize = (int)values[pc++];
+                                              for (row.index = 0; row.index < treeSums.length; row.index++)
+                                                  treeSums[row.index] += GBDTNode.evaluate(values, pc, row);
+                                              pc += treeSize;
+                                          }
+                                          return treeSums;
+                                      });
+    }
+
+    private static CompiledExpression constant(double value) {
+        return new CompiledExpression(context -> value,
+                                      columns -> {
+                                          double[] values = new double[columns.size()];
+                                          Arrays.fill(values, value);
+                                          return values;
+                                      });
+    }
+
+    private static CompiledExpression.Column map(CompiledExpression x, DoubleUnaryOperator operator) {
+        return columns -> {
+            double[] values = x.evaluate(columns);
+            for (int i = 0; i < values.length; i++)
+                values[i] = operator.applyAsDouble(values[i]);
+            return values;
+        };
+    }
+
+    private static CompiledExpression.Column join(CompiledExpression x, CompiledExpression y, DoubleBinaryOperator operator) {
+        return columns -> {
+            double[] a = x.evaluate(columns), b = y.evaluate(columns);
+            for (int i = 0; i < a.length; i++)
+                a[i] = operator.applyAsDouble(a[i], b[i]);
+            return a;
+        };
+    }
+
+    private static boolean isGbdt(ExpressionNode node) {
+        return node instanceof GBDTNode || node instanceof GBDTForestNode;
+    }
+
+    private static boolean isScalarOperation(ExpressionNode node) {
+        return node instanceof OperationNode || node instanceof IfNode || node instanceof FunctionNode ||
+               node instanceof NegativeNode || node instanceof NotNode || node instanceof EmbracedNode;
+    }
+
+    private record Operand(Operator operator, CompiledExpression expression) {}
+
+    /**
+     * Resolves the types of the values of the context prototype from the declared argument types of the function,
+     * the constants, and the declared return types or bodies of the referenced functions, without evaluating anything.
+     * Referenced functions are resolved in this too, as their bodies are evaluated in the same context.
+     */
+    private final class DeclaredTypes implements TypeContext<Reference> {
+
+        /** Returns the type of the given value name, or null if it is not known */
+        @Override
+        public TensorType getType(String name) {
+            if (prototype.isMissing(name)) return null;
+            if (function.arguments().contains(name)) return function.getArgumentType(name);
+            Value value = prototype.get(prototype.getIndex(name));
+            if (value instanceof LazyValue referencedFunction) return referencedFunction.type(this);
+            return value.type();
+        }
+
+        @Override
+        public TensorType getType(Reference reference) { return getType(reference.toString()); }
+
+        @Override
+        public String resolveBinding(String argument) { return null; }
+
+    }
+
+    /** The rows at some indexes of other columns */
+    private static final class SelectedColumns implements Columns {
+
+        private final Columns columns;
+        private final int[] rows;
+        private double[][] selected = new double[16][];
+
+        SelectedColumns(Columns columns, int[] rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public int size() { return rows.length; }
+
+        @Override
+        public double[] column(int index) {
+            if (index >= selected.length)
+                selected = Arrays.copyOf(selected, Math.max(index + 1, selected.length * 2));
+            if (selected[index] == null) {
+                double[] all = columns.column(index);
+                double[] values = new double[rows.length];
+                for (int i = 0; i < rows.length; i++)
+                    values[i] = all[rows[i]];
+                selected[index] = values;
+            }
+            return selected[index];
+        }
+
+    }
+
+    /** A context reading the values of one row of some columns, to evaluate GBDT instructions */
+    private static final class ColumnsRow extends Context {
+
+        private final Columns columns;
+        private double[][] read = new double[16][];
+        private int index = 0;
+
+        ColumnsRow(Columns columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public double getDouble(int valueIndex) {
+            if (valueIndex >= read.length)
+                read = Arrays.copyOf(read, Math.max(valueIndex + 1, read.length * 2));
+            if (read[valueIndex] == null)
+                read[valueIndex] = columns.column(valueIndex);
+            return read[valueIndex][index];
+        }
+
+        @Override
+        public Value get(String name) { throw new UnsupportedOperationException("Values are only read by index"); }
+
+        @Override
+        public TensorType getType(Reference reference) { throw new UnsupportedOperationException("Types are not known"); }
+
+        @Override
+        public String resolveBinding(String argument) { return null; }
+
+    }
+
+    /** A node evaluating a compiled scalar expression, which serializes as the expression it was compiled from */
+    static final class CompiledNode extends ExpressionNode {
+
+        private final CompiledExpression expression;
+        private final ExpressionNode source;
+
+        CompiledNode(CompiledExpression expression, ExpressionNode source) {
+            this.expression = expression;
+            this.source = source;
+        }
+
+        /** Evaluates this directly to a double */
+        double evaluate(LazyArrayContext context) { return expression.evaluate(context); }
+
+        /** Evaluates this column-wise for each of the given rows */
+        double[] evaluate(Columns columns) { return expression.evaluate(columns); }
+
+        @Override
+        public Value evaluate(Context context) {
+            return new DoubleValue(expression.evaluate((LazyArrayContext)context));
+        }
+
+        @Override
+        public TensorType type(TypeContext<Reference> context) { return TensorType.empty; }
+
+        @Override
+        public StringBuilder toString(StringBuilder string, SerializationContext context, Deque<String> path, CompositeNode parent) {
+            return source.toString(string, context, path, parent);
+        }
+
+        @Override
+        public int hashCode() { return source.hashCode(); }
+
+    }
+
+}
@@ -2,13 +2,16 @@
 package ai.vespa.models.evaluation;
 
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.StringValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 /**
@@ -21,11 +24,16 @@ public class FunctionEvaluator {
 
     private final ExpressionFunction function;
     private final LazyArrayContext context;
+
+    /** The body of the function with scalar subexpressions compiled, or null to interpret the function body */
+    private ExpressionNode compiledBody;
+
     private boolean evaluated = false;
 
-    FunctionEvaluator(ExpressionFunction function, LazyArrayContext context) {
+    FunctionEvaluator(ExpressionFunction function, LazyArrayContext context, ExpressionNode compiledBody) {
         this.function = function;
         this.context = context;
+        this.compiledBody = compiledBody;
     }
 
     /**
@@ -36,17 +44,7 @@ public class FunctionEvaluator {
      * @return this for chaining
      */
     public FunctionEvaluator bind(String name, Tensor value) {
-        if (evaluated)
-            throw new IllegalStateException("Cannot bind a new value in a used evaluator");
-        TensorType requiredType = function.getArgumentType(name);
-        if (requiredType == null)
-            throw new IllegalArgumentException("'" + name + "' is not a valid argument in " + function +
-                                               ". Expected arguments: " +
-                    function.argumentTypes().entrySet().stream().sorted(Map.Entry.comparingByKey())
-                            .map(e -> e.getKey() + ": " + e.getValue())
-                            .collect(Collectors.joining(", ")));
-        if ( ! value.type().isAssignableTo(requiredType))
-            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + value.type());
+        requireBindable(name, value.type());
         context.put(name, new TensorValue(value));
         return this;
     }
@@ -60,7 +58,28 @@ public class FunctionEvaluator {
      * @return this for chaining
      */
     public FunctionEvaluator bind(String name, double value) {
-        return bind(name, Tensor.Builder.of(TensorType.empty).cell(value).build());
+        requireBindable(name, TensorType.empty);
+        context.put(name, DoubleValue.frozen(value)); // Cheaper to look up as a double than a tensor
+        return this;
+    }
+
+    private void requireBindable(String name, TensorType type) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot bind a new value in a used evaluator");
+        requireArgumentType(function, name, type);
+    }
+
+    /** Throws IllegalArgumentException if a value of the given type cannot be bound to the given argument */
+    static void requireArgumentType(ExpressionFunction function, String name, TensorType type) {
+        TensorType requiredType = function.getArgumentType(name);
+        if (requiredType == null)
+            throw new IllegalArgumentException("'" + name + "' is not a valid argument in " + function +
+                                               ". Expected arguments: " +
+                    function.argumentTypes().entrySet().stream().sorted(Map.Entry.comparingByKey())
+                            .map(e -> e.getKey() + ": " + e.getValue())
+                            .collect(Collectors.joining(", ")));
+        if ( ! type.isAssignableTo(requiredType))
+            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + type);
     }
 
     /**
@@ -75,6 +94,7 @@ public class FunctionEvaluator {
         if (evaluated)
             throw new IllegalStateException("Cannot bind a new value in a used evaluator");
         context.put(name, new StringValue(value));
+        compiledBody = null; // compiled expressions only handle numbers
         return this;
     }
 
@@ -88,6 +108,8 @@ public class FunctionEvaluator {
         if (evaluated)
             throw new IllegalStateException("Cannot change the missing value in a used evaluator");
         context.setMissingValue(value);
+        if (value.type().rank() > 0)
+            compiledBody = null; // compiled expressions only handle scalars
         return this;
     }
 
@@ -101,15 +123,40 @@ public class FunctionEvaluator {
         return setMissingValue(Tensor.Builder.of(TensorType.empty).cell(value).build());
     }
 
+    /**
+     * Sets a pool to use to evaluate parts of large tensor functions in parallel, or null (the default)
+     * to evaluate only in the calling thread. The result is the same in both cases.
+     *
+     * @param pool the pool to use for parallel evaluation, or null
+     * @return this for chaining
+     */
+    public FunctionEvaluator setForkJoinPool(ForkJoinPool pool) {
+        context.setForkJoinPool(pool);
+        return this;
+    }
+
     public Tensor evaluate() {
-        function.argumentTypes().entrySet().stream().sorted(Map.Entry.comparingByKey())
-                .forEach(argument -> checkArgument(argument.getKey(), argument.getValue()));
+        checkArguments(function, context);
         evaluated = true;
+        return evaluateUnchecked();
+    }
+
+    /** Evaluates the function without checking that the arguments are bound */
+    Tensor evaluateUnchecked() {
         evaluateOnnxModels();
+        if (compiledBody instanceof ExpressionCompiler.CompiledNode compiled)
+            return Tensor.Builder.of(TensorType.empty).cell(compiled.evaluate(context)).build();
+        if (compiledBody != null)
+            return compiledBody.evaluate(context).asTensor();
         return function.getBody().evaluate(context).asTensor();
     }
 
-    private void checkArgument(String name, TensorType type) {
+    static void checkArguments(ExpressionFunction function, LazyArrayContext context) {
+        function.argumentTypes().entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .forEach(argument -> checkArgument(argument.getKey(), argument.getValue(), context));
+    }
+
+    private static void checkArgument(String name, TensorType type, LazyArrayContext context) {
         if (context.isMissing(name))
             throw new IllegalStateException("Missing argument '" + name + "': Must be bound to a value of type " + type);
         if (! context.get(name).type().isAssignableTo(type))
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 /**
@@ -37,9 +38,12 @@ public final class LazyArrayContext extends Context implements ContextIndex {
     private final ExpressionFunction function;
     private final IndexedBindings indexedBindings;
 
-    private LazyArrayContext(ExpressionFunction function, IndexedBindings indexedBindings) {
+    private ForkJoinPool forkJoinPool = null;
+
+    private LazyArrayContext(ExpressionFunction function, IndexedBindings indexedBindings, ForkJoinPool forkJoinPool) {
         this.function = function;
         this.indexedBindings = indexedBindings.copy(this);
+        this.forkJoinPool = forkJoinPool;
     }
 
     /** Create a fast lookup, lazy context for a function */
@@ -117,6 +121,14 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         return null;
     }
 
+    /** Sets the pool to use to evaluate parts of large tensor functions in parallel, or null to not do so */
+    void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    @Override
+    public ForkJoinPool forkJoinPool() { return forkJoinPool; }
+
     @Override
     public int size() {
         return indexedBindings.names().size();
@@ -152,7 +164,7 @@ public final class LazyArrayContext extends Context implements ContextIndex {
      * in a different thread or for re-binding free variables.
      */
     LazyArrayContext copy() {
-        return new LazyArrayContext(function, indexedBindings);
+        return new LazyArrayContext(function, indexedBindings, forkJoinPool);
     }
 
     private static class IndexedBindings {
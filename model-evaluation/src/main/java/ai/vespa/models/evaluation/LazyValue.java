@@ -1,11 +1,13 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.models.evaluation;
 
+import com.yahoo.searchlib.rankingexpression.Reference;
 import com.yahoo.searchlib.rankingexpression.evaluation.Context;
 import com.yahoo.searchlib.rankingexpression.evaluation.Value;
 import com.yahoo.searchlib.rankingexpression.rule.Function;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.TypeContext;
 
 /**
  * A Value which is computed from an expression when first requested.
@@ -40,7 +42,18 @@ class LazyValue extends Value {
 
     @Override
     public TensorType type() {
-        return model.requireReferencedFunction(function).returnType().get();
+        var returnType = model.requireReferencedFunction(function).returnType();
+        if (returnType.isPresent()) return returnType.get();
+        return computedValue().type(); // the type of e.g common subexpressions depends on the context
+    }
+
+    /**
+     * Returns the type of this without computing it: The declared return type of the function, or else
+     * the type of its body resolved in the given context.
+     */
+    TensorType type(TypeContext<Reference> context) {
+        var function = model.requireReferencedFunction(this.function);
+        return function.returnType().orElseGet(() -> function.getBody().type(context));
     }
 
     @Override
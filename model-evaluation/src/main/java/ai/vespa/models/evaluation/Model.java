@@ -17,9 +17,11 @@ import com.yahoo.searchlib.rankingexpression.transform.ExpressionTransformer;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -50,6 +52,12 @@ public class Model implements AutoCloseable {
     /** Context prototypes, indexed by function name (as all invocations of the same function share the same context prototype) */
     private final Map<String, LazyArrayContext> contextPrototypes;
 
+    /** Bodies of the free functions where scalar subexpressions are compiled, indexed by function name */
+    private final Map<String, ExpressionNode> compiledBodies;
+
+    /** The functions computing subexpressions shared by the functions of this */
+    private final Map<FunctionReference, ExpressionFunction> commonSubexpressions;
+
     private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
 
     private final List<Runnable> closeActions;
@@ -128,6 +136,10 @@ public class Model implements AutoCloseable {
           List<OnnxModel> onnxModels) {
         this.name = name;
 
+        functions = new LinkedHashMap<>(functions);
+        referencedFunctions = new LinkedHashMap<>(referencedFunctions);
+        this.commonSubexpressions = CommonSubexpressions.eliminate(functions, referencedFunctions);
+
         var bindingExtractor = new BindingExtractor(referencedFunctions, onnxModels);
 
         // Build context and add missing function arguments (missing because it is legal to omit scalar type arguments)
@@ -169,17 +181,22 @@ public class Model implements AutoCloseable {
             }
         }
         this.contextPrototypes = Map.copyOf(contextBuilder);
+        this.referencedFunctions = Map.copyOf(referencedFunctions); // Before compiling, which resolves their types
         // Optimize free functions
         this.functions = List.copyOf(functions.entrySet()
                                      .stream()
                                      .map(f -> optimize(f.getValue(),
                                                         contextPrototypes.get(f.getKey().functionName())))
                                      .collect(Collectors.toList()));
+        Map<String, ExpressionNode> compiledBuilder = new LinkedHashMap<>();
+        for (ExpressionFunction function : this.functions)
+            ExpressionCompiler.compile(function, contextPrototypes.get(function.getName()))
+                              .ifPresent(body -> compiledBuilder.put(function.getName(), body));
+        this.compiledBodies = Map.copyOf(compiledBuilder);
 
         this.publicFunctions = functions.values().stream()
                 .filter(f -> !f.getName().startsWith(INTERMEDIATE_OPERATION_FUNCTION_PREFIX)).toList();
 
-        this.referencedFunctions = Map.copyOf(referencedFunctions);
         this.closeActions = onnxModels.stream().map(o -> (Runnable)o::close).toList();
     }
 
@@ -217,6 +234,9 @@ public class Model implements AutoCloseable {
         return null;
     }
 
+    /** Returns the body of the given function where scalar subexpressions are compiled, or empty if none are */
+    Optional<ExpressionNode> compiledBody(String name) { return Optional.ofNullable(compiledBodies.get(name)); }
+
     /** Returns an immutable map of the referenced function instances of this */
     Map<FunctionReference, ExpressionFunction> referencedFunctions() { return Map.copyOf(referencedFunctions); }
 
@@ -245,21 +265,44 @@ public class Model implements AutoCloseable {
      * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
      */
     public FunctionEvaluator evaluatorOf(String ... names) {  // TODO: Parameter overloading?
+        return evaluatorOf(requireFunction(names));
+    }
+
+    /**
+     * Returns an evaluator which can be used to evaluate the given function over a batch of argument values once.
+     *
+     * Usage:
+     * <code>List&lt;Tensor&gt; results = model.batchEvaluatorOf(hits.size(), "myFunction").bind("foo", fooValues).evaluate()</code>
+     *
+     * @param size the number of rows of argument values to evaluate the function for
+     * @param names the names identifying the function, as in {@link #evaluatorOf}
+     * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
+     */
+    public BatchFunctionEvaluator batchEvaluatorOf(int size, String ... names) {
+        ExpressionFunction function = requireFunction(names);
+        return new BatchFunctionEvaluator(function,
+                                          requireContextPrototype(function.getName()),
+                                          compiledBodies.get(function.getName()),
+                                          size);
+    }
+
+    /** Returns the function identified by the given names, as described in evaluatorOf */
+    private ExpressionFunction requireFunction(String ... names) {
         if (names.length == 0) {
             if (functions.size() > 1)
                 throwUndeterminedFunction("More than one function is available in " + this + ", but no name is given");
-            return evaluatorOf(functions.get(0));
+            return functions.get(0);
         }
         else if (names.length == 1) {
             String name = names[0];
             ExpressionFunction function = function(name);
-            if (function != null) return evaluatorOf(function);
+            if (function != null) return function;
 
             // Check if the name is a signature
             List<ExpressionFunction> functionsStartingByName =
                     functions.stream().filter(f -> f.getName().startsWith(name + ".")).toList();
             if (functionsStartingByName.size() == 1)
-                return evaluatorOf(functionsStartingByName.get(0));
+                return functionsStartingByName.get(0);
             if (functionsStartingByName.size() > 1)
                 throwUndeterminedFunction("Multiple functions start by '" + name + "' in " + this);
 
@@ -267,24 +310,24 @@ public class Model implements AutoCloseable {
             List<ExpressionFunction> functionsEndingByName =
                     functions.stream().filter(f -> f.getName().endsWith("." + name)).toList();
             if (functionsEndingByName.size() == 1)
-                return evaluatorOf(functionsEndingByName.get(0));
+                return functionsEndingByName.get(0);
             if (functionsEndingByName.size() > 1)
                 throwUndeterminedFunction("Multiple functions called '" + name + "' in " + this);
 
             // To handle TensorFlow conversion to ONNX
             if (name.startsWith("serving_default")) {
-                return evaluatorOf("default" + name.substring("serving_default".length()));
+                return requireFunction("default" + name.substring("serving_default".length()));
             }
 
             // To handle backward compatibility with ONNX conversion to native Vespa ranking expressions
             if (name.startsWith("default.")) {
-                return evaluatorOf(name.substring("default.".length()));
+                return requireFunction(name.substring("default.".length()));
             }
 
             throwUndeterminedFunction("No function '" + name + "' in " + this);
         }
         else if (names.length == 2) {
-            return evaluatorOf(names[0] + "." + names[1]);
+            return requireFunction(names[0] + "." + names[1]);
         }
         throw new IllegalArgumentException("No more than 2 names can be given when choosing a function, got " +
                                            Arrays.toString(names));
@@ -292,7 +335,24 @@ public class Model implements AutoCloseable {
 
     /** Returns a single-use evaluator of a function */
     private FunctionEvaluator evaluatorOf(ExpressionFunction function) {
-        return new FunctionEvaluator(function, requireContextPrototype(function.getName()).copy());
+        return new FunctionEvaluator(function,
+                                     requireContextPrototype(function.getName()).copy(),
+                                     compiledBodies.get(function.getName()));
+    }
+
+    /**
+     * Returns a description of the functions of this as they are evaluated, for debugging:
+     * The optimized body of each function, followed by the subexpressions which occur multiple times in
+     * the functions and are therefore evaluated once per evaluation and referenced where they occur.
+     */
+    public String explain() {
+        StringBuilder b = new StringBuilder();
+        for (ExpressionFunction function : functions.stream().sorted(Comparator.comparing(ExpressionFunction::getName)).toList())
+            b.append(function.getName()).append(": ").append(function.getBody().getRoot()).append("\n");
+        for (var subexpression : commonSubexpressions.entrySet())
+            b.append(subexpression.getKey().serialForm()).append(": ")
+             .append(subexpression.getValue().getBody().getRoot()).append("\n");
+        return b.toString();
     }
 
     private void throwUndeterminedFunction(String message) {
@@ -73,6 +73,18 @@ public class ModelsEvaluator extends AbstractComponent {
         return requireModel(modelName).evaluatorOf(names);
     }
 
+    /**
+     * Returns a function which can be used to evaluate the given function in the given model for a batch of arguments
+     *
+     * @param modelName the name of the model
+     * @param size the number of rows of argument values to evaluate the function for
+     * @param names the 0-2 name components identifying the output to compute
+     * @throws IllegalArgumentException if the function or model is not present
+     */
+    public BatchFunctionEvaluator batchEvaluatorOf(String modelName, int size, String ... names) {
+        return requireModel(modelName).batchEvaluatorOf(size, names);
+    }
+
     /** Returns the given model, or throws a IllegalArgumentException if it does not exist */
     public Model requireModel(String name) {
         Model model = models.get(name);
@@ -6,7 +6,6 @@ import ai.vespa.modelintegration.evaluator.OnnxRuntime;
 import com.yahoo.collections.Pair;
 import com.yahoo.config.FileReference;
 import com.yahoo.filedistribution.fileacquirer.FileAcquirer;
-import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.io.IOUtils;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
@@ -270,8 +269,7 @@ public class RankProfilesConfigImporter {
         try {
             File file = fileAcquirer.waitFor(fileReference, 7, TimeUnit.DAYS);
             if (file.getName().endsWith(".tbf")) {
-                return TypedBinaryFormat.decode(Optional.of(type),
-                                                GrowableByteBuffer.wrap(IOUtils.readFileBytes(file)));
+                return TypedBinaryFormat.decode(Optional.of(type), file.toPath()); // dense tensors are memory-mapped
             } else if (file.getName().endsWith(".json")) {
                 return com.yahoo.tensor.serialization.JsonFormat.decode(type, IOUtils.readFileBytes(file));
             } else {
@@ -0,0 +1,206 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.yolean.Exceptions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests evaluating functions for batches of arguments.
+ */
+public class BatchFunctionEvaluatorTest {
+
+    private final Random random = new Random(3);
+
+    @Test
+    public void testScalarFunction() {
+        Model model = model("if (a > b, a * c, b + c) + d");
+        int size = 50;
+        double[] a = randomColumn(size), b = randomColumn(size);
+        List<Tensor> c = new ArrayList<>();
+        for (int i = 0; i < size; i++)
+            c.add(Tensor.from(random.nextDouble()));
+
+        List<Tensor> results = model.batchEvaluatorOf(size).bind("a", a).bind("b", b).bind("c", c).bind("d", 2).evaluate();
+        assertEquals(size, results.size());
+        for (int i = 0; i < size; i++) {
+            Tensor expected = model.evaluatorOf().bind("a", a[i]).bind("b", b[i]).bind("c", c.get(i)).bind("d", 2).evaluate();
+            assertEquals(expected, results.get(i));
+        }
+    }
+
+    @Test
+    public void testColumnWiseEvaluation() {
+        Model model = model("if (a > 0.5, if (b in [0.25, 0.5], -a, max(a, c) ^ 2), if (!(a < b) && b > 0, a % 0.3, b / a)) + 1");
+        assertCompiledAsScalar(model);
+        int size = 200;
+        double[] a = randomColumn(size), b = randomColumn(size);
+        for (int i = 0; i < size; i += 3)
+            b[i] = 0.5;
+        List<Tensor> results = model.batchEvaluatorOf(size).bind("a", a).bind("b", b).bind("c", 0.75).evaluate();
+        for (int i = 0; i < size; i++)
+            assertEquals(model.evaluatorOf().bind("a", a[i]).bind("b", b[i]).bind("c", 0.75).evaluate(), results.get(i));
+    }
+
+    @Test
+    public void testReferencedFunctionsAreComputedForEachRow() {
+        ExpressionFunction referenced = new ExpressionFunction("foo", RankingExpression.from("a * 3 + b"))
+                                                .withReturnType(TensorType.empty);
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("rankingExpression(foo) * 2 + a"));
+        Model model = new Model("test",
+                                Map.of(FunctionReference.fromName("test"), function),
+                                Map.of(FunctionReference.fromName("foo"), referenced),
+                                Map.of(), List.of(), List.of());
+        assertCompiledAsScalar(model);
+        List<Tensor> results = model.batchEvaluatorOf(3).bind("a", new double[] { 1, 2, 3 }).bind("b", 10).evaluate();
+        assertEquals(List.of(Tensor.from(27.0), Tensor.from(34.0), Tensor.from(41.0)), results);
+    }
+
+    @Test
+    public void testTensorArgumentsOfReferencedFunctions() {
+        ExpressionFunction referenced = new ExpressionFunction("foo", RankingExpression.from("sum(t)"))
+                                                .withArgument("t", TensorType.fromSpec("tensor(x[2])"))
+                                                .withReturnType(TensorType.empty);
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("rankingExpression(foo) + a"))
+                                              .withArgument("t", TensorType.fromSpec("tensor(x[2])"));
+        Model model = new Model("test",
+                                Map.of(FunctionReference.fromName("test"), function),
+                                Map.of(FunctionReference.fromName("foo"), referenced),
+                                Map.of(), List.of(), List.of());
+        assertCompiledAsScalar(model);
+        List<Tensor> t = List.of(Tensor.from("tensor(x[2]):[1, 2]"), Tensor.from("tensor(x[2]):[3, 4]"));
+        List<Tensor> results = model.batchEvaluatorOf(2).bind("t", t).bind("a", new double[] { 10, 20 }).evaluate();
+        assertEquals(List.of(Tensor.from(13.0), Tensor.from(27.0)), results);
+    }
+
+    @Test
+    public void testTensorFunction() {
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("sum(t * w) * a"))
+                                              .withArgument("t", TensorType.fromSpec("tensor(x[2])"))
+                                              .withArgument("w", TensorType.fromSpec("tensor(x[2])"));
+        Model model = new Model("test", List.of(function));
+        List<Tensor> t = List.of(Tensor.from("tensor(x[2]):[1, 2]"), Tensor.from("tensor(x[2]):[3, 4]"));
+        List<Tensor> results = model.batchEvaluatorOf(2)
+                                    .bind("t", t)
+                                    .bind("w", Tensor.from("tensor(x[2]):[10, 100]"))
+                                    .bind("a", new double[] { 1, 2 })
+                                    .evaluate();
+        assertEquals(List.of(Tensor.from(210.0), Tensor.from(860.0)), results);
+    }
+
+    @Test
+    public void testParallelEvaluation() {
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("reduce(map(t, f(x)(x * x)) * w, sum, y) * a"))
+                                              .withArgument("t", TensorType.fromSpec("tensor(x[100],y[1000])"))
+                                              .withArgument("w", TensorType.fromSpec("tensor(x[100],y[1000])"));
+        Model model = new Model("test", List.of(function));
+        Tensor.Builder tBuilder = Tensor.Builder.of(TensorType.fromSpec("tensor(x[100],y[1000])"));
+        Tensor.Builder wBuilder = Tensor.Builder.of(TensorType.fromSpec("tensor(x[100],y[1000])"));
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 1000; y++) {
+                tBuilder.cell(random.nextDouble(), x, y);
+                wBuilder.cell(random.nextDouble(), x, y);
+            }
+        }
+        Tensor t = tBuilder.build(), w = wBuilder.build();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Tensor expected = model.evaluatorOf().bind("t", t).bind("w", w).bind("a", 2).evaluate();
+            assertEquals(expected, model.evaluatorOf().setForkJoinPool(pool).bind("t", t).bind("w", w).bind("a", 2).evaluate());
+            assertEquals(List.of(expected, expected),
+                         model.batchEvaluatorOf(2).setForkJoinPool(pool).bind("t", List.of(t, t)).bind("w", w).bind("a", 2).evaluate());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testGbdtFunction() {
+        Model model = new ModelTester("src/test/resources/config/models/").models().get("lightgbm_regression");
+        List<String> arguments = List.copyOf(model.functions().get(0).arguments());
+        int size = 20;
+        assertCompiledAsScalar(model);
+        BatchFunctionEvaluator batch = model.batchEvaluatorOf(size);
+        List<double[]> columns = new ArrayList<>();
+        for (String argument : arguments) {
+            columns.add(randomColumn(size));
+            batch.bind(argument, columns.get(columns.size() - 1));
+        }
+        List<Tensor> results = batch.evaluate();
+        for (int i = 0; i < size; i++) {
+            FunctionEvaluator evaluator = model.evaluatorOf();
+            for (int argument = 0; argument < arguments.size(); argument++)
+                evaluator.bind(arguments.get(argument), columns.get(argument)[i]);
+            assertEquals(evaluator.evaluate(), results.get(i));
+        }
+    }
+
+    @Test
+    public void testMissingValues() {
+        Model model = model("a + b");
+        assertEquals(List.of(Tensor.from(6.0), Tensor.from(7.0)),
+                     model.batchEvaluatorOf(2).setMissingValue(5).bind("a", new double[] { 1, 2 }).evaluate());
+
+        List<Tensor> results = model.batchEvaluatorOf(1).bind("a", new double[] { 1 }).evaluate();
+        assertEquals(Double.NaN, results.get(0).asDouble(), 0);
+    }
+
+    @Test
+    public void testBindingValidation() {
+        Model model = model("a + b");
+        try {
+            model.batchEvaluatorOf(2).bind("a", new double[] { 1, 2, 3 });
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("'a' must be bound to 2 values, but got 3", Exceptions.toMessageString(e));
+        }
+        try {
+            model.batchEvaluatorOf(1).bind("a", List.of(Tensor.from("tensor(x[1]):[1]")));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("'a' must be of type tensor(), not tensor(x[1])", Exceptions.toMessageString(e));
+        }
+        try {
+            model.batchEvaluatorOf(1).bind("c", new double[] { 1 });
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("'c' is not a valid argument in function 'test'. Expected arguments: a: tensor(), b: tensor()",
+                         Exceptions.toMessageString(e));
+        }
+    }
+
+    /** Asserts that the function of the given model is evaluated column-wise in batches */
+    private static void assertCompiledAsScalar(Model model) {
+        String name = model.functions().get(0).getName();
+        assertTrue(model.compiledBody(name).orElse(null) instanceof ExpressionCompiler.CompiledNode);
+    }
+
+    private double[] randomColumn(int size) {
+        double[] column = new double[size];
+        for (int i = 0; i < size; i++)
+            column[i] = random.nextDouble() * 4 - 2;
+        return column;
+    }
+
+    private static Model model(String expression) {
+        return new Model("test", List.of(new ExpressionFunction("test", RankingExpression.from(expression))));
+    }
+
+}
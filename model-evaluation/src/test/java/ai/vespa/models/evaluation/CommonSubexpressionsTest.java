@@ -0,0 +1,72 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests evaluating functions where subexpressions occurring multiple times are shared.
+ */
+public class CommonSubexpressionsTest {
+
+    private final Tensor a = Tensor.from("tensor(x[3]):[1, 2, 3]");
+    private final Tensor b = Tensor.from("tensor(x[3]):[4, 5, 6]");
+
+    @Test
+    public void testSharingAcrossFunctions() {
+        Model model = new Model("test", List.of(function("first", "sum(a * b) + sum(a * b) * 2"),
+                                                function("second", "max(sum(a * b), sum(a)) - sum(a)")));
+        assertEquals("first: rankingExpression(common_subexpression@0) + rankingExpression(common_subexpression@0) * 2\n" +
+                     "second: max(rankingExpression(common_subexpression@0),rankingExpression(common_subexpression@1)) - rankingExpression(common_subexpression@1)\n" +
+                     "rankingExpression(common_subexpression@0): reduce(a * b, sum)\n" +
+                     "rankingExpression(common_subexpression@1): reduce(a, sum)\n",
+                     model.explain());
+        assertEquals(Tensor.from(96.0), evaluate(model, "first"));
+        assertEquals(Tensor.from(26.0), evaluate(model, "second"));
+    }
+
+    @Test
+    public void testNestedSharing() {
+        Model model = new Model("test", List.of(function("first", "sum(a * b) * sum(a * b) + sum(sum(a * b) * b)"),
+                                                function("second", "sum(sum(a * b) * b)")));
+        // The body of second is not shared with first as function bodies are not subexpressions,
+        // and the occurrence of sum(a * b) inside the shared sum(a * b) * b is counted once
+        assertEquals("first: rankingExpression(common_subexpression@1) * rankingExpression(common_subexpression@1) + reduce(rankingExpression(common_subexpression@0), sum)\n" +
+                     "second: reduce(rankingExpression(common_subexpression@0), sum)\n" +
+                     "rankingExpression(common_subexpression@0): rankingExpression(common_subexpression@1) * b\n" +
+                     "rankingExpression(common_subexpression@1): reduce(a * b, sum)\n",
+                     model.explain());
+        assertEquals(Tensor.from(32 * 32 + 32 * 15), evaluate(model, "first"));
+        assertEquals(Tensor.from(32 * 15), evaluate(model, "second"));
+    }
+
+    @Test
+    public void testUnsharedSubexpressions() {
+        Model model = new Model("test", List.of(function("first", "sum(map(a, f(x)(x * x))) + sum(map(a, f(x)(x * x))) * sum(b)"),
+                                                function("second", "a * b + a * b")));
+        assertEquals("first: rankingExpression(common_subexpression@0) + rankingExpression(common_subexpression@0) * reduce(b, sum)\n" +
+                     "second: a * b + a * b\n" +
+                     "rankingExpression(common_subexpression@0): reduce(map(a, f(x)(x * x)), sum)\n",
+                     model.explain());
+        assertEquals(Tensor.from(224.0), evaluate(model, "first"));
+        assertEquals(Tensor.from("tensor(x[3]):[8, 20, 36]"), evaluate(model, "second"));
+    }
+
+    private Tensor evaluate(Model model, String function) {
+        return model.evaluatorOf(function).bind("a", a).bind("b", b).evaluate();
+    }
+
+    private static ExpressionFunction function(String name, String expression) {
+        return new ExpressionFunction(name, RankingExpression.from(expression))
+                       .withArgument("a", TensorType.fromSpec("tensor(x[3])"))
+                       .withArgument("b", TensorType.fromSpec("tensor(x[3])"));
+    }
+
+}
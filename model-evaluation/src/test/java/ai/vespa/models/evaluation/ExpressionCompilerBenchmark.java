@@ -0,0 +1,80 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares evaluating compiled and interpreted function bodies, for a generated GBDT model and a scalar expression.
+ */
+public class ExpressionCompilerBenchmark {
+
+    private static final int features = 20;
+
+    private final Random random = new Random(42);
+
+    public void run() {
+        runFunction("GBDT of 300 trees of depth 6", forest(300, 6), 200_000);
+        runFunction("scalar expression", "if (f0 > 0.5, f1 * f2 + sigmoid(f3), f4 - f5 / (1 + f6)) + pow(f7, 2) + max(f8, f9)",
+                    5_000_000);
+    }
+
+    private void runFunction(String name, String expression, int iterations) {
+        Model model = new Model("test", List.of(new ExpressionFunction("test", RankingExpression.from(expression))));
+        FunctionEvaluator[] evaluators = new FunctionEvaluator[1000];
+        for (int i = 0; i < evaluators.length; i++) {
+            evaluators[i] = model.evaluatorOf();
+            for (String argument : evaluators[i].function().arguments())
+                evaluators[i].bind(argument, random.nextDouble());
+        }
+        ExpressionNode interpreted = evaluators[0].function().getBody().getRoot();
+        ExpressionNode compiled = ExpressionCompiler.compile(evaluators[0].function(), evaluators[0].context()).get();
+
+        for (int round = 0; round < 5; round++) {
+            long interpretedTime = time(interpreted, evaluators, iterations);
+            long compiledTime = time(compiled, evaluators, iterations);
+            System.out.printf("%s: %d iterations interpreted: %d ms, compiled: %d ms (%.1fx)%n", name, iterations,
+                              interpretedTime, compiledTime, (double)interpretedTime / compiledTime);
+        }
+    }
+
+    private long time(ExpressionNode expression, FunctionEvaluator[] evaluators, int iterations) {
+        double sum = 0;
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < iterations; i++)
+            sum += expression.evaluate(evaluators[i % evaluators.length].context()).asDouble();
+        long time = System.currentTimeMillis() - startTime;
+        if (sum == 17) System.out.println(); // Use the result
+        return time;
+    }
+
+    private String forest(int trees, int depth) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < trees; i++) {
+            if (i > 0) b.append(" + ");
+            tree(depth, b);
+        }
+        return b.toString();
+    }
+
+    private void tree(int depth, StringBuilder b) {
+        if (depth == 0) {
+            b.append(random.nextDouble() - 0.5);
+            return;
+        }
+        b.append("if (f").append(random.nextInt(features)).append(" < ").append(random.nextDouble()).append(", ");
+        tree(depth - 1, b);
+        b.append(", ");
+        tree(depth - 1, b);
+        b.append(")");
+    }
+
+    public static void main(String[] args) {
+        new ExpressionCompilerBenchmark().run();
+    }
+
+}
@@ -0,0 +1,146 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that compiled expressions evaluate to the same as the interpreted expressions.
+ */
+public class ExpressionCompilerTest {
+
+    private final Random random = new Random(17);
+
+    @Test
+    public void testScalarExpressions() {
+        assertCompiledAsScalar("a + b * c - a / b % c ^ 2");
+        assertCompiledAsScalar("2 ^ 3 ^ 2 + a");
+        assertCompiledAsScalar("-(a - b) * (c + 1)");
+        assertCompiledAsScalar("if (a > b, if (b >= c && !(a == c), a, b), c * 2) + 1");
+        assertCompiledAsScalar("(a < 0.5) + (b <= 0.5) + (c != 0.5) + (a < b || b < c)");
+        assertCompiledAsScalar("max(a, b) + min(b, c) + sqrt(a) + exp(-b) + sigmoid(c) + atan2(a, b)");
+        assertCompiledAsScalar("if (a in [0.25, b, 0.75], 1, 0) + c");
+    }
+
+    @Test
+    public void testMixedExpressions() {
+        String expression = "sum(t * (a + b)) + (a * if (c > 0.5, b, 2))";
+        Model model = model(expression, Map.of("t", TensorType.fromSpec("tensor(x[3])")));
+        ExpressionNode compiled = compiledBody(model).get();
+        assertFalse(compiled instanceof ExpressionCompiler.CompiledNode);
+        assertEquals(model.functions().get(0).getBody().getRoot().toString(), compiled.toString());
+
+        for (int i = 0; i < 10; i++) {
+            FunctionEvaluator evaluator = bindRandom(model.evaluatorOf());
+            evaluator.bind("t", Tensor.from("tensor(x[3]):[" + random.nextDouble() + ", 2, 3]"));
+            assertEvaluatesAsInterpreted(evaluator);
+        }
+    }
+
+    @Test
+    public void testTensorExpressionsAreNotCompiled() {
+        Model model = model("sum(t * 2)", Map.of("t", TensorType.fromSpec("tensor(x[3])")));
+        assertTrue(compiledBody(model).isEmpty());
+    }
+
+    @Test
+    public void testGbdtExpressions() {
+        ModelTester tester = new ModelTester("src/test/resources/config/models/");
+        for (String name : List.of("xgboost_2_2", "lightgbm_regression")) {
+            Model model = tester.models().get(name);
+            assertTrue(compiledBody(model).get() instanceof ExpressionCompiler.CompiledNode);
+            for (int i = 0; i < 100; i++) {
+                FunctionEvaluator evaluator = model.evaluatorOf();
+                for (String argument : model.functions().get(0).arguments())
+                    evaluator.bind(argument, random.nextInt(3) == 0 ? random.nextInt(3) : random.nextDouble() * 4 - 2);
+                assertEvaluatesAsInterpreted(evaluator);
+            }
+        }
+    }
+
+    @Test
+    public void testReferencedFunctionsAreCompiled() {
+        ExpressionFunction referenced = new ExpressionFunction("foo", RankingExpression.from("a * 3 + b"))
+                                                .withReturnType(TensorType.empty);
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("rankingExpression(foo) * 2 + a"));
+        Model model = new Model("test",
+                                Map.of(FunctionReference.fromName("test"), function),
+                                Map.of(FunctionReference.fromName("foo"), referenced),
+                                Map.of(), List.of(), List.of());
+        assertTrue(compiledBody(model).get() instanceof ExpressionCompiler.CompiledNode);
+        for (int i = 0; i < 100; i++)
+            assertEvaluatesAsInterpreted(bindRandom(model.evaluatorOf()));
+    }
+
+    @Test
+    public void testCommonSubexpressionsAreCompiled() {
+        // sum(t * u) is computed by a common subexpression function, without a declared type
+        Model model = model("sum(t * u) + sum(t * u) * a", Map.of("t", TensorType.fromSpec("tensor(x[3])"),
+                                                                  "u", TensorType.fromSpec("tensor(x[3])")));
+        assertTrue(model.functions().get(0).getBody().toString().contains("rankingExpression(common_subexpression@0)"));
+        assertTrue(compiledBody(model).get() instanceof ExpressionCompiler.CompiledNode);
+        for (int i = 0; i < 10; i++) {
+            FunctionEvaluator evaluator = bindRandom(model.evaluatorOf());
+            evaluator.bind("t", Tensor.from("tensor(x[3]):[" + random.nextDouble() + ", 2, 3]"));
+            evaluator.bind("u", Tensor.from("tensor(x[3]):[1, " + random.nextDouble() + ", 3]"));
+            assertEvaluatesAsInterpreted(evaluator);
+        }
+    }
+
+    @Test
+    public void testMissingValues() {
+        Model model = model("a + b * c", Map.of());
+        FunctionEvaluator evaluator = model.evaluatorOf();
+        evaluator.bind("a", 1);
+        assertTrue(Double.isNaN(evaluator.evaluate().asDouble()));
+
+        evaluator = model.evaluatorOf().setMissingValue(2);
+        evaluator.bind("a", 1);
+        assertEquals(5.0, evaluator.evaluate().asDouble(), 0);
+    }
+
+    private void assertCompiledAsScalar(String expression) {
+        Model model = model(expression, Map.of());
+        assertTrue(expression, compiledBody(model).get() instanceof ExpressionCompiler.CompiledNode);
+        for (int i = 0; i < 100; i++)
+            assertEvaluatesAsInterpreted(bindRandom(model.evaluatorOf()));
+    }
+
+    private FunctionEvaluator bindRandom(FunctionEvaluator evaluator) {
+        for (String argument : List.of("a", "b", "c"))
+            if (evaluator.function().arguments().contains(argument))
+                evaluator.bind(argument, random.nextInt(4) == 0 ? 0.5 : random.nextDouble());
+        return evaluator;
+    }
+
+    private void assertEvaluatesAsInterpreted(FunctionEvaluator evaluator) {
+        Tensor compiled = evaluator.evaluate();
+        Tensor interpreted = evaluator.function().getBody().evaluate(evaluator.context()).asTensor();
+        assertEquals(evaluator.function().getBody().toString(), interpreted, compiled);
+    }
+
+    private static Optional<ExpressionNode> compiledBody(Model model) {
+        return model.compiledBody(model.evaluatorOf().function().getName());
+    }
+
+    private static Model model(String expression, Map<String, TensorType> argumentTypes) {
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from(expression));
+        for (var argumentType : argumentTypes.entrySet())
+            function = function.withArgument(argumentType.getKey(), argumentType.getValue());
+        return new Model("test", List.of(function));
+    }
+
+}
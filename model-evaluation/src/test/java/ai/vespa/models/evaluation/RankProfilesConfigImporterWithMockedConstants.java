@@ -4,8 +4,6 @@ package ai.vespa.models.evaluation;
 import ai.vespa.modelintegration.evaluator.OnnxRuntime;
 import com.yahoo.config.FileReference;
 import com.yahoo.filedistribution.fileacquirer.FileAcquirer;
-import com.yahoo.io.GrowableByteBuffer;
-import com.yahoo.io.IOUtils;
 import com.yahoo.path.Path;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
 import com.yahoo.searchlib.rankingexpression.parser.ParseException;
@@ -14,6 +12,7 @@ import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.serialization.TypedBinaryFormat;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Optional;
 import java.util.logging.Logger;
 
@@ -33,11 +32,9 @@ public class RankProfilesConfigImporterWithMockedConstants extends RankProfilesC
     protected Tensor readTensorFromFile(String name, TensorType type, FileReference fileReference) {
         try {
             var path = constantsPath.append(fileReference.value());
-            var file = path.toFile();
-            return TypedBinaryFormat.decode(Optional.of(type),
-                                            GrowableByteBuffer.wrap(IOUtils.readFileBytes(file)));
+            return TypedBinaryFormat.decode(Optional.of(type), path.toFile().toPath());
         }
-        catch (IOException e) {
+        catch (UncheckedIOException e) {
             log.warning("Missing a mocked tensor constant for '" + name + "': " + e.getMessage() +
                     ". Returning an empty tensor");
             return Tensor.from(type, "{}");
@@ -11,6 +11,8 @@ import com.yahoo.language.process.Embedder;
 import com.yahoo.language.process.InvalidInputException;
 import com.yahoo.language.process.OverloadException;
 import com.yahoo.language.process.TimeoutException;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
 import okhttp3.ConnectionPool;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
@@ -21,9 +23,12 @@ import okhttp3.RequestBody;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 /**
@@ -98,6 +103,35 @@ public abstract class AbstractHttpEmbedder extends AbstractComponent {
         }
     }
 
+    /**
+     * Returns the embeddings of the given texts by the given embedder, using those cached across requests
+     * by the given runtime, and embedding the rest in one call to the given function,
+     * which must return their embeddings in order.
+     */
+    protected static List<Tensor> embedCaching(Embedder embedder, List<String> texts, Embedder.Context context, TensorType targetType,
+                                               Embedder.Runtime runtime, Function<List<String>, List<Tensor>> embed) {
+        Tensor[] embeddings = new Tensor[texts.size()];
+        List<String> uncachedTexts = new ArrayList<>();
+        List<Integer> uncachedIndexes = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            Optional<Tensor> cached = runtime.getCachedEmbedding(embedder, texts.get(i), context, targetType);
+            if (cached.isPresent()) {
+                embeddings[i] = cached.get();
+            } else {
+                uncachedTexts.add(texts.get(i));
+                uncachedIndexes.add(i);
+            }
+        }
+        if ( ! uncachedTexts.isEmpty()) {
+            List<Tensor> computed = embed.apply(uncachedTexts);
+            for (int i = 0; i < computed.size(); i++) {
+                embeddings[uncachedIndexes.get(i)] = computed.get(i);
+                runtime.putCachedEmbedding(embedder, uncachedTexts.get(i), context, targetType, computed.get(i));
+            }
+        }
+        return List.of(embeddings);
+    }
+
     /** Serialize an object to JSON. */
     protected static String toJson(Object o) {
         try {
@@ -101,13 +101,17 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
 
     @Override
     public Tensor embed(String text, Context context, TensorType type) {
-        var start = System.nanoTime();
         if (type.dimensions().size() != 1) {
             throw new IllegalArgumentException("Error in embedding to type '" + type + "': should only have one dimension.");
         }
         if (!type.dimensions().get(0).isIndexed()) {
             throw new IllegalArgumentException("Error in embedding to type '" + type + "': dimension should be indexed.");
         }
+        return runtime.computeCachedEmbeddingIfAbsent(this, text, context, type, () -> embedUncached(text, context, type));
+    }
+
+    private Tensor embedUncached(String text, Context context, TensorType type) {
+        var start = System.nanoTime();
         List<Integer> tokens = embedWithSeparatorTokens(text, context, maxTokens);
         runtime.sampleSequenceLength(tokens.size(), context);
         var embedding = embedTokens(tokens, type, OnnxEmbedderTimeout.remainingOrThrow(context));
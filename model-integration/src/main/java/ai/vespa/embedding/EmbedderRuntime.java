@@ -2,6 +2,7 @@
 
 package ai.vespa.embedding;
 
+import ai.vespa.embedding.config.EmbedderRuntimeConfig;
 import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.language.Language;
@@ -10,8 +11,12 @@ import com.yahoo.metrics.simple.Counter;
 import com.yahoo.metrics.simple.Gauge;
 import com.yahoo.metrics.simple.MetricReceiver;
 import com.yahoo.metrics.simple.Point;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
 
 import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -23,14 +28,31 @@ public class EmbedderRuntime implements Embedder.Runtime {
     private final Gauge sequenceLength;
     private final Counter requestCount;
     private final Counter requestFailureCount;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
     private final Map<MetricDimensions, Point> metricPointCache = new ConcurrentHashMap<>();
+    private final EmbeddingCache cache; // null if disabled
+
+    /**
+     * Ids of the embedder instances using the cache. Keyed by instance rather than component id,
+     * such that a reconfigured embedder with the same id never gets the embeddings of the one it replaces.
+     */
+    private final Map<Embedder, Long> embedderIds = new WeakHashMap<>();
+    private long nextEmbedderId = 0;
 
-    @Inject
     public EmbedderRuntime(MetricReceiver metrics) {
+        this(metrics, new EmbedderRuntimeConfig.Builder().build());
+    }
+
+    @Inject
+    public EmbedderRuntime(MetricReceiver metrics, EmbedderRuntimeConfig config) {
         embedLatency = metrics.declareGauge(ContainerMetrics.EMBEDDER_LATENCY.baseName());
         sequenceLength = metrics.declareGauge(ContainerMetrics.EMBEDDER_SEQUENCE_LENGTH.baseName());
         requestCount = metrics.declareCounter(ContainerMetrics.EMBEDDER_REQUEST_COUNT.baseName());
         requestFailureCount = metrics.declareCounter(ContainerMetrics.EMBEDDER_REQUEST_FAILURE_COUNT.baseName());
+        cacheHits = metrics.declareCounter(ContainerMetrics.EMBEDDER_CACHE_HITS.baseName());
+        cacheMisses = metrics.declareCounter(ContainerMetrics.EMBEDDER_CACHE_MISSES.baseName());
+        cache = config.cache().maxBytes() > 0 ? new EmbeddingCache(config.cache().maxBytes()) : null;
     }
 
     @Override
@@ -53,6 +75,29 @@ public class EmbedderRuntime implements Embedder.Runtime {
         requestFailureCount.add(1, failureMetricPoint(ctx, statusCode));
     }
 
+    @Override
+    public Optional<Tensor> getCachedEmbedding(Embedder embedder, String text, Embedder.Context ctx, TensorType targetType) {
+        if (cache == null) return Optional.empty();
+        Optional<Tensor> embedding = cache.get(cacheKey(embedder, text, ctx, targetType));
+        (embedding.isPresent() ? cacheHits : cacheMisses).add(1, metricPoint(ctx));
+        return embedding;
+    }
+
+    @Override
+    public void putCachedEmbedding(Embedder embedder, String text, Embedder.Context ctx, TensorType targetType, Tensor embedding) {
+        if (cache == null) return;
+        cache.put(cacheKey(embedder, text, ctx, targetType), embedding);
+    }
+
+    private EmbeddingCache.Key cacheKey(Embedder embedder, String text, Embedder.Context ctx, TensorType targetType) {
+        var destinationType = ctx.getDestination() == null ? null : ctx.getDestinationType();
+        return new EmbeddingCache.Key(idOf(embedder), ctx.getLanguage(), destinationType, text, targetType);
+    }
+
+    private synchronized long idOf(Embedder embedder) {
+        return embedderIds.computeIfAbsent(embedder, __ -> nextEmbedderId++);
+    }
+
     private Point metricPoint(Embedder.Context ctx) {
         var dimensions = new MetricDimensions(ctx.getEmbedderId(), ctx.getLanguage(), ctx.getDestination());
         return metricPointCache.computeIfAbsent(
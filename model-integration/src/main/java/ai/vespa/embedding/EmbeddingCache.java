@@ -0,0 +1,98 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.process.InvocationContext.DestinationType;
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A cache of embeddings shared between requests and embedders, bounded by an estimate of the memory used.
+ * The cache is split into segments, each evicting its least recently used embeddings when full,
+ * such that concurrent lookups rarely contend for the same lock.
+ * <p>
+ * This class is multithread safe.
+ */
+class EmbeddingCache {
+
+    private static final int SEGMENTS = 16;
+
+    /** Rough estimates of the memory used by the parts of an entry we don't measure */
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+    private static final int MAPPED_CELL_BYTES = 64;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    EmbeddingCache(long maxBytes) {
+        for (int i = 0; i < SEGMENTS; i++)
+            segments[i] = new Segment(maxBytes / SEGMENTS);
+    }
+
+    Optional<Tensor> get(Key key) {
+        return Optional.ofNullable(segmentOf(key).get(key));
+    }
+
+    void put(Key key, Tensor embedding) {
+        segmentOf(key).put(key, embedding, sizeOf(key, embedding));
+    }
+
+    /** Returns the estimated number of bytes used by the embeddings in this */
+    long bytes() {
+        long bytes = 0;
+        for (Segment segment : segments)
+            bytes += segment.bytes();
+        return bytes;
+    }
+
+    private Segment segmentOf(Key key) {
+        return segments[Math.floorMod(key.hashCode(), SEGMENTS)];
+    }
+
+    private static long sizeOf(Key key, Tensor embedding) {
+        int cellBytes = embedding instanceof IndexedTensor
+                        ? (embedding.type().valueType() == TensorType.Value.DOUBLE ? 8 : 4)
+                        : MAPPED_CELL_BYTES;
+        return ENTRY_OVERHEAD_BYTES + 2L * key.text().length() + embedding.size() * cellBytes;
+    }
+
+    /** The values determining an embedding, where embedder is an id unique to the embedder instance */
+    record Key(long embedder, Language language, DestinationType destinationType, String text, TensorType targetType) { }
+
+    private static class Segment {
+
+        private final long maxBytes;
+        private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access ordered: LRU first
+        private long bytes = 0;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized Tensor get(Key key) {
+            Entry entry = entries.get(key);
+            return entry == null ? null : entry.embedding();
+        }
+
+        synchronized void put(Key key, Tensor embedding, long size) {
+            if (size > maxBytes) return;
+            Entry previous = entries.put(key, new Entry(embedding, size));
+            bytes += size - (previous == null ? 0 : previous.bytes());
+            for (Iterator<Entry> lru = entries.values().iterator(); bytes > maxBytes && lru.hasNext(); ) {
+                bytes -= lru.next().bytes();
+                lru.remove();
+            }
+        }
+
+        synchronized long bytes() { return bytes; }
+
+    }
+
+    private record Entry(Tensor embedding, long bytes) { }
+
+}
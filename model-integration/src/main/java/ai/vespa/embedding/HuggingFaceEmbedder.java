@@ -159,6 +159,10 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
         if (!targetType.dimensions().get(0).isIndexed()) {
             throw new IllegalArgumentException("Error in embedding to type '" + targetType + "': dimension should be indexed.");
         }
+        return runtime.computeCachedEmbeddingIfAbsent(this, text, context, targetType, () -> embedUncached(text, context, targetType));
+    }
+
+    private Tensor embedUncached(String text, Context context, TensorType targetType) {
         var embeddingResult = lookupOrEvaluate(context, prepender.prepend(text, context));
         IndexedTensor tokenEmbeddings = embeddingResult.output;
         if (targetType.valueType() == TensorType.Value.INT8) {
@@ -68,6 +68,10 @@ public class MistralEmbedder extends AbstractHttpEmbedder implements Embedder {
 
     @Override
     public List<Tensor> embed(List<String> texts, Context context, TensorType targetType) {
+        return embedCaching(this, texts, context, targetType, runtime, uncached -> embedUncached(uncached, context, targetType));
+    }
+
+    private List<Tensor> embedUncached(List<String> texts, Context context, TensorType targetType) {
         long startTime = System.nanoTime();
         EmbeddingQuantization.validateTensorType(targetType, config.dimensions(), quantization);
         var outputDataType = EmbeddingQuantization.resolveOutputDataType(targetType, config.dimensions(), quantization);
@@ -72,6 +72,10 @@ public class OpenAIEmbedder extends AbstractHttpEmbedder implements Embedder {
 
     @Override
     public List<Tensor> embed(List<String> texts, Context context, TensorType targetType) {
+        return embedCaching(this, texts, context, targetType, runtime, uncached -> embedUncached(uncached, context, targetType));
+    }
+
+    private List<Tensor> embedUncached(List<String> texts, Context context, TensorType targetType) {
         long startTime = System.nanoTime();
         EmbeddingQuantization.validateTensorType(targetType, config.dimensions(), EmbeddingQuantization.Quantization.FLOAT);
 
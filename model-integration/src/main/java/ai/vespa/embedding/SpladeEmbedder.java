@@ -118,6 +118,10 @@ public class SpladeEmbedder extends AbstractComponent implements Embedder {
             throw new IllegalArgumentException("Invalid splade embedder tensor destination. " +
                                                "Wanted a mapped 1-d tensor, got " + tensorType);
         }
+        return runtime.computeCachedEmbeddingIfAbsent(this, text, context, tensorType, () -> embedUncached(text, context, tensorType));
+    }
+
+    private Tensor embedUncached(String text, Context context, TensorType tensorType) {
         var start = System.nanoTime();
 
         var encoding = tokenizer.encode(text, context.getLanguage());
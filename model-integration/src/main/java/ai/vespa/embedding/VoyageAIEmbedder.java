@@ -78,6 +78,11 @@ public class VoyageAIEmbedder extends AbstractHttpEmbedder implements Embedder {
 
     @Override
     public List<Tensor> embed(List<String> texts, Context context, TensorType targetType) {
+        if (isContextual) return embedUncached(texts, context, targetType); // Embeddings depend on the other texts
+        return embedCaching(this, texts, context, targetType, runtime, uncached -> embedUncached(uncached, context, targetType));
+    }
+
+    private List<Tensor> embedUncached(List<String> texts, Context context, TensorType targetType) {
         long startTime = System.nanoTime();
         EmbeddingQuantization.validateTensorType(targetType, config.dimensions(), quantization);
         var inputType = context.getDestinationType() == Context.DestinationType.QUERY ? "query" : "document";
@@ -0,0 +1,46 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.process.InvocationContext.DestinationType;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EmbeddingCacheTest {
+
+    private static final TensorType type = TensorType.fromSpec("tensor<float>(x[4])");
+
+    @Test
+    public void testCaching() {
+        EmbeddingCache cache = new EmbeddingCache(1 << 20);
+        Tensor embedding = Tensor.from(type, "[1, 2, 3, 4]");
+        cache.put(key(1, DestinationType.QUERY, "foo", type), embedding);
+
+        assertEquals(embedding, cache.get(key(1, DestinationType.QUERY, "foo", type)).get());
+        assertTrue(cache.get(key(2, DestinationType.QUERY, "foo", type)).isEmpty());
+        assertTrue(cache.get(key(1, DestinationType.DOCUMENT, "foo", type)).isEmpty());
+        assertTrue(cache.get(key(1, DestinationType.QUERY, "bar", type)).isEmpty());
+        assertTrue(cache.get(key(1, DestinationType.QUERY, "foo", TensorType.fromSpec("tensor<int8>(x[4])"))).isEmpty());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        // 16 segments of 250 bytes, each holding one entry of 160 + 2 * 3 + 4 * 4 bytes
+        EmbeddingCache cache = new EmbeddingCache(16 * 250);
+        for (int i = 0; i < 1000; i++)
+            cache.put(key(1, DestinationType.QUERY, String.format("%03d", i), type), Tensor.from(type, "[1, 2, 3, 4]"));
+        assertTrue(cache.bytes() <= 16 * 250);
+        assertTrue(cache.bytes() >= 182, "Some embeddings are retained");
+        assertTrue(cache.get(key(1, DestinationType.QUERY, "999", type)).isPresent());
+        assertTrue(cache.get(key(1, DestinationType.QUERY, "000", type)).isEmpty());
+    }
+
+    private static EmbeddingCache.Key key(long embedder, DestinationType destinationType, String text, TensorType type) {
+        return new EmbeddingCache.Key(embedder, Language.ENGLISH, destinationType, text, type);
+    }
+
+}
@@ -1,8 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.embedding;
 
+import ai.vespa.embedding.config.EmbedderRuntimeConfig;
 import ai.vespa.embedding.config.OpenaiEmbedderConfig;
 import com.yahoo.language.process.Embedder;
+import com.yahoo.metrics.simple.MetricReceiver;
 import com.yahoo.tensor.TensorType;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
@@ -19,6 +21,7 @@ import static ai.vespa.embedding.EmbedderTestUtils.createBase64EmbeddingResponse
 import static ai.vespa.embedding.EmbedderTestUtils.createMockSecrets;
 import static ai.vespa.embedding.EmbedderTestUtils.encodeFloatsToBase64;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -99,6 +102,62 @@ public class OpenAIEmbedderTest {
         assertTrue(body.contains("\"input\":[\"Hello\",\"World\",\"Test\"]"));
     }
 
+    @Test
+    public void testEmbeddingsAreCachedAcrossRequests() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody(createBatchSuccessResponse(2, 1024)));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody(createSuccessResponse(1024)));
+
+        runtime = new EmbedderRuntime(new MetricReceiver.MockReceiver(),
+                                      new EmbedderRuntimeConfig.Builder().cache(new EmbedderRuntimeConfig.Cache.Builder().maxBytes(1 << 20)).build());
+        embedder = createEmbedder();
+        var targetType = TensorType.fromSpec("tensor<float>(d0[1024])");
+        var first = embedder.embed(List.of("Hello", "World"), new Embedder.Context("query(q)"), targetType);
+        var second = embedder.embed(List.of("World", "Test", "Hello"), new Embedder.Context("query(q)"), targetType);
+
+        assertEquals(first.get(1), second.get(0));
+        assertEquals(first.get(0), second.get(2));
+        assertEquals(2, mockServer.getRequestCount());
+        mockServer.takeRequest();
+        assertTrue(mockServer.takeRequest().getBody().readUtf8().contains("\"input\":[\"Test\"]"));
+    }
+
+    @Test
+    public void testEmbeddersDoNotShareCachedEmbeddings() throws Exception {
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody(createSuccessResponse(1024)));
+        mockServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody(createBase64EmbeddingResponse(encodeFloatsToBase64(1024, 1000))));
+
+        runtime = new EmbedderRuntime(new MetricReceiver.MockReceiver(),
+                                      new EmbedderRuntimeConfig.Builder().cache(new EmbedderRuntimeConfig.Cache.Builder().maxBytes(1 << 20)).build());
+        embedder = createEmbedder();
+        var other = new OpenAIEmbedder(openaiConfigBuilder(1024).model("text-embedding-3-large").build(), runtime, createMockSecrets());
+        try {
+            // Neither context sets the embedder id
+            var targetType = TensorType.fromSpec("tensor<float>(d0[1024])");
+            var first = embedder.embed("Hello", new Embedder.Context("query(q)"), targetType);
+            var second = other.embed("Hello", new Embedder.Context("query(q)"), targetType);
+
+            assertNotEquals(first, second);
+            assertEquals(2, mockServer.getRequestCount());
+            assertEquals(first, embedder.embed("Hello", new Embedder.Context("query(q)"), targetType));
+            assertEquals(second, other.embed("Hello", new Embedder.Context("query(q)"), targetType));
+            assertEquals(2, mockServer.getRequestCount());
+        } finally {
+            other.deconstruct();
+        }
+    }
+
     @Test
     public void testPrependPrefixes() throws Exception {
         var targetType = TensorType.fromSpec("tensor<float>(d0[1024])");
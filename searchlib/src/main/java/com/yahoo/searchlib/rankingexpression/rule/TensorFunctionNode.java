@@ -24,6 +24,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -421,6 +422,11 @@ public class TensorFunctionNode extends CompositeNode {
             return delegate.resolveBinding(argument);
         }
 
+        @Override
+        public ForkJoinPool forkJoinPool() {
+            return delegate.forkJoinPool();
+        }
+
     }
 
     private static Context asContext(EvaluationContext<Reference> generic) {
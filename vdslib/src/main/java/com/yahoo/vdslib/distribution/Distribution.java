@@ -13,6 +13,7 @@ import com.yahoo.document.BucketId;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -29,8 +30,19 @@ public final class Distribution {
 
     private record Config(Group nodeGraph, int redundancy, boolean relativeNodeOrderScoring) { }
 
+    /**
+     * The ideal distributors of the superbuckets of a cluster state, indexed by superbucket, for the given
+     * config and up states, where -1 means not yet computed. Entries are written without synchronization,
+     * which is safe as ints are written atomically, so readers see either -1, or the correct distributor.
+     */
+    private record DistributorCache(ClusterState state, Config config, String upStates, int[] distributors) { }
+
+    /** The most distribution bits for which to cache ideal distributors, which caps the cache at 256 kB */
+    private static final int maxCachedDistributionBits = 16;
+
     private ConfigSubscriber configSub;
     private final AtomicReference<Config> config = new AtomicReference<>(new Config(null, 1, false));
+    private final AtomicReference<DistributorCache> distributorCache = new AtomicReference<>(null);
 
     public Group getRootGroup() {
         return config.getAcquire().nodeGraph;
@@ -432,12 +444,54 @@ public final class Distribution {
     }
 
     public int getIdealDistributorNode(ClusterState state, BucketId bucket, String upStates) throws TooFewBucketBitsInUseException, NoDistributorsAvailableException {
+        verifyEnoughBucketBitsInUse(state, bucket);
+        return getIdealDistributorNode(state, bucket, upStates, config.getAcquire());
+    }
+
+    /**
+     * Returns the same as {@link #getIdealDistributorNode}, but remembers the ideal distributor of each superbucket
+     * for the last cluster state, config and up states used. As the ideal distributor of a bucket depends only on its
+     * superbucket, this saves recomputing it for each message when routing many messages using the same cluster state.
+     * The cache is replaced when this is called with another cluster state instance, or the config changes.
+     *
+     * @param state the cluster state, which must not be modified after it is passed to this
+     */
+    public int getCachedIdealDistributorNode(ClusterState state, BucketId bucket, String upStates) throws TooFewBucketBitsInUseException, NoDistributorsAvailableException {
+        verifyEnoughBucketBitsInUse(state, bucket);
+        Config cfg = config.getAcquire();
+        DistributorCache cache = distributorCache.getAcquire();
+        if (cache == null || cache.state != state || cache.config != cfg || ! cache.upStates.equals(upStates)) {
+            if (state.getDistributionBitCount() > maxCachedDistributionBits)
+                return getIdealDistributorNode(state, bucket, upStates, cfg);
+            int[] distributors;
+            if (cache != null && cache.config == cfg && cache.upStates.equals(upStates)
+                && cache.state.getVersion() == state.getVersion() && cache.state.equals(state)) {
+                distributors = cache.distributors; // the same state parsed again, e.g., from a wrong distribution reply
+            }
+            else {
+                distributors = new int[1 << state.getDistributionBitCount()];
+                Arrays.fill(distributors, -1);
+            }
+            cache = new DistributorCache(state, cfg, upStates, distributors);
+            distributorCache.setRelease(cache);
+        }
+        int superbucket = (int) lastNBits(bucket.getRawId(), state.getDistributionBitCount());
+        int distributor = cache.distributors[superbucket];
+        if (distributor < 0) {
+            distributor = getIdealDistributorNode(state, bucket, upStates, cfg);
+            cache.distributors[superbucket] = distributor;
+        }
+        return distributor;
+    }
+
+    private static void verifyEnoughBucketBitsInUse(ClusterState state, BucketId bucket) throws TooFewBucketBitsInUseException {
         if (bucket.getUsedBits() < state.getDistributionBitCount()) {
             throw new TooFewBucketBitsInUseException("Cannot get ideal state for bucket " + bucket + " using " + bucket.getUsedBits()
                     + " bits when cluster uses " + state.getDistributionBitCount() + " distribution bits.");
         }
+    }
 
-        Config cfg = config.getAcquire();
+    private int getIdealDistributorNode(ClusterState state, BucketId bucket, String upStates, Config cfg) throws NoDistributorsAvailableException {
         Group idealGroup = getIdealDistributorGroup(bucket, state, cfg.nodeGraph, cfg.redundancy);
         if (idealGroup == null) {
             throw new NoDistributorsAvailableException("No distributors available in cluster state version " + state.getVersion());
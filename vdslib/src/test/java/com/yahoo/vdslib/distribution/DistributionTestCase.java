@@ -400,6 +400,26 @@ public class DistributionTestCase {
         distr.getIdealDistributorNode(clusterState, new BucketId(16, 0), "uim");
     }
 
+    @Test
+    public void cached_ideal_distributors_equal_computed_ones() throws Exception {
+        Distribution distr = new Distribution(new StorDistributionConfig(buildHierarchicalConfig(6, 3, 1, "*|*|*", 3)));
+        Random random = new Random(7);
+        for (String spec : List.of("version:1 bits:8 distributor:9 storage:9",
+                                   "version:2 bits:8 distributor:9 .2.s:d .5.s:m storage:9",
+                                   "version:2 bits:8 distributor:9 .2.s:d .5.s:m storage:9", // the same state again
+                                   "version:3 bits:20 distributor:9 .2.s:d storage:9")) {
+            ClusterState state = new ClusterState(spec);
+            for (int i = 0; i < 2000; i++) {
+                BucketId bucket = new BucketId(32, random.nextLong() & 0xffffffffL);
+                int expected = distr.getIdealDistributorNode(state, bucket, "uim");
+                assertEquals(spec, expected, distr.getCachedIdealDistributorNode(state, bucket, "uim"));
+                assertEquals(spec, expected, distr.getCachedIdealDistributorNode(state, bucket, "uim"));
+                assertEquals(spec, distr.getIdealDistributorNode(state, bucket, "u"),
+                             distr.getCachedIdealDistributorNode(state, bucket, "u"));
+            }
+        }
+    }
+
     @Test
     public void relative_node_order_scoring_is_distribution_key_invariant() throws Exception {
         // 3 groups of 3 nodes, redundancy 6 globally, i.e. 2 within each group
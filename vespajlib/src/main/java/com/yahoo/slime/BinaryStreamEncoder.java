@@ -0,0 +1,320 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import com.yahoo.io.GrowableByteBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Encodes values to the Slime binary format as they are inserted, without building a Slime value tree.
+ * The output is the same as encoding the equivalent Slime with {@link BinaryFormat#encode}.
+ *
+ * Values must be inserted depth first: Inserting a value into a container closes all the containers
+ * opened inside it, and inserting into a closed container throws an IllegalStateException.
+ * The cursors returned cannot be used to inspect the values inserted.
+ *
+ * As the symbol table and the sizes of containers precede the values in the binary format,
+ * the values are kept in encoded form until the output is written, such that the memory used is
+ * roughly that of the output rather than that of a value tree.
+ *
+ * This is not multithread safe.
+ */
+public final class BinaryStreamEncoder implements Inserter {
+
+    private final SymbolTable names = new SymbolTable();
+    private final BufferedOutput values = new BufferedOutput();
+    private final BinaryEncoder encoder = new BinaryEncoder(values);
+
+    /** The position in values, type and size of each container, in the order they are inserted */
+    private int[] containers = new int[3 * 16];
+    private int containerCount = 0;
+
+    /** The containers which are open for insertion, from the outermost */
+    private ContainerCursor[] open = new ContainerCursor[8];
+    private int openCount = 0;
+
+    /** The symbols of the fields in the object open at each depth, reused as there is one open object per depth */
+    private BitSet[] fieldsByDepth = new BitSet[8];
+
+    private boolean hasRoot = false;
+
+    @Override public Cursor insertNIX() { return insertRoot(NixValue.instance()); }
+    @Override public Cursor insertBOOL(boolean value) { return insertRoot(BoolValue.instance(value)); }
+    @Override public Cursor insertLONG(long value) { return insertRoot(new LongValue(value)); }
+    @Override public Cursor insertDOUBLE(double value) { return insertRoot(new DoubleValue(value)); }
+    @Override public Cursor insertSTRING(String value) { return insertRoot(StringValue.create(value)); }
+    @Override public Cursor insertSTRING(byte[] utf8) { return insertRoot(Utf8Value.create(utf8)); }
+    @Override public Cursor insertDATA(byte[] value) { return insertRoot(DataValue.create(value)); }
+
+    @Override
+    public Cursor insertARRAY() {
+        requireNoRoot();
+        return openContainer(Type.ARRAY);
+    }
+
+    @Override
+    public Cursor insertOBJECT() {
+        requireNoRoot();
+        return openContainer(Type.OBJECT);
+    }
+
+    /** Writes the encoded Slime to the given stream */
+    public void writeTo(OutputStream out) throws IOException {
+        writeTo(symbolTable(), out);
+    }
+
+    /** Writes the encoded Slime to the given buffer */
+    public void writeTo(GrowableByteBuffer buffer) {
+        try {
+            writeTo(new OutputStream() {
+                @Override public void write(int b) { buffer.put((byte)b); }
+                @Override public void write(byte[] b, int offset, int length) { buffer.put(b, offset, length); }
+            });
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by the stream above
+        }
+    }
+
+    /** Returns the encoded Slime */
+    public byte[] toArray() {
+        BufferedOutput symbols = symbolTable();
+        int size = symbols.position() + values.position();
+        for (int i = 0; i < containerCount; i++)
+            size += typeAndSizeBytes(containers[3 * i + 2]);
+        ArrayOutputStream out = new ArrayOutputStream(size);
+        try {
+            writeTo(symbols, out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by ArrayOutputStream
+        }
+        return out.bytes;
+    }
+
+    /** Returns the symbol table, followed by a nix root value if nothing is inserted */
+    private BufferedOutput symbolTable() {
+        BufferedOutput out = new BufferedOutput(16 * names.symbols() + 8);
+        BinaryEncoder outEncoder = new BinaryEncoder(out);
+        outEncoder.encode_cmpr_int(names.symbols());
+        for (int i = 0; i < names.symbols(); i++) {
+            byte[] bytes = Utf8Codec.encode(names.inspect(i));
+            outEncoder.encode_cmpr_int(bytes.length);
+            out.put(bytes);
+        }
+        if ( ! hasRoot)
+            outEncoder.encodeNIX();
+        return out;
+    }
+
+    private void writeTo(BufferedOutput symbols, OutputStream out) throws IOException {
+        symbols.writeTo(out);
+
+        // Write the values with the container type and size headers inserted at their positions
+        BufferedOutput header = new BufferedOutput(16);
+        BinaryEncoder headerEncoder = new BinaryEncoder(header);
+        int written = 0;
+        for (int i = 0; i < containerCount; i++) {
+            int position = containers[3 * i];
+            values.writeTo(out, written, position - written);
+            written = position;
+            header.reset();
+            headerEncoder.write_type_and_size(containers[3 * i + 1], containers[3 * i + 2]);
+            header.writeTo(out);
+        }
+        values.writeTo(out, written, values.position() - written);
+    }
+
+    /** Returns the number of bytes written by {@link BinaryEncoder#write_type_and_size} for the given size */
+    private static int typeAndSizeBytes(int size) {
+        if (size <= 30) return 1;
+        int bytes = 2;
+        for (size >>>= 7; size != 0; size >>>= 7)
+            bytes++;
+        return bytes;
+    }
+
+    /** Writes to an array of the exact size of the output */
+    private static final class ArrayOutputStream extends OutputStream {
+
+        private final byte[] bytes;
+        private int position = 0;
+
+        ArrayOutputStream(int size) {
+            this.bytes = new byte[size];
+        }
+
+        @Override
+        public void write(int b) {
+            bytes[position++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int offset, int length) {
+            System.arraycopy(b, offset, bytes, position, length);
+            position += length;
+        }
+
+    }
+
+    private void requireNoRoot() {
+        if (hasRoot)
+            throw new IllegalStateException("A root value is already inserted");
+        hasRoot = true;
+    }
+
+    private Cursor insertRoot(Value value) {
+        requireNoRoot();
+        encoder.encodeValue(value);
+        return value;
+    }
+
+    private ContainerCursor openContainer(Type type) {
+        if (containerCount * 3 == containers.length)
+            containers = Arrays.copyOf(containers, containers.length * 2);
+        containers[3 * containerCount] = values.position();
+        containers[3 * containerCount + 1] = type.ID;
+        containers[3 * containerCount + 2] = 0;
+        if (openCount == open.length)
+            open = Arrays.copyOf(open, openCount * 2);
+        ContainerCursor cursor = type == Type.ARRAY ? new ArrayCursor(containerCount, openCount)
+                                                    : new ObjectCursor(containerCount, openCount);
+        containerCount++;
+        open[openCount++] = cursor;
+        return cursor;
+    }
+
+    private abstract class ContainerCursor extends Value {
+
+        private final int container;
+        private final int depth;
+
+        ContainerCursor(int container, int depth) {
+            this.container = container;
+            this.depth = depth;
+        }
+
+        @Override
+        public int children() { return containers[3 * container + 2]; }
+
+        void requireOpen() {
+            if (depth >= openCount || open[depth] != this)
+                throw new IllegalStateException("Cannot insert into a container which is closed by inserting " +
+                                                "into a container outside it");
+        }
+
+        /** Prepares for inserting a child value into this, by closing any containers inside it */
+        void prepareInsert() {
+            requireOpen();
+            openCount = depth + 1;
+            containers[3 * container + 2]++;
+        }
+
+    }
+
+    private final class ArrayCursor extends ContainerCursor {
+
+        ArrayCursor(int container, int depth) {
+            super(container, depth);
+        }
+
+        @Override public Type type() { return Type.ARRAY; }
+        @Override public void accept(Visitor v) { v.visitArray(this); }
+        @Override public int entries() { return children(); }
+
+        @Override
+        protected Cursor addLeaf(Value value) {
+            prepareInsert();
+            encoder.encodeValue(value);
+            return value;
+        }
+
+        @Override public Cursor addLong(long l) { return addLeaf(new LongValue(l)); }
+        @Override public Cursor addDouble(double d) { return addLeaf(new DoubleValue(d)); }
+
+        @Override
+        public Cursor addArray() {
+            prepareInsert();
+            return openContainer(Type.ARRAY);
+        }
+
+        @Override
+        public Cursor addObject() {
+            prepareInsert();
+            return openContainer(Type.OBJECT);
+        }
+
+    }
+
+    private final class ObjectCursor extends ContainerCursor {
+
+        private final BitSet symbols;
+
+        ObjectCursor(int container, int depth) {
+            super(container, depth);
+            if (depth >= fieldsByDepth.length)
+                fieldsByDepth = Arrays.copyOf(fieldsByDepth, depth * 2);
+            if (fieldsByDepth[depth] == null)
+                fieldsByDepth[depth] = new BitSet();
+            symbols = fieldsByDepth[depth];
+            symbols.clear();
+        }
+
+        @Override public Type type() { return Type.OBJECT; }
+        @Override public void accept(Visitor v) { v.visitObject(this); }
+        @Override public int fields() { return children(); }
+
+        /** Prepares for inserting the field with the given symbol, and returns whether it can be inserted */
+        private boolean prepareField(int symbol) {
+            requireOpen(); // before checking the symbols, which may be in use by a later object at the same depth
+            if (symbol < 0 || symbol >= names.symbols() || symbols.get(symbol)) return false;
+            prepareInsert();
+            symbols.set(symbol);
+            encoder.encode_cmpr_int(symbol);
+            return true;
+        }
+
+        @Override
+        protected Cursor setLeaf(int sym, Value value) {
+            if ( ! prepareField(sym)) return NixValue.invalid();
+            encoder.encodeValue(value);
+            return value;
+        }
+
+        @Override
+        public Cursor setArray(int sym) {
+            if ( ! prepareField(sym)) return NixValue.invalid();
+            return openContainer(Type.ARRAY);
+        }
+
+        @Override
+        public Cursor setObject(int sym) {
+            if ( ! prepareField(sym)) return NixValue.invalid();
+            return openContainer(Type.OBJECT);
+        }
+
+        @Override
+        protected Cursor setLeaf(String name, Value value) {
+            requireOpen(); // before adding the name to the symbol table
+            return setLeaf(names.insert(name), value);
+        }
+
+        @Override
+        public Cursor setArray(String name) {
+            requireOpen();
+            return setArray(names.insert(name));
+        }
+
+        @Override
+        public Cursor setObject(String name) {
+            requireOpen();
+            return setObject(names.insert(name));
+        }
+
+    }
+
+}
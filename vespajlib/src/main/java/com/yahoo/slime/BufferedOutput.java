@@ -3,7 +3,10 @@ package com.yahoo.slime;
 
 import com.yahoo.compress.Compressor;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
 final class BufferedOutput {
 
@@ -48,9 +51,29 @@ final class BufferedOutput {
 
     void put(byte[] bytes) {
         reserve(bytes.length);
-        for (byte b : bytes) {
-            buf[pos++] = b;
-        }
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        writeTo(out, 0, pos);
+    }
+
+    void writeTo(OutputStream out, int offset, int length) throws IOException {
+        out.write(buf, offset, length);
+    }
+
+    /** Returns a hash of the bytes in this */
+    int hash() {
+        int hash = 0;
+        for (int i = 0; i < pos; i++)
+            hash = 31 * hash + buf[i];
+        return hash ^ (hash >>> 16);
+    }
+
+    /** Returns whether the bytes in this are equal to the given bytes */
+    boolean equalTo(byte[] bytes) {
+        return Arrays.equals(buf, 0, pos, bytes, 0, bytes.length);
     }
 
     byte[] toArray() {
@@ -21,6 +21,12 @@ public class JsonDecoder {
     private final ObjectInserter objectInserter = new ObjectInserter(null, null);
     private final BufferedOutput buf = new BufferedOutput();
 
+    private final String[] keyCache = new String[64];
+    private final byte[][] keyCacheBytes = new byte[64][];
+
+    /** Whether to insert strings as UTF-8 bytes rather than as Java strings */
+    private boolean utf8Strings = false;
+
     private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
     private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
     private static final byte[] NULL = {'n', 'u', 'l', 'l'};
@@ -35,6 +41,7 @@ public class JsonDecoder {
 
     Slime decode(Slime slime, BufferedInput input) {
         in = input;
+        utf8Strings = false;
         next();
         decodeValue(slimeInserter.adjust(slime));
         if (in.failed()) {
@@ -56,6 +63,7 @@ public class JsonDecoder {
     /** Decode bytes as a UTF-8 JSON into Slime, or throw {@link JsonParseException} on invalid JSON. */
     public Slime decodeOrThrow(Slime slime, byte[] bytes) {
         in = new BufferedInput(bytes);
+        utf8Strings = false;
         next();
         decodeValue(slimeInserter.adjust(slime));
         if (in.failed()) {
@@ -64,6 +72,23 @@ public class JsonDecoder {
         return slime;
     }
 
+    /**
+     * Decodes bytes as UTF-8 JSON into the Slime binary format, and returns a read-only view of it,
+     * or throws {@link JsonParseException} on invalid JSON.
+     * This avoids creating an object for each value decoded, and each value inspected.
+     */
+    public Inspector decodeToBinaryView(byte[] bytes) {
+        in = new BufferedInput(bytes);
+        utf8Strings = true; // as they are stored as UTF-8 in any case
+        next();
+        BinaryStreamEncoder encoder = new BinaryStreamEncoder();
+        decodeValue(encoder);
+        if (in.failed()) {
+            throw new JsonParseException(in);
+        }
+        return BinaryView.inspect(encoder.toArray());
+    }
+
     private void decodeValue(Inserter inserter) {
         skipWhiteSpace();
         switch (c) {
@@ -150,11 +175,11 @@ public class JsonDecoder {
     private String readKey() {
         buf.reset();
         switch (c) {
-        case '"': case '\'': return readString();
+        case '"': case '\'': readStringBytes(); return keyString();
         default:
             for (;;) {
                 switch (c) {
-                case ':': case ' ': case '\t': case '\n': case '\r': case '\0': return buf.toString(StandardCharsets.UTF_8);
+                case ':': case ' ': case '\t': case '\n': case '\r': case '\0': return keyString();
                 default:
                     buf.put(c);
                     next();
@@ -164,12 +189,33 @@ public class JsonDecoder {
         }
     }
 
+    /** Returns the key in buf as a string, reusing the string of a recent equal key, as keys usually repeat */
+    private String keyString() {
+        int slot = buf.hash() & (keyCache.length - 1);
+        byte[] cachedBytes = keyCacheBytes[slot];
+        if (cachedBytes != null && buf.equalTo(cachedBytes)) return keyCache[slot];
+
+        String key = buf.toString(StandardCharsets.UTF_8);
+        keyCacheBytes[slot] = buf.toArray();
+        keyCache[slot] = key;
+        return key;
+    }
+
     private void decodeString(Inserter inserter) {
-        String value = readString();
-        inserter.insertSTRING(value);
+        readStringBytes();
+        if (utf8Strings)
+            inserter.insertSTRING(buf.toArray());
+        else
+            inserter.insertSTRING(buf.toString(StandardCharsets.UTF_8));
     }
 
     private String readString() {
+        readStringBytes();
+        return buf.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Reads a string into buf */
+    private void readStringBytes() {
         buf.reset();
         byte quote = c;
         assert(quote == '"' || quote == '\'');
@@ -197,7 +243,7 @@ public class JsonDecoder {
             case '"': case '\'':
                 if (c == quote) {
                     next();
-                    return buf.toString(StandardCharsets.UTF_8);
+                    return;
                 } else {
                     buf.put(c);
                     next();
@@ -205,7 +251,7 @@ public class JsonDecoder {
                 break;
             case '\0':
                 in.fail("Unterminated string");
-                return buf.toString(StandardCharsets.UTF_8);
+                return;
             default:
                 buf.put(c);
                 next();
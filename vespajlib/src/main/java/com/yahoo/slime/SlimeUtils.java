@@ -145,6 +145,14 @@ public class SlimeUtils {
         return slime;
     }
 
+    /**
+     * Decodes UTF-8 JSON into a read-only view over the Slime binary format, which uses much less memory
+     * than a Slime when the JSON is only inspected. Throws {@link JsonParseException} on invalid JSON.
+     */
+    public static Inspector jsonToBinaryView(byte[] json) {
+        return new JsonDecoder().decodeToBinaryView(json);
+    }
+
     public static Instant instant(Inspector field) {
         return Instant.ofEpochMilli(field.asLong());
     }
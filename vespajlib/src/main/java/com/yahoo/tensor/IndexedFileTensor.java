@@ -0,0 +1,121 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only indexed tensor which reads its cells from a memory-mapped file region rather than holding them
+ * on the heap. The region contains the cells in standard value order as big-endian values of the value type
+ * of the tensor, as written by the dense binary format.
+ *
+ * The region is mapped in chunks of at most 1 Gb, as that is the most a single buffer can address.
+ */
+class IndexedFileTensor extends IndexedTensor {
+
+    private static final int chunkBytesShift = 30;
+
+    private final ByteBuffer[] chunks;
+    private final TensorType.Value valueType;
+    private final int cellBytesShift;
+    private final long size;
+
+    private IndexedFileTensor(TensorType type, DimensionSizes dimensionSizes, ByteBuffer[] chunks) {
+        super(type, dimensionSizes);
+        this.chunks = chunks;
+        this.valueType = type.valueType();
+        this.cellBytesShift = cellBytesShift(type.valueType());
+        this.size = dimensionSizes.totalSize();
+    }
+
+    @Override
+    public long size() { return size; }
+
+    @Override
+    public double get(long valueIndex) {
+        if (valueType == TensorType.Value.DOUBLE)
+            return chunk(valueIndex).getDouble(offset(valueIndex));
+        return getFloat(valueIndex);
+    }
+
+    @Override
+    public float getFloat(long valueIndex) {
+        ByteBuffer chunk = chunk(valueIndex);
+        int offset = offset(valueIndex);
+        return switch (valueType) {
+            case DOUBLE -> (float)chunk.getDouble(offset);
+            case FLOAT -> chunk.getFloat(offset);
+            case BFLOAT16 -> IndexedBFloat16Tensor.toFloat(chunk.getShort(offset));
+            case INT8 -> chunk.get(offset);
+        };
+    }
+
+    private ByteBuffer chunk(long valueIndex) {
+        if (valueIndex < 0 || valueIndex >= size)
+            throw new IllegalArgumentException("Value index " + valueIndex + " is not within the " + size +
+                                               " cells of this tensor");
+        return chunks[(int)(valueIndex >>> (chunkBytesShift - cellBytesShift))];
+    }
+
+    private int offset(long valueIndex) {
+        return (int)((valueIndex << cellBytesShift) & ((1L << chunkBytesShift) - 1));
+    }
+
+    @Override
+    public IndexedTensor withType(TensorType type) {
+        throwOnIncompatibleType(type);
+        return new IndexedFileTensor(type, dimensionSizes(), chunks);
+    }
+
+    /** Returns the same hash code as the heap tensor of the same value type holding these cells. This reads all cells. */
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (long i = 0; i < size; i++) {
+            ByteBuffer chunk = chunk(i);
+            int offset = offset(i);
+            int hash = switch (valueType) {
+                case DOUBLE -> Double.hashCode(chunk.getDouble(offset));
+                case FLOAT -> Float.hashCode(chunk.getFloat(offset));
+                case BFLOAT16 -> chunk.getShort(offset);
+                case INT8 -> chunk.get(offset);
+            };
+            result = 31 * result + hash;
+        }
+        return result;
+    }
+
+    /**
+     * Maps the cells of a tensor from the given file.
+     *
+     * @param type the type of the tensor, where the value type determines the cell encoding
+     * @param sizes the sizes of the dimensions of the tensor
+     * @param file the file to map cells from. The mapping stays valid after this is closed.
+     * @param position the position in the file of the first cell
+     * @throws IllegalArgumentException if the file is too short to contain all the cells
+     */
+    static IndexedFileTensor map(TensorType type, DimensionSizes sizes, FileChannel file, long position) throws IOException {
+        long cellsBytes = sizes.totalSize() << cellBytesShift(type.valueType());
+        if (position + cellsBytes > file.size())
+            throw new IllegalArgumentException("Expected " + cellsBytes + " bytes of cells from position " + position +
+                                               " but the file size is " + file.size());
+        long chunkBytes = 1L << chunkBytesShift;
+        ByteBuffer[] chunks = new ByteBuffer[(int)((cellsBytes + chunkBytes - 1) >>> chunkBytesShift)];
+        for (int i = 0; i < chunks.length; i++) {
+            long start = i * chunkBytes;
+            chunks[i] = file.map(FileChannel.MapMode.READ_ONLY, position + start, Math.min(chunkBytes, cellsBytes - start));
+        }
+        return new IndexedFileTensor(type, sizes, chunks);
+    }
+
+    private static int cellBytesShift(TensorType.Value valueType) {
+        return switch (valueType) {
+            case DOUBLE -> 3;
+            case FLOAT -> 2;
+            case BFLOAT16 -> 1;
+            case INT8 -> 0;
+        };
+    }
+
+}
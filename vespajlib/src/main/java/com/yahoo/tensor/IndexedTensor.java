@@ -3,6 +3,8 @@ package com.yahoo.tensor;
 
 import com.google.common.collect.ImmutableMap;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -283,6 +285,22 @@ public abstract class IndexedTensor implements Tensor {
         return Tensor.equals(this, ((Tensor)other));
     }
 
+    /**
+     * Returns a read-only tensor which reads its cells from a memory-mapped region of the given file
+     * instead of holding them on the heap.
+     *
+     * @param type the type of the tensor, where the value type determines the cell encoding
+     * @param sizes the sizes of the dimensions of the tensor
+     * @param file the file containing the cells in standard value order as big-endian values of the value type,
+     *             as written by the dense binary format. The tensor stays valid after this is closed.
+     * @param position the position in the file of the first cell
+     * @throws IllegalArgumentException if the file is too short to contain all the cells
+     */
+    public static IndexedTensor fromFile(TensorType type, DimensionSizes sizes,
+                                         FileChannel file, long position) throws IOException {
+        return IndexedFileTensor.map(type, sizes, file, position);
+    }
+
     public abstract static class Builder implements Tensor.Builder {
 
         final TensorType type;
@@ -336,8 +354,8 @@ public abstract class IndexedTensor implements Tensor {
             return switch (type.valueType()) {
                 case DOUBLE -> new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes);
                 case FLOAT -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes);
-                case BFLOAT16 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes);
-                case INT8 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes);
+                case BFLOAT16 -> new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes);
+                case INT8 -> new IndexedInt8Tensor.BoundInt8Builder(type, sizes);
                 default -> throw new IllegalStateException("Unexpected value type " + type.valueType());
             };
         }
@@ -356,8 +374,8 @@ public abstract class IndexedTensor implements Tensor {
             return switch (type.valueType()) {
                 case DOUBLE -> new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes).fill(values);
                 case FLOAT -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes, values);
-                case BFLOAT16 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes, values);
-                case INT8 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes, values);
+                case BFLOAT16 -> new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes).fill(values);
+                case INT8 -> new IndexedInt8Tensor.BoundInt8Builder(type, sizes).fill(values);
                 default -> throw new IllegalStateException("Unexpected value type " + type.valueType());
             };
         }
@@ -376,8 +394,8 @@ public abstract class IndexedTensor implements Tensor {
             return switch (type.valueType()) {
                 case DOUBLE -> new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes, values);
                 case FLOAT -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes).fill(values);
-                case BFLOAT16 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes).fill(values);
-                case INT8 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes).fill(values);
+                case BFLOAT16 -> new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes).fill(values);
+                case INT8 -> new IndexedInt8Tensor.BoundInt8Builder(type, sizes).fill(values);
                 default -> throw new IllegalStateException("Unexpected value type " + type.valueType());
             };
         }
@@ -1,14 +1,19 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor;
 
-import com.google.common.collect.ImmutableMap;
+import com.yahoo.tensor.impl.TensorAddressIndex;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
- * A sparse implementation of a tensor backed by a Map of cells to values.
+ * A sparse implementation of a tensor, holding cell addresses in an index assigning each a position,
+ * and cell values in an array of primitive values by that position.
  *
  * @author bratseth
  */
@@ -16,41 +21,54 @@ public class MappedTensor implements Tensor {
 
     private final TensorType type;
 
-    private final ImmutableMap<TensorAddress, Double> cells;
+    private final TensorAddressIndex addresses;
+    private final double[] values;
 
     /** Creates a sparse tensor. The cell addresses must match the type. */
-    private MappedTensor(TensorType type, Map<TensorAddress, Double> cells) {
+    private MappedTensor(TensorType type, TensorAddressIndex addresses, double[] values) {
         this.type = type;
-        this.cells = ImmutableMap.copyOf(cells);
+        this.addresses = addresses;
+        this.values = values;
     }
 
     @Override
     public TensorType type() { return type; }
 
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return addresses.size(); }
 
     /** Once we can store more cells than an int we should drop this. */
     @Override
-    public int sizeAsInt() { return cells.size(); }
+    public int sizeAsInt() { return addresses.size(); }
 
     @Override
-    public double get(TensorAddress address) { return cells.getOrDefault(address, 0.0); }
+    public double get(TensorAddress address) {
+        int position = addresses.positionOf(address);
+        return position < 0 ? 0.0 : values[position];
+    }
 
     @Override
-    public boolean has(TensorAddress address) { return cells.containsKey(address); }
+    public boolean has(TensorAddress address) { return addresses.positionOf(address) >= 0; }
 
     @Override
-    public Double getAsDouble(TensorAddress address) { return cells.get(address); }
+    public Double getAsDouble(TensorAddress address) {
+        int position = addresses.positionOf(address);
+        return position < 0 ? null : values[position];
+    }
 
     @Override
-    public Iterator<Cell> cellIterator() { return new CellIteratorAdaptor(cells.entrySet().iterator()); }
+    public Iterator<Cell> cellIterator() { return new CellIterator(); }
 
     @Override
-    public Iterator<Double> valueIterator() { return cells.values().iterator(); }
+    public Iterator<Double> valueIterator() { return new ValueIterator(); }
 
     @Override
-    public Map<TensorAddress, Double> cells() { return cells; }
+    public Map<TensorAddress, Double> cells() {
+        Map<TensorAddress, Double> cells = new LinkedHashMap<>((int)(addresses.size() / 0.75) + 1);
+        for (int i = 0; i < addresses.size(); i++)
+            cells.put(addresses.address(i), values[i]);
+        return Collections.unmodifiableMap(cells);
+    }
 
     @Override
     public Tensor withType(TensorType other) {
@@ -58,7 +76,7 @@ public class MappedTensor implements Tensor {
             throw new IllegalArgumentException("MappedTensor.withType: types are not compatible. Current type: '" +
                     this.type + "', requested type: '" + type.toString() + "'");
         }
-        return new MappedTensor(other, cells);
+        return new MappedTensor(other, addresses, values);
     }
 
     @Override
@@ -75,7 +93,12 @@ public class MappedTensor implements Tensor {
     }
 
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() { // Same as the hash code of cells()
+        int hashCode = 0;
+        for (int i = 0; i < addresses.size(); i++)
+            hashCode += addresses.address(i).hashCode() ^ Double.hashCode(values[i]);
+        return hashCode;
+    }
 
     @Override
     public String toString() { return toString(true, true); }
@@ -101,7 +124,9 @@ public class MappedTensor implements Tensor {
     public static class Builder implements Tensor.Builder {
 
         private final TensorType type;
-        private final ImmutableMap.Builder<TensorAddress, Double> cells = new ImmutableMap.Builder<>();
+        private TensorAddressIndex addresses = new TensorAddressIndex(16);
+        private double[] values = new double[16];
+        private boolean addressesShared = false; // whether the addresses are also used by a built tensor
 
         public static Builder of(TensorType type) { return new Builder(type); }
 
@@ -123,7 +148,18 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(TensorAddress address, double value) {
-            cells.put(address, value);
+            if (addressesShared) {
+                addresses = addresses.copy();
+                addressesShared = false;
+            }
+            int size = addresses.size();
+            int position = addresses.add(address);
+            if (position < size)
+                throw new IllegalArgumentException("Multiple entries with same key: " + address + "=" + values[position] +
+                                                   " and " + address + "=" + value);
+            if (position == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[position] = value;
             return this;
         }
 
@@ -134,32 +170,45 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(double value, long... labels) {
-            cells.put(TensorAddress.of(labels), value);
-            return this;
+            return cell(TensorAddress.of(labels), value);
         }
 
         @Override
         public MappedTensor build() {
-            return new MappedTensor(type, cells.build());
+            addressesShared = true;
+            return new MappedTensor(type, addresses, Arrays.copyOf(values, addresses.size()));
         }
 
     }
 
-    private static class CellIteratorAdaptor implements Iterator<Cell> {
+    private class CellIterator implements Iterator<Cell> {
 
-        private final Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator;
+        private int position = 0;
+
+        @Override
+        public boolean hasNext() { return position < addresses.size(); }
 
-        private CellIteratorAdaptor(Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator) {
-            this.adaptedIterator = adaptedIterator;
+        @Override
+        public Cell next() {
+            if ( ! hasNext()) throw new NoSuchElementException();
+            Cell cell = new Cell(addresses.address(position), values[position]);
+            position++;
+            return cell;
         }
 
+    }
+
+    private class ValueIterator implements Iterator<Double> {
+
+        private int position = 0;
+
         @Override
-        public boolean hasNext() { return adaptedIterator.hasNext(); }
+        public boolean hasNext() { return position < addresses.size(); }
 
         @Override
-        public Cell next() {
-            Map.Entry<TensorAddress, Double> entry = adaptedIterator.next();
-            return new Cell(entry.getKey(), entry.getValue());
+        public Double next() {
+            if ( ! hasNext()) throw new NoSuchElementException();
+            return values[position++];
         }
 
     }
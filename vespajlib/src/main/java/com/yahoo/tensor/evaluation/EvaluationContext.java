@@ -3,6 +3,8 @@ package com.yahoo.tensor.evaluation;
 
 import com.yahoo.tensor.Tensor;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * An evaluation context which is passed down to all nested functions during evaluation.
  *
@@ -13,4 +15,11 @@ public interface EvaluationContext<NAMETYPE extends Name> extends TypeContext<NA
     /** Returns the tensor bound to this name, or null if none */
     Tensor getTensor(String name);
 
+    /**
+     * Returns the pool to use to evaluate parts of large tensor functions in parallel,
+     * or null (the default) to evaluate in the calling thread only.
+     * Results are the same whether or not evaluation is parallel.
+     */
+    default ForkJoinPool forkJoinPool() { return null; }
+
 }
@@ -0,0 +1,115 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Tight loops over the cells of dense tensors, used by tensor functions in the common dense cases instead of
+ * the general cell iteration. Values are read by direct index, and the common scalar functions are applied
+ * directly rather than through a DoubleBinaryOperator, which lets the JIT compiler unroll and, where the
+ * result is exact, vectorize the loops. Values are always combined in the same order as the general
+ * implementations, such that results are identical.
+ */
+class DenseKernels {
+
+    private DenseKernels() {}
+
+    /** Returns whether the given tensors are both dense, with the same dimensions and sizes */
+    static boolean haveSameShape(Tensor a, Tensor b) {
+        if ( ! (a instanceof IndexedTensor indexedA) || ! (b instanceof IndexedTensor indexedB)) return false;
+        if ( ! a.type().hasOnlyIndexedBoundDimensions() || ! b.type().hasOnlyIndexedBoundDimensions()) return false;
+        if ( ! a.type().dimensions().equals(b.type().dimensions())) return false;
+        return indexedA.dimensionSizes().equals(indexedB.dimensionSizes());
+    }
+
+    /**
+     * Joins two tensors of the same shape (see {@link #haveSameShape}) cell by cell,
+     * in parallel in the given pool if it is not null
+     */
+    static Tensor join(IndexedTensor a, IndexedTensor b, TensorType joinedType, DoubleBinaryOperator combinator,
+                       ForkJoinPool pool) {
+        double[] result = new double[a.sizeAsInt()];
+        ParallelEvaluation.forRange(pool, result.length, ParallelEvaluation.minCellsPerTask,
+                                    (start, end) -> join(a, b, combinator, result, start, end));
+        return IndexedTensor.Builder.of(joinedType, a.dimensionSizes(), result).build();
+    }
+
+    private static void join(IndexedTensor a, IndexedTensor b, DoubleBinaryOperator combinator,
+                             double[] result, int start, int end) {
+        if (combinator instanceof ScalarFunctions.Multiply) {
+            for (int i = start; i < end; i++)
+                result[i] = a.get(i) * b.get(i);
+        }
+        else if (combinator instanceof ScalarFunctions.Add) {
+            for (int i = start; i < end; i++)
+                result[i] = a.get(i) + b.get(i);
+        }
+        else if (combinator instanceof ScalarFunctions.Subtract) {
+            for (int i = start; i < end; i++)
+                result[i] = a.get(i) - b.get(i);
+        }
+        else if (combinator instanceof ScalarFunctions.Divide) {
+            for (int i = start; i < end; i++)
+                result[i] = a.get(i) / b.get(i);
+        }
+        else {
+            for (int i = start; i < end; i++)
+                result[i] = combinator.applyAsDouble(a.get(i), b.get(i));
+        }
+    }
+
+    /** Maps each cell of a tensor with only bound dimensions, in parallel in the given pool if it is not null */
+    static Tensor map(IndexedTensor input, TensorType outputType, DoubleUnaryOperator mapper, ForkJoinPool pool) {
+        double[] result = new double[input.sizeAsInt()];
+        ParallelEvaluation.forRange(pool, result.length, ParallelEvaluation.minCellsPerTask, (start, end) -> {
+            for (int i = start; i < end; i++)
+                result[i] = mapper.applyAsDouble(input.get(i));
+        });
+        return IndexedTensor.Builder.of(outputType, input.dimensionSizes(), result).build();
+    }
+
+    /** Returns whether the given combinator and aggregator computes a dot product */
+    static boolean isDotProduct(DoubleBinaryOperator combinator, Reduce.Aggregator aggregator) {
+        return combinator instanceof ScalarFunctions.Multiply && aggregator == Reduce.Aggregator.sum;
+    }
+
+    /** Returns the dot product of the given number of consecutive cells starting at the given direct indexes */
+    static double dotProduct(IndexedTensor a, long aStart, IndexedTensor b, long bStart, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a.get(aStart + i) * b.get(bStart + i);
+        return sum;
+    }
+
+    /** Returns the given initial value plus the sum of the given number of cells from start, with the given stride */
+    static double sum(double initial, IndexedTensor tensor, long start, long stride, int length) {
+        double sum = initial;
+        if (stride == 1) {
+            for (int i = 0; i < length; i++)
+                sum += tensor.get(start + i);
+        }
+        else {
+            for (int i = 0; i < length; i++)
+                sum += tensor.get(start + i * stride);
+        }
+        return sum;
+    }
+
+    /** Returns the max of the given initial value and the given number of cells from start, with the given stride */
+    static double max(double initial, IndexedTensor tensor, long start, long stride, int length) {
+        double max = initial;
+        for (int i = 0; i < length; i++) {
+            double value = tensor.get(start + i * stride);
+            if (value > max)
+                max = value;
+        }
+        return max;
+    }
+
+}
@@ -130,10 +130,14 @@ public class FilterSubspaces<NAMETYPE extends Name> extends PrimitiveTensorFunct
             builder.cell(split.densePart(), cell.getValue());
         }
         Tensor.Builder builder = Tensor.Builder.of(splitter.fullType);
-        for (var entry : builders.entrySet()) {
-            TensorAddress mappedAddr = entry.getKey();
-            Tensor denseInput = entry.getValue().build();
-            Tensor filterResult = function.map(denseInput).sum();
+        var entries = List.copyOf(builders.entrySet());
+        List<Tensor> denseInputs = entries.stream().map(entry -> entry.getValue().build()).toList();
+        List<Tensor> filterResults = ParallelEvaluation.map(context.forkJoinPool(), denseInputs, ParallelEvaluation.minSubspacesPerTask,
+                                                            denseInput -> function.map(denseInput).sum());
+        for (int entryIndex = 0; entryIndex < entries.size(); entryIndex++) {
+            TensorAddress mappedAddr = entries.get(entryIndex).getKey();
+            Tensor denseInput = denseInputs.get(entryIndex);
+            Tensor filterResult = filterResults.get(entryIndex);
             if (filterResult.asDouble() != 0) {
                 for (Iterator<Tensor.Cell> iter = denseInput.cellIterator(); iter.hasNext(); ) {
                     var cell = iter.next();
@@ -13,6 +13,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 /**
@@ -188,6 +189,11 @@ public class Generate<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAM
             return context.resolveBinding(name);
         }
 
+        @Override
+        public ForkJoinPool forkJoinPool() {
+            return context.forkJoinPool();
+        }
+
     }
 
     /** A context which adds the bindings of the generate dimension names to the given context. */
@@ -115,10 +115,12 @@ public class MapSubspaces<NAMETYPE extends Name> extends PrimitiveTensorFunction
         TensorType denseOutputType = outputType.indexedSubtype();
         var denseOutputDims = denseOutputType.dimensions();
         Tensor.Builder builder = Tensor.Builder.of(outputType);
-        for (var entry : builders.entrySet()) {
-            TensorAddress mappedAddr = entry.getKey();
-            Tensor denseInput = entry.getValue().build();
-            Tensor denseOutput = function.map(denseInput);
+        var entries = List.copyOf(builders.entrySet());
+        List<Tensor> denseOutputs = ParallelEvaluation.map(context.forkJoinPool(), entries, ParallelEvaluation.minSubspacesPerTask,
+                                                           entry -> function.map(entry.getValue().build()));
+        for (int entryIndex = 0; entryIndex < entries.size(); entryIndex++) {
+            TensorAddress mappedAddr = entries.get(entryIndex).getKey();
+            Tensor denseOutput = denseOutputs.get(entryIndex);
             // XXX check denseOutput.type().dimensions()
             for (Iterator<Tensor.Cell> iter = denseOutput.cellIterator(); iter.hasNext(); ) {
                 var cell = iter.next();
@@ -0,0 +1,79 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Evaluates independent parts of a tensor function in a fork-join pool, when one is given by the evaluation context
+ * and there is enough work. Each part writes only its own results, so the results are the same as when evaluating
+ * sequentially.
+ */
+class ParallelEvaluation {
+
+    /** The least number of cells to compute in each task */
+    static final int minCellsPerTask = 1 << 14;
+
+    /** The least number of dense subspaces to map in each task, as each involves evaluating a function */
+    static final int minSubspacesPerTask = 8;
+
+    private ParallelEvaluation() {}
+
+    interface RangeAction {
+
+        /** Computes the results from index start, inclusive, to end, exclusive */
+        void apply(int start, int end);
+
+    }
+
+    /**
+     * Applies the given action to the range from 0 to size, split into ranges of at least minPerTask elements
+     * which are computed in parallel if the given pool is not null, and sequentially otherwise.
+     */
+    static void forRange(ForkJoinPool pool, int size, int minPerTask, RangeAction action) {
+        if (pool == null || size < 2 * minPerTask)
+            action.apply(0, size);
+        else
+            pool.invoke(new RangeTask(action, 0, size, Math.max(minPerTask, size / (4 * pool.getParallelism()))));
+    }
+
+    /** Returns the given function applied to each element, computed as with {@link #forRange} */
+    @SuppressWarnings("unchecked")
+    static <T, R> List<R> map(ForkJoinPool pool, List<T> elements, int minPerTask, Function<T, R> function) {
+        Object[] results = new Object[elements.size()];
+        forRange(pool, elements.size(), minPerTask, (start, end) -> {
+            for (int i = start; i < end; i++)
+                results[i] = function.apply(elements.get(i));
+        });
+        return (List<R>)Arrays.asList(results);
+    }
+
+    private static class RangeTask extends RecursiveAction {
+
+        private final RangeAction action;
+        private final int start, end, maxPerTask;
+
+        RangeTask(RangeAction action, int start, int end, int maxPerTask) {
+            this.action = action;
+            this.start = start;
+            this.end = end;
+            this.maxPerTask = maxPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= maxPerTask) {
+                action.apply(start, end);
+            }
+            else {
+                int middle = start + (end - start) / 2;
+                invokeAll(new RangeTask(action, start, middle, maxPerTask), new RangeTask(action, middle, end, maxPerTask));
+            }
+        }
+
+    }
+
+}
@@ -12,13 +12,12 @@ import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.TypeContext;
 import com.yahoo.tensor.impl.Convert;
+import com.yahoo.tensor.impl.TensorAddressIndex;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -149,11 +148,7 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
             }
         } else {
             address.setIndex(currentIndex, 0);
-            long increment = address.getStride(currentIndex);
-            long directIndex = address.getDirectIndex();
-            for (int i = 0; i < dimSize; i++) {
-                aggregator.aggregate(argument.get(directIndex + i * increment));
-            }
+            aggregate(aggregator, argument, address.getDirectIndex(), address.getStride(currentIndex), dimSize);
         }
     }
 
@@ -187,17 +182,29 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
     private static Tensor reduceGeneral(Tensor argument, TensorType reducedType, int[] indexesToKeep, Aggregator aggregator) {
         // TODO cells.size() is most likely an overestimate, and might need a better heuristic
         // But the upside is larger than the downside.
-        Map<TensorAddress, ValueAggregator> aggregatingCells = new HashMap<>(argument.sizeAsInt());
-        for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> cell = i.next();
-            TensorAddress reducedAddress = cell.getKey().partialCopy(indexesToKeep);
-            ValueAggregator aggr = aggregatingCells.computeIfAbsent(reducedAddress, (key) ->ValueAggregator.ofType(aggregator));
-            aggr.aggregate(cell.getValue());
-        }
+        TensorAddressIndex reducedAddresses = new TensorAddressIndex(argument.sizeAsInt());
         Tensor.Builder reducedBuilder = Tensor.Builder.of(reducedType);
-        for (Map.Entry<TensorAddress, ValueAggregator> aggregatingCell : aggregatingCells.entrySet())
-            reducedBuilder.cell(aggregatingCell.getKey(), aggregatingCell.getValue().aggregatedValue());
-
+        if (aggregator == Aggregator.sum) { // common case: Sum into an array
+            double[] sums = new double[argument.sizeAsInt()];
+            for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
+                Tensor.Cell cell = i.next();
+                sums[reducedAddresses.add(cell.getKey().partialCopy(indexesToKeep))] += cell.getValue();
+            }
+            for (int position = 0; position < reducedAddresses.size(); position++)
+                reducedBuilder.cell(reducedAddresses.address(position), sums[position]);
+        }
+        else {
+            ValueAggregator[] aggregators = new ValueAggregator[argument.sizeAsInt()];
+            for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
+                Tensor.Cell cell = i.next();
+                int position = reducedAddresses.add(cell.getKey().partialCopy(indexesToKeep));
+                if (aggregators[position] == null)
+                    aggregators[position] = ValueAggregator.ofType(aggregator);
+                aggregators[position].aggregate(cell.getValue());
+            }
+            for (int position = 0; position < reducedAddresses.size(); position++)
+                reducedBuilder.cell(reducedAddresses.address(position), aggregators[position].aggregatedValue());
+        }
         return reducedBuilder.build();
     }
 
@@ -234,11 +241,24 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
     private static Tensor reduceIndexedVector(IndexedTensor argument, Aggregator aggregator) {
         ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
         int dimensionSize = Convert.safe2Int(argument.dimensionSizes().size(0));
-        for (int i = 0; i < dimensionSize ; i++)
-            valueAggregator.aggregate(argument.get(i));
+        aggregate(valueAggregator, argument, 0, 1, dimensionSize);
         return Tensor.Builder.of(TensorType.empty).cell(valueAggregator.aggregatedValue()).build();
     }
 
+    /** Aggregates the given number of cells from start, with the given stride */
+    private static void aggregate(ValueAggregator aggregator, IndexedTensor argument, long start, long stride, int length) {
+        if (aggregator instanceof SumAggregator sum) {
+            sum.valueSum = DenseKernels.sum(sum.valueSum, argument, start, stride, length);
+        }
+        else if (aggregator instanceof MaxAggregator max) {
+            max.maxValue = DenseKernels.max(max.maxValue, argument, start, stride, length);
+        }
+        else {
+            for (int i = 0; i < length; i++)
+                aggregator.aggregate(argument.get(start + i * stride));
+        }
+    }
+
     static abstract class ValueAggregator {
 
         static ValueAggregator ofType(Aggregator aggregator) {
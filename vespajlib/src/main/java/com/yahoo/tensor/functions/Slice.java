@@ -2,6 +2,7 @@
 package com.yahoo.tensor.functions;
 
 import com.yahoo.api.annotations.Beta;
+import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Label;
 import com.yahoo.tensor.PartialAddress;
 import com.yahoo.tensor.Tensor;
@@ -95,6 +96,14 @@ public class Slice<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETY
         }
 
         Tensor.Builder b = Tensor.Builder.of(resultType);
+        if (tensor instanceof IndexedTensor indexed && isIndexedSubspace(subspaceAddress, indexed)) {
+            // Visit only the cells of the subspace, such that slicing large tensors does not read all cells
+            for (var i = indexed.cellIterator(subspaceAddress, indexed.dimensionSizes()); i.hasNext(); ) {
+                Tensor.Cell cell = i.next();
+                b.cell(remaining(resultType, cell.getKey(), tensor.type()), cell.getValue());
+            }
+            return b.build();
+        }
         for (Iterator<Tensor.Cell> i = tensor.cellIterator(); i.hasNext(); ) {
             Tensor.Cell cell = i.next();
             if (matches(subspaceAddress, cell.getKey(), tensor.type()))
@@ -116,6 +125,17 @@ public class Slice<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETY
         return b.build();
     }
 
+    /** Returns whether the given address points to indexes within the bounds of the given tensor */
+    private boolean isIndexedSubspace(PartialAddress subspaceAddress, IndexedTensor tensor) {
+        for (int i = 0; i < subspaceAddress.size(); i++) {
+            Optional<Integer> dimension = tensor.type().indexOfDimension(subspaceAddress.dimension(i));
+            if (dimension.isEmpty()) return false;
+            long index = subspaceAddress.objectLabel(i).asNumeric();
+            if (index < 0 || index >= tensor.dimensionSizes().size(dimension.get())) return false;
+        }
+        return true;
+    }
+
     private boolean matches(PartialAddress subspaceAddress,
                             TensorAddress address, TensorType type) {
         for (int i = 0; i < subspaceAddress.size(); i++) {
@@ -0,0 +1,104 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.impl;
+
+import com.yahoo.tensor.TensorAddress;
+
+import java.util.Arrays;
+
+/**
+ * Assigns consecutive positions to tensor addresses in the order they are added, such that values
+ * can be kept in primitive arrays indexed by these positions rather than in a map of boxed values.
+ * Lookups use an open addressing hash table with linear probing.
+ * <p>
+ * This is not multithread safe.
+ */
+public final class TensorAddressIndex {
+
+    private static final int EMPTY = -1;
+
+    private TensorAddress[] addresses;
+    private int[] slots; // positions of the addresses, or EMPTY
+    private int size = 0;
+
+    public TensorAddressIndex(int expectedSize) {
+        addresses = new TensorAddress[Math.max(expectedSize, 4)];
+        slots = emptySlots(slotCountFor(addresses.length));
+    }
+
+    private TensorAddressIndex(TensorAddress[] addresses, int[] slots, int size) {
+        this.addresses = addresses;
+        this.slots = slots;
+        this.size = size;
+    }
+
+    /** Returns a copy of this which can be modified independently */
+    public TensorAddressIndex copy() {
+        return new TensorAddressIndex(Arrays.copyOf(addresses, addresses.length), Arrays.copyOf(slots, slots.length), size);
+    }
+
+    /** Returns the number of addresses in this */
+    public int size() { return size; }
+
+    /** Returns the address at the given position */
+    public TensorAddress address(int position) {
+        if (position >= size) throw new IndexOutOfBoundsException(position + " is not less than the size " + size);
+        return addresses[position];
+    }
+
+    /** Returns the position of the given address, or -1 if it is not in this */
+    public int positionOf(TensorAddress address) {
+        int mask = slots.length - 1;
+        for (int slot = slotOf(address, mask); ; slot = (slot + 1) & mask) {
+            int position = slots[slot];
+            if (position == EMPTY) return -1;
+            if (addresses[position].equals(address)) return position;
+        }
+    }
+
+    /**
+     * Returns the position of the given address. If it is not present it is first added at position size(),
+     * so the caller can tell whether it was added by comparing the returned position to the size before the call.
+     */
+    public int add(TensorAddress address) {
+        int mask = slots.length - 1;
+        int slot = slotOf(address, mask);
+        for (; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (addresses[slots[slot]].equals(address)) return slots[slot];
+        }
+        if (size == addresses.length)
+            addresses = Arrays.copyOf(addresses, addresses.length * 2);
+        addresses[size] = address;
+        slots[slot] = size;
+        if (++size * 2 > slots.length)
+            rehash(slots.length * 2);
+        return size - 1;
+    }
+
+    private void rehash(int slotCount) {
+        slots = emptySlots(slotCount);
+        int mask = slotCount - 1;
+        for (int position = 0; position < size; position++) {
+            int slot = slotOf(addresses[position], mask);
+            while (slots[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            slots[slot] = position;
+        }
+    }
+
+    private static int slotOf(TensorAddress address, int mask) {
+        int hash = address.hashCode() * 0x9e3779b9; // Spread the hash codes of consecutive label ids
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /** Returns the smallest power of two which keeps the load factor at most 0.5 for the given number of addresses */
+    private static int slotCountFor(int addressCount) {
+        return Integer.highestOneBit(Math.max(addressCount, 2) * 2 - 1) << 1;
+    }
+
+    private static int[] emptySlots(int count) {
+        int[] slots = new int[count];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+
+}
@@ -7,6 +7,8 @@ import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.Optional;
 
 /**
@@ -77,10 +79,26 @@ public class DenseBinaryFormat implements BinaryFormat {
 
     @Override
     public Tensor decode(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
-        TensorType type;
-        DimensionSizes sizes;
+        TypeAndSizes typeAndSizes = decodeTypeAndSizes(optionalType, buffer);
+        Tensor.Builder builder = Tensor.Builder.of(typeAndSizes.type(), typeAndSizes.sizes());
+        decodeCells(typeAndSizes.sizes(), buffer, (IndexedTensor.BoundBuilder)builder);
+        return builder.build();
+    }
+
+    /**
+     * Decodes a tensor whose cells are memory-mapped from a file instead of being read into memory.
+     *
+     * @param header a buffer containing the start of the file, positioned after the format type
+     * @param file the file containing the tensor
+     */
+    Tensor decode(Optional<TensorType> optionalType, GrowableByteBuffer header, FileChannel file) throws IOException {
+        TypeAndSizes typeAndSizes = decodeTypeAndSizes(optionalType, header);
+        return IndexedTensor.fromFile(typeAndSizes.type(), typeAndSizes.sizes(), file, header.position());
+    }
+
+    private TypeAndSizes decodeTypeAndSizes(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
         if (optionalType.isPresent()) {
-            type = optionalType.get();
+            TensorType type = optionalType.get();
             if (type.valueType() != this.serializationValueType) {
                 throw new IllegalArgumentException("Tensor value type mismatch. Value type " + type.valueType() +
                                                    " is not " + this.serializationValueType);
@@ -89,15 +107,12 @@ public class DenseBinaryFormat implements BinaryFormat {
             if ( ! serializedType.isAssignableTo(type))
                 throw new IllegalArgumentException("Type/instance mismatch: A tensor of type " + serializedType +
                                                    " cannot be assigned to type " + type);
-            sizes = sizesFromType(serializedType);
+            return new TypeAndSizes(type, sizesFromType(serializedType));
         }
         else {
-            type = decodeType(buffer);
-            sizes = sizesFromType(type);
+            TensorType type = decodeType(buffer);
+            return new TypeAndSizes(type, sizesFromType(type));
         }
-        Tensor.Builder builder = Tensor.Builder.of(type, sizes);
-        decodeCells(sizes, buffer, (IndexedTensor.BoundBuilder)builder);
-        return builder.build();
     }
 
     private TensorType decodeType(GrowableByteBuffer buffer) {
@@ -147,4 +162,6 @@ public class DenseBinaryFormat implements BinaryFormat {
         }
     }
 
+    private record TypeAndSizes(TensorType type, DimensionSizes sizes) {}
+
 }
@@ -6,6 +6,14 @@ import com.yahoo.tensor.MixedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 
 /**
@@ -26,6 +34,9 @@ public class TypedBinaryFormat {
     private static final int DENSE_BINARY_FORMAT_WITH_CELLTYPE = 6;
     private static final int MIXED_BINARY_FORMAT_WITH_CELLTYPE = 7;
 
+    /** The max number of bytes to read to find the cells of a dense tensor in a file */
+    private static final int maxMappedHeaderSize = 1 << 16;
+
     private static final int DOUBLE_VALUE_TYPE = 0; // Not encoded as it is default, and you know the type when deserializing
     private static final int FLOAT_VALUE_TYPE = 1;
     private static final int BFLOAT16_VALUE_TYPE = 2;
@@ -54,6 +65,40 @@ public class TypedBinaryFormat {
         return decoder.decode(type, buffer);
     }
 
+    /**
+     * Decodes a tensor from a file. Dense tensors are memory-mapped rather than read into memory,
+     * such that large tensors can be used without copying them to the heap, while other tensors are read fully.
+     *
+     * @param type the type to decode and validate to, or empty to use the type given in the data
+     * @param file the file containing the tensor data
+     * @return the resulting tensor, which is read-only
+     * @throws IllegalArgumentException if the tensor data was invalid
+     * @throws UncheckedIOException if the file could not be read
+     */
+    public static Tensor decode(Optional<TensorType> type, Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate((int)Math.min(channel.size(), maxMappedHeaderSize));
+            while (header.hasRemaining())
+                if (channel.read(header) < 0) break;
+            GrowableByteBuffer headerBuffer = GrowableByteBuffer.wrap(header.array());
+            int formatType = decodeFormatType(headerBuffer);
+            if (formatType == DENSE_BINARY_FORMAT_TYPE || formatType == DENSE_BINARY_FORMAT_WITH_CELLTYPE) {
+                try {
+                    DenseBinaryFormat format = formatType == DENSE_BINARY_FORMAT_TYPE ? new DenseBinaryFormat()
+                                                                                      : new DenseBinaryFormat(decodeValueType(headerBuffer));
+                    return format.decode(type, headerBuffer, channel);
+                }
+                catch (BufferUnderflowException e) {
+                    // The dimensions do not fit in the header: Read it all instead
+                }
+            }
+            return decode(type, GrowableByteBuffer.wrap(Files.readAllBytes(file)));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not read a tensor from " + file, e);
+        }
+    }
+
     private static BinaryFormat getFormatEncoder(GrowableByteBuffer buffer, Tensor tensor) {
         boolean hasMappedDimensions = tensor.type().hasMappedDimensions();
         boolean hasIndexedDimensions = tensor.type().hasIndexedDimensions();
@@ -0,0 +1,166 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import com.yahoo.io.GrowableByteBuffer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinaryStreamEncoderTest {
+
+    /** Inserts values of all types, and containers both smaller and larger than what fits in the type byte */
+    private static void insertValues(Inserter inserter) {
+        Cursor root = inserter.insertOBJECT();
+        root.setNix("nix");
+        root.setBool("bool", true);
+        root.setLong("long", -123456789L);
+        root.setDouble("double", 3.5);
+        root.setString("string", "foo");
+        root.setString("utf8", Utf8Codec.encode("bar"));
+        root.setData("data", new byte[] { 1, 2, 3 });
+        Cursor array = root.setArray("array");
+        for (int i = 0; i < 100; i++) {
+            Cursor entry = array.addObject();
+            entry.setLong("id", i);
+            entry.setString("name", "entry " + i);
+            Cursor nested = entry.setArray("values");
+            for (int j = 0; j < i % 40; j++)
+                nested.addDouble(j * 0.5);
+            entry.setBool("last", i == 99);
+        }
+        root.setObject("empty");
+        array = root.setArray("longs"); // a size taking more than one byte after the type byte
+        for (int i = 0; i < 200; i++)
+            array.addLong(i);
+        array = root.setArray("mixed");
+        array.addNix();
+        array.addBool(false);
+        array.addLong(7);
+        array.addString("baz");
+        array.addData(new byte[40]);
+        array.addArray().addArray().addLong(1);
+        root.setString("after", "the arrays");
+    }
+
+    @Test
+    public void testOutputIsTheSameAsEncodingSlime() throws IOException {
+        Slime slime = new Slime();
+        insertValues(new SlimeInserter(slime));
+        byte[] expected = BinaryFormat.encode(slime);
+
+        BinaryStreamEncoder encoder = new BinaryStreamEncoder();
+        insertValues(encoder);
+        assertArrayEquals(expected, encoder.toArray());
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        encoder.writeTo(stream);
+        assertArrayEquals(expected, stream.toByteArray());
+
+        GrowableByteBuffer buffer = new GrowableByteBuffer(16);
+        encoder.writeTo(buffer);
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertArrayEquals(expected, bytes);
+
+        assertTrue(SlimeUtils.equalTo(slime.get(), BinaryView.inspect(encoder.toArray())));
+    }
+
+    @Test
+    public void testRootValues() {
+        assertEncodesAs(new Slime(), new BinaryStreamEncoder());
+
+        Slime slime = new Slime();
+        slime.setLong(17);
+        BinaryStreamEncoder encoder = new BinaryStreamEncoder();
+        encoder.insertLONG(17);
+        assertEncodesAs(slime, encoder);
+
+        slime = new Slime();
+        slime.setArray().addString("foo");
+        encoder = new BinaryStreamEncoder();
+        encoder.insertARRAY().addString("foo");
+        assertEncodesAs(slime, encoder);
+
+        try {
+            encoder.insertLONG(1);
+            fail("Expected exception");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("A root value is already inserted", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testInsertingIntoClosedContainers() {
+        BinaryStreamEncoder encoder = new BinaryStreamEncoder();
+        Cursor root = encoder.insertOBJECT();
+        Cursor first = root.setArray("first");
+        first.addLong(1);
+        Cursor inner = first.addObject();
+        inner.setLong("a", 1);
+        first.addLong(2); // closes inner
+        root.setLong("second", 2); // closes first
+        try {
+            first.addLong(3);
+            fail("Expected exception");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("Cannot insert into a container which is closed by inserting into a container outside it",
+                         e.getMessage());
+        }
+        try {
+            inner.setLong("b", 2);
+            fail("Expected exception");
+        }
+        catch (IllegalStateException e) {
+            // Expected
+        }
+        assertEquals(3, first.entries());
+        assertEquals(2, root.fields());
+
+        Slime slime = new Slime();
+        Cursor expectedRoot = slime.setObject();
+        Cursor expectedFirst = expectedRoot.setArray("first");
+        expectedFirst.addLong(1);
+        expectedFirst.addObject().setLong("a", 1);
+        expectedFirst.addLong(2);
+        expectedRoot.setLong("second", 2);
+        assertEncodesAs(slime, encoder);
+    }
+
+    @Test
+    public void testInvalidInsertions() {
+        BinaryStreamEncoder encoder = new BinaryStreamEncoder();
+        Cursor root = encoder.insertOBJECT();
+        assertTrue(root.setLong("a", 1).valid());
+        assertFalse(root.setLong("a", 2).valid());
+        assertFalse(root.setObject("a").valid());
+        assertFalse(root.addLong(3).valid());
+        assertFalse(root.setLong(17, 3).valid());
+        Cursor array = root.setArray("b");
+        assertFalse(array.setLong("c", 1).valid());
+        assertEquals(2, root.fields());
+        assertEquals(0, array.entries());
+
+        Slime slime = new Slime();
+        slime.setObject().setLong("a", 1);
+        slime.get().setArray("b");
+        assertEncodesAs(slime, encoder);
+    }
+
+    private static void assertEncodesAs(Slime expected, BinaryStreamEncoder encoder) {
+        byte[] expectedBytes = BinaryFormat.encode(expected);
+        byte[] bytes = encoder.toArray();
+        assertArrayEquals(Arrays.toString(expectedBytes) + " != " + Arrays.toString(bytes), expectedBytes, bytes);
+    }
+
+}
@@ -87,33 +87,51 @@ public class JsonBenchmark {
         }
         return count;
     }
-    private static void warmup(byte[] json) {
+
+    private static long benchmarkBinaryView(byte[] json, int numIterations) {
+        long count = 0;
+        for (int i = 0; i < numIterations; i++) {
+            Inspector array = new JsonDecoder().decodeToBinaryView(json);
+            for (int j = 0, m = array.entries(); j < m; j++) {
+                count += array.entry(j).field("weight").asLong();
+            }
+        }
+        return count;
+    }
+
+    private static void warmup(String type, byte[] json) {
         System.out.println(System.currentTimeMillis() + " Warming up");
-        benchmarkSlime(json, 5000);
+        benchmark(type, json, 5000);
         System.out.println(System.currentTimeMillis() + " Done Warming up");
     }
 
+    private static long benchmark(String type, byte[] json, int numIterations) {
+        if ("jacksons".equals(type)) {
+            return benchmarkJacksonStreaming(json, numIterations);
+        } else if ("jacksont".equals(type)) {
+            return benchmarkJacksonTree(json, numIterations);
+        } else if ("binaryview".equals(type)) {
+            return benchmarkBinaryView(json, numIterations);
+        } else {
+            return benchmarkSlime(json, numIterations);
+        }
+    }
+
     /**
      * jacksons 1000 40000 = 5.6 seconds
      * jacksont 1000 40000 = 11.0 seconds
      * slime 1000 40000  = 17.5 seconds
+     * binaryview 1000 40000 = about 1.5 times the slime time, allocating half as much
      * @param argv type, num elements in weigted set, num iterations
      */
     static public void main(String[] argv) {
         String type = argv[0];
         byte[] json = createJson(Integer.parseInt(argv[1]));
-        warmup(json);
+        warmup(type, json);
         int count = Integer.parseInt(argv[2]);
         System.out.println(System.currentTimeMillis() + " Start");
         long start = System.currentTimeMillis();
-        long numValues;
-        if ("jacksons".equals(type)) {
-            numValues = benchmarkJacksonStreaming(json, count);
-        } else if ("jacksont".equals(type)) {
-            numValues = benchmarkJacksonTree(json, count);
-        } else{
-            numValues = benchmarkSlime(json, count);
-        }
+        long numValues = benchmark(type, json, count);
         System.out.println(System.currentTimeMillis() + " End with " + numValues + " values in " + (System.currentTimeMillis() - start) + " milliseconds.");
     }
 
@@ -372,6 +372,36 @@ public class JsonFormatTestCase {
         assertArrayEquals(tailOfBytes, retainedTail);
     }
 
+    @Test
+    public void testDecodeToBinaryView() {
+        String json = "{\"a\":[1,2.5,true,null,\"foo\",{\"b\":[],\"c\":{}}],\"d\":\"\\u00e6\",\"e\":-3,\"a\":7}";
+        Slime slime = SlimeUtils.jsonToSlime(json);
+        Inspector view = SlimeUtils.jsonToBinaryView(Utf8.toBytesStd(json));
+        assertTrue(SlimeUtils.equalTo(slime.get(), view));
+        assertEquals(1, view.field("a").entry(0).asLong());
+        assertEquals("æ", view.field("d").asString());
+        assertArrayEquals(BinaryFormat.encode(slime), BinaryFormat.encode(SlimeUtils.jsonToSlime(SlimeUtils.toJson(view))));
+
+        StringBuilder large = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++)
+            large.append(i > 0 ? "," : "").append("{\"key\":\"").append(i).append("\",\"values\":[").append(i).append(",").append(i * 0.5).append("]}");
+        large.append("]");
+        assertTrue(SlimeUtils.equalTo(SlimeUtils.jsonToSlime(large.toString()).get(),
+                                      SlimeUtils.jsonToBinaryView(Utf8.toBytesStd(large.toString()))));
+    }
+
+    @Test
+    public void testDecodeToBinaryViewError() {
+        try {
+            SlimeUtils.jsonToBinaryView(Utf8.toBytesStd("{\"a\": 1 \"b\": 2}"));
+            fail("Expected exception");
+        }
+        catch (JsonParseException e) {
+            assertEquals(SlimeUtils.jsonToSlime("{\"a\": 1 \"b\": 2}").get().field("error_message").asString(),
+                         e.getMessage());
+        }
+    }
+
     private static int indexOf(byte[] data, byte b) {
         for (int i = 0; i < data.length; i++) if (data[i] == b) return i;
         return -1;
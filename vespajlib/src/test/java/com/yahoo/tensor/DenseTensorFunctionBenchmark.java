@@ -0,0 +1,94 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ReduceJoin;
+import com.yahoo.tensor.functions.ScalarFunctions;
+import com.yahoo.tensor.functions.TensorFunction;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Microbenchmark of functions over dense tensors, comparing the fast paths taken for
+ * common operations with the general evaluation of the same functions.
+ */
+public class DenseTensorFunctionBenchmark {
+
+    private final static Random random = new Random(1);
+
+    private final MapEvaluationContext<Name> context = new MapEvaluationContext<>();
+
+    public DenseTensorFunctionBenchmark(int size) {
+        context.put("a", vector("x", size));
+        context.put("b", vector("x", size));
+        context.put("m", matrix("i", "k", size / 4));
+        context.put("n", matrix("j", "k", size / 4));
+    }
+
+    /** Returns the time per evaluation of the given function in microseconds */
+    public double benchmark(TensorFunction<Name> function, int iterations) {
+        evaluate(function, Math.max(iterations / 10, 10)); // warmup
+        System.gc();
+        long startTime = System.nanoTime();
+        evaluate(function, iterations);
+        return (System.nanoTime() - startTime) / 1000.0 / iterations;
+    }
+
+    private double evaluate(TensorFunction<Name> function, int iterations) {
+        double result = 0;
+        for (int i = 0; i < iterations; i++)
+            result += function.evaluate(context).sum().asDouble();
+        return result;
+    }
+
+    private static Tensor vector(String dimension, int size) {
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(new TensorType.Builder().indexed(dimension, size).build());
+        for (int i = 0; i < size; i++)
+            builder.cell(random.nextDouble(), i);
+        return builder.build();
+    }
+
+    private static Tensor matrix(String dimension1, String dimension2, int size) {
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(new TensorType.Builder().indexed(dimension1, size)
+                                                                                         .indexed(dimension2, size).build());
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                builder.cell(random.nextDouble(), i, j);
+        return builder.build();
+    }
+
+    private static void print(String name, double general, double fast) {
+        System.out.printf(Locale.ROOT, "%-24s general: %10.3f us, fast: %10.3f us, speedup: %5.2f\n",
+                          name, general, fast, general / fast);
+    }
+
+    public static void main(String[] args) {
+        int size = 512;
+        int iterations = 5000;
+        DenseTensorFunctionBenchmark benchmark = new DenseTensorFunctionBenchmark(size);
+        TensorFunction<Name> a = new VariableTensor<>("a");
+        TensorFunction<Name> b = new VariableTensor<>("b");
+        TensorFunction<Name> m = new VariableTensor<>("m");
+        TensorFunction<Name> n = new VariableTensor<>("n");
+
+        print("join(a, b, f(x,y)(x*y))",
+              benchmark.benchmark(new Join<>(a, b, (x, y) -> x * y), iterations),
+              benchmark.benchmark(new Join<>(a, b, ScalarFunctions.multiply()), iterations));
+        print("reduce(m, avg|sum, k)",
+              benchmark.benchmark(new Reduce<>(m, Reduce.Aggregator.avg, "k"), iterations),
+              benchmark.benchmark(new Reduce<>(m, Reduce.Aggregator.sum, "k"), iterations));
+        print("dot product",
+              benchmark.benchmark(new ReduceJoin<>(a, b, (x, y) -> x * y, Reduce.Aggregator.sum, List.of("x")), iterations * 10),
+              benchmark.benchmark(new ReduceJoin<>(a, b, ScalarFunctions.multiply(), Reduce.Aggregator.sum, List.of("x")), iterations * 10));
+        print("matrix product",
+              benchmark.benchmark(new ReduceJoin<>(m, n, (x, y) -> x * y, Reduce.Aggregator.sum, List.of("k")), iterations / 10),
+              benchmark.benchmark(new ReduceJoin<>(m, n, ScalarFunctions.multiply(), Reduce.Aggregator.sum, List.of("k")), iterations / 100));
+    }
+
+}
@@ -100,13 +100,31 @@ public class TensorTestCase {
         assertEquals(Tensor.Builder.of(TensorType.fromSpec("tensor<float>(x[1])")).cell(5.0, 0).build().getClass(),
                      IndexedFloatTensor.class);
 
-        assertEquals(Tensor.from("tensor<bfloat16>(x[1]):[5]").getClass(), IndexedFloatTensor.class);
+        assertEquals(Tensor.from("tensor<bfloat16>(x[1]):[5]").getClass(), IndexedBFloat16Tensor.class);
         assertEquals(Tensor.Builder.of(TensorType.fromSpec("tensor<bfloat16>(x[1])")).cell(5.0, 0).build().getClass(),
-                IndexedFloatTensor.class);
+                IndexedBFloat16Tensor.class);
 
-        assertEquals(Tensor.from("tensor<int8>(x[1]):[5]").getClass(), IndexedFloatTensor.class);
+        assertEquals(Tensor.from("tensor<int8>(x[1]):[5]").getClass(), IndexedInt8Tensor.class);
         assertEquals(Tensor.Builder.of(TensorType.fromSpec("tensor<int8>(x[1])")).cell(5.0, 0).build().getClass(),
-                IndexedFloatTensor.class);
+                IndexedInt8Tensor.class);
+    }
+
+    @Test
+    public void testCompactValueTypesAreStoredWithTheirPrecision() {
+        IndexedTensor bfloat16 = (IndexedTensor)Tensor.from("tensor<bfloat16>(x[3]):[1.5, 3.14159, 1e10]");
+        assertEquals(1.5, bfloat16.get(0), 0);
+        assertEquals(3.140625, bfloat16.get(1), 0);
+        assertEquals(9.999221E9f, bfloat16.getFloat(2), 0);
+        assertEquals(Tensor.from("tensor<bfloat16>(x[3]):[1.5, 3.140625, 1e10]"), bfloat16);
+        assertEquals(Tensor.from("tensor<float>(x[3]):[1.5, 3.140625, 9.999221E9]"),
+                     bfloat16.withType(TensorType.fromSpec("tensor<float>(x[3])")));
+
+        IndexedTensor int8 = (IndexedTensor)Tensor.from("tensor<int8>(x[4]):[1, -128, 127, 2.7]");
+        assertEquals(1, int8.get(0), 0);
+        assertEquals(-128, int8.get(1), 0);
+        assertEquals(127, int8.getFloat(2), 0);
+        assertEquals(2, int8.get(3), 0);
+        assertEquals(Tensor.from("tensor<float>(x[4]):[2, -256, 254, 4]"), int8.multiply(Tensor.from("tensor<float>(x[4]):[2, 2, 2, 2]")));
     }
 
     @Test
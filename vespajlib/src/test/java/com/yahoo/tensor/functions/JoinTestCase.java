@@ -35,6 +35,21 @@ public class JoinTestCase {
                      t2.divide(t1));
     }
 
+    @Test
+    public void testDenseJoinOfSameShape() {
+        Tensor t1 = Tensor.from("tensor(x[2],y[3]):[[1, 2, 3], [4, 5, 6]]");
+        Tensor t2 = Tensor.from("tensor(x[2],y[3]):[[6, 5, 4], [3, 2, 1]]");
+        assertEquals(Tensor.from("tensor(x[2],y[3]):[[6, 10, 12], [12, 10, 6]]"), t1.multiply(t2));
+        assertEquals(Tensor.from("tensor(x[2],y[3]):[[7, 7, 7], [7, 7, 7]]"), t1.add(t2));
+        assertEquals(Tensor.from("tensor(x[2],y[3]):[[-5, -3, -1], [1, 3, 5]]"), t1.subtract(t2));
+        assertEquals(t1.join(t2, (a, b) -> a / b), t1.divide(t2));
+        assertEquals(Tensor.from("tensor(x[2],y[3]):[[6, 5, 4], [4, 5, 6]]"), t1.join(t2, Math::max));
+
+        Tensor floats = Tensor.from("tensor<float>(x[2],y[3]):[[6, 5, 4], [3, 2, 1]]");
+        assertEquals(Tensor.from("tensor(x[2],y[3]):[[6, 10, 12], [12, 10, 6]]"), t1.multiply(floats));
+        assertEquals(Tensor.from("tensor<float>(x[2],y[3]):[[36, 25, 16], [9, 4, 1]]"), floats.multiply(floats));
+    }
+
     @Test
     public void testGeneralJoin() {
         assertEquals(Tensor.from("tensor(x[],y[]):{ {x:0,y:0}:1, {x:1,y:0}:2, {x:2,y:0}:3 }"),
@@ -0,0 +1,112 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.DimensionSizes;
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.EvaluationContext;
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.DoubleBinaryOperator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that evaluating in parallel gives the same results as evaluating in the calling thread.
+ */
+public class ParallelEvaluationTestCase {
+
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testDenseJoin() {
+        Tensor a = denseTensor("tensor(x[300],y[400])", 1);
+        Tensor b = denseTensor("tensor(x[300],y[400])", 2);
+        for (var combinator : new DoubleBinaryOperator[] { new ScalarFunctions.Multiply(),
+                                                           new ScalarFunctions.Divide(),
+                                                           (x, y) -> Math.atan2(x, y) }) {
+            var join = new Join<>(new VariableTensor<>("a"), new VariableTensor<>("b"), combinator);
+            assertParallelEquals(join, "a", a, "b", b);
+        }
+    }
+
+    @Test
+    public void testDenseMap() {
+        Tensor a = denseTensor("tensor<float>(x[200],y[500])", 3);
+        assertParallelEquals(new Map<>(new VariableTensor<>("a"), x -> Math.exp(-x * x)), "a", a, "b", a);
+
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        new Map<>(new VariableTensor<>("a"), x -> { threads.add(Thread.currentThread()); return x; }).evaluate(context(pool, "a", a, "b", a));
+        assertTrue(threads.size() > 1);
+        assertTrue(threads.stream().allMatch(thread -> thread instanceof ForkJoinWorkerThread));
+    }
+
+    @Test
+    public void testMapAndFilterSubspaces() {
+        Tensor.Builder builder = Tensor.Builder.of(TensorType.fromSpec("tensor(key{},x[3])"));
+        for (int key = 0; key < 500; key++)
+            for (int x = 0; x < 3; x++)
+                builder.cell().label("key", "k" + key).label("x", x).value(key * 3 + x);
+        Tensor a = builder.build();
+
+        var subspace = new VariableTensor<Name>("subspace");
+        var mapSubspaces = new MapSubspaces<>(new VariableTensor<>("a"), "subspace",
+                                              new Reduce<>(new Map<>(subspace, Math::sqrt), Reduce.Aggregator.sum));
+        assertParallelEquals(mapSubspaces, "a", a, "b", a);
+
+        var filterSubspaces = new FilterSubspaces<>(new VariableTensor<>("a"), "subspace",
+                                                    new Map<>(new Reduce<>(subspace, Reduce.Aggregator.max),
+                                                              x -> (long)x % 4 == 0 ? 1 : 0));
+        Tensor filtered = assertParallelEquals(filterSubspaces, "a", a, "b", a);
+        assertEquals(3 * 125, filtered.size());
+    }
+
+    private static Tensor assertParallelEquals(TensorFunction<Name> function,
+                                               String nameA, Tensor a, String nameB, Tensor b) {
+        Tensor sequential = function.evaluate(context(null, nameA, a, nameB, b));
+        Tensor parallel = function.evaluate(context(pool, nameA, a, nameB, b));
+        assertEquals(sequential, parallel);
+        assertEquals(sequential.type(), parallel.type());
+        return parallel;
+    }
+
+    private static EvaluationContext<Name> context(ForkJoinPool pool, String nameA, Tensor a, String nameB, Tensor b) {
+        var context = new MapEvaluationContext<Name>() {
+            @Override
+            public ForkJoinPool forkJoinPool() { return pool; }
+        };
+        context.put(nameA, a);
+        context.put(nameB, b);
+        return context;
+    }
+
+    private static Tensor denseTensor(String typeSpec, int seed) {
+        TensorType type = TensorType.fromSpec(typeSpec);
+        DimensionSizes.Builder sizesBuilder = new DimensionSizes.Builder(type.dimensions().size());
+        for (int i = 0; i < sizesBuilder.dimensions(); i++)
+            sizesBuilder.set(i, type.dimensions().get(i).size().get());
+        DimensionSizes sizes = sizesBuilder.build();
+        Random random = new Random(seed);
+        double[] values = new double[(int)sizes.totalSize()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = random.nextDouble() - 0.5;
+        return IndexedTensor.Builder.of(type, sizes, values).build();
+    }
+
+}
@@ -90,6 +90,24 @@ public class SliceTestCase {
         assertEquals(Tensor.from("tensor(key{},y[1]):{{key:foo,y:0}:1.4, {key:bar,y:0}:2.4}"), result);
     }
 
+    @Test
+    public void testSliceFunctionIndexedRank3to1() {
+        Tensor input = Tensor.from("tensor<float>(x[2],y[3],z[2]):[[[1, 2], [3, 4], [5, 6]], [[7, 8], [9, 10], [11, 12]]]");
+        assertEquals(Tensor.from("tensor<float>(y[3]):[8, 10, 12]"),
+                     new Slice<>(new ConstantTensor<>(input),
+                                 List.of(new Slice.DimensionValue<>("z", 1),
+                                         new Slice.DimensionValue<>("x", 1)))
+                             .evaluate());
+        assertEquals(Tensor.from("tensor<float>(x[2],z[2]):[[3, 4], [9, 10]]"),
+                     new Slice<>(new ConstantTensor<>(input),
+                                 List.of(new Slice.DimensionValue<>("y", 1)))
+                             .evaluate());
+        assertEquals(Tensor.from("tensor<float>(y[3],z[2]):{}"),
+                     new Slice<>(new ConstantTensor<>(input),
+                                 List.of(new Slice.DimensionValue<>("x", 2)))
+                             .evaluate());
+    }
+
     @Test
     public void testSliceFunctionSingleMappedDimensionToRank0() {
         Tensor input = Tensor.from("tensor(key{}):{ {key:foo}:1.4, {key:bar}:2.3 }");
@@ -0,0 +1,40 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.impl;
+
+import com.yahoo.tensor.TensorAddress;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TensorAddressIndexTestCase {
+
+    @Test
+    void testAddressesAreAssignedPositionsInInsertionOrder() {
+        TensorAddressIndex index = new TensorAddressIndex(0);
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, index.add(TensorAddress.ofLabels("label" + i, String.valueOf(i % 7))));
+        assertEquals(1000, index.size());
+
+        for (int i = 0; i < 1000; i++) {
+            TensorAddress address = TensorAddress.ofLabels("label" + i, String.valueOf(i % 7));
+            assertEquals(i, index.positionOf(address));
+            assertEquals(i, index.add(address));
+            assertEquals(address, index.address(i));
+        }
+        assertEquals(1000, index.size());
+        assertEquals(-1, index.positionOf(TensorAddress.ofLabels("label0", "1")));
+    }
+
+    @Test
+    void testCopiesAreIndependent() {
+        TensorAddressIndex index = new TensorAddressIndex(4);
+        index.add(TensorAddress.ofLabels("a"));
+        TensorAddressIndex copy = index.copy();
+        copy.add(TensorAddress.ofLabels("b"));
+        assertEquals(1, index.size());
+        assertEquals(-1, index.positionOf(TensorAddress.ofLabels("b")));
+        assertEquals(2, copy.size());
+        assertEquals(1, copy.positionOf(TensorAddress.ofLabels("b")));
+    }
+
+}
@@ -3,10 +3,19 @@ package com.yahoo.tensor.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.functions.ConstantTensor;
+import com.yahoo.tensor.functions.Slice;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
@@ -19,6 +28,9 @@ import static org.junit.Assert.fail;
  */
 public class DenseBinaryFormatTestCase {
 
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
     @Test
     public void testSerialization() {
         assertSerialization("{-5.37}");
@@ -108,6 +120,56 @@ public class DenseBinaryFormatTestCase {
         assertSerialization("tensor<int8>(x[2],y[2]):[2, 3, 4, 5]");
     }
 
+    @Test
+    public void testDecodingFromFile() throws IOException {
+        assertDecodingFromFile("tensor(x[2],y[3]):[[1.5, 2, 3], [4, 5, 6]]");
+        assertDecodingFromFile("tensor<float>(x[2],y[3]):[[1.5, 2, 3], [4, 5, 6]]");
+        assertDecodingFromFile("tensor<bfloat16>(x[2],y[3]):[[1.5, 2, 3], [4, 5, 6]]");
+        assertDecodingFromFile("tensor<int8>(x[2],y[3]):[[1, 2, 3], [4, 5, 6]]");
+        assertDecodingFromFile("tensor(x[1000]):[" + "1.0, ".repeat(999) + "2.0]");
+        assertDecodingFromFile("tensor(key{}):{a:1, b:2}"); // not dense: read into memory
+
+        Tensor tensor = Tensor.from("tensor<float>(x[2],y[3]):[[1, 2, 3], [4, 5, 6]]");
+        File file = tensorFile(tensor);
+        Tensor decoded = TypedBinaryFormat.decode(Optional.of(TensorType.fromSpec("tensor<float>(x[],y[])")), file.toPath());
+        assertEquals(TensorType.fromSpec("tensor<float>(x[],y[])"), decoded.type());
+        assertEquals(6.0, decoded.get(TensorAddress.of(1, 2)), 0);
+        assertEquals(Tensor.from("tensor<float>(y[3]):[4, 5, 6]"),
+                     new Slice<>(new ConstantTensor<>(decoded), List.of(new Slice.DimensionValue<>("x", 1))).evaluate());
+        try {
+            TypedBinaryFormat.decode(Optional.of(TensorType.fromSpec("tensor<float>(x[2],y[2])")), file.toPath());
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException expected) {
+            assertEquals("Type/instance mismatch: A tensor of type tensor<float>(x[2],y[3]) cannot be assigned to type tensor<float>(x[2],y[2])",
+                         expected.getMessage());
+        }
+
+        byte[] truncated = Arrays.copyOf(TypedBinaryFormat.encode(tensor), 20);
+        Files.write(file.toPath(), truncated);
+        try {
+            TypedBinaryFormat.decode(Optional.empty(), file.toPath());
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException expected) {
+            assertEquals("Expected 24 bytes of cells from position 9 but the file size is 20", expected.getMessage());
+        }
+    }
+
+    private void assertDecodingFromFile(String tensorString) throws IOException {
+        Tensor tensor = Tensor.from(tensorString);
+        Tensor decoded = TypedBinaryFormat.decode(Optional.of(tensor.type()), tensorFile(tensor).toPath());
+        assertEquals(tensor, decoded);
+        assertEquals(tensor.hashCode(), decoded.hashCode());
+        assertEquals(tensor.type(), decoded.type());
+    }
+
+    private File tensorFile(Tensor tensor) throws IOException {
+        File file = tmpFolder.newFile();
+        Files.write(file.toPath(), TypedBinaryFormat.encode(tensor));
+        return file;
+    }
+
     private void assertSerialization(String tensorString) {
         assertSerialization(Tensor.from(tensorString));
     }